@@ -0,0 +1,89 @@
+package com.chess;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.NeuralBoardEvaluator;
+import com.chess.engine.player.ai.NeuralNetwork;
+import com.chess.engine.player.ai.PieceSquareEvaluator;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the board evaluators on the positions two plies from a few start positions.
+ * Usage: EvaluatorBenchmark [network file], a random network is used when no file is given.
+ */
+public class EvaluatorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int TIMED_ROUNDS = 50;
+    private static final int RANDOM_HIDDEN_SIZE = 256;
+
+    public static void main(final String[] args) throws IOException {
+        final NeuralNetwork network = args.length > 0
+                ? NeuralNetwork.load(new File(args[0]))
+                : NeuralNetwork.createRandom(RANDOM_HIDDEN_SIZE, 1L);
+        final List<Board> leaves = new ArrayList<>();
+        for (final Board root : new Board[] {
+                Board.createStandardBoard(),
+                FenUtilities.createGameFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                FenUtilities.createGameFromFEN("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1") }) {
+            for (final Board child : children(root)) {
+                leaves.addAll(children(child));
+            }
+        }
+        System.out.println(leaves.size() + " positions, network with " + network.getHiddenSize() + " hidden neurons");
+
+        time("Standard", StandardBoardEvaluator.get(), leaves, false);
+        time("PieceSquare", PieceSquareEvaluator.get(), leaves, false);
+        // Boards read from FEN have no previous board, so their sums are rebuilt from every piece
+        final List<Board> standalone = new ArrayList<>();
+        for (final Board leaf : leaves) {
+            standalone.add(FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(leaf)));
+        }
+        time("Neural, rebuilt", new NeuralBoardEvaluator(network), standalone, true);
+        // The parents keep their sums from the first round, so each leaf costs one update
+        time("Neural, updated", new NeuralBoardEvaluator(network), leaves, true);
+    }
+
+    private static List<Board> children(final Board board) {
+        final List<Board> children = new ArrayList<>();
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                children.add(transition.getToBoard());
+            }
+        }
+        return children;
+    }
+
+    private static void time(final String name,
+                             final BoardEvaluator evaluator,
+                             final List<Board> leaves,
+                             final boolean clearSums) {
+        long checksum = 0;
+        long elapsed = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            if (clearSums) {
+                for (final Board leaf : leaves) {
+                    leaf.setNetworkAccumulator(null);
+                }
+            }
+            final long start = System.nanoTime();
+            for (final Board leaf : leaves) {
+                checksum += evaluator.evaluate(leaf, 0);
+            }
+            if (round >= WARMUP_ROUNDS) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        System.out.printf("%-16s %8.1f ns/eval (checksum %d)%n", name,
+                (double) elapsed / ((long) TIMED_ROUNDS * leaves.size()), checksum);
+    }
+}
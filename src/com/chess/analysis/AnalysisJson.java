@@ -0,0 +1,196 @@
+package com.chess.analysis;
+
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.uci.UciNotation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class writes analysis results as JSON objects, one per line, with moves in UCI notation,
+ * and reads the flat JSON objects analysis requests are sent as
+ */
+final class AnalysisJson {
+
+    private AnalysisJson() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    /**
+     * Appends the fields of a search result, starting with a comma, to an object being built
+     * @param builder holds the object so far
+     * @param result is the search result
+     * @param elapsedMillis is the wall clock time the search took
+     */
+    static void appendResult(final StringBuilder builder,
+                             final SearchResult result,
+                             final long elapsedMillis) {
+        builder.append(",\"bestmove\":").append(quote(UciNotation.toUci(result.getBestMove())));
+        builder.append(",\"depth\":").append(result.getDepth());
+        if (result.isMateScore()) {
+            builder.append(",\"score\":{\"mate\":").append(result.getMateInMoves()).append('}');
+        } else {
+            builder.append(",\"score\":{\"cp\":").append(result.getScore()).append('}');
+        }
+        builder.append(",\"pv\":[");
+        boolean first = true;
+        for (final Move move : result.getPrincipalVariation()) {
+            builder.append(first ? "" : ",").append(quote(UciNotation.toUci(move)));
+            first = false;
+        }
+        builder.append(']');
+        builder.append(",\"nodes\":").append(result.getNodes());
+        builder.append(",\"time_ms\":").append(elapsedMillis);
+    }
+
+    /**
+     * @param text is any text
+     * @return the text as a quoted JSON string
+     */
+    static String quote(final String text) {
+        final StringBuilder builder = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Reads a JSON object whose values are strings, numbers, booleans or null. Nested values are not supported.
+     * @param text is the JSON text
+     * @return the values by name, numbers and booleans as their text and null as null
+     * @throws IllegalArgumentException if the text is no such object
+     */
+    static Map<String, String> parseObject(final String text) {
+        final Map<String, String> values = new LinkedHashMap<>();
+        final int[] position = { skipWhitespace(text, 0) };
+        expect(text, position, '{');
+        if (peek(text, position) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                final String name = readString(text, position);
+                expect(text, position, ':');
+                values.put(name, readValue(text, position));
+                if (peek(text, position) == ',') {
+                    position[0]++;
+                    continue;
+                }
+                expect(text, position, '}');
+                break;
+            }
+        }
+        if (skipWhitespace(text, position[0]) != text.length()) {
+            throw new IllegalArgumentException("Trailing text after JSON object");
+        }
+        return values;
+    }
+
+    private static String readValue(final String text, final int[] position) {
+        if (peek(text, position) == '"') {
+            return readString(text, position);
+        }
+        final int start = position[0];
+        while (position[0] < text.length() && ",}] \t\r\n".indexOf(text.charAt(position[0])) < 0) {
+            position[0]++;
+        }
+        final String literal = text.substring(start, position[0]);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false") && !literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            throw new IllegalArgumentException("Unsupported JSON value " + literal);
+        }
+        return literal;
+    }
+
+    private static String readString(final String text, final int[] position) {
+        expect(text, position, '"');
+        final StringBuilder builder = new StringBuilder();
+        while (position[0] < text.length()) {
+            final char c = text.charAt(position[0]++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position[0] >= text.length()) {
+                break;
+            }
+            final char escaped = text.charAt(position[0]++);
+            switch (escaped) {
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'u':
+                    if (position[0] + 4 > text.length()) {
+                        throw new IllegalArgumentException("Bad unicode escape in JSON string");
+                    }
+                    builder.append((char) Integer.parseInt(text.substring(position[0], position[0] + 4), 16));
+                    position[0] += 4;
+                    break;
+                default:
+                    builder.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static void expect(final String text, final int[] position, final char expected) {
+        if (peek(text, position) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + position[0]);
+        }
+        position[0]++;
+    }
+
+    // Skips whitespace and returns the next character, or 0 at the end of the text
+    private static char peek(final String text, final int[] position) {
+        position[0] = skipWhitespace(text, position[0]);
+        return position[0] < text.length() ? text.charAt(position[0]) : 0;
+    }
+
+    private static int skipWhitespace(final String text, int position) {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
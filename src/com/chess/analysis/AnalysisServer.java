@@ -0,0 +1,318 @@
+package com.chess.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.EpdRecord;
+import com.chess.pgn.FenUtilities;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP service for analysis, so that clients without a GUI process can use the engine.
+ *
+ * POST /analyze with a JSON object {"fen": "...", "depth": N, "nodes": N, "movetime": ms, "deadline": ms}
+ * answers with the best move, score and principal variation. All limits but the FEN are optional.
+ * GET /metrics reports analysis request counts and latency percentiles, GET /health answers "ok".
+ *
+ * A fixed number of engines is shared by all requests. Requests beyond the engines wait in a queue of
+ * bounded depth, and requests beyond the queue are turned away at once with 429, so a burst cannot pile
+ * up work the engines will never catch up with. Every request has a deadline that covers its wait for an
+ * engine and its search: the search is stopped when the deadline passes and returns its best move so far.
+ * The deadline and the latency of a request count from when the server handed it to a handler thread,
+ * and the latencies of every response, rejected or not, are reported by status.
+ *
+ * Usage: AnalysisServer [-port N] [-engines N] [-queue N] [-hash MB]
+ */
+public class AnalysisServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    private static final int DEFAULT_DEPTH = 8;
+    private static final long DEFAULT_DEADLINE_MILLIS = 5000;
+    private static final long MAX_DEADLINE_MILLIS = 60000;
+    // Time kept back from the deadline for writing the response
+    private static final long RESPONSE_MILLIS = 20;
+    private static final int MAX_REQUEST_BYTES = 8192;
+    private static final int LATENCY_SAMPLES = 4096;
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 1.0 };
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final BlockingQueue<IterativeDeepeningSearch> engines;
+    private final Semaphore admissions;
+    private final int queueDepth;
+    // When the request a handler thread is running was handed to the thread pool
+    private final ThreadLocal<Long> acceptedAt;
+    private final Map<Integer, LatencyRecorder> latencies;
+    private final Map<Integer, AtomicLong> responses;
+    private final AtomicLong searchesStopped;
+
+    public AnalysisServer(final int port,
+                          final int engineCount,
+                          final int queueDepth,
+                          final int hashMegabytes) throws IOException {
+        this.engines = new ArrayBlockingQueue<>(engineCount);
+        for (int i = 0; i < engineCount; i++) {
+            this.engines.add(new IterativeDeepeningSearch(StandardBoardEvaluator.get(), hashMegabytes, 1));
+        }
+        this.admissions = new Semaphore(engineCount + queueDepth);
+        this.queueDepth = queueDepth;
+        this.acceptedAt = new ThreadLocal<>();
+        this.latencies = new TreeMap<>();
+        this.responses = new TreeMap<>();
+        this.searchesStopped = new AtomicLong();
+        // Admitted requests hold a handler thread each, the spare threads turn away the rest without delay
+        this.handlers = Executors.newFixedThreadPool(engineCount + queueDepth + 4);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Time spent waiting for a handler thread counts against the deadline
+        this.server.setExecutor(command -> {
+            final long accepted = System.nanoTime();
+            this.handlers.execute(() -> {
+                this.acceptedAt.set(accepted);
+                try {
+                    command.run();
+                } finally {
+                    this.acceptedAt.remove();
+                }
+            });
+        });
+        this.server.createContext("/analyze", this::handleAnalyze);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.createContext("/health", exchange -> respond(exchange, 200, "text/plain", "ok\n"));
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int engineCount = Runtime.getRuntime().availableProcessors();
+        int queueDepth = 2 * engineCount;
+        int hashMegabytes = DEFAULT_HASH_MEGABYTES;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            final int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "-port":
+                    port = value;
+                    break;
+                case "-engines":
+                    engineCount = Math.max(1, value);
+                    break;
+                case "-queue":
+                    queueDepth = Math.max(0, value);
+                    break;
+                case "-hash":
+                    hashMegabytes = Math.max(1, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        final AnalysisServer server = new AnalysisServer(port, engineCount, queueDepth, hashMegabytes);
+        server.start();
+        System.out.println("Analysis server listening on http://localhost:" + server.getPort() +
+                " with " + engineCount + " engines and a queue of " + queueDepth);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits for running searches up to the longest deadline and releases the threads
+     */
+    public void stop() {
+        this.server.stop(0);
+        this.handlers.shutdown();
+        try {
+            this.handlers.awaitTermination(MAX_DEADLINE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    private void handleAnalyze(final HttpExchange exchange) throws IOException {
+        final Long accepted = this.acceptedAt.get();
+        final long start = accepted != null ? accepted : System.nanoTime();
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            answer(exchange, start, 405, error("use POST"));
+            return;
+        }
+        if (!this.admissions.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            answer(exchange, start, 429, error("overloaded"));
+            return;
+        }
+        try {
+            final Map<String, String> request;
+            final EpdRecord record;
+            final Board board;
+            try {
+                request = AnalysisJson.parseObject(readBody(exchange));
+                final String fen = request.get("fen");
+                if (fen == null) {
+                    throw new IllegalArgumentException("missing fen");
+                }
+                record = EpdRecord.parse(fen);
+                board = FenUtilities.createGameFromFEN(record.getFen());
+            } catch (final IOException | RuntimeException e) {
+                answer(exchange, start, 400, error("bad request: " + e.getMessage()));
+                return;
+            }
+            final long deadline;
+            final SearchLimits.Builder limits = new SearchLimits.Builder();
+            try {
+                deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(1, Math.min(MAX_DEADLINE_MILLIS,
+                        parseLong(request, "deadline", DEFAULT_DEADLINE_MILLIS))));
+                limits.setNodes(parseLong(request, "nodes", 0));
+                final long moveTime = parseLong(request, "movetime", 0);
+                // Without any limit a request searches to the default depth
+                limits.setDepth((int) parseLong(request, "depth",
+                        moveTime == 0 && !request.containsKey("nodes") ? DEFAULT_DEPTH : 0));
+                limits.setMoveTime(moveTime);
+            } catch (final NumberFormatException e) {
+                answer(exchange, start, 400, error("bad limit: " + e.getMessage()));
+                return;
+            }
+
+            final IterativeDeepeningSearch engine;
+            try {
+                engine = this.engines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                answer(exchange, start, 503, error("shutting down"));
+                return;
+            }
+            if (engine == null) {
+                answer(exchange, start, 503, error("deadline passed while queued"));
+                return;
+            }
+            final StringBuilder response = new StringBuilder();
+            try {
+                // The deadline becomes a hard move time, the search stops there with its best move so far
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) - RESPONSE_MILLIS;
+                final SearchLimits requested = limits.build();
+                final long moveTime = Math.max(1, requested.getMoveTime() > 0 ?
+                        Math.min(requested.getMoveTime(), remaining) : remaining);
+                final long searchStart = System.nanoTime();
+                final SearchResult result = engine.search(board, limits.setMoveTime(moveTime).build(), null);
+                final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - searchStart);
+                if (requested.getMoveTime() == 0 && elapsed >= moveTime) {
+                    this.searchesStopped.incrementAndGet();
+                }
+                response.append("{\"fen\":").append(AnalysisJson.quote(record.getFen()));
+                AnalysisJson.appendResult(response, result, elapsed);
+                response.append("}\n");
+            } finally {
+                this.engines.add(engine);
+            }
+            answer(exchange, start, 200, response.toString());
+        } finally {
+            this.admissions.release();
+        }
+    }
+
+    private void handleMetrics(final HttpExchange exchange) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        synchronized (this.responses) {
+            for (final Map.Entry<Integer, AtomicLong> entry : this.responses.entrySet()) {
+                builder.append("analysis_responses_total{status=\"").append(entry.getKey()).append("\"} ")
+                        .append(entry.getValue().get()).append('\n');
+            }
+        }
+        synchronized (this.latencies) {
+            for (final Map.Entry<Integer, LatencyRecorder> entry : this.latencies.entrySet()) {
+                final long[] percentiles = entry.getValue().getPercentiles(QUANTILES);
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    builder.append("analysis_latency_ms{status=\"").append(entry.getKey())
+                            .append("\",quantile=\"").append(QUANTILES[i]).append("\"} ")
+                            .append(percentiles[i]).append('\n');
+                }
+                builder.append("analysis_latency_samples{status=\"").append(entry.getKey()).append("\"} ")
+                        .append(entry.getValue().getCount()).append('\n');
+            }
+        }
+        builder.append("analysis_searches_stopped_at_deadline_total ").append(this.searchesStopped.get()).append('\n');
+        builder.append("analysis_engines_idle ").append(this.engines.size()).append('\n');
+        builder.append("analysis_queue_depth ").append(this.queueDepth).append('\n');
+        respond(exchange, 200, "text/plain; version=0.0.4", builder.toString());
+    }
+
+    /**
+     * Answers an analysis request, counting it and recording its latency under the response status
+     */
+    private void answer(final HttpExchange exchange,
+                        final long start,
+                        final int status,
+                        final String body) throws IOException {
+        synchronized (this.responses) {
+            this.responses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        }
+        try {
+            respond(exchange, status, "application/json", body);
+        } finally {
+            final LatencyRecorder recorder;
+            synchronized (this.latencies) {
+                recorder = this.latencies.computeIfAbsent(status, s -> new LatencyRecorder(LATENCY_SAMPLES));
+            }
+            recorder.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void respond(final HttpExchange exchange,
+                         final int status,
+                         final String contentType,
+                         final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static String readBody(final HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (final InputStream input = exchange.getRequestBody()) {
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_REQUEST_BYTES) {
+                    throw new IOException("request too large");
+                }
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static long parseLong(final Map<String, String> request,
+                                  final String name,
+                                  final long defaultValue) {
+        final String value = request.get(name);
+        return value == null ? defaultValue : Math.max(0, Long.parseLong(value));
+    }
+
+    private static String error(final String message) {
+        return "{\"error\":" + AnalysisJson.quote(message) + "}\n";
+    }
+}
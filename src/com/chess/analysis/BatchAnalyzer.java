@@ -0,0 +1,201 @@
+package com.chess.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.EpdRecord;
+import com.chess.pgn.FenUtilities;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Analyzes every position of a FEN or EPD file and writes one JSON object per position.
+ * Positions are streamed from the file, so files of any size take little memory, and searched on a
+ * work-stealing pool where every thread keeps its own engine. Results come out in input order,
+ * or as soon as they are ready when unordered, each tagged with its line number and EPD id.
+ *
+ * Usage: BatchAnalyzer input.epd [-depth N] [-nodes N] [-movetime ms] [-threads N] [-hash MB]
+ *        [-output file.jsonl] [-unordered]
+ */
+public class BatchAnalyzer {
+
+    private static final int DEFAULT_DEPTH = 6;
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    // Positions queued per thread, enough to keep every thread busy while the output waits for a slow one
+    private static final int POSITIONS_PER_THREAD = 4;
+
+    private final SearchLimits limits;
+    private final int threads;
+    private final boolean ordered;
+    private final ThreadLocal<IterativeDeepeningSearch> engines;
+    private final AtomicInteger positions;
+    private final AtomicInteger errors;
+    private final AtomicLong nodes;
+
+    public BatchAnalyzer(final SearchLimits limits,
+                         final int threads,
+                         final int hashMegabytes,
+                         final boolean ordered) {
+        this.limits = limits;
+        this.threads = threads;
+        this.ordered = ordered;
+        this.engines = ThreadLocal.withInitial(() ->
+                new IterativeDeepeningSearch(StandardBoardEvaluator.get(), hashMegabytes, 1));
+        this.positions = new AtomicInteger();
+        this.errors = new AtomicInteger();
+        this.nodes = new AtomicLong();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: BatchAnalyzer input.epd [-depth N] [-nodes N] [-movetime ms] [-threads N] " +
+                    "[-hash MB] [-output file.jsonl] [-unordered]");
+            return;
+        }
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-unordered")) {
+                options.put("unordered", "true");
+            } else if (args[i].startsWith("-") && i + 1 < args.length) {
+                options.put(args[i].substring(1), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+        }
+        final SearchLimits.Builder limits = new SearchLimits.Builder();
+        if (options.containsKey("nodes")) {
+            limits.setNodes(Long.parseLong(options.get("nodes")));
+        }
+        if (options.containsKey("movetime")) {
+            limits.setMoveTime(Long.parseLong(options.get("movetime")));
+        }
+        if (options.containsKey("depth") || !(options.containsKey("nodes") || options.containsKey("movetime"))) {
+            limits.setDepth(Integer.parseInt(options.getOrDefault("depth", Integer.toString(DEFAULT_DEPTH))));
+        }
+        final BatchAnalyzer analyzer = new BatchAnalyzer(limits.build(),
+                Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(options.getOrDefault("hash", Integer.toString(DEFAULT_HASH_MEGABYTES))),
+                !options.containsKey("unordered"));
+        final long start = System.nanoTime();
+        try (final BufferedReader input = new BufferedReader(new FileReader(args[0]));
+             final Writer output = new BufferedWriter(options.containsKey("output") ?
+                     new FileWriter(options.get("output")) : new OutputStreamWriter(System.out))) {
+            analyzer.analyze(input, output);
+        }
+        final double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.err.printf("Analyzed %d positions (%d invalid) in %.1f s: %.1f positions/s, %.0f nodes/s%n",
+                analyzer.positions.get(), analyzer.errors.get(), seconds,
+                analyzer.positions.get() / seconds, analyzer.nodes.get() / seconds);
+    }
+
+    /**
+     * Analyzes every position read from the input. Empty lines and lines starting with # are skipped.
+     * @param input holds one FEN or EPD position per line
+     * @param output receives one JSON object per line for every position
+     */
+    public void analyze(final BufferedReader input,
+                        final Writer output) throws IOException, InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool(this.threads);
+        final int window = POSITIONS_PER_THREAD * this.threads;
+        final Semaphore queued = new Semaphore(window);
+        final ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        // Unordered results are written by the tasks, which keep the first failure here
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = input.readLine()) != null && failure.get() == null) {
+                lineNumber++;
+                final String text = line.trim();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                final int number = lineNumber;
+                queued.acquire();
+                if (this.ordered) {
+                    pending.add(pool.submit(() -> {
+                        try {
+                            return analyzePosition(number, text);
+                        } finally {
+                            queued.release();
+                        }
+                    }));
+                    // Write what is finished at the head, and wait for the head once the window is full
+                    while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() >= window)) {
+                        write(output, pending.poll().get());
+                    }
+                } else {
+                    pool.execute(() -> {
+                        try {
+                            write(output, analyzePosition(number, text));
+                        } catch (final IOException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(output, pending.poll().get());
+            }
+            // Every permit is back once the last task is done
+            queued.acquire(window);
+        } catch (final ExecutionException e) {
+            throw new IOException("Analysis failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (failure.get() != null) {
+            throw new IOException("Analysis failed", failure.get());
+        }
+        output.flush();
+    }
+
+    private String analyzePosition(final int lineNumber,
+                                   final String line) {
+        this.positions.incrementAndGet();
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\"line\":").append(lineNumber);
+        final EpdRecord record;
+        final Board board;
+        try {
+            record = EpdRecord.parse(line);
+            board = FenUtilities.createGameFromFEN(record.getFen());
+        } catch (final RuntimeException e) {
+            this.errors.incrementAndGet();
+            return builder.append(",\"error\":").append(AnalysisJson.quote("invalid position: " + line))
+                    .append('}').toString();
+        }
+        if (record.getId() != null) {
+            builder.append(",\"id\":").append(AnalysisJson.quote(record.getId()));
+        }
+        builder.append(",\"fen\":").append(AnalysisJson.quote(record.getFen()));
+        final long start = System.nanoTime();
+        final SearchResult result = this.engines.get().search(board, this.limits, null);
+        final long elapsed = (System.nanoTime() - start) / 1000000L;
+        this.nodes.addAndGet(result.getNodes());
+        AnalysisJson.appendResult(builder, result, elapsed);
+        return builder.append('}').toString();
+    }
+
+    private static void write(final Writer output,
+                              final String json) throws IOException {
+        synchronized (output) {
+            output.write(json);
+            output.write('\n');
+        }
+    }
+}
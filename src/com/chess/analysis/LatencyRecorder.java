@@ -0,0 +1,57 @@
+package com.chess.analysis;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps the most recent latencies in a ring buffer and reports percentiles over them,
+ * so the percentiles follow the current load rather than the whole uptime
+ */
+public final class LatencyRecorder {
+
+    private final long[] samples;
+    private int next;
+    private long count;
+
+    /**
+     * @param capacity is the number of most recent latencies percentiles are taken over
+     */
+    public LatencyRecorder(final int capacity) {
+        this.samples = new long[capacity];
+        this.next = 0;
+        this.count = 0;
+    }
+
+    /**
+     * @param millis is the latency of one request
+     */
+    public synchronized void record(final long millis) {
+        this.samples[this.next] = millis;
+        this.next = (this.next + 1) % this.samples.length;
+        this.count++;
+    }
+
+    /**
+     * @return the number of latencies ever recorded
+     */
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @param quantiles are the wanted quantiles between 0 and 1, such as 0.5 and 0.99
+     * @return the latency at each quantile by the nearest rank, all zero before the first latency
+     */
+    public long[] getPercentiles(final double... quantiles) {
+        final long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(this.samples, (int) Math.min(this.count, this.samples.length));
+        }
+        Arrays.sort(sorted);
+        final long[] percentiles = new long[quantiles.length];
+        for (int i = 0; i < quantiles.length && sorted.length > 0; i++) {
+            final int rank = (int) Math.ceil(quantiles[i] * sorted.length);
+            percentiles[i] = sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+        return percentiles;
+    }
+}
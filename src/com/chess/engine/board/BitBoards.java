@@ -0,0 +1,170 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.piece.Piece;
+import com.chess.engine.piece.Piece.PieceType;
+
+import java.util.Collection;
+
+/**
+ * This class contains attack masks for the board.
+ * Bit i of a mask stands for tile coordinate i, so bit 0 is a8 and bit 63 is h1.
+ */
+public final class BitBoards {
+
+    // Rank and file steps, a step of +1 rank moves one row down the board (towards rank 1)
+    private static final int[][] ROOK_DIRECTIONS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { -1, -1 }, { -1, 1 }, { 1, -1 }, { 1, 1 } };
+    private static final int[][] KNIGHT_STEPS = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } };
+    private static final int[][] KING_STEPS = { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } };
+
+    private static final long[] KNIGHT_ATTACKS = initLeaperAttacks(KNIGHT_STEPS);
+    private static final long[] KING_ATTACKS = initLeaperAttacks(KING_STEPS);
+    private static final long[] WHITE_PAWN_ATTACKS = initLeaperAttacks(new int[][] { { -1, -1 }, { -1, 1 } });
+    private static final long[] BLACK_PAWN_ATTACKS = initLeaperAttacks(new int[][] { { 1, -1 }, { 1, 1 } });
+
+    // Every tile reachable along a direction on an empty board, indexed by [direction][tile]
+    private static final long[][] ROOK_RAYS = initRays(ROOK_DIRECTIONS);
+    private static final long[][] BISHOP_RAYS = initRays(BISHOP_DIRECTIONS);
+
+    private BitBoards() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    private static boolean isOnBoard(final int rank, final int file) {
+        return rank >= 0 && rank < BoardUtils.NUM_TILES_PER_ROW && file >= 0 && file < BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static long[] initLeaperAttacks(final int[][] steps) {
+        final long[] attacks = new long[BoardUtils.NUM_TILES];
+        for (int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+            final int rank = getRow(coordinate);
+            final int file = getColumn(coordinate);
+            for (final int[] step : steps) {
+                if (isOnBoard(rank + step[0], file + step[1])) {
+                    attacks[coordinate] |= bit((rank + step[0]) * BoardUtils.NUM_TILES_PER_ROW + file + step[1]);
+                }
+            }
+        }
+        return attacks;
+    }
+
+    private static long[][] initRays(final int[][] directions) {
+        final long[][] rays = new long[directions.length][BoardUtils.NUM_TILES];
+        for (int d = 0; d < directions.length; d++) {
+            for (int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+                int rank = getRow(coordinate) + directions[d][0];
+                int file = getColumn(coordinate) + directions[d][1];
+                while (isOnBoard(rank, file)) {
+                    rays[d][coordinate] |= bit(rank * BoardUtils.NUM_TILES_PER_ROW + file);
+                    rank += directions[d][0];
+                    file += directions[d][1];
+                }
+            }
+        }
+        return rays;
+    }
+
+    /**
+     * Walks every ray from the tile up to and including the first occupied tile
+     */
+    private static long slidingAttacks(final long[][] rays,
+                                       final int[][] directions,
+                                       final int coordinate,
+                                       final long occupied) {
+        long attacks = 0L;
+        for (int d = 0; d < rays.length; d++) {
+            final long ray = rays[d][coordinate];
+            final long blockers = ray & occupied;
+            if (blockers == 0L) {
+                attacks |= ray;
+                continue;
+            }
+            // Rays going down the board meet their first blocker at the lowest bit, rays going up at the highest
+            final boolean increasing = directions[d][0] * BoardUtils.NUM_TILES_PER_ROW + directions[d][1] > 0;
+            final int blocker = increasing ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks |= ray ^ rays[d][blocker];
+        }
+        return attacks;
+    }
+
+    /**
+     * @param coordinate is a tile coordinate
+     * @return a mask with only the given tile set
+     */
+    public static long bit(final int coordinate) {
+        return 1L << coordinate;
+    }
+
+    /**
+     * @return 0 for the 8th rank row up to 7 for the 1st rank row
+     */
+    public static int getRow(final int coordinate) {
+        return coordinate / BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    /**
+     * @return 0 for the A file up to 7 for the H file
+     */
+    public static int getColumn(final int coordinate) {
+        return coordinate % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    /**
+     * @param pieces is a collection of pieces
+     * @return a mask of the tiles the pieces stand on
+     */
+    public static long occupancy(final Collection<Piece> pieces) {
+        long occupancy = 0L;
+        for (final Piece piece : pieces) {
+            occupancy |= bit(piece.getPiecePosition());
+        }
+        return occupancy;
+    }
+
+    /**
+     * @return the tiles around the given tile a king attacks
+     */
+    public static long kingAttacks(final int coordinate) {
+        return KING_ATTACKS[coordinate];
+    }
+
+    /**
+     * @param pieceType is the type of the attacking piece
+     * @param alliance is the color of the attacking piece, pawns attack towards the opponent
+     * @param coordinate is the tile of the attacking piece
+     * @param occupied is the mask of every occupied tile, which stops sliding pieces
+     * @return a mask of the tiles the piece attacks, including tiles held by its own side
+     */
+    public static long attacks(final PieceType pieceType,
+                               final Alliance alliance,
+                               final int coordinate,
+                               final long occupied) {
+        switch (pieceType) {
+            case PAWN:
+                return alliance.isWhite() ? WHITE_PAWN_ATTACKS[coordinate] : BLACK_PAWN_ATTACKS[coordinate];
+            case KNIGHT:
+                return KNIGHT_ATTACKS[coordinate];
+            case BISHOP:
+                return slidingAttacks(BISHOP_RAYS, BISHOP_DIRECTIONS, coordinate, occupied);
+            case ROOK:
+                return slidingAttacks(ROOK_RAYS, ROOK_DIRECTIONS, coordinate, occupied);
+            case QUEEN:
+                return slidingAttacks(BISHOP_RAYS, BISHOP_DIRECTIONS, coordinate, occupied) |
+                        slidingAttacks(ROOK_RAYS, ROOK_DIRECTIONS, coordinate, occupied);
+            case KING:
+                return KING_ATTACKS[coordinate];
+            default:
+                throw new RuntimeException("should not reach here!");
+        }
+    }
+
+    /**
+     * @param piece is the attacking piece
+     * @param occupied is the mask of every occupied tile
+     * @return a mask of the tiles the piece attacks
+     */
+    public static long attacks(final Piece piece, final long occupied) {
+        return attacks(piece.getPieceType(), piece.getPieceAlliance(), piece.getPiecePosition(), occupied);
+    }
+}
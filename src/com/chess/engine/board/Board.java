@@ -5,6 +5,8 @@ import com.chess.engine.piece.*;
 import com.chess.engine.player.BlackPlayer;
 import com.chess.engine.player.Player;
 import com.chess.engine.player.WhitePlayer;
+import com.chess.engine.player.ai.NetworkAccumulator;
+import com.chess.engine.player.ai.PieceSquareScore;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
@@ -36,6 +38,19 @@ public class Board {
     // En Passant Pawn is set to null, unless a pawn jump was made
     private final Pawn enPassantPawn;
 
+    // Bit masks of the tiles held by each side, see BitBoards
+    private final long whiteOccupancy;
+    private final long blackOccupancy;
+
+    // Material and piece-square sums, derived from the previous board when there is one
+    private final PieceSquareScore pieceSquareScore;
+
+    // Position key, see Zobrist
+    private final long zobristHash;
+
+    // Hidden layer sums of the neural evaluator, filled in the first time the board is evaluated
+    private volatile NetworkAccumulator networkAccumulator;
+
     /**
      * This constructor uses the board builder pattern to build a board
      * @param builder is the baord builder
@@ -51,6 +66,8 @@ public class Board {
         this.whitePieces = calculateActivePieces(this.gameBoard, Alliance.WHITE);
         this.blackPieces = calculateActivePieces(this.gameBoard, Alliance.BLACK);
         this.enPassantPawn = builder.enPassantPawn;
+        this.whiteOccupancy = BitBoards.occupancy(this.whitePieces);
+        this.blackOccupancy = BitBoards.occupancy(this.blackPieces);
 
         // List the legal moves
         final Collection<Move> whiteStandardLegalMoves = calculateLegalMoves(whitePieces);
@@ -67,6 +84,13 @@ public class Board {
         // Get the transition move
         // If no transition move could be created, get a null move
         this.transitionMove = builder.transitionMove != null ? builder.transitionMove : Move.MoveFactory.getNullMove();
+
+        // Only the pieces touched by the transition move are rescored
+        this.pieceSquareScore = builder.transitionMove != null
+                ? builder.transitionMove.getBoard().getPieceSquareScore().update(builder.transitionMove)
+                : PieceSquareScore.calculate(this.whitePieces, this.blackPieces);
+
+        this.zobristHash = Zobrist.hash(this);
     }
 
     /**
@@ -267,6 +291,46 @@ public class Board {
         return this.enPassantPawn;
     }
 
+    /**
+     * @param alliance is a color (White/Black)
+     * @return a mask of the tiles held by the given side
+     */
+    public long getOccupancy(final Alliance alliance) {
+        return alliance.isWhite() ? this.whiteOccupancy : this.blackOccupancy;
+    }
+
+    /**
+     * @return a mask of every occupied tile
+     */
+    public long getOccupancy() {
+        return this.whiteOccupancy | this.blackOccupancy;
+    }
+
+    /**
+     * @return the material and piece-square sums of this board
+     */
+    public PieceSquareScore getPieceSquareScore() {
+        return this.pieceSquareScore;
+    }
+
+    /**
+     * @return the position key of this board
+     */
+    public long getZobristHash() {
+        return this.zobristHash;
+    }
+
+    /**
+     * @return the neural evaluator's sums for this board, or null if it has not been evaluated yet
+     */
+    public NetworkAccumulator getNetworkAccumulator() {
+        return this.networkAccumulator;
+    }
+
+    public void setNetworkAccumulator(final NetworkAccumulator networkAccumulator) {
+        this.networkAccumulator = networkAccumulator;
+    }
+
     /**
      * A builder design pattern that creates and returns a board.
      */
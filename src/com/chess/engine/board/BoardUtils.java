@@ -164,6 +164,32 @@ public enum BoardUtils {
                 board.getCurrentPlayer().isInStalemate();
     }
 
+    /**
+     * @param board is the board to check
+     * @return true if neither side has material to mate with: bare kings, or kings with one minor piece
+     */
+    public static boolean isInsufficientMaterial(final Board board) {
+        return minorPieceCount(board.getWhitePieces()) + minorPieceCount(board.getBlackPieces()) <= 1;
+    }
+
+    // Counts knights and bishops, with any pawn, rook or queen counted as enough to mate
+    private static int minorPieceCount(final Collection<Piece> pieces) {
+        int count = 0;
+        for (final Piece piece : pieces) {
+            switch (piece.getPieceType()) {
+                case KING:
+                    break;
+                case KNIGHT:
+                case BISHOP:
+                    count++;
+                    break;
+                default:
+                    return 2;
+            }
+        }
+        return count;
+    }
+
     /**
      *
      * @param coordinate is a given coordinate
@@ -216,44 +242,43 @@ public enum BoardUtils {
     }
 
     /**
-     * Adds a check or a mate sign at the end of the move notation
-     * @param board current state of the board
-     * @param currentCoordinate offset of the move
-     * @param destinationCoordinate destination of the move
-     * @return "+" if the move is a check move, "#" if the move is a mate move
+     * @param toBoard is the board a move led to
+     * @return "#" if the move mated, "+" if it gave check, "" otherwise
      */
-    public static String addCheckSign(final Board board, int currentCoordinate, int destinationCoordinate) {
-        final Move move = Move.MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
-
-        if (transition.getMoveStatus().isDone()) {
-            final Board newBoard = move.execute();
-            if (newBoard.getCurrentPlayer().isInCheckMate()) {
-                return "#";
-            } else if (newBoard.getCurrentPlayer().isInCheck()) {
-                return "+";
-            }
+    public static String checkSign(final Board toBoard) {
+        if (!toBoard.getCurrentPlayer().isInCheck()) {
+            return "";
         }
-        return "";
+        return toBoard.getCurrentPlayer().isInCheckMate() ? "#" : "+";
     }
 
     /**
-     * This method returns the file name of the piece that made the given move
-     * If another piece of the same type can make a move to the same destination
+     * This method returns what SAN adds to tell the piece that made the given move from another piece
+     * of the same type that can move to the same destination: its file, else its rank, else its square
      * @param board is the current state of the board
      * @param move is a given move
-     * @return the file name of the piece that made the move
+     * @return the file, rank or square the move starts from, "" if no other piece can make it
      */
     public static String addPieceOffsetFile(final Board board, final Move move) {
-        final Collection<Move> allMoves = board.getCurrentPlayer().getLegalMoves();
-
-        for (final Move move1 : allMoves) {
-            if ((move1.getMovedPiece().getPieceType() == move.getMovedPiece().getPieceType())
-                    && (move.getDestinationCoordinate() == move1.getDestinationCoordinate())
-                    &&  (!move.equals(move1))) {
-                return getPositionAtCoordinate(move.getCurrentCoordinate()).substring(0, 1);
+        final int from = move.getCurrentCoordinate();
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (final Move other : board.getCurrentPlayer().getLegalMovesTo(move.getDestinationCoordinate())) {
+            final int otherFrom = other.getCurrentCoordinate();
+            if (otherFrom != from && other.getMovedPiece().getPieceType() == move.getMovedPiece().getPieceType()) {
+                ambiguous = true;
+                sameFile |= otherFrom % 8 == from % 8;
+                sameRank |= otherFrom / 8 == from / 8;
             }
         }
-        return "";
+        if (!ambiguous) {
+            return "";
+        }
+        final String square = getPositionAtCoordinate(from);
+        if (!sameFile) {
+            return square.substring(0, 1);
+        }
+        return sameRank ? square : square.substring(1);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.chess.engine.board;
 
+import com.chess.engine.Alliance;
 import com.chess.engine.piece.King;
 import com.chess.engine.piece.Pawn;
 import com.chess.engine.piece.Piece;
@@ -17,6 +18,8 @@ public abstract class Move {
     protected final Piece movedPiece;
     protected final int destinationCoordinate;
     protected final boolean isFirstMove;
+    // The SAN of the move, worked out once as a move belongs to one board
+    private volatile String san;
 
     public static final Move NULL_MOVE = new NullMove();
 
@@ -107,6 +110,55 @@ public abstract class Move {
         return null;
     }
 
+    /**
+     * @param toBoard is the board this move led to
+     * @return the SAN of the move, with the check or mate sign read off the board it led to
+     */
+    public String getSan(final Board toBoard) {
+        String text = this.san;
+        if (text == null) {
+            text = getNotation() + BoardUtils.checkSign(toBoard);
+            this.san = text;
+        }
+        return text;
+    }
+
+    /**
+     * @return the SAN of the move, which is played once to see whether it gives check
+     */
+    @Override
+    public String toString() {
+        String text = this.san;
+        if (text == null) {
+            final MoveTransition transition = this.board.getCurrentPlayer().makeMove(this);
+            if (transition.getMoveStatus().isDone()) {
+                return getSan(transition.getToBoard());
+            }
+            text = getNotation();
+            this.san = text;
+        }
+        return text;
+    }
+
+    /**
+     * @return the SAN of the move without a check or mate sign
+     */
+    protected abstract String getNotation();
+
+    /**
+     * Reports every piece this move takes off and puts on the board
+     * @param listener receives the removed and added pieces
+     */
+    public void applyPlacements(final PiecePlacementListener listener) {
+        final Alliance alliance = this.movedPiece.getPieceAlliance();
+        listener.pieceRemoved(this.movedPiece.getPieceType(), alliance, getCurrentCoordinate());
+        if (isAttack()) {
+            final Piece attackedPiece = getAttackedPiece();
+            listener.pieceRemoved(attackedPiece.getPieceType(), attackedPiece.getPieceAlliance(), attackedPiece.getPiecePosition());
+        }
+        listener.pieceAdded(this.movedPiece.getPieceType(), alliance, this.destinationCoordinate);
+    }
+
     /**
      * Undo the last move
      * @return a new board
@@ -157,9 +209,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return movedPiece.getPieceType().toString() + BoardUtils.addPieceOffsetFile(board, this) + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate)
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return movedPiece.getPieceType().toString() + BoardUtils.addPieceOffsetFile(board, this) + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
         }
     }
 
@@ -200,9 +251,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return movedPiece.getPieceType().toString() + BoardUtils.addPieceOffsetFile(board, this) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate)
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return movedPiece.getPieceType().toString() + BoardUtils.addPieceOffsetFile(board, this) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
         }
 
     }
@@ -229,9 +279,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return BoardUtils.getPositionAtCoordinate(this.getDestinationCoordinate())
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return BoardUtils.getPositionAtCoordinate(this.getDestinationCoordinate());
         }
     }
 
@@ -251,9 +300,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return BoardUtils.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).charAt(0) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate)
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return BoardUtils.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).charAt(0) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate);
         }
     }
 
@@ -335,9 +383,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return BoardUtils.getPositionAtCoordinate(this.getDestinationCoordinate())
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return BoardUtils.getPositionAtCoordinate(this.getDestinationCoordinate());
         }
     }
 
@@ -386,6 +433,17 @@ public abstract class Move {
             return builder.build();
         }
 
+        @Override
+        public void applyPlacements(final PiecePlacementListener listener) {
+            final Alliance alliance = this.promotedPawn.getPieceAlliance();
+            listener.pieceRemoved(this.promotedPawn.getPieceType(), alliance, getCurrentCoordinate());
+            if (isAttack()) {
+                final Piece attackedPiece = getAttackedPiece();
+                listener.pieceRemoved(attackedPiece.getPieceType(), attackedPiece.getPieceAlliance(), attackedPiece.getPiecePosition());
+            }
+            listener.pieceAdded(this.promotedPawn.getPromotionPiece().getPieceType(), alliance, this.destinationCoordinate);
+        }
+
         public boolean isAttack() {
             return this.decoratedMove.isAttack();
         }
@@ -396,9 +454,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return BoardUtils.getPositionAtCoordinate(this.destinationCoordinate) + "=Q"
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return BoardUtils.getPositionAtCoordinate(this.destinationCoordinate) + "=Q";
         }
     }
 
@@ -409,9 +466,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return BoardUtils.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).charAt(0) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate) + "=Q"
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return BoardUtils.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).charAt(0) + "x" + BoardUtils.getPositionAtCoordinate(this.destinationCoordinate) + "=Q";
         }
     }
 
@@ -467,6 +523,13 @@ public abstract class Move {
             return builder.build();
         }
 
+        @Override
+        public void applyPlacements(final PiecePlacementListener listener) {
+            super.applyPlacements(listener);
+            listener.pieceRemoved(this.castleRook.getPieceType(), this.castleRook.getPieceAlliance(), this.castleRookStart);
+            listener.pieceAdded(this.castleRook.getPieceType(), this.castleRook.getPieceAlliance(), this.castleRookDestination);
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -512,9 +575,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return "O-O"
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return "O-O";
         }
     }
 
@@ -539,9 +601,8 @@ public abstract class Move {
         }
 
         @Override
-        public String toString() {
-            return "O-O-O"
-                    + BoardUtils.addCheckSign(board, getCurrentCoordinate(), destinationCoordinate);
+        protected String getNotation() {
+            return "O-O-O";
         }
     }
 
@@ -563,10 +624,24 @@ public abstract class Move {
             throw new RuntimeException("Cannot Execute The Null Move");
         }
 
+        @Override
+        public void applyPlacements(final PiecePlacementListener listener) {
+        }
+
         @Override
         public int getCurrentCoordinate() {
             return -1;
         }
+
+        @Override
+        protected String getNotation() {
+            return "--";
+        }
+
+        @Override
+        public String toString() {
+            return getNotation();
+        }
     }
 
     /**
@@ -27,6 +27,10 @@ public class MoveTransition {
         this.moveStatus = moveStatus;
     }
 
+    public Move getMove() {
+        return this.move;
+    }
+
     public MoveStatus getMoveStatus() {
         return this.moveStatus;
     }
@@ -0,0 +1,25 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.piece.Piece.PieceType;
+
+/**
+ * This interface receives the pieces a move takes off and puts on the board.
+ * It lets incrementally updated scores follow a move without rescanning every piece.
+ */
+public interface PiecePlacementListener {
+
+    /**
+     * @param pieceType is the type of the piece leaving the board
+     * @param alliance is the color of the piece (White/Black)
+     * @param coordinate is the tile the piece is taken from
+     */
+    void pieceRemoved(PieceType pieceType, Alliance alliance, int coordinate);
+
+    /**
+     * @param pieceType is the type of the piece arriving on the board
+     * @param alliance is the color of the piece (White/Black)
+     * @param coordinate is the tile the piece is put on
+     */
+    void pieceAdded(PieceType pieceType, Alliance alliance, int coordinate);
+}
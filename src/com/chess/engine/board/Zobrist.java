@@ -0,0 +1,182 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.piece.Pawn;
+import com.chess.engine.piece.Piece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class computes 64 bit position keys.
+ * Keys follow the Polyglot layout: 768 piece keys, 4 castling keys, 8 en passant file keys
+ * and one key for white to move, so a Polyglot random table gives Polyglot book keys.
+ * The table is loaded from the file named by the chess.zobrist.keys system property when it is set,
+ * such as Polyglot's Random64 table, and is pseudo random otherwise.
+ */
+public final class Zobrist {
+
+    public static final int NUM_KEYS = 781;
+    public static final String KEYS_PROPERTY = "chess.zobrist.keys";
+
+    private static final int CASTLE_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+    // Rook squares in board coordinates, a8 = 0 to h1 = 63
+    private static final int BLACK_QUEEN_ROOK = 0;
+    private static final int BLACK_KING_ROOK = 7;
+    private static final int WHITE_QUEEN_ROOK = 56;
+    private static final int WHITE_KING_ROOK = 63;
+
+    // One key as written in source code or text, such as 0x9D39247E33776D41 or U64(0x9D39247E33776D41)
+    private static final Pattern HEX_KEY = Pattern.compile("(?:0[xX])?([0-9A-Fa-f]{16})(?![0-9A-Fa-f])");
+
+    private static final long[] KEYS = initKeys();
+
+    private Zobrist() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    private static long[] initKeys() {
+        final String keyFile = System.getProperty(KEYS_PROPERTY);
+        if (keyFile != null) {
+            try {
+                return readKeys(Paths.get(keyFile));
+            } catch (final IOException e) {
+                throw new IllegalStateException("Cannot read Zobrist keys from " + keyFile, e);
+            }
+        }
+        final Random random = new Random(0x9D39247E33776D41L);
+        final long[] keys = new long[NUM_KEYS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Reads a key table, either 781 big-endian longs or a text with 781 hexadecimal keys of 16 digits.
+     * The text may be the Random64 array copied from Polyglot's source.
+     * @param path is the key file
+     * @return the keys in file order
+     * @throws IOException if the file cannot be read or does not hold 781 keys
+     */
+    public static long[] readKeys(final Path path) throws IOException {
+        final byte[] bytes = Files.readAllBytes(path);
+        final long[] keys = new long[NUM_KEYS];
+        if (bytes.length == NUM_KEYS * Long.BYTES) {
+            ByteBuffer.wrap(bytes).asLongBuffer().get(keys);
+            return keys;
+        }
+        final Matcher matcher = HEX_KEY.matcher(new String(bytes, StandardCharsets.US_ASCII));
+        int count = 0;
+        while (matcher.find()) {
+            if (count == NUM_KEYS) {
+                throw new IOException("More than " + NUM_KEYS + " keys in " + path);
+            }
+            keys[count++] = Long.parseUnsignedLong(matcher.group(1), 16);
+        }
+        if (count != NUM_KEYS) {
+            throw new IOException("Found " + count + " of " + NUM_KEYS + " keys in " + path);
+        }
+        return keys;
+    }
+
+    /**
+     * @return true if the keys are the ones boards are hashed with
+     */
+    public static boolean isBoardKeys(final long[] keys) {
+        return Arrays.equals(KEYS, keys);
+    }
+
+    /**
+     * @param board is a chess board
+     * @return the key of the board's position
+     */
+    public static long hash(final Board board) {
+        return hash(board, KEYS);
+    }
+
+    /**
+     * @param board is a chess board
+     * @param keys is a table of 781 keys in the Polyglot layout
+     * @return the key of the board's position under the given keys
+     */
+    public static long hash(final Board board, final long[] keys) {
+        long key = 0L;
+        for (final Piece piece : board.getAllPieces()) {
+            key ^= keys[pieceKeyIndex(piece.getPieceType(), piece.getPieceAlliance(), piece.getPiecePosition())];
+        }
+        if (board.whitePlayer().isKingSideCastleCapable() && isUnmovedRook(board, Alliance.WHITE, WHITE_KING_ROOK)) {
+            key ^= keys[CASTLE_OFFSET];
+        }
+        if (board.whitePlayer().isQueenSideCastleCapable() && isUnmovedRook(board, Alliance.WHITE, WHITE_QUEEN_ROOK)) {
+            key ^= keys[CASTLE_OFFSET + 1];
+        }
+        if (board.blackPlayer().isKingSideCastleCapable() && isUnmovedRook(board, Alliance.BLACK, BLACK_KING_ROOK)) {
+            key ^= keys[CASTLE_OFFSET + 2];
+        }
+        if (board.blackPlayer().isQueenSideCastleCapable() && isUnmovedRook(board, Alliance.BLACK, BLACK_QUEEN_ROOK)) {
+            key ^= keys[CASTLE_OFFSET + 3];
+        }
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if (enPassantPawn != null && canCaptureEnPassant(board, enPassantPawn)) {
+            key ^= keys[EN_PASSANT_OFFSET + BitBoards.getColumn(enPassantPawn.getPiecePosition())];
+        }
+        if (board.getCurrentPlayer().getAlliance().isWhite()) {
+            key ^= keys[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    /**
+     * The king's flags only change when the king moves, a castling right is also lost once its rook
+     * has moved or been captured
+     */
+    private static boolean isUnmovedRook(final Board board,
+                                         final Alliance alliance,
+                                         final int position) {
+        final Piece piece = board.getPiece(position);
+        return piece != null && piece.getPieceType() == Piece.PieceType.ROOK &&
+                piece.getPieceAlliance() == alliance && piece.isFirstMove();
+    }
+
+    /**
+     * Polyglot numbers pieces black pawn, white pawn, black knight and so on,
+     * and tiles from a1 along the ranks up to h8
+     */
+    private static int pieceKeyIndex(final Piece.PieceType pieceType,
+                                     final Alliance alliance,
+                                     final int coordinate) {
+        final int kind = 2 * pieceType.ordinal() + (alliance.isWhite() ? 1 : 0);
+        final int rank = BoardUtils.NUM_TILES_PER_ROW - 1 - BitBoards.getRow(coordinate);
+        return 64 * kind + 8 * rank + BitBoards.getColumn(coordinate);
+    }
+
+    /**
+     * The en passant file only counts when a pawn of the side to move stands next to the pawn that jumped
+     */
+    private static boolean canCaptureEnPassant(final Board board, final Pawn enPassantPawn) {
+        final int position = enPassantPawn.getPiecePosition();
+        final int column = BitBoards.getColumn(position);
+        for (final int side : new int[] { -1, 1 }) {
+            if (column + side < 0 || column + side >= BoardUtils.NUM_TILES_PER_ROW) {
+                continue;
+            }
+            final Piece neighbour = board.getPiece(position + side);
+            if (neighbour != null && neighbour.getPieceType() == Piece.PieceType.PAWN &&
+                    neighbour.getPieceAlliance() == board.getCurrentPlayer().getAlliance()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,356 @@
+package com.chess.engine.openings;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.Zobrist;
+import com.chess.pgn.Game;
+import com.chess.pgn.PGNUtilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds a Polyglot opening book from PGN files.
+ *
+ * Games are streamed from the files and replayed up to the ply limit on a thread pool. Every thread
+ * counts games, wins and draws per position and move in its own table, which is spilled to a sorted
+ * run file whenever it fills up. The runs are then merged into the book, so the memory used depends
+ * on the table size and not on the number of games. Moves played in fewer games than the minimum
+ * count are left out, and a move's weight is twice its wins plus its draws, scaled down where a
+ * position's weights would not fit in 16 bits.
+ *
+ * Usage: BookBuilder -output book.bin [-plies N] [-mincount N] [-threads N] [-keys random64.txt]
+ *        [-spill entries] games.pgn...
+ */
+public class BookBuilder {
+
+    private static final int DEFAULT_PLIES = 20;
+    private static final int DEFAULT_MIN_COUNT = 3;
+    private static final int DEFAULT_SPILL_ENTRIES = 1 << 20;
+    private static final int QUEUED_GAMES_PER_THREAD = 16;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int plies;
+    private final int minCount;
+    private final int spillEntries;
+    // Null to use the boards' own keys
+    private final long[] keys;
+    private final File tempDirectory;
+    private final List<BookTable> tables;
+    private final List<File> runFiles;
+    private final AtomicInteger gamesUsed;
+    private final AtomicReference<IOException> spillFailure;
+
+    /**
+     * @param plies is the number of plies of every game entered in the book
+     * @param minCount is the number of games a move has to be played in to enter the book
+     * @param spillEntries is the number of entries a thread keeps in memory before spilling them
+     * @param keys is the Zobrist key table of the book, null for the boards' own keys
+     * @param tempDirectory receives the run files, null for the system's temporary directory
+     */
+    public BookBuilder(final int plies,
+                       final int minCount,
+                       final int spillEntries,
+                       final long[] keys,
+                       final File tempDirectory) {
+        this.plies = plies;
+        this.minCount = Math.max(1, minCount);
+        this.spillEntries = spillEntries;
+        this.keys = keys == null || Zobrist.isBoardKeys(keys) ? null : keys.clone();
+        this.tempDirectory = tempDirectory;
+        this.tables = Collections.synchronizedList(new ArrayList<>());
+        this.runFiles = Collections.synchronizedList(new ArrayList<>());
+        this.gamesUsed = new AtomicInteger();
+        this.spillFailure = new AtomicReference<>();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final Map<String, String> options = new HashMap<>();
+        final List<File> pgnFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("-") && i + 1 < args.length) {
+                options.put(args[i].substring(1), args[++i]);
+            } else {
+                pgnFiles.add(new File(args[i]));
+            }
+        }
+        if (!options.containsKey("output") || pgnFiles.isEmpty()) {
+            System.out.println("Usage: BookBuilder -output book.bin [-plies N] [-mincount N] [-threads N] " +
+                    "[-keys random64.txt] [-spill entries] games.pgn...");
+            return;
+        }
+        final BookBuilder builder = new BookBuilder(
+                Integer.parseInt(options.getOrDefault("plies", Integer.toString(DEFAULT_PLIES))),
+                Integer.parseInt(options.getOrDefault("mincount", Integer.toString(DEFAULT_MIN_COUNT))),
+                Integer.parseInt(options.getOrDefault("spill", Integer.toString(DEFAULT_SPILL_ENTRIES))),
+                options.containsKey("keys") ? Zobrist.readKeys(Paths.get(options.get("keys"))) : null,
+                null);
+        final long start = System.currentTimeMillis();
+        final int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        final long entries = builder.build(pgnFiles, new File(options.get("output")), Math.max(1, threads));
+        System.out.printf("Wrote %d book entries from %d games to %s in %.1f s%n", entries,
+                builder.gamesUsed.get(), options.get("output"), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    /**
+     * @param pgnFiles are the games
+     * @param bookFile receives the book
+     * @param threads is the number of threads replaying games
+     * @return the number of entries written to the book
+     * @throws IOException if a file cannot be read or written
+     */
+    public long build(final List<File> pgnFiles,
+                      final File bookFile,
+                      final int threads) throws IOException, InterruptedException {
+        try {
+            countGames(pgnFiles, threads);
+            return merge(bookFile);
+        } finally {
+            for (final File runFile : this.runFiles) {
+                if (!runFile.delete()) {
+                    runFile.deleteOnExit();
+                }
+            }
+            this.runFiles.clear();
+        }
+    }
+
+    public int getGamesUsed() {
+        return this.gamesUsed.get();
+    }
+
+    /**
+     * Replays the games on a thread pool. The pool's queue is bounded and the reading thread
+     * runs games itself when the queue is full, so only a few games are in memory at once.
+     */
+    private void countGames(final List<File> pgnFiles, final int threads) throws IOException, InterruptedException {
+        this.gamesUsed.set(0);
+        this.spillFailure.set(null);
+        // A new one every build, as the reading thread may run games too and outlives the build
+        final ThreadLocal<BookTable> threadTables = ThreadLocal.withInitial(() -> {
+            final BookTable table = new BookTable(this.spillEntries);
+            this.tables.add(table);
+            return table;
+        });
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_GAMES_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (final File pgnFile : pgnFiles) {
+                final int games = PGNUtilities.readPGNFile(pgnFile, game -> {
+                    if (game.isValid() && whiteResult(game) >= 0 && this.spillFailure.get() == null) {
+                        executor.execute(() -> addGame(game, threadTables.get()));
+                    }
+                });
+                System.out.println("Read " + games + " games from " + pgnFile);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        if (this.spillFailure.get() != null) {
+            throw this.spillFailure.get();
+        }
+        // The pool has ended, so every table can be spilled from this thread
+        for (final BookTable table : this.tables) {
+            if (!table.isEmpty()) {
+                spill(table);
+            }
+        }
+        this.tables.clear();
+    }
+
+    /**
+     * @return the result in half points for white, or -1 for an unfinished game
+     */
+    private static int whiteResult(final Game game) {
+        switch (game.getWinner()) {
+            case "White":
+                return 2;
+            case "Black":
+                return 0;
+            case "Tie":
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    private void addGame(final Game game,
+                         final BookTable table) {
+        final int whiteResult = whiteResult(game);
+        final List<String> moves = game.getMoves();
+        Board board = Board.createStandardBoard();
+        for (int ply = 0; ply < Math.min(this.plies, moves.size()); ply++) {
+            final Move move = PGNUtilities.createMove(board, moves.get(ply));
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            final long key = this.keys == null ? board.getZobristHash() : Zobrist.hash(board, this.keys);
+            table.add(key, PolyglotBook.encodeMove(move),
+                    board.getCurrentPlayer().getAlliance().isWhite() ? whiteResult : 2 - whiteResult);
+            board = transition.getToBoard();
+        }
+        this.gamesUsed.incrementAndGet();
+        if (table.isFull()) {
+            try {
+                spill(table);
+            } catch (final IOException e) {
+                this.spillFailure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void spill(final BookTable table) throws IOException {
+        final File runFile = File.createTempFile("book", ".run", this.tempDirectory);
+        this.runFiles.add(runFile);
+        table.spill(runFile);
+    }
+
+    /**
+     * Merges the sorted runs, adding up the counts of a position and move found in several runs,
+     * and writes every position's moves heaviest first
+     * @return the number of entries written
+     */
+    private long merge(final File bookFile) throws IOException {
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        long written = 0;
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bookFile), 1 << 16))) {
+            for (final File runFile : this.runFiles) {
+                final RunReader reader = new RunReader(runFile);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            final List<long[]> position = new ArrayList<>();
+            long positionKey = 0;
+            while (!queue.isEmpty()) {
+                final RunReader first = queue.poll();
+                final long key = first.key;
+                final int move = first.move;
+                int games = first.games;
+                int wins = first.wins;
+                int draws = first.draws;
+                advance(queue, first);
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    final RunReader same = queue.poll();
+                    games += same.games;
+                    wins += same.wins;
+                    draws += same.draws;
+                    advance(queue, same);
+                }
+                if (!position.isEmpty() && positionKey != key) {
+                    written += writePosition(out, positionKey, position);
+                }
+                positionKey = key;
+                if (games >= this.minCount && 2L * wins + draws > 0) {
+                    position.add(new long[] { move, 2L * wins + draws });
+                }
+            }
+            written += writePosition(out, positionKey, position);
+        } finally {
+            for (final RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        return written;
+    }
+
+    private static void advance(final PriorityQueue<RunReader> queue, final RunReader reader) throws IOException {
+        if (reader.next()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes one position's moves and empties the list
+     * @param moves holds the move and its unscaled weight
+     */
+    private static int writePosition(final DataOutputStream out,
+                                     final long key,
+                                     final List<long[]> moves) throws IOException {
+        moves.sort((a, b) -> Long.compare(b[1], a[1]));
+        final long heaviest = moves.isEmpty() ? 0 : moves.get(0)[1];
+        int written = 0;
+        for (final long[] move : moves) {
+            final long weight = heaviest > MAX_WEIGHT ? move[1] * MAX_WEIGHT / heaviest : move[1];
+            if (weight > 0) {
+                out.writeLong(key);
+                out.writeShort((int) move[0]);
+                out.writeShort((int) weight);
+                out.writeInt(0);
+                written++;
+            }
+        }
+        moves.clear();
+        return written;
+    }
+
+    /**
+     * Reads the records of one run file in order
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private int games;
+        private int wins;
+        private int draws;
+
+        RunReader(final File runFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), 1 << 16));
+        }
+
+        /**
+         * @return false at the end of the run
+         */
+        boolean next() throws IOException {
+            try {
+                this.key = this.in.readLong();
+            } catch (final EOFException e) {
+                return false;
+            }
+            this.move = this.in.readChar();
+            this.games = this.in.readInt();
+            this.wins = this.in.readInt();
+            this.draws = this.in.readInt();
+            return true;
+        }
+
+        void close() throws IOException {
+            this.in.close();
+        }
+
+        @Override
+        public int compareTo(final RunReader other) {
+            final int byKey = Long.compareUnsigned(this.key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(this.move, other.move);
+        }
+    }
+}
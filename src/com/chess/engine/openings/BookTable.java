@@ -0,0 +1,137 @@
+package com.chess.engine.openings;
+
+import com.chess.pgn.ParallelArraySort;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts results per position key and book move for one builder thread. The counts live in
+ * parallel arrays of an open addressing table, so an entry costs a few bytes and no objects.
+ * When the table holds its limit of entries it is written to a run file sorted by key and move,
+ * and emptied, so the memory used does not grow with the number of games.
+ */
+final class BookTable implements ParallelArraySort.Entries {
+
+    private final int maxEntries;
+    private final long[] keys;
+    private final char[] moves;
+    private final int[] games;
+    private final int[] wins;
+    private final int[] draws;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param maxEntries is the number of entries at which the table has to be spilled
+     */
+    BookTable(final int maxEntries) {
+        // Kept at most half full, so probe sequences stay short
+        final int capacity = Integer.highestOneBit(Math.max(16, maxEntries) * 2 - 1) << 1;
+        this.maxEntries = maxEntries;
+        this.keys = new long[capacity];
+        this.moves = new char[capacity];
+        this.games = new int[capacity];
+        this.wins = new int[capacity];
+        this.draws = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    /**
+     * Counts one game that played the move from the position
+     * @param result is 2 if the side that moved won, 1 for a draw and 0 for a loss
+     */
+    void add(final long key,
+             final int move,
+             final int result) {
+        int slot = slot(key, move);
+        while (this.games[slot] != 0 && (this.keys[slot] != key || this.moves[slot] != move)) {
+            slot = (slot + 1) & this.mask;
+        }
+        if (this.games[slot] == 0) {
+            this.keys[slot] = key;
+            this.moves[slot] = (char) move;
+            this.size++;
+        }
+        this.games[slot]++;
+        if (result == 2) {
+            this.wins[slot]++;
+        } else if (result == 1) {
+            this.draws[slot]++;
+        }
+    }
+
+    boolean isFull() {
+        return this.size >= this.maxEntries;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Writes the entries sorted by unsigned key and move, then empties the table
+     * @param runFile is the run file to write
+     */
+    void spill(final File runFile) throws IOException {
+        // Move the entries to the front, which breaks the hashing until the table is emptied
+        int count = 0;
+        for (int slot = 0; slot < this.games.length; slot++) {
+            if (this.games[slot] != 0) {
+                swap(count++, slot);
+            }
+        }
+        ParallelArraySort.sort(this, 0, count - 1);
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 1 << 16))) {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(this.keys[i]);
+                out.writeChar(this.moves[i]);
+                out.writeInt(this.games[i]);
+                out.writeInt(this.wins[i]);
+                out.writeInt(this.draws[i]);
+            }
+        }
+        Arrays.fill(this.games, 0, count, 0);
+        Arrays.fill(this.wins, 0, count, 0);
+        Arrays.fill(this.draws, 0, count, 0);
+        this.size = 0;
+    }
+
+    private int slot(final long key, final int move) {
+        final long hash = (key ^ move * 0x9E3779B97F4A7C15L) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash >>> 32) & this.mask;
+    }
+
+    @Override
+    public int compare(final int i, final int j) {
+        final int byKey = Long.compareUnsigned(this.keys[i], this.keys[j]);
+        return byKey != 0 ? byKey : Character.compare(this.moves[i], this.moves[j]);
+    }
+
+    @Override
+    public void swap(final int i, final int j) {
+        if (i == j) {
+            return;
+        }
+        final long key = this.keys[i];
+        this.keys[i] = this.keys[j];
+        this.keys[j] = key;
+        final char move = this.moves[i];
+        this.moves[i] = this.moves[j];
+        this.moves[j] = move;
+        final int game = this.games[i];
+        this.games[i] = this.games[j];
+        this.games[j] = game;
+        final int win = this.wins[i];
+        this.wins[i] = this.wins[j];
+        this.wins[j] = win;
+        final int draw = this.draws[i];
+        this.draws[i] = this.draws[j];
+        this.draws[j] = draw;
+    }
+}
@@ -2,76 +2,72 @@ package com.chess.engine.openings;
 
 import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
+import com.chess.pgn.ConnectionPool;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
 /**
- * This class contains helper functions that set up the connection with the database
+ * This class contains helper functions that look boards up in the openings table, over connections
+ * borrowed from the shared pool
  */
 public class OpeningsDatabase {
 
+    private static final String SELECT_OPENINGS = "SELECT boardsetup, bestmove from openings";
+    private static final String INSERT_OPENING = "INSERT INTO openings(boardsetup, bestmove) VALUES (?, ?)";
+
     /**
      * @param boardsetup is a given boardsetup
      * @return the candidate moves according to the openings database
      */
     public static Set<Move> getBestMove(final Board boardsetup) {
-        String boardToString = boardsetup.toString().replaceAll("\\s","");
-
-        // This is the list of the best moves that are kept in the database
-        Set<Move> listOfBestMoves = new HashSet<>();
-        PreparedStatement statement;
-        Connection conn;
-
-        try {
-            conn = DriverManager.getConnection
-                    ("jdbc:postgresql://localhost:5432/chess","postgres", "andersen23");
+        return new HashSet<>(findBookMoves(boardsetup));
+    }
 
-            statement = conn.prepareStatement(
-                    "SELECT boardsetup, bestmove from openings");
-            ResultSet rs = statement.executeQuery();
-            while (rs.next()) {
-                String x = rs.getString(1).replaceAll("\\s","");;
-                String y = rs.getString(2);
+    /**
+     * This method gets the best single move randomly
+     */
+    public static Move getBestSingleMove(final Board boardsetup) {
+        final List<Move> listOfBestMoves = findBookMoves(boardsetup);
+        // If the list is not empty return a random move in the given list
+        return !listOfBestMoves.isEmpty() ? listOfBestMoves.get(new Random().nextInt(listOfBestMoves.size())) : null;
+    }
 
-                if (x.equals(boardToString)) {
-                    for (final Move move : boardsetup.getCurrentPlayer().getLegalMoves()) {
-                        if (move.toString().equals(y)) {
-                            listOfBestMoves.add(move);
-                        }
-                    }
-                }
-            }
+    /**
+     * Insert the baord and the move into the database
+     * @param board is the given board
+     * @param move is the given move
+     */
+    public static void SqlInsert(String board, String move) {
+        try (final Connection conn = ConnectionPool.get().getConnection();
+             final PreparedStatement stmt = conn.prepareStatement(INSERT_OPENING)) {
+            stmt.setString(1, board);
+            stmt.setString(2, move);
+            System.out.println("System updated");
+            stmt.executeUpdate();
         }
 
-        catch (Exception e) {
+        catch (SQLException e) {
             e.printStackTrace();
         }
-
-        return listOfBestMoves;
     }
 
     /**
-     * This method gets the best single move randomly
+     * @return the legal moves stored for the board, compared without whitespace, in the order of the table
      */
-    public static Move getBestSingleMove(final Board boardsetup) {
-        String boardToString = boardsetup.toString().replaceAll("\\s","");
-        ArrayList<Move> listOfBestMoves = new ArrayList<>();
-        PreparedStatement statement;
-        Connection conn;
-
-        try {
-            conn = DriverManager.getConnection("jdbc:postgresql://localhost:5432/chess","postgres", "andersen23");
-
-            statement = conn.prepareStatement(
-                    "SELECT boardsetup, bestmove from openings");
-            ResultSet rs = statement.executeQuery();
+    private static List<Move> findBookMoves(final Board boardsetup) {
+        final String boardToString = boardsetup.toString().replaceAll("\\s","");
+        final List<Move> listOfBestMoves = new ArrayList<>();
+        try (final Connection conn = ConnectionPool.get().getConnection();
+             final PreparedStatement statement = conn.prepareStatement(SELECT_OPENINGS);
+             final ResultSet rs = statement.executeQuery()) {
             while (rs.next()) {
-                String x = rs.getString(1).replaceAll("\\s","");;
-                String y = rs.getString(2);
+                final String x = rs.getString(1).replaceAll("\\s","");
+                final String y = rs.getString(2);
 
                 if (x.equals(boardToString)) {
                     for (final Move move : boardsetup.getCurrentPlayer().getLegalMoves()) {
@@ -83,38 +79,11 @@ public class OpeningsDatabase {
             }
         }
 
-        catch (Exception e) {
+        catch (SQLException e) {
             e.printStackTrace();
         }
 
-        // If the list is not empty return a random move in the given list
-        return !listOfBestMoves.isEmpty() ? listOfBestMoves.get(new Random().nextInt(listOfBestMoves.size())) : null;
-    }
-
-    /**
-     * Insert the baord and the move into the database
-     * @param board is the given board
-     * @param move is the given move
-     */
-    public static void SqlInsert(String board, String move) {
-
-        PreparedStatement statement;
-        Connection conn;
-
-        try {
-            conn = DriverManager.getConnection("jdbc:postgresql://localhost:5432/chess","postgres", "andersen23");
-
-            PreparedStatement stmt = conn.prepareStatement("INSERT INTO openings(boardsetup, bestmove) VALUES (?, ?)");
-
-            stmt.setString(1, board);
-            stmt.setString(2, move);
-            System.out.println("System updated");
-            stmt.executeUpdate();
-        }
-
-        catch (Exception e) {
-            e.printStackTrace();
-        }
+        return listOfBestMoves;
     }
 
 }
@@ -0,0 +1,253 @@
+package com.chess.engine.openings;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.Zobrist;
+import com.chess.engine.piece.Piece;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class reads opening books in the Polyglot format. A book is a file of 16 byte entries,
+ * sorted by position key: the key, the move, a weight and a learn value, all big-endian.
+ *
+ * The file is memory mapped and the entries of a position are found by binary search on the key,
+ * so a lookup reads a few pages of the file instead of the whole book. Books are read with the
+ * position keys of the boards, which are Polyglot keys once the chess.zobrist.keys system property
+ * names Polyglot's Random64 table, or with a key table given when the book is opened.
+ */
+public final class PolyglotBook {
+
+    public static final int ENTRY_BYTES = 16;
+
+    // Entries in one mapped segment, a single mapping cannot be larger than 2 GB
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+
+    private static final int PROMOTION_QUEEN = 4;
+
+    private final MappedByteBuffer[] segments;
+    private final long entryCount;
+    // Null when the book is read with the boards' own keys
+    private final long[] keys;
+
+    private PolyglotBook(final MappedByteBuffer[] segments,
+                         final long entryCount,
+                         final long[] keys) {
+        this.segments = segments;
+        this.entryCount = entryCount;
+        this.keys = keys;
+    }
+
+    /**
+     * Opens a book read with the position keys of the boards
+     * @param bookFile is the book
+     * @throws IOException if the book cannot be read
+     */
+    public static PolyglotBook open(final File bookFile) throws IOException {
+        return open(bookFile, null);
+    }
+
+    /**
+     * @param bookFile is the book
+     * @param keys are the 781 keys the book was written with, null for the boards' keys
+     * @throws IOException if the book cannot be read
+     */
+    public static PolyglotBook open(final File bookFile, final long[] keys) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(bookFile, "r");
+             final FileChannel channel = file.getChannel()) {
+            final long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IOException(bookFile + " is not a Polyglot book, its size is not a multiple of " + ENTRY_BYTES);
+            }
+            final long entryCount = size / ENTRY_BYTES;
+            final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((entryCount + SEGMENT_ENTRIES - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                final long start = i * SEGMENT_ENTRIES * ENTRY_BYTES;
+                // The mapping stays valid after the channel is closed
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_ENTRIES * ENTRY_BYTES, size - start));
+            }
+            return new PolyglotBook(segments, entryCount, keys == null || Zobrist.isBoardKeys(keys) ? null : keys.clone());
+        }
+    }
+
+    public long size() {
+        return this.entryCount;
+    }
+
+    /**
+     * @param board is the position
+     * @return the book's legal moves for the position with their weights, in book order
+     */
+    public List<BookMove> getMoves(final Board board) {
+        final long key = this.keys == null ? board.getZobristHash() : Zobrist.hash(board, this.keys);
+        final List<BookMove> moves = new ArrayList<>();
+        for (long index = firstEntry(key); index < this.entryCount && getKey(index) == key; index++) {
+            final Move move = decodeMove(board, getRawMove(index));
+            if (move != Move.MoveFactory.getNullMove()) {
+                moves.add(new BookMove(move, getWeight(index)));
+            }
+        }
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * Picks one of the book's moves with a probability proportional to its weight
+     * @param board is the position
+     * @param random is the source of the pick
+     * @return the picked move, or the null move if the book has no move with weight for the position
+     */
+    public Move getWeightedMove(final Board board, final Random random) {
+        final List<BookMove> moves = getMoves(board);
+        int totalWeight = 0;
+        for (final BookMove bookMove : moves) {
+            totalWeight += bookMove.getWeight();
+        }
+        if (totalWeight == 0) {
+            return Move.MoveFactory.getNullMove();
+        }
+        int pick = random.nextInt(totalWeight);
+        for (final BookMove bookMove : moves) {
+            pick -= bookMove.getWeight();
+            if (pick < 0) {
+                return bookMove.getMove();
+            }
+        }
+        throw new IllegalStateException("Weighted pick ran past the book moves");
+    }
+
+    /**
+     * @return the index of the first entry whose key is not below the given key, keys compare unsigned
+     */
+    private long firstEntry(final long key) {
+        long low = 0;
+        long high = this.entryCount;
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getKey(final long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    private int getRawMove(final long index) {
+        return segment(index).getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    private int getWeight(final long index) {
+        return segment(index).getShort(offset(index) + 10) & 0xFFFF;
+    }
+
+    private MappedByteBuffer segment(final long index) {
+        return this.segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(final long index) {
+        return (int) (index & (SEGMENT_ENTRIES - 1)) * ENTRY_BYTES;
+    }
+
+    /**
+     * Polyglot moves hold the destination file and rank in bits 0 to 5, the origin in bits 6 to 11
+     * and the promotion piece in bits 12 to 14. Castling is written as the king taking its own rook.
+     * @return the legal move, or the null move if it is not legal or promotes to less than a queen
+     */
+    static Move decodeMove(final Board board, final int rawMove) {
+        final int promotion = (rawMove >>> 12) & 7;
+        if (promotion != 0 && promotion != PROMOTION_QUEEN) {
+            return Move.MoveFactory.getNullMove();
+        }
+        final int from = toCoordinate(rawMove >>> 6);
+        int to = toCoordinate(rawMove);
+        final Piece piece = board.getPiece(from);
+        if (piece == null || piece.getPieceAlliance() != board.getCurrentPlayer().getAlliance()) {
+            return Move.MoveFactory.getNullMove();
+        }
+        if (piece.getPieceType() == Piece.PieceType.KING && Math.abs(to - from) > 2 &&
+                from / BoardUtils.NUM_TILES_PER_ROW == to / BoardUtils.NUM_TILES_PER_ROW) {
+            // e1h1 is e1g1 and e1a1 is e1c1
+            to = to > from ? from + 2 : from - 2;
+        }
+        final Move move = Move.MoveFactory.createMove(board, from, to);
+        if (move == Move.MoveFactory.getNullMove() || !board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone()) {
+            return Move.MoveFactory.getNullMove();
+        }
+        return move;
+    }
+
+    /**
+     * @param move is a legal move
+     * @return the move in the Polyglot encoding, see decodeMove
+     */
+    static int encodeMove(final Move move) {
+        final int from = move.getCurrentCoordinate();
+        int to = move.getDestinationCoordinate();
+        if (move.isCastlingMove()) {
+            // The king's destination becomes the rook's square, h1 or a1
+            to = to > from ? from + 3 : from - 4;
+        }
+        final int promotion = move instanceof Move.PawnPromotion ? PROMOTION_QUEEN << 12 : 0;
+        return promotion | toSquare(from) << 6 | toSquare(to);
+    }
+
+    /**
+     * @param coordinate is a board coordinate, counted from a8
+     * @return the Polyglot square, counted from a1
+     */
+    private static int toSquare(final int coordinate) {
+        final int rank = BoardUtils.NUM_TILES_PER_ROW - 1 - coordinate / BoardUtils.NUM_TILES_PER_ROW;
+        return rank * BoardUtils.NUM_TILES_PER_ROW + coordinate % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    /**
+     * @param square is a Polyglot square, file in bits 0 to 2 and rank in bits 3 to 5 from a1
+     * @return the board coordinate, counted from a8
+     */
+    private static int toCoordinate(final int square) {
+        final int file = square & 7;
+        final int rank = (square >>> 3) & 7;
+        return (BoardUtils.NUM_TILES_PER_ROW - 1 - rank) * BoardUtils.NUM_TILES_PER_ROW + file;
+    }
+
+    /**
+     * A book move and its weight
+     */
+    public static final class BookMove {
+
+        private final Move move;
+        private final int weight;
+
+        BookMove(final Move move, final int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+
+        public Move getMove() {
+            return this.move;
+        }
+
+        public int getWeight() {
+            return this.weight;
+        }
+
+        @Override
+        public String toString() {
+            return this.move + " " + this.weight;
+        }
+    }
+}
@@ -11,7 +11,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -23,6 +25,8 @@ public abstract class Player {
     protected final King playerKing;
     protected Collection<Move> legalMoves;
     private final boolean isInCheck;
+    // The legal moves by destination square, built the first time they are looked up
+    private volatile Move[][] movesByDestination;
 
     /**
      * Constructor for the player class
@@ -102,6 +106,37 @@ public abstract class Player {
 
     public void setLegal(Collection<Move> newLegalMoves) {
         this.legalMoves = newLegalMoves;
+        this.movesByDestination = null;
+    }
+
+    /**
+     * @param destinationCoordinate is a square of the board
+     * @return the legal moves that land on the square
+     */
+    public List<Move> getLegalMovesTo(final int destinationCoordinate) {
+        Move[][] index = this.movesByDestination;
+        if (index == null) {
+            index = indexByDestination(this.legalMoves);
+            this.movesByDestination = index;
+        }
+        return Collections.unmodifiableList(Arrays.asList(index[destinationCoordinate]));
+    }
+
+    private static Move[][] indexByDestination(final Collection<Move> moves) {
+        final int[] counts = new int[64];
+        for (final Move move : moves) {
+            counts[move.getDestinationCoordinate()]++;
+        }
+        final Move[][] index = new Move[64][];
+        for (int square = 0; square < 64; square++) {
+            index[square] = new Move[counts[square]];
+            counts[square] = 0;
+        }
+        for (final Move move : moves) {
+            final int square = move.getDestinationCoordinate();
+            index[square][counts[square]++] = move;
+        }
+        return index;
     }
 
     /**
@@ -0,0 +1,131 @@
+package com.chess.engine.player.ai;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * This class holds the weights of the tunable terms of the standard evaluator.
+ * Weights are stored in a properties file with one "TERM=value" line per term,
+ * terms missing from the file keep their default weight.
+ */
+public final class EvaluationParameters {
+
+    public enum Term {
+        CHECK_BONUS(10),
+        CASTLE_BONUS(60),
+        ATTACK_MULTIPLIER(1),
+        MOBILITY_MULTIPLIER(5),
+        KING_ZONE_ATTACK_PENALTY(5),
+        DOUBLED_PAWN_PENALTY(PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY),
+        ISOLATED_PAWN_PENALTY(PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+
+        private final int defaultWeight;
+
+        Term(final int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+
+        public int getDefaultWeight() {
+            return this.defaultWeight;
+        }
+    }
+
+    public static final int NUM_TERMS = Term.values().length;
+    public static final EvaluationParameters DEFAULT = new EvaluationParameters(defaultWeights());
+
+    private final int[] weights;
+
+    /**
+     * @param weights is one weight per term, in term order
+     */
+    public EvaluationParameters(final int[] weights) {
+        if (weights.length != NUM_TERMS) {
+            throw new IllegalArgumentException("Expected " + NUM_TERMS + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    private static int[] defaultWeights() {
+        final int[] weights = new int[NUM_TERMS];
+        for (final Term term : Term.values()) {
+            weights[term.ordinal()] = term.getDefaultWeight();
+        }
+        return weights;
+    }
+
+    public int get(final Term term) {
+        return this.weights[term.ordinal()];
+    }
+
+    /**
+     * @return a copy of the weights, in term order
+     */
+    public int[] getWeights() {
+        return this.weights.clone();
+    }
+
+    public EvaluationParameters with(final Term term, final int weight) {
+        final int[] weights = this.weights.clone();
+        weights[term.ordinal()] = weight;
+        return new EvaluationParameters(weights);
+    }
+
+    /**
+     * @param parameterFile is a properties file of term weights
+     * @return the parameters in the file
+     * @throws IOException if the file cannot be read or holds a weight that is not a number
+     */
+    public static EvaluationParameters load(final File parameterFile) throws IOException {
+        final Properties properties = new Properties();
+        try (final Reader reader = new BufferedReader(new FileReader(parameterFile))) {
+            properties.load(reader);
+        }
+        final int[] weights = defaultWeights();
+        for (final Term term : Term.values()) {
+            final String value = properties.getProperty(term.name());
+            if (value != null) {
+                try {
+                    weights[term.ordinal()] = Integer.parseInt(value.trim());
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Bad weight for " + term + " in " + parameterFile + ": " + value, e);
+                }
+            }
+        }
+        return new EvaluationParameters(weights);
+    }
+
+    /**
+     * @param parameterFile is the file to write
+     * @param comment is written at the top of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File parameterFile, final String comment) throws IOException {
+        final Properties properties = new Properties();
+        for (final Term term : Term.values()) {
+            properties.setProperty(term.name(), Integer.toString(get(term)));
+        }
+        try (final Writer writer = new BufferedWriter(new FileWriter(parameterFile))) {
+            properties.store(writer, comment);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof EvaluationParameters && Arrays.equals(this.weights, ((EvaluationParameters) other).weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.weights);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Term term : Term.values()) {
+            builder.append(builder.length() == 0 ? "" : ", ").append(term).append('=').append(get(term));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,466 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.chess.engine.board.BoardUtils.mvvlva;
+
+/**
+ * This class is an iterative deepening alpha-beta search that can be stopped from another thread.
+ * It searches to a depth, node or time limit and reports every finished iteration to a listener.
+ * With more than one thread the helper threads search the same position and share the
+ * transposition table, so their results speed up the main thread (lazy SMP).
+ */
+public class IterativeDeepeningSearch implements MoveStrategy {
+
+    public static final int MATE_SCORE = 30000;
+    public static final int MAX_PLY = 64;
+
+    private static final int INFINITY = 32000;
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int TT_MOVE_PRIORITY = 1 << 30;
+    private static final int CAPTURE_PRIORITY = 1 << 24;
+    private static final int CASTLE_PRIORITY = 1 << 23;
+
+    private final BoardEvaluator evaluator;
+    private final AtomicLong nodes;
+    private final Object lock;
+    private volatile TranspositionTable table;
+    private volatile int threads;
+    private volatile boolean stopped;
+    private volatile boolean pondering;
+    // Set by prepare until the prepared search starts
+    private boolean prepared;
+    private volatile long deadline;
+    private long startTime;
+    private volatile TimeManager timeManager;
+    private long nodeLimit;
+    private long lastSearchNodes;
+
+    public IterativeDeepeningSearch(final BoardEvaluator evaluator,
+                                    final int hashMegabytes,
+                                    final int threads) {
+        this.evaluator = evaluator;
+        this.nodes = new AtomicLong();
+        this.lock = new Object();
+        this.table = new TranspositionTable(hashMegabytes);
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public String toString() {
+        return "IterativeDeepening";
+    }
+
+    /**
+     * Replaces the transposition table, must not be called during a search
+     */
+    public void setHashSize(final int megabytes) {
+        this.table = new TranspositionTable(megabytes);
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void clearHash() {
+        this.table.clear();
+    }
+
+    @Override
+    public long getNumBoardsEvaluated() {
+        return this.lastSearchNodes;
+    }
+
+    @Override
+    public Move execute(final Board board) {
+        return search(board, SearchLimits.depth(DEFAULT_DEPTH), null).getBestMove();
+    }
+
+    /**
+     * Stops the search, the search returns its last finished iteration
+     */
+    public void stop() {
+        synchronized (this.lock) {
+            this.stopped = true;
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Readies the next search before it is handed to another thread, so a stop or ponderhit that
+     * arrives before that thread starts the search applies to it instead of being lost
+     * @param limits are the limits the search will be started with
+     */
+    public void prepare(final SearchLimits limits) {
+        synchronized (this.lock) {
+            this.stopped = false;
+            this.pondering = limits.isPonder();
+            this.prepared = true;
+        }
+    }
+
+    /**
+     * Turns a ponder search into a normal search, its clock starts now
+     */
+    public void ponderhit() {
+        synchronized (this.lock) {
+            if (this.pondering) {
+                // A prepared search not started yet starts its clock when it starts
+                if (!this.prepared) {
+                    this.startTime = System.nanoTime();
+                    this.deadline = this.timeManager.isTimed() ?
+                            this.startTime + this.timeManager.getMaximumMillis() * 1000000L : Long.MAX_VALUE;
+                }
+                this.pondering = false;
+            }
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Searches the board on the calling thread, plus helper threads if more than one thread is set.
+     * An infinite or ponder search does not return before stop, or ponderhit for a ponder search.
+     * A search started on another thread than stop is called from should be readied with prepare.
+     * @param board is the board to search
+     * @param limits are the limits of the search
+     * @param listener is told about every finished iteration, may be null
+     * @return the last finished iteration, with an empty variation if the side to move has no moves
+     */
+    public SearchResult search(final Board board,
+                               final SearchLimits limits,
+                               final SearchListener listener) {
+        final TranspositionTable table = this.table;
+        table.newSearch();
+        this.nodes.set(0);
+        final TimeManager timeManager = TimeManager.create(limits, board.getCurrentPlayer().getAlliance());
+        timeManager.setSingleReply(legalMoveCount(board) == 1);
+        synchronized (this.lock) {
+            if (!this.prepared) {
+                this.stopped = false;
+                this.pondering = limits.isPonder();
+            }
+            this.prepared = false;
+            this.startTime = System.nanoTime();
+            this.timeManager = timeManager;
+            this.deadline = timeManager.isTimed() && !this.pondering ?
+                    this.startTime + timeManager.getMaximumMillis() * 1000000L : Long.MAX_VALUE;
+        }
+        this.nodeLimit = limits.getNodes();
+        final int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+        final List<Thread> helpers = new ArrayList<>();
+        for (int id = 1; id < this.threads; id++) {
+            final Worker helper = new Worker(id, table);
+            final Thread thread = new Thread(() -> helper.iterate(board, maxDepth, null), "search-helper-" + id);
+            thread.setDaemon(true);
+            thread.start();
+            helpers.add(thread);
+        }
+        final SearchResult result = new Worker(0, table).iterate(board, maxDepth, listener);
+
+        synchronized (this.lock) {
+            while (!this.stopped && (limits.isInfinite() || this.pondering)) {
+                try {
+                    this.lock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            this.stopped = true;
+        }
+        for (final Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.lastSearchNodes = this.nodes.get();
+        return result;
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - this.startTime) / 1000000L;
+    }
+
+    /**
+     * One search thread. Worker 0 is the main thread, it reports results and ends the search.
+     */
+    private final class Worker {
+
+        private final int id;
+        private final TranspositionTable table;
+        private long localNodes;
+        private Move rootBestMove;
+
+        Worker(final int id, final TranspositionTable table) {
+            this.id = id;
+            this.table = table;
+        }
+
+        SearchResult iterate(final Board root, final int maxDepth, final SearchListener listener) {
+            final Move firstLegalMove = firstLegalMove(root);
+            final List<Move> fallback = new ArrayList<>();
+            if (firstLegalMove != null) {
+                fallback.add(firstLegalMove);
+            }
+            // Used if not even the first iteration finishes, or if the side to move has no moves
+            SearchResult result = new SearchResult(0, firstLegalMove != null || !root.getCurrentPlayer().isInCheck() ? 0 : -MATE_SCORE,
+                    0, 0, 0, fallback);
+            // Helpers start one ply deeper every other thread so the threads spread over depths
+            for (int depth = 1 + this.id % 2; depth <= maxDepth && firstLegalMove != null; depth++) {
+                final int score = searchRoot(root, depth);
+                if (stopped) {
+                    break;
+                }
+                if (this.id == 0) {
+                    result = new SearchResult(depth, score, nodes.get() + this.localNodes % CHECK_INTERVAL,
+                            elapsedMillis(), this.table.hashfull(), principalVariation(root, depth));
+                    if (listener != null) {
+                        listener.iterationFinished(result);
+                    }
+                    timeManager.iterationFinished(score, this.rootBestMove);
+                    if (!pondering && !timeManager.shouldStartIteration(elapsedMillis())) {
+                        break;
+                    }
+                }
+            }
+            nodes.addAndGet(this.localNodes % CHECK_INTERVAL);
+            return result;
+        }
+
+        private int searchRoot(final Board root, final int depth) {
+            int alpha = -INFINITY;
+            Move bestMove = null;
+            for (final Move move : order(root.getCurrentPlayer().getLegalMoves(),
+                    this.rootBestMove == null ? 0 : encode(this.rootBestMove), false)) {
+                final MoveTransition transition = root.getCurrentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    continue;
+                }
+                final int score = -negamax(transition.getToBoard(), depth - 1, -INFINITY, -alpha, 1);
+                if (stopped) {
+                    return 0;
+                }
+                if (bestMove == null || score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                }
+            }
+            this.rootBestMove = bestMove;
+            this.table.store(root.getZobristHash(), encode(bestMove), alpha, depth, TranspositionTable.EXACT);
+            return alpha;
+        }
+
+        private int negamax(final Board board,
+                            final int depth,
+                            final int alphaStart,
+                            final int beta,
+                            final int ply) {
+            if (depth <= 0 || ply >= MAX_PLY - 1) {
+                return quiescence(board, alphaStart, beta, ply);
+            }
+            countNode();
+            if (stopped) {
+                return 0;
+            }
+            int alpha = alphaStart;
+            final long key = board.getZobristHash();
+            final long entry = this.table.probe(key);
+            int hashMove = 0;
+            if (entry != 0L) {
+                hashMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    final int score = fromTable(TranspositionTable.score(entry), ply);
+                    final int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT ||
+                            (bound == TranspositionTable.LOWER_BOUND && score >= beta) ||
+                            (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+            int bestScore = -INFINITY;
+            int bestMove = 0;
+            boolean anyLegalMove = false;
+            for (final Move move : order(board.getCurrentPlayer().getLegalMoves(), hashMove, false)) {
+                final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    continue;
+                }
+                anyLegalMove = true;
+                final int score = -negamax(transition.getToBoard(), depth - 1, -beta, -alpha, ply + 1);
+                if (stopped) {
+                    return 0;
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = encode(move);
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!anyLegalMove) {
+                return board.getCurrentPlayer().isInCheck() ? -MATE_SCORE + ply : 0;
+            }
+            final int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND :
+                    bestScore > alphaStart ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+            this.table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+            return bestScore;
+        }
+
+        /**
+         * Searches captures only, so the score is not taken in the middle of an exchange
+         */
+        private int quiescence(final Board board,
+                               final int alphaStart,
+                               final int beta,
+                               final int ply) {
+            countNode();
+            if (stopped) {
+                return 0;
+            }
+            final int sign = board.getCurrentPlayer().getAlliance().isWhite() ? 1 : -1;
+            final int standPat = sign * evaluator.evaluate(board, 0);
+            if (standPat >= beta || ply >= MAX_PLY - 1) {
+                return standPat;
+            }
+            int alpha = Math.max(alphaStart, standPat);
+            for (final Move move : order(board.getCurrentPlayer().getLegalMoves(), 0, true)) {
+                final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    continue;
+                }
+                final int score = -quiescence(transition.getToBoard(), -beta, -alpha, ply + 1);
+                if (stopped) {
+                    return 0;
+                }
+                if (score >= beta) {
+                    return score;
+                }
+                alpha = Math.max(alpha, score);
+            }
+            return alpha;
+        }
+
+        private void countNode() {
+            if (++this.localNodes % CHECK_INTERVAL == 0) {
+                final long total = nodes.addAndGet(CHECK_INTERVAL);
+                if (System.nanoTime() >= deadline || (nodeLimit > 0 && total >= nodeLimit)) {
+                    stopped = true;
+                }
+            }
+        }
+
+        /**
+         * Follows the hash moves from the root to build the line the search expects
+         */
+        private List<Move> principalVariation(final Board root, final int depth) {
+            final List<Move> variation = new ArrayList<>();
+            variation.add(this.rootBestMove);
+            Board board = root.getCurrentPlayer().makeMove(this.rootBestMove).getToBoard();
+            while (variation.size() < depth) {
+                final long entry = this.table.probe(board.getZobristHash());
+                final Move move = entry == 0L ? null : decode(board, TranspositionTable.move(entry));
+                if (move == null) {
+                    break;
+                }
+                final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    break;
+                }
+                variation.add(move);
+                board = transition.getToBoard();
+            }
+            return variation;
+        }
+    }
+
+    private static int legalMoveCount(final Board board) {
+        int count = 0;
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            if (board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Move firstLegalMove(final Board board) {
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            if (board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param moves are the moves to order
+     * @param hashMove is the encoded move from the hash table, searched first
+     * @param capturesOnly is true to drop the moves that capture nothing
+     * @return the moves, most promising first
+     */
+    private static List<Move> order(final Collection<Move> moves,
+                                    final int hashMove,
+                                    final boolean capturesOnly) {
+        final List<Move> ordered = new ArrayList<>(moves.size());
+        final int[] priorities = new int[moves.size()];
+        for (final Move move : moves) {
+            if (capturesOnly && !move.isAttack()) {
+                continue;
+            }
+            final int priority = encode(move) == hashMove ? TT_MOVE_PRIORITY :
+                    move.isAttack() ? CAPTURE_PRIORITY + mvvlva(move) :
+                            move.isCastlingMove() ? CASTLE_PRIORITY : mvvlva(move);
+            // Insertion sort, the lists are short
+            int i = ordered.size();
+            ordered.add(move);
+            while (i > 0 && priorities[i - 1] < priority) {
+                priorities[i] = priorities[i - 1];
+                ordered.set(i, ordered.get(i - 1));
+                i--;
+            }
+            priorities[i] = priority;
+            ordered.set(i, move);
+        }
+        return ordered;
+    }
+
+    private static int encode(final Move move) {
+        return TranspositionTable.encodeMove(move.getCurrentCoordinate(), move.getDestinationCoordinate());
+    }
+
+    private static Move decode(final Board board, final int encodedMove) {
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            if (encode(move) == encodedMove) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mate scores are stored relative to the stored position rather than the root
+     */
+    private static int toTable(final int score, final int ply) {
+        return score > MATE_SCORE - MAX_PLY ? score + ply : score < -MATE_SCORE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(final int score, final int ply) {
+        return score > MATE_SCORE - MAX_PLY ? score - ply : score < -MATE_SCORE + MAX_PLY ? score + ply : score;
+    }
+}
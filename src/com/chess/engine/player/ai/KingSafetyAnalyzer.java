@@ -1,19 +1,17 @@
 package com.chess.engine.player.ai;
 
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
 import com.chess.engine.board.BoardUtils;
-import com.chess.engine.board.Move;
 import com.chess.engine.piece.Piece;
 import com.chess.engine.player.Player;
-import com.google.common.collect.ImmutableList;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 
 public final class KingSafetyAnalyzer {
 
     private static final KingSafetyAnalyzer INSTANCE = new KingSafetyAnalyzer();
-    private static final List<List<Boolean>> COLUMNS = initColumns();
+
+    // The tiles at each Chebyshev distance from a tile, indexed by [tile][distance]
+    private static final long[][] DISTANCE_RINGS = initDistanceRings();
 
     private KingSafetyAnalyzer() {
     }
@@ -22,89 +20,62 @@ public final class KingSafetyAnalyzer {
         return INSTANCE;
     }
 
-    private static List<List<Boolean>> initColumns() {
-        final List<List<Boolean>> columns = new ArrayList<>();
-        columns.add(BoardUtils.INSTANCE.FIRST_COLUMN);
-        columns.add(BoardUtils.INSTANCE.SECOND_COLUMN);
-        columns.add(BoardUtils.INSTANCE.THIRD_COLUMN);
-        columns.add(BoardUtils.INSTANCE.FOURTH_COLUMN);
-        columns.add(BoardUtils.INSTANCE.FIFTH_COLUMN);
-        columns.add(BoardUtils.INSTANCE.SIXTH_COLUMN);
-        columns.add(BoardUtils.INSTANCE.SEVENTH_COLUMN);
-        columns.add(BoardUtils.INSTANCE.EIGHTH_COLUMN);
-        return ImmutableList.copyOf(columns);
+    private static long[][] initDistanceRings() {
+        final long[][] rings = new long[BoardUtils.NUM_TILES][BoardUtils.NUM_TILES_PER_ROW];
+        for (int from = 0; from < BoardUtils.NUM_TILES; from++) {
+            for (int to = 0; to < BoardUtils.NUM_TILES; to++) {
+                rings[from][calculateChebyshevDistance(from, to)] |= BitBoards.bit(to);
+            }
+        }
+        return rings;
     }
 
-    public KingDistance calculateKingTropism(final Player player) {
+    /**
+     * @param board is the current state of the board
+     * @param player is the player whose king is measured
+     * @return the enemy piece that attacks a tile closest to the king, and that distance
+     */
+    public KingDistance calculateKingTropism(final Board board,
+                                             final Player player) {
         final int playerKingSquare = player.getPlayerKing().getPiecePosition();
-        final Collection<Move> enemyMoves = player.getOpponent().getLegalMoves();
+        final long occupied = board.getOccupancy();
         Piece closestPiece = null;
         int closestDistance = Integer.MAX_VALUE;
-        for(final Move move : enemyMoves) {
-            final int currentDistance = calculateChebyshevDistance(playerKingSquare, move.getDestinationCoordinate());
-            if(currentDistance < closestDistance) {
-                closestDistance = currentDistance;
-                closestPiece = move.getMovedPiece();
+        for (final Piece enemyPiece : player.getOpponent().getActivePieces()) {
+            final long attacks = BitBoards.attacks(enemyPiece, occupied);
+            for (int distance = 0; distance < BoardUtils.NUM_TILES_PER_ROW && distance < closestDistance; distance++) {
+                if ((attacks & DISTANCE_RINGS[playerKingSquare][distance]) != 0L) {
+                    closestDistance = distance;
+                    closestPiece = enemyPiece;
+                    break;
+                }
             }
         }
         return new KingDistance(closestPiece, closestDistance);
     }
 
-    private int calculateChebyshevDistance(final int kingTileId,
-                                           final int enemyAttackTileId) {
-
-        final int squareOneRank = getRank(kingTileId);
-        final int squareTwoRank = getRank(enemyAttackTileId);
-
-        final int squareOneFile = getFile(kingTileId);
-        final int squareTwoFile = getFile(enemyAttackTileId);
-
-        final int rankDistance = Math.abs(squareTwoRank - squareOneRank);
-        final int fileDistance = Math.abs(squareTwoFile - squareOneFile);
-
-        return Math.max(rankDistance, fileDistance);
-    }
-
-    private static int getFile(final int coordinate) {
-        if(BoardUtils.INSTANCE.FIRST_COLUMN.get(coordinate)) {
-            return 1;
-        } else if(BoardUtils.INSTANCE.SECOND_COLUMN.get(coordinate)) {
-            return 2;
-        } else if(BoardUtils.INSTANCE.THIRD_COLUMN.get(coordinate)) {
-            return 3;
-        } else if(BoardUtils.INSTANCE.FOURTH_COLUMN.get(coordinate)) {
-            return 4;
-        } else if(BoardUtils.INSTANCE.FIFTH_COLUMN.get(coordinate)) {
-            return 5;
-        } else if(BoardUtils.INSTANCE.SIXTH_COLUMN.get(coordinate)) {
-            return 6;
-        } else if(BoardUtils.INSTANCE.SEVENTH_COLUMN.get(coordinate)) {
-            return 7;
-        } else if(BoardUtils.INSTANCE.EIGHTH_COLUMN.get(coordinate)) {
-            return 8;
+    /**
+     * @param board is the current state of the board
+     * @param player is the player whose king is measured
+     * @return the number of enemy attacks on the king and the tiles around it
+     */
+    public int kingZoneAttacks(final Board board,
+                               final Player player) {
+        final int playerKingSquare = player.getPlayerKing().getPiecePosition();
+        final long kingZone = BitBoards.kingAttacks(playerKingSquare) | BitBoards.bit(playerKingSquare);
+        final long occupied = board.getOccupancy();
+        int zoneAttacks = 0;
+        for (final Piece enemyPiece : player.getOpponent().getActivePieces()) {
+            zoneAttacks += Long.bitCount(BitBoards.attacks(enemyPiece, occupied) & kingZone);
         }
-        throw new RuntimeException("should not reach here!");
+        return zoneAttacks;
     }
 
-    private static int getRank(final int coordinate) {
-        if(BoardUtils.INSTANCE.FIRST_ROW.get(coordinate)) {
-            return 1;
-        } else if(BoardUtils.INSTANCE.SECOND_ROW.get(coordinate)) {
-            return 2;
-        } else if(BoardUtils.INSTANCE.THIRD_ROW.get(coordinate)) {
-            return 3;
-        } else if(BoardUtils.INSTANCE.FOURTH_ROW.get(coordinate)) {
-            return 4;
-        } else if(BoardUtils.INSTANCE.FIFTH_ROW.get(coordinate)) {
-            return 5;
-        } else if(BoardUtils.INSTANCE.SIXTH_ROW.get(coordinate)) {
-            return 6;
-        } else if(BoardUtils.INSTANCE.SEVENTH_ROW.get(coordinate)) {
-            return 7;
-        } else if(BoardUtils.INSTANCE.EIGHTH_ROW.get(coordinate)) {
-            return 8;
-        }
-        throw new RuntimeException("should not reach here!");
+    private static int calculateChebyshevDistance(final int kingTileId,
+                                                  final int enemyAttackTileId) {
+        final int rankDistance = Math.abs(BitBoards.getRow(enemyAttackTileId) - BitBoards.getRow(kingTileId));
+        final int fileDistance = Math.abs(BitBoards.getColumn(enemyAttackTileId) - BitBoards.getColumn(kingTileId));
+        return Math.max(rankDistance, fileDistance);
     }
 
     static class KingDistance {
@@ -10,7 +10,7 @@ public class Minimax implements MoveStrategy {
     private final BoardEvaluator boardEvaluator;
     private final int searchDepth;
     public Minimax(final int searchDepth) {
-        this.boardEvaluator = new StandardBoardEvaluator();
+        this.boardEvaluator = StandardBoardEvaluator.get();
         this.searchDepth = searchDepth;
     }
 
@@ -0,0 +1,111 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.PiecePlacementListener;
+import com.chess.engine.piece.Piece;
+import com.chess.engine.piece.Piece.PieceType;
+
+/**
+ * This class holds the hidden layer sums of a network for one board, seen from both sides.
+ * A board's sums are derived from its previous board's sums by adding and removing only the
+ * pieces the transition move touched.
+ */
+public final class NetworkAccumulator {
+
+    // Boards further than this from the nearest board with sums are rebuilt from scratch
+    private static final int MAX_UPDATE_CHAIN = 16;
+
+    private final NeuralNetwork network;
+    private final short[] whiteSums;
+    private final short[] blackSums;
+
+    private NetworkAccumulator(final NeuralNetwork network) {
+        this.network = network;
+        this.whiteSums = new short[network.getHiddenSize()];
+        this.blackSums = new short[network.getHiddenSize()];
+    }
+
+    NeuralNetwork getNetwork() {
+        return this.network;
+    }
+
+    short[] getSums(final Alliance perspective) {
+        return perspective.isWhite() ? this.whiteSums : this.blackSums;
+    }
+
+    /**
+     * Finds or builds the sums of the board and caches them on the board.
+     * Boards between the board and its nearest ancestor with sums get theirs too,
+     * since the search goes on to evaluate their other children.
+     * @param network is the network the sums are for
+     * @param board is the board to evaluate
+     * @return the sums of the board
+     */
+    static NetworkAccumulator of(final NeuralNetwork network, final Board board) {
+        final NetworkAccumulator cached = board.getNetworkAccumulator();
+        if (cached != null && cached.network == network) {
+            return cached;
+        }
+        final Board[] chain = new Board[MAX_UPDATE_CHAIN];
+        int length = 0;
+        Board current = board;
+        NetworkAccumulator accumulator = null;
+        while (length < MAX_UPDATE_CHAIN) {
+            chain[length++] = current;
+            final Board previous = current.getTransitionMove().getBoard();
+            if (previous == null) {
+                break;
+            }
+            final NetworkAccumulator previousAccumulator = previous.getNetworkAccumulator();
+            if (previousAccumulator != null && previousAccumulator.network == network) {
+                accumulator = previousAccumulator;
+                break;
+            }
+            current = previous;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            accumulator = accumulator == null ? refresh(network, chain[i]) : accumulator.update(chain[i]);
+            chain[i].setNetworkAccumulator(accumulator);
+        }
+        return accumulator;
+    }
+
+    private static NetworkAccumulator refresh(final NeuralNetwork network, final Board board) {
+        final NetworkAccumulator accumulator = new NetworkAccumulator(network);
+        network.resetAccumulator(accumulator.whiteSums);
+        network.resetAccumulator(accumulator.blackSums);
+        for (final Piece piece : board.getAllPieces()) {
+            accumulator.add(piece.getPieceType(), piece.getPieceAlliance(), piece.getPiecePosition());
+        }
+        return accumulator;
+    }
+
+    private NetworkAccumulator update(final Board board) {
+        final NetworkAccumulator accumulator = new NetworkAccumulator(this.network);
+        System.arraycopy(this.whiteSums, 0, accumulator.whiteSums, 0, this.whiteSums.length);
+        System.arraycopy(this.blackSums, 0, accumulator.blackSums, 0, this.blackSums.length);
+        board.getTransitionMove().applyPlacements(new PiecePlacementListener() {
+            @Override
+            public void pieceRemoved(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+                accumulator.remove(pieceType, alliance, coordinate);
+            }
+
+            @Override
+            public void pieceAdded(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+                accumulator.add(pieceType, alliance, coordinate);
+            }
+        });
+        return accumulator;
+    }
+
+    private void add(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+        this.network.addFeature(this.whiteSums, Alliance.WHITE, pieceType, alliance, coordinate);
+        this.network.addFeature(this.blackSums, Alliance.BLACK, pieceType, alliance, coordinate);
+    }
+
+    private void remove(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+        this.network.removeFeature(this.whiteSums, Alliance.WHITE, pieceType, alliance, coordinate);
+        this.network.removeFeature(this.blackSums, Alliance.BLACK, pieceType, alliance, coordinate);
+    }
+}
@@ -0,0 +1,55 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.Player;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This evaluator scores a board with a neural network.
+ * The hidden layer sums are carried along from board to board, so scoring a board
+ * only costs the output layer plus the few inputs the last move changed.
+ */
+public final class NeuralBoardEvaluator implements BoardEvaluator {
+
+    private static final int CHECK_MATE_BONUS = 10000;
+    private static final int DEPTH_BONUS = 100;
+
+    private final NeuralNetwork network;
+
+    public NeuralBoardEvaluator(final NeuralNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * @param weightsFile is a network file, see NeuralNetwork
+     * @return an evaluator using the network in the file
+     * @throws IOException if the file cannot be loaded
+     */
+    public static NeuralBoardEvaluator load(final File weightsFile) throws IOException {
+        return new NeuralBoardEvaluator(NeuralNetwork.load(weightsFile));
+    }
+
+    public NeuralNetwork getNetwork() {
+        return this.network;
+    }
+
+    @Override
+    public int evaluate(final Board board, final int depth) {
+        final Player currentPlayer = board.getCurrentPlayer();
+        if (currentPlayer.isInCheckMate()) {
+            final int mateScore = CHECK_MATE_BONUS + (depth == 0 ? 1 : DEPTH_BONUS * depth);
+            return currentPlayer.getAlliance().isWhite() ? -mateScore : mateScore;
+        }
+        final NetworkAccumulator accumulator = NetworkAccumulator.of(this.network, board);
+        final int score = this.network.propagate(accumulator.getSums(currentPlayer.getAlliance()),
+                accumulator.getSums(currentPlayer.getOpponent().getAlliance()));
+        return currentPlayer.getAlliance().isWhite() ? score : -score;
+    }
+
+    @Override
+    public String toString() {
+        return "Neural";
+    }
+}
@@ -0,0 +1,191 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.piece.Piece.PieceType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * This class holds the weights of a small efficiently updatable network.
+ * The network has one input per (relative color, piece type, tile) for each of the two
+ * perspectives, a shared hidden layer of clipped ReLUs, and a single output.
+ *
+ * File layout, little-endian:
+ * magic "CNN1", int hiddenSize, short[768 * hiddenSize] feature weights,
+ * short[hiddenSize] feature biases, short[2 * hiddenSize] output weights, int output bias
+ */
+public final class NeuralNetwork {
+
+    public static final int INPUT_SIZE = 2 * 6 * 64;
+
+    // Quantization of the hidden layer, the output layer and the final centipawn scale
+    static final int HIDDEN_QUANTIZATION = 255;
+    static final int OUTPUT_QUANTIZATION = 64;
+    static final int EVALUATION_SCALE = 400;
+
+    private static final int MAGIC = 0x314E4E43;
+
+    private final int hiddenSize;
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    private NeuralNetwork(final int hiddenSize,
+                          final short[] featureWeights,
+                          final short[] featureBiases,
+                          final short[] outputWeights,
+                          final int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Loads a network by memory-mapping the weights file
+     * @param weightsFile is the binary weights file
+     * @return the network
+     * @throws IOException if the file cannot be read or is not a network file
+     */
+    public static NeuralNetwork load(final File weightsFile) throws IOException {
+        try (final FileChannel channel = new RandomAccessFile(weightsFile, "r").getChannel()) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a network file: " + weightsFile);
+            }
+            final int hiddenSize = buffer.getInt();
+            final long expectedSize = 8L + 2L * (INPUT_SIZE * (long) hiddenSize + 3L * hiddenSize) + 4L;
+            if (hiddenSize <= 0 || channel.size() != expectedSize) {
+                throw new IOException("Corrupt network file: " + weightsFile);
+            }
+            final short[] featureWeights = new short[INPUT_SIZE * hiddenSize];
+            final short[] featureBiases = new short[hiddenSize];
+            final short[] outputWeights = new short[2 * hiddenSize];
+            buffer.asShortBuffer().get(featureWeights);
+            buffer.position(buffer.position() + 2 * featureWeights.length);
+            buffer.asShortBuffer().get(featureBiases);
+            buffer.position(buffer.position() + 2 * featureBiases.length);
+            buffer.asShortBuffer().get(outputWeights);
+            buffer.position(buffer.position() + 2 * outputWeights.length);
+            return new NeuralNetwork(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+        }
+    }
+
+    /**
+     * Writes the network in the format read by load
+     * @param weightsFile is the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File weightsFile) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * (this.featureWeights.length + this.featureBiases.length +
+                this.outputWeights.length) + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(this.hiddenSize);
+        buffer.asShortBuffer().put(this.featureWeights);
+        buffer.position(buffer.position() + 2 * this.featureWeights.length);
+        buffer.asShortBuffer().put(this.featureBiases);
+        buffer.position(buffer.position() + 2 * this.featureBiases.length);
+        buffer.asShortBuffer().put(this.outputWeights);
+        buffer.position(buffer.position() + 2 * this.outputWeights.length);
+        buffer.putInt(this.outputBias);
+        try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(weightsFile))) {
+            out.write(buffer.array());
+        }
+    }
+
+    /**
+     * Creates a network with small random weights, for benchmarks and tests
+     * @param hiddenSize is the number of hidden neurons per perspective
+     * @param seed is the random seed
+     * @return the network
+     */
+    public static NeuralNetwork createRandom(final int hiddenSize, final long seed) {
+        final Random random = new Random(seed);
+        final short[] featureWeights = new short[INPUT_SIZE * hiddenSize];
+        final short[] featureBiases = new short[hiddenSize];
+        final short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        for (int i = 0; i < featureBiases.length; i++) {
+            featureBiases[i] = (short) random.nextInt(64);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        return new NeuralNetwork(hiddenSize, featureWeights, featureBiases, outputWeights, 0);
+    }
+
+    public int getHiddenSize() {
+        return this.hiddenSize;
+    }
+
+    /**
+     * @param perspective is the side the input is seen from
+     * @return the first weight of the input's column in the feature weights
+     */
+    private int featureOffset(final Alliance perspective,
+                              final PieceType pieceType,
+                              final Alliance alliance,
+                              final int coordinate) {
+        final int relativeColor = alliance == perspective ? 0 : 1;
+        final int relativeCoordinate = perspective.isWhite() ? coordinate : coordinate ^ 56;
+        return ((relativeColor * 6 + pieceType.ordinal()) * 64 + relativeCoordinate) * this.hiddenSize;
+    }
+
+    void resetAccumulator(final short[] accumulator) {
+        System.arraycopy(this.featureBiases, 0, accumulator, 0, this.hiddenSize);
+    }
+
+    void addFeature(final short[] accumulator,
+                    final Alliance perspective,
+                    final PieceType pieceType,
+                    final Alliance alliance,
+                    final int coordinate) {
+        final int offset = featureOffset(perspective, pieceType, alliance, coordinate);
+        final short[] weights = this.featureWeights;
+        for (int i = 0; i < this.hiddenSize; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    void removeFeature(final short[] accumulator,
+                       final Alliance perspective,
+                       final PieceType pieceType,
+                       final Alliance alliance,
+                       final int coordinate) {
+        final int offset = featureOffset(perspective, pieceType, alliance, coordinate);
+        final short[] weights = this.featureWeights;
+        for (int i = 0; i < this.hiddenSize; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    /**
+     * Runs the output layer. The loops are plain counted loops over primitive arrays
+     * so the JIT compiles them to SIMD instructions.
+     * @param sideToMove is the accumulator seen from the side to move
+     * @param otherSide is the accumulator seen from the other side
+     * @return the score in centipawns for the side to move
+     */
+    int propagate(final short[] sideToMove,
+                  final short[] otherSide) {
+        final short[] weights = this.outputWeights;
+        final int hidden = this.hiddenSize;
+        int sum = 0;
+        for (int i = 0; i < hidden; i++) {
+            sum += Math.min(Math.max(sideToMove[i], 0), HIDDEN_QUANTIZATION) * weights[i];
+        }
+        for (int i = 0; i < hidden; i++) {
+            sum += Math.min(Math.max(otherSide[i], 0), HIDDEN_QUANTIZATION) * weights[hidden + i];
+        }
+        return (int) (((long) sum + this.outputBias) * EVALUATION_SCALE / (HIDDEN_QUANTIZATION * OUTPUT_QUANTIZATION));
+    }
+}
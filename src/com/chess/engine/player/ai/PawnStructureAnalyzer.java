@@ -33,21 +33,43 @@ public final class PawnStructureAnalyzer {
         return calculatePawnColumnStack(pawnsOnColumnTable) + calculateIsolatedPawnPenalty(pawnsOnColumnTable);
     }
 
+    /**
+     * @return the number of pawns sharing a column with another pawn of the player
+     */
+    public int doubledPawnCount(final Player player) {
+        return countStackedPawns(createPawnColumnTable(calculatePlayerPawns(player)));
+    }
+
+    /**
+     * @return the number of pawns of the player with no friendly pawn on a neighbouring column
+     */
+    public int isolatedPawnCount(final Player player) {
+        return countIsolatedPawns(createPawnColumnTable(calculatePlayerPawns(player)));
+    }
+
     private static Collection<Piece> calculatePlayerPawns(final Player player) {
         return player.getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.PAWN).collect(Collectors.toList());
     }
 
     private static int calculatePawnColumnStack(final int[] pawnsOnColumnTable) {
+        return countStackedPawns(pawnsOnColumnTable) * DOUBLED_PAWN_PENALTY;
+    }
+
+    private static int countStackedPawns(final int[] pawnsOnColumnTable) {
         int pawnStackPenalty = 0;
         for(final int pawnStack : pawnsOnColumnTable) {
             if(pawnStack > 1) {
                 pawnStackPenalty += pawnStack;
             }
         }
-        return pawnStackPenalty * DOUBLED_PAWN_PENALTY;
+        return pawnStackPenalty;
     }
 
     private static int calculateIsolatedPawnPenalty(final int[] pawnsOnColumnTable) {
+        return countIsolatedPawns(pawnsOnColumnTable) * ISOLATED_PAWN_PENALTY;
+    }
+
+    private static int countIsolatedPawns(final int[] pawnsOnColumnTable) {
         int numIsolatedPawns = 0;
         if(pawnsOnColumnTable[0] > 0 && pawnsOnColumnTable[1] == 0) {
             numIsolatedPawns += pawnsOnColumnTable[0];
@@ -60,7 +82,7 @@ public final class PawnStructureAnalyzer {
                 numIsolatedPawns += pawnsOnColumnTable[i];
             }
         }
-        return numIsolatedPawns * ISOLATED_PAWN_PENALTY;
+        return numIsolatedPawns;
     }
 
     private static int[] createPawnColumnTable(final Collection<Piece> playerPawns) {
@@ -0,0 +1,47 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.Player;
+
+/**
+ * This evaluator scores a board by its tapered material and piece-square sums.
+ * The sums are carried along from board to board, so scoring a board does not walk its pieces.
+ */
+public final class PieceSquareEvaluator implements BoardEvaluator {
+
+    private static final int CHECK_BONUS = 10;
+    private static final int CHECK_MATE_BONUS = 10000;
+    private static final int DEPTH_BONUS = 100;
+    private static final PieceSquareEvaluator INSTANCE = new PieceSquareEvaluator();
+
+    private PieceSquareEvaluator() {
+    }
+
+    public static PieceSquareEvaluator get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public int evaluate(final Board board, final int depth) {
+        return board.getPieceSquareScore().getTaperedScore() +
+                scorePlayer(board.whitePlayer(), depth) -
+                scorePlayer(board.blackPlayer(), depth);
+    }
+
+    private static int scorePlayer(final Player player, final int depth) {
+        final Player opponent = player.getOpponent();
+        if (!opponent.isInCheck()) {
+            return 0;
+        }
+        return opponent.isInCheckMate() ? CHECK_MATE_BONUS + depthBonus(depth) : CHECK_BONUS;
+    }
+
+    private static int depthBonus(final int depth) {
+        return depth == 0 ? 1 : DEPTH_BONUS * depth;
+    }
+
+    @Override
+    public String toString() {
+        return "PieceSquare";
+    }
+}
@@ -0,0 +1,140 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.PiecePlacementListener;
+import com.chess.engine.piece.Piece;
+import com.chess.engine.piece.Piece.PieceType;
+
+import java.util.Collection;
+
+/**
+ * This class holds the material and piece-square sums of a board.
+ * Every board derives its score from the board it was played from,
+ * so only the pieces touched by the transition move are looked up.
+ */
+public final class PieceSquareScore {
+
+    // White minus Black sums
+    private final int middlegameScore;
+    private final int endgameScore;
+    private final int phase;
+
+    private PieceSquareScore(final Accumulator accumulator) {
+        this.middlegameScore = accumulator.middlegameScore;
+        this.endgameScore = accumulator.endgameScore;
+        this.phase = accumulator.phase;
+    }
+
+    /**
+     * Sums up every piece, used when a board has no previous board to derive from
+     * @param whitePieces are the active white pieces
+     * @param blackPieces are the active black pieces
+     * @return the score of the pieces
+     */
+    public static PieceSquareScore calculate(final Collection<Piece> whitePieces,
+                                             final Collection<Piece> blackPieces) {
+        final Accumulator accumulator = new Accumulator(0, 0, 0);
+        for (final Piece piece : whitePieces) {
+            accumulator.pieceAdded(piece.getPieceType(), piece.getPieceAlliance(), piece.getPiecePosition());
+        }
+        for (final Piece piece : blackPieces) {
+            accumulator.pieceAdded(piece.getPieceType(), piece.getPieceAlliance(), piece.getPiecePosition());
+        }
+        return new PieceSquareScore(accumulator);
+    }
+
+    /**
+     * @param move is the move played on the board this score belongs to
+     * @return the score of the board after the move
+     */
+    public PieceSquareScore update(final Move move) {
+        final Accumulator accumulator = new Accumulator(this.middlegameScore, this.endgameScore, this.phase);
+        move.applyPlacements(accumulator);
+        return new PieceSquareScore(accumulator);
+    }
+
+    public int getMiddlegameScore() {
+        return this.middlegameScore;
+    }
+
+    public int getEndgameScore() {
+        return this.endgameScore;
+    }
+
+    /**
+     * @return the game phase, MAX_PHASE for a full board down to 0 for bare kings and pawns
+     */
+    public int getPhase() {
+        return Math.min(this.phase, PieceSquareTables.MAX_PHASE);
+    }
+
+    /**
+     * @return the middlegame and endgame scores blended by the game phase (White minus Black)
+     */
+    public int getTaperedScore() {
+        final int phase = getPhase();
+        return (this.middlegameScore * phase + this.endgameScore * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PieceSquareScore)) {
+            return false;
+        }
+        final PieceSquareScore otherScore = (PieceSquareScore) other;
+        return this.middlegameScore == otherScore.middlegameScore &&
+                this.endgameScore == otherScore.endgameScore &&
+                this.phase == otherScore.phase;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.middlegameScore;
+        result = 31 * result + this.endgameScore;
+        result = 31 * result + this.phase;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[mg: " + this.middlegameScore + " eg: " + this.endgameScore + " phase: " + this.phase + "]";
+    }
+
+    /**
+     * Adds up the piece values while a score is being derived
+     */
+    private static final class Accumulator implements PiecePlacementListener {
+
+        private int middlegameScore;
+        private int endgameScore;
+        private int phase;
+
+        Accumulator(final int middlegameScore,
+                    final int endgameScore,
+                    final int phase) {
+            this.middlegameScore = middlegameScore;
+            this.endgameScore = endgameScore;
+            this.phase = phase;
+        }
+
+        @Override
+        public void pieceRemoved(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+            final int sign = alliance.isWhite() ? 1 : -1;
+            this.middlegameScore -= sign * PieceSquareTables.middlegameValue(pieceType, alliance, coordinate);
+            this.endgameScore -= sign * PieceSquareTables.endgameValue(pieceType, alliance, coordinate);
+            this.phase -= PieceSquareTables.phaseValue(pieceType);
+        }
+
+        @Override
+        public void pieceAdded(final PieceType pieceType, final Alliance alliance, final int coordinate) {
+            final int sign = alliance.isWhite() ? 1 : -1;
+            this.middlegameScore += sign * PieceSquareTables.middlegameValue(pieceType, alliance, coordinate);
+            this.endgameScore += sign * PieceSquareTables.endgameValue(pieceType, alliance, coordinate);
+            this.phase += PieceSquareTables.phaseValue(pieceType);
+        }
+    }
+}
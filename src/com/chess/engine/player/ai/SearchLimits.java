@@ -0,0 +1,152 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+
+/**
+ * This class holds the limits of one search, as given by a UCI "go" command.
+ * A value of zero means the limit is not set.
+ */
+public final class SearchLimits {
+
+    private final int depth;
+    private final long nodes;
+    private final long moveTime;
+    private final long whiteTime;
+    private final long blackTime;
+    private final long whiteIncrement;
+    private final long blackIncrement;
+    private final int movesToGo;
+    private final boolean infinite;
+    private final boolean ponder;
+
+    private SearchLimits(final Builder builder) {
+        this.depth = builder.depth;
+        this.nodes = builder.nodes;
+        this.moveTime = builder.moveTime;
+        this.whiteTime = builder.whiteTime;
+        this.blackTime = builder.blackTime;
+        this.whiteIncrement = builder.whiteIncrement;
+        this.blackIncrement = builder.blackIncrement;
+        this.movesToGo = builder.movesToGo;
+        this.infinite = builder.infinite;
+        this.ponder = builder.ponder;
+    }
+
+    /**
+     * @return limits that search to the given depth
+     */
+    public static SearchLimits depth(final int depth) {
+        return new Builder().setDepth(depth).build();
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public long getMoveTime() {
+        return this.moveTime;
+    }
+
+    public boolean isInfinite() {
+        return this.infinite;
+    }
+
+    public boolean isPonder() {
+        return this.ponder;
+    }
+
+    /**
+     * @param alliance is a side
+     * @return the side's remaining clock time in milliseconds, zero if not set
+     */
+    public long getTime(final Alliance alliance) {
+        return alliance.isWhite() ? this.whiteTime : this.blackTime;
+    }
+
+    /**
+     * @param alliance is a side
+     * @return the side's increment per move in milliseconds
+     */
+    public long getIncrement(final Alliance alliance) {
+        return alliance.isWhite() ? this.whiteIncrement : this.blackIncrement;
+    }
+
+    public int getMovesToGo() {
+        return this.movesToGo;
+    }
+
+    /**
+     * A builder for search limits
+     */
+    public static class Builder {
+
+        private int depth;
+        private long nodes;
+        private long moveTime;
+        private long whiteTime;
+        private long blackTime;
+        private long whiteIncrement;
+        private long blackIncrement;
+        private int movesToGo;
+        private boolean infinite;
+        private boolean ponder;
+
+        public Builder setDepth(final int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Builder setNodes(final long nodes) {
+            this.nodes = nodes;
+            return this;
+        }
+
+        public Builder setMoveTime(final long moveTime) {
+            this.moveTime = moveTime;
+            return this;
+        }
+
+        public Builder setWhiteTime(final long whiteTime) {
+            this.whiteTime = whiteTime;
+            return this;
+        }
+
+        public Builder setBlackTime(final long blackTime) {
+            this.blackTime = blackTime;
+            return this;
+        }
+
+        public Builder setWhiteIncrement(final long whiteIncrement) {
+            this.whiteIncrement = whiteIncrement;
+            return this;
+        }
+
+        public Builder setBlackIncrement(final long blackIncrement) {
+            this.blackIncrement = blackIncrement;
+            return this;
+        }
+
+        public Builder setMovesToGo(final int movesToGo) {
+            this.movesToGo = movesToGo;
+            return this;
+        }
+
+        public Builder setInfinite(final boolean infinite) {
+            this.infinite = infinite;
+            return this;
+        }
+
+        public Builder setPonder(final boolean ponder) {
+            this.ponder = ponder;
+            return this;
+        }
+
+        public SearchLimits build() {
+            return new SearchLimits(this);
+        }
+    }
+}
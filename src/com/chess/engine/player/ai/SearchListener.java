@@ -0,0 +1,11 @@
+package com.chess.engine.player.ai;
+
+public interface SearchListener {
+
+    /**
+     * Called by the search thread after every completed iteration
+     * @param result is the result of the iteration
+     */
+    void iterationFinished(SearchResult result);
+
+}
@@ -0,0 +1,149 @@
+package com.chess.engine.player.ai;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * This class holds the tunable settings of the StockAlphaBeta search.
+ * Settings are stored in a properties file with one "SETTING=value" line per setting,
+ * settings missing from the file keep their default value.
+ */
+public final class SearchParameters {
+
+    public enum Setting {
+        // Number of quiescence extensions allowed per root move
+        MAX_QUIESCENCE(5000 * 5, 0, 100000),
+        // Checks and recent captures needed before a leaf is searched further
+        QUIESCENCE_ACTIVITY(2, 1, 3),
+        // Depth a leaf is searched to when it is extended
+        QUIESCENCE_DEPTH(2, 1, 4);
+
+        private final int defaultValue;
+        private final int minimum;
+        private final int maximum;
+
+        Setting(final int defaultValue, final int minimum, final int maximum) {
+            this.defaultValue = defaultValue;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        public int getDefaultValue() {
+            return this.defaultValue;
+        }
+
+        public int getMinimum() {
+            return this.minimum;
+        }
+
+        public int getMaximum() {
+            return this.maximum;
+        }
+
+        public int clamp(final int value) {
+            return Math.max(this.minimum, Math.min(this.maximum, value));
+        }
+    }
+
+    public static final int NUM_SETTINGS = Setting.values().length;
+    public static final SearchParameters DEFAULT = new SearchParameters(defaultValues());
+
+    private final int[] values;
+
+    /**
+     * @param values is one value per setting, in setting order, each is clamped to the setting's range
+     */
+    public SearchParameters(final int[] values) {
+        if (values.length != NUM_SETTINGS) {
+            throw new IllegalArgumentException("Expected " + NUM_SETTINGS + " values, got " + values.length);
+        }
+        this.values = new int[NUM_SETTINGS];
+        for (final Setting setting : Setting.values()) {
+            this.values[setting.ordinal()] = setting.clamp(values[setting.ordinal()]);
+        }
+    }
+
+    private static int[] defaultValues() {
+        final int[] values = new int[NUM_SETTINGS];
+        for (final Setting setting : Setting.values()) {
+            values[setting.ordinal()] = setting.getDefaultValue();
+        }
+        return values;
+    }
+
+    public int get(final Setting setting) {
+        return this.values[setting.ordinal()];
+    }
+
+    /**
+     * @return a copy of the values, in setting order
+     */
+    public int[] getValues() {
+        return this.values.clone();
+    }
+
+    public SearchParameters with(final Setting setting, final int value) {
+        final int[] values = this.values.clone();
+        values[setting.ordinal()] = value;
+        return new SearchParameters(values);
+    }
+
+    /**
+     * @param parameterFile is a properties file of search settings
+     * @return the parameters in the file
+     * @throws IOException if the file cannot be read or holds a value that is not a number
+     */
+    public static SearchParameters load(final File parameterFile) throws IOException {
+        final Properties properties = new Properties();
+        try (final Reader reader = new BufferedReader(new FileReader(parameterFile))) {
+            properties.load(reader);
+        }
+        final int[] values = defaultValues();
+        for (final Setting setting : Setting.values()) {
+            final String value = properties.getProperty(setting.name());
+            if (value != null) {
+                try {
+                    values[setting.ordinal()] = Integer.parseInt(value.trim());
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Bad value for " + setting + " in " + parameterFile + ": " + value, e);
+                }
+            }
+        }
+        return new SearchParameters(values);
+    }
+
+    /**
+     * @param parameterFile is the file to write
+     * @param comment is written at the top of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File parameterFile, final String comment) throws IOException {
+        final Properties properties = new Properties();
+        for (final Setting setting : Setting.values()) {
+            properties.setProperty(setting.name(), Integer.toString(get(setting)));
+        }
+        try (final Writer writer = new BufferedWriter(new FileWriter(parameterFile))) {
+            properties.store(writer, comment);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof SearchParameters && Arrays.equals(this.values, ((SearchParameters) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Setting setting : Setting.values()) {
+            builder.append(builder.length() == 0 ? "" : ", ").append(setting).append('=').append(get(setting));
+        }
+        return builder.toString();
+    }
+}
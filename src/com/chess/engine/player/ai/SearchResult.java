@@ -0,0 +1,96 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Move;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * This class holds the outcome of a finished search iteration
+ */
+public final class SearchResult {
+
+    private final int depth;
+    private final int score;
+    private final long nodes;
+    private final long elapsedMillis;
+    private final int hashfull;
+    private final List<Move> principalVariation;
+
+    public SearchResult(final int depth,
+                        final int score,
+                        final long nodes,
+                        final long elapsedMillis,
+                        final int hashfull,
+                        final List<Move> principalVariation) {
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.hashfull = hashfull;
+        this.principalVariation = ImmutableList.copyOf(principalVariation);
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * @return the score in centipawns for the side to move
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * @return true if the score is a forced mate for either side
+     */
+    public boolean isMateScore() {
+        return Math.abs(this.score) >= IterativeDeepeningSearch.MATE_SCORE - IterativeDeepeningSearch.MAX_PLY;
+    }
+
+    /**
+     * @return the number of moves to mate, negative when the side to move is mated
+     */
+    public int getMateInMoves() {
+        final int plies = IterativeDeepeningSearch.MATE_SCORE - Math.abs(this.score);
+        return this.score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return this.nodes * 1000 / Math.max(1, this.elapsedMillis);
+    }
+
+    /**
+     * @return how full the hash table is in permille
+     */
+    public int getHashfull() {
+        return this.hashfull;
+    }
+
+    public List<Move> getPrincipalVariation() {
+        return this.principalVariation;
+    }
+
+    /**
+     * @return the first move of the principal variation, or the null move if there is none
+     */
+    public Move getBestMove() {
+        return this.principalVariation.isEmpty() ? Move.MoveFactory.getNullMove() : this.principalVariation.get(0);
+    }
+
+    /**
+     * @return the expected reply to the best move, or the null move if there is none
+     */
+    public Move getPonderMove() {
+        return this.principalVariation.size() < 2 ? Move.MoveFactory.getNullMove() : this.principalVariation.get(1);
+    }
+}
@@ -1,24 +1,45 @@
 package com.chess.engine.player.ai;
 
+import com.chess.engine.board.BitBoards;
 import com.chess.engine.board.Board;
-import com.chess.engine.board.Move;
 import com.chess.engine.piece.Piece;
+import com.chess.engine.player.ai.EvaluationParameters.Term;
 import com.chess.engine.player.Player;
 
 public final class StandardBoardEvaluator implements BoardEvaluator {
 
-    private static final int CHECK_BONUS = 10;
     private static final int CHECK_MATE_BONUS = 1000;
     private static final int DEPTH_BONUS = 100;
-    private static final int CASTLE_BONUS = 60;
-    private static final int ATTACK_MULTIPLIER = 1;
-    private static final int MOBILITY_MULTIPLIER = 5;
-    private static final StandardBoardEvaluator INSTANCE = new StandardBoardEvaluator();
+    private static final StandardBoardEvaluator INSTANCE = new StandardBoardEvaluator(EvaluationParameters.DEFAULT);
+
+    private final EvaluationParameters parameters;
+    private final int checkBonus;
+    private final int castleBonus;
+    private final int attackMultiplier;
+    private final int mobilityMultiplier;
+    private final int kingZoneAttackPenalty;
+    private final int doubledPawnPenalty;
+    private final int isolatedPawnPenalty;
+
+    public StandardBoardEvaluator(final EvaluationParameters parameters) {
+        this.parameters = parameters;
+        this.checkBonus = parameters.get(Term.CHECK_BONUS);
+        this.castleBonus = parameters.get(Term.CASTLE_BONUS);
+        this.attackMultiplier = parameters.get(Term.ATTACK_MULTIPLIER);
+        this.mobilityMultiplier = parameters.get(Term.MOBILITY_MULTIPLIER);
+        this.kingZoneAttackPenalty = parameters.get(Term.KING_ZONE_ATTACK_PENALTY);
+        this.doubledPawnPenalty = parameters.get(Term.DOUBLED_PAWN_PENALTY);
+        this.isolatedPawnPenalty = parameters.get(Term.ISOLATED_PAWN_PENALTY);
+    }
 
     public static StandardBoardEvaluator get() {
         return INSTANCE;
     }
 
+    public EvaluationParameters getParameters() {
+        return this.parameters;
+    }
+
     @Override
     public int evaluate(final Board board, final int depth) {
         return scorePlayer(board, board.whitePlayer(), depth) -
@@ -27,35 +48,64 @@ public final class StandardBoardEvaluator implements BoardEvaluator {
 
     private int scorePlayer(final Board board, final Player player, final int depth) {
         return pieceValue(player) +
-                mobility(player) +
-                check(player) +
+                this.mobilityMultiplier * mobilityRatio(board, player) +
+                this.checkBonus * check(player) +
                 checkmate(player, depth) +
-                pawnStructure(player) +
-                attacks(player) +
-                castled(player);
+                this.doubledPawnPenalty * PawnStructureAnalyzer.get().doubledPawnCount(player) +
+                this.isolatedPawnPenalty * PawnStructureAnalyzer.get().isolatedPawnCount(player) +
+                this.attackMultiplier * attacks(board, player) +
+                this.castleBonus * castled(player) +
+                this.kingZoneAttackPenalty * kingSafety(board, player);
+    }
 
+    /**
+     * Splits the evaluation into a fixed part and the unweighted terms, so that the evaluation
+     * is the fixed part plus the sum of every term times its weight. Both are white minus black.
+     * @param board is the board to evaluate
+     * @param depth is the remaining search depth
+     * @param terms receives one value per term, in term order
+     * @return the fixed part of the evaluation
+     */
+    public static int calculateTerms(final Board board, final int depth, final int[] terms) {
+        final Player white = board.whitePlayer();
+        final Player black = board.blackPlayer();
+        final PawnStructureAnalyzer pawnStructure = PawnStructureAnalyzer.get();
+        terms[Term.CHECK_BONUS.ordinal()] = check(white) - check(black);
+        terms[Term.CASTLE_BONUS.ordinal()] = castled(white) - castled(black);
+        terms[Term.ATTACK_MULTIPLIER.ordinal()] = attacks(board, white) - attacks(board, black);
+        terms[Term.MOBILITY_MULTIPLIER.ordinal()] = mobilityRatio(board, white) - mobilityRatio(board, black);
+        terms[Term.KING_ZONE_ATTACK_PENALTY.ordinal()] = kingSafety(board, white) - kingSafety(board, black);
+        terms[Term.DOUBLED_PAWN_PENALTY.ordinal()] = pawnStructure.doubledPawnCount(white) - pawnStructure.doubledPawnCount(black);
+        terms[Term.ISOLATED_PAWN_PENALTY.ordinal()] = pawnStructure.isolatedPawnCount(white) - pawnStructure.isolatedPawnCount(black);
+        return pieceValue(white) + checkmate(white, depth) - pieceValue(black) - checkmate(black, depth);
     }
 
-    private static int attacks(final Player player) {
+    /**
+     * Counts the enemy pieces attacked by a piece worth no more than the target
+     */
+    private static int attacks(final Board board, final Player player) {
+        final long occupied = board.getOccupancy();
+        final long enemyPieces = board.getOccupancy(player.getOpponent().getAlliance());
         int attackScore = 0;
-        for (final Move move : player.getLegalMoves()) {
-            if (move.isAttack()) {
-                final Piece movedPiece = move.getMovedPiece();
-                final Piece attackedPiece = move.getAttackedPiece();
-                if (movedPiece.getPieceType().getPieceValue() <= attackedPiece.getPieceType().getPieceValue()) {
+        for (final Piece piece : player.getActivePieces()) {
+            long targets = BitBoards.attacks(piece, occupied) & enemyPieces;
+            while (targets != 0L) {
+                final Piece attackedPiece = board.getPiece(Long.numberOfTrailingZeros(targets));
+                if (piece.getPieceType().getPieceValue() <= attackedPiece.getPieceType().getPieceValue()) {
                     attackScore++;
                 }
+                targets &= targets - 1;
             }
         }
-        return attackScore * ATTACK_MULTIPLIER;
+        return attackScore;
     }
 
     private static int castled(Player player) {
-        return player.isCastled() ? CASTLE_BONUS : 0;
+        return player.isCastled() ? 1 : 0;
     }
 
     private static int checkmate(Player player, int depth) {
-        return player.getOpponent().isInCheck() ? CHECK_MATE_BONUS + depthBonus(depth) : 0;
+        return player.getOpponent().isInCheckMate() ? CHECK_MATE_BONUS + depthBonus(depth) : 0;
     }
 
     private static int depthBonus(int depth) {
@@ -63,15 +113,25 @@ public final class StandardBoardEvaluator implements BoardEvaluator {
     }
 
     private static int check(final Player player) {
-        return player.getOpponent().isInCheck() ? CHECK_BONUS : 0;
+        return player.getOpponent().isInCheck() ? 1 : 0;
     }
 
-    private static int mobility(final Player player) {
-        return MOBILITY_MULTIPLIER * mobilityRatio(player);
+    private static int mobilityRatio(final Board board, final Player player) {
+        final int opponentMobility = attackedSquares(board, player.getOpponent());
+        return (int)((attackedSquares(board, player) * 10.0f) / Math.max(opponentMobility, 1));
     }
 
-    private static int mobilityRatio(final Player player) {
-        return (int)((player.getLegalMoves().size() * 10.0f) / player.getOpponent().getLegalMoves().size());
+    /**
+     * @return the number of tiles the player's pieces attack that are not held by the player
+     */
+    private static int attackedSquares(final Board board, final Player player) {
+        final long occupied = board.getOccupancy();
+        final long ownPieces = board.getOccupancy(player.getAlliance());
+        int squares = 0;
+        for (final Piece piece : player.getActivePieces()) {
+            squares += Long.bitCount(BitBoards.attacks(piece, occupied) & ~ownPieces);
+        }
+        return squares;
     }
 
     private static int pieceValue(Player player) {
@@ -83,12 +143,7 @@ public final class StandardBoardEvaluator implements BoardEvaluator {
         return pieceValueScore;
     }
 
-    private static int pawnStructure(final Player player) {
-        return PawnStructureAnalyzer.get().pawnStructureScore(player);
-    }
-
-    private static int kingSafety(final Player player) {
-        final KingSafetyAnalyzer.KingDistance kingDistance = KingSafetyAnalyzer.get().calculateKingTropism(player);
-        return ((kingDistance.getEnemyPiece().getPieceType().getPieceValue() / 100) * kingDistance.getDistance());
+    private static int kingSafety(final Board board, final Player player) {
+        return -KingSafetyAnalyzer.get().kingZoneAttacks(board, player);
     }
 }
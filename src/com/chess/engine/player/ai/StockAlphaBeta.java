@@ -19,9 +19,12 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
     private final BoardEvaluator evaluator;
     private final int searchDepth;
+    private final int maxQuiescence;
+    private final int quiescenceActivity;
+    private final int quiescenceDepth;
     private long boardsEvaluated;
     private int quiescenceCount;
-    private static final int MAX_QUIESCENCE = 5000 * 5;
+    private boolean verbose;
 
     private enum MoveSorter {
 
@@ -50,11 +53,32 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
 
     public StockAlphaBeta(final int searchDepth) {
-        this.evaluator = StandardBoardEvaluator.get();
+        this(searchDepth, StandardBoardEvaluator.get());
+    }
+
+    public StockAlphaBeta(final int searchDepth,
+                          final BoardEvaluator evaluator) {
+        this(searchDepth, evaluator, SearchParameters.DEFAULT);
+    }
+
+    public StockAlphaBeta(final int searchDepth,
+                          final BoardEvaluator evaluator,
+                          final SearchParameters parameters) {
+        this.evaluator = evaluator;
         this.searchDepth = searchDepth;
-        System.out.println(searchDepth);
+        this.maxQuiescence = parameters.get(SearchParameters.Setting.MAX_QUIESCENCE);
+        this.quiescenceActivity = parameters.get(SearchParameters.Setting.QUIESCENCE_ACTIVITY);
+        this.quiescenceDepth = parameters.get(SearchParameters.Setting.QUIESCENCE_DEPTH);
         this.boardsEvaluated = 0;
         this.quiescenceCount = 0;
+        this.verbose = true;
+    }
+
+    /**
+     * @param verbose is false to stop the search printing its progress, observers are still notified
+     */
+    public void setVerbose(final boolean verbose) {
+        this.verbose = verbose;
     }
 
     @Override
@@ -75,7 +99,9 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
         int highestSeenValue = Integer.MIN_VALUE;
         int lowestSeenValue = Integer.MAX_VALUE;
         int currentValue;
-        System.out.println(board.getCurrentPlayer() + " THINKING with depth = " + this.searchDepth);
+        if (this.verbose) {
+            System.out.println(board.getCurrentPlayer() + " THINKING with depth = " + this.searchDepth);
+        }
         int moveCounter = 1;
         int numMoves = board.getCurrentPlayer().getLegalMoves().size();
         for (final Move move : MoveSorter.EXPENSIVE.sort((board.getCurrentPlayer().getLegalMoves()))) {
@@ -113,7 +139,9 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
                 }
             }
 
-            System.out.println(s);
+            if (this.verbose) {
+                System.out.println(s);
+            }
             setChanged();
             notifyObservers(s);
             moveCounter++;
@@ -122,8 +150,10 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
         final long executionTime = System.currentTimeMillis() - startTime;
         final String result = board.getCurrentPlayer() + " SELECTS " +bestMove+ " [#boards evaluated = " +this.boardsEvaluated+
                 " time taken = " + executionTime /1000+ " rate = " +(1000 * ((double)this.boardsEvaluated/ executionTime));
-        System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, rate = %.1f\n", board.getCurrentPlayer(),
-                bestMove, this.boardsEvaluated, executionTime, (1000 * ((double)this.boardsEvaluated/ executionTime)));
+        if (this.verbose) {
+            System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, rate = %.1f\n", board.getCurrentPlayer(),
+                    bestMove, this.boardsEvaluated, executionTime, (1000 * ((double)this.boardsEvaluated/ executionTime)));
+        }
         setChanged();
         notifyObservers(result);
         return bestMove;
@@ -189,7 +219,7 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
     private int calculateQuiescenceDepth(final Board toBoard,
                                          final int depth) {
-        if(depth == 1 && this.quiescenceCount < MAX_QUIESCENCE) {
+        if(depth == 1 && this.quiescenceCount < this.maxQuiescence) {
             int activityMeasure = 0;
             if (toBoard.getCurrentPlayer().isInCheck()) {
                 activityMeasure += 1;
@@ -199,9 +229,9 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
                     activityMeasure += 1;
                 }
             }
-            if(activityMeasure >= 2) {
+            if(activityMeasure >= this.quiescenceActivity) {
                 this.quiescenceCount++;
-                return 2;
+                return this.quiescenceDepth;
             }
         }
         return depth - 1;
@@ -0,0 +1,137 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Move;
+
+/**
+ * This class decides how long one search may think, from the clock given in the search limits.
+ * It sets an optimum time, which the search aims for, and a maximum time, at which it is stopped.
+ * Between iterations the optimum grows when the best move keeps changing or the score drops,
+ * since the search has not settled, and shrinks back once the best move is stable. With a single
+ * legal move there is nothing to think about, so the search stops after its first iteration.
+ */
+public final class TimeManager {
+
+    // Moves assumed left in the game when the clock gives no moves to go
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    // Time kept back from the clock for communication delays
+    private static final long MOVE_OVERHEAD_MILLIS = 50;
+    private static final long MIN_MOVE_MILLIS = 10;
+    // The maximum is this many optimum times, and never more than this share of the clock
+    private static final int MAX_OPTIMUM_RATIO = 5;
+    private static final double MAX_CLOCK_SHARE = 0.8;
+    // Score drop, in centipawns, between two iterations that counts as a fail low
+    private static final int FAIL_LOW_MARGIN = 30;
+    private static final double BEST_MOVE_CHANGE_FACTOR = 1.4;
+    private static final double FAIL_LOW_FACTOR = 1.5;
+    private static final double STABLE_FACTOR = 0.9;
+    private static final double MIN_SCALE = 0.5;
+    private static final double MAX_SCALE = 3.0;
+    // An iteration takes longer than all before it together, so none is started past this share of the optimum
+    private static final double ITERATION_START_SHARE = 0.5;
+
+    private final long optimumMillis;
+    private final long maximumMillis;
+    private final boolean fixedTime;
+    private double scale;
+    private int lastScore;
+    private Move lastBestMove;
+    private boolean singleReply;
+
+    private TimeManager(final long optimumMillis,
+                        final long maximumMillis,
+                        final boolean fixedTime) {
+        this.optimumMillis = optimumMillis;
+        this.maximumMillis = maximumMillis;
+        this.fixedTime = fixedTime;
+        this.scale = 1.0;
+        this.lastBestMove = null;
+        this.singleReply = false;
+    }
+
+    /**
+     * @param limits are the limits of the search
+     * @param alliance is the side to move
+     * @return the time manager for the search, which does not limit time if the limits set no time
+     */
+    public static TimeManager create(final SearchLimits limits, final Alliance alliance) {
+        if (limits.getMoveTime() > 0) {
+            return new TimeManager(limits.getMoveTime(), limits.getMoveTime(), true);
+        }
+        final long time = limits.getTime(alliance);
+        if (time <= 0) {
+            return new TimeManager(0, 0, false);
+        }
+        final long increment = limits.getIncrement(alliance);
+        final int movesLeft = limits.getMovesToGo() > 0 ? limits.getMovesToGo() : DEFAULT_MOVES_TO_GO;
+        final long available = Math.max(MIN_MOVE_MILLIS, time - MOVE_OVERHEAD_MILLIS);
+        // With one move left before the time control the whole clock may go
+        final long maximum = Math.max(MIN_MOVE_MILLIS, movesLeft == 1 ? available : (long) (available * MAX_CLOCK_SHARE));
+        final long optimum = Math.max(MIN_MOVE_MILLIS, Math.min(maximum, available / movesLeft + increment * 3 / 4));
+        return new TimeManager(optimum, Math.min(maximum, optimum * MAX_OPTIMUM_RATIO), false);
+    }
+
+    /**
+     * @return true if the search is limited by time
+     */
+    public boolean isTimed() {
+        return this.maximumMillis > 0;
+    }
+
+    public long getOptimumMillis() {
+        return this.optimumMillis;
+    }
+
+    /**
+     * @return the time at which the search is stopped, even in the middle of an iteration
+     */
+    public long getMaximumMillis() {
+        return this.maximumMillis;
+    }
+
+    /**
+     * Tells the time manager the side to move has only one legal move
+     */
+    public void setSingleReply(final boolean singleReply) {
+        this.singleReply = singleReply;
+    }
+
+    /**
+     * Adjusts the optimum time after an iteration
+     * @param score is the score of the iteration
+     * @param bestMove is the best move of the iteration
+     */
+    public void iterationFinished(final int score, final Move bestMove) {
+        if (this.lastBestMove != null) {
+            if (!bestMove.equals(this.lastBestMove)) {
+                this.scale *= BEST_MOVE_CHANGE_FACTOR;
+            } else {
+                this.scale *= STABLE_FACTOR;
+            }
+            if (score < this.lastScore - FAIL_LOW_MARGIN) {
+                this.scale *= FAIL_LOW_FACTOR;
+            }
+            this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, this.scale));
+        }
+        this.lastScore = score;
+        this.lastBestMove = bestMove;
+    }
+
+    /**
+     * @param elapsedMillis is the time the search has taken so far
+     * @return true if another iteration should be started
+     */
+    public boolean shouldStartIteration(final long elapsedMillis) {
+        if (!isTimed()) {
+            return true;
+        }
+        if (this.singleReply && !this.fixedTime) {
+            return false;
+        }
+        // A fixed move time is used up, the search stops at the maximum
+        if (this.fixedTime) {
+            return elapsedMillis < this.maximumMillis;
+        }
+        return elapsedMillis < Math.min(this.maximumMillis, this.optimumMillis * this.scale) * ITERATION_START_SHARE;
+    }
+}
@@ -0,0 +1,123 @@
+package com.chess.engine.player.ai;
+
+import java.util.Arrays;
+
+/**
+ * This class is a fixed size hash table of search results shared by all search threads.
+ * Entries are two longs written without locks. The key slot holds the position key xor the data,
+ * so an entry torn by two threads writing at once fails the key check instead of returning bad data.
+ *
+ * Data layout: bits 0-12 best move (see encodeMove, 0 for none), 13-28 score, 29-36 depth,
+ * 37-38 bound, 39-46 generation.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final int HASHFULL_SAMPLE = 1000;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * @param megabytes is the memory the table may use
+     */
+    public TranspositionTable(final int megabytes) {
+        final long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        final int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+        this.generation = 0;
+    }
+
+    /**
+     * Called before every search, so entries from older searches are replaced first
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+    }
+
+    /**
+     * @param key is a position key
+     * @return the entry data for the key, or 0 if the table has no entry for it
+     */
+    public long probe(final long key) {
+        final int index = (int) key & this.mask;
+        final long entry = this.data[index];
+        return (this.keys[index] ^ entry) == key ? entry : 0L;
+    }
+
+    public void store(final long key,
+                      final int move,
+                      final int score,
+                      final int depth,
+                      final int bound) {
+        final int index = (int) key & this.mask;
+        final long old = this.data[index];
+        final boolean sameKey = (this.keys[index] ^ old) == key;
+        // Keep a deeper entry of the same search unless this is the same position
+        if (!sameKey && old != 0L && generation(old) == this.generation && depth(old) > depth) {
+            return;
+        }
+        final int storedMove = move == 0 && sameKey ? move(old) : move;
+        final long entry = (storedMove & 0x1FFFL)
+                | ((score & 0xFFFFL) << 13)
+                | ((long) (depth & 0xFF) << 29)
+                | ((long) bound << 37)
+                | ((long) this.generation << 39);
+        this.data[index] = entry;
+        this.keys[index] = key ^ entry;
+    }
+
+    /**
+     * @return how full the table is in permille, counting only entries from the current search
+     */
+    public int hashfull() {
+        final int sample = Math.min(HASHFULL_SAMPLE, this.data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (this.data[i] != 0L && generation(this.data[i]) == this.generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * @return a non-zero number for the move between the two tiles
+     */
+    public static int encodeMove(final int currentCoordinate, final int destinationCoordinate) {
+        return currentCoordinate * 64 + destinationCoordinate + 1;
+    }
+
+    public static int move(final long entry) {
+        return (int) (entry & 0x1FFF);
+    }
+
+    public static int score(final long entry) {
+        return (short) (entry >>> 13);
+    }
+
+    public static int depth(final long entry) {
+        return (int) ((entry >>> 29) & 0xFF);
+    }
+
+    public static int bound(final long entry) {
+        return (int) ((entry >>> 37) & 0x3);
+    }
+
+    private static int generation(final long entry) {
+        return (int) ((entry >>> 39) & 0xFF);
+    }
+}
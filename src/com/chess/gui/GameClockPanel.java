@@ -0,0 +1,182 @@
+package com.chess.gui;
+
+import com.chess.engine.Alliance;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.Consumer;
+
+/**
+ * This panel shows both players' clocks and runs the clock of the side to move.
+ * An untimed game shows no times.
+ */
+class GameClockPanel extends JPanel {
+
+    private static final int TICK_MILLIS = 100;
+    private static final Font CLOCK_FONT = new Font(Font.MONOSPACED, Font.BOLD, 18);
+    private static final Color RUNNING_COLOR = new Color(255, 255, 200);
+
+    private final JLabel whiteLabel;
+    private final JLabel blackLabel;
+    private final Timer timer;
+    private Consumer<Alliance> flagListener;
+    private long whiteMillis;
+    private long blackMillis;
+    private long incrementMillis;
+    private Alliance running;
+    private long lastTickNanos;
+    private boolean timed;
+    private boolean flagged;
+
+    GameClockPanel() {
+        super(new GridLayout(1, 2));
+        this.whiteLabel = createLabel();
+        this.blackLabel = createLabel();
+        add(this.whiteLabel);
+        add(this.blackLabel);
+        this.timer = new Timer(TICK_MILLIS, e -> tick());
+        this.flagListener = alliance -> { };
+        this.timed = false;
+        refresh();
+    }
+
+    /**
+     * @param flagListener is told, on the event dispatch thread, which side ran out of time
+     */
+    void setFlagListener(final Consumer<Alliance> flagListener) {
+        this.flagListener = flagListener;
+    }
+
+    /**
+     * Sets both clocks for a new game and starts the clock of the side to move
+     * @param baseMillis is each side's time, 0 for an untimed game
+     */
+    synchronized void reset(final long baseMillis,
+                            final long incrementMillis,
+                            final Alliance sideToMove) {
+        this.timer.stop();
+        this.timed = baseMillis > 0;
+        this.whiteMillis = baseMillis;
+        this.blackMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.flagged = false;
+        this.running = null;
+        if (this.timed) {
+            start(sideToMove);
+        }
+        refresh();
+    }
+
+    /**
+     * Charges the time since the last move to the mover, adds the increment and starts the opponent's clock
+     * @param mover is the side that just moved
+     */
+    synchronized void moveMade(final Alliance mover) {
+        if (!this.timed || this.flagged) {
+            return;
+        }
+        charge();
+        if (mover.isWhite()) {
+            this.whiteMillis += this.incrementMillis;
+        } else {
+            this.blackMillis += this.incrementMillis;
+        }
+        start(mover.isWhite() ? Alliance.BLACK : Alliance.WHITE);
+        refresh();
+    }
+
+    /**
+     * Runs the clock of the given side, such as after a move is taken back. The side whose clock was
+     * running is charged for its time up to now, but no increment is added as no move was made.
+     */
+    synchronized void setSideToMove(final Alliance sideToMove) {
+        if (this.timed && !this.flagged) {
+            charge();
+            start(sideToMove);
+            refresh();
+        }
+    }
+
+    synchronized boolean isTimed() {
+        return this.timed;
+    }
+
+    synchronized boolean isFlagged() {
+        return this.flagged;
+    }
+
+    synchronized long getIncrementMillis() {
+        return this.incrementMillis;
+    }
+
+    /**
+     * @return the side's remaining time right now
+     */
+    synchronized long getRemainingMillis(final Alliance alliance) {
+        final long remaining = alliance.isWhite() ? this.whiteMillis : this.blackMillis;
+        return alliance == this.running ? remaining - (System.nanoTime() - this.lastTickNanos) / 1000000L : remaining;
+    }
+
+    private void start(final Alliance sideToMove) {
+        this.running = sideToMove;
+        this.lastTickNanos = System.nanoTime();
+        this.timer.start();
+    }
+
+    private void charge() {
+        if (this.running == null) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long elapsed = (now - this.lastTickNanos) / 1000000L;
+        if (this.running.isWhite()) {
+            this.whiteMillis -= elapsed;
+        } else {
+            this.blackMillis -= elapsed;
+        }
+        // Keep the part of a millisecond not charged yet
+        this.lastTickNanos += elapsed * 1000000L;
+    }
+
+    private void tick() {
+        final Alliance loser;
+        synchronized (this) {
+            charge();
+            refresh();
+            if (this.running == null || getRemainingMillis(this.running) > 0) {
+                return;
+            }
+            loser = this.running;
+            this.flagged = true;
+            this.running = null;
+            this.timer.stop();
+            refresh();
+        }
+        this.flagListener.accept(loser);
+    }
+
+    private void refresh() {
+        this.whiteLabel.setText("White " + format(this.whiteMillis));
+        this.blackLabel.setText("Black " + format(this.blackMillis));
+        this.whiteLabel.setBackground(this.running == Alliance.WHITE ? RUNNING_COLOR : getBackground());
+        this.blackLabel.setBackground(this.running == Alliance.BLACK ? RUNNING_COLOR : getBackground());
+    }
+
+    private String format(final long millis) {
+        if (!this.timed) {
+            return "--:--";
+        }
+        final long clamped = Math.max(0, millis);
+        final long seconds = clamped / 1000;
+        // Tenths of a second are shown once the time gets short
+        return seconds < 10 ? String.format("0:%02d.%d", seconds, clamped % 1000 / 100) :
+                String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static JLabel createLabel() {
+        final JLabel label = new JLabel("", SwingConstants.CENTER);
+        label.setFont(CLOCK_FONT);
+        label.setOpaque(true);
+        return label;
+    }
+}
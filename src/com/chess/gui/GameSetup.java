@@ -14,6 +14,8 @@ class GameSetup extends JDialog {
     private PlayerType whitePlayerType;
     private PlayerType blackPlayerType;
     private JSpinner searchDepthSpinner;
+    private JSpinner minutesSpinner;
+    private JSpinner incrementSpinner;
 
     private static final String HUMAN_TEXT = "Human";
     private static final String COMPUTER_TEXT = "Computer";
@@ -48,6 +50,10 @@ class GameSetup extends JDialog {
         myPanel.add(new JLabel("Search"));
         this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth", new SpinnerNumberModel(6, 0, Integer.MAX_VALUE, 1));
 
+        myPanel.add(new JLabel("Clock"));
+        this.minutesSpinner = addLabeledSpinner(myPanel, "Minutes per side (0 = untimed)", new SpinnerNumberModel(0, 0, 180, 1));
+        this.incrementSpinner = addLabeledSpinner(myPanel, "Increment (s)", new SpinnerNumberModel(0, 0, 60, 1));
+
         final JButton cancelButton = new JButton("Cancel");
         final JButton okButton = new JButton("OK");
 
@@ -108,4 +114,12 @@ class GameSetup extends JDialog {
     int getSearchDepth() {
         return (Integer)this.searchDepthSpinner.getValue();
     }
+
+    long getBaseMillis() {
+        return (Integer)this.minutesSpinner.getValue() * 60000L;
+    }
+
+    long getIncrementMillis() {
+        return (Integer)this.incrementSpinner.getValue() * 1000L;
+    }
 }
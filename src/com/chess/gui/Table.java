@@ -1,12 +1,17 @@
 package com.chess.gui;
 
+import com.chess.engine.Alliance;
 import com.chess.engine.board.*;
 import com.chess.engine.openings.OpeningsDatabase;
+import com.chess.engine.openings.PolyglotBook;
 import com.chess.engine.piece.Pawn;
 import com.chess.engine.piece.Piece;
 import com.chess.engine.player.Player;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
 import com.chess.engine.player.ai.Minimax;
 import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
 import com.chess.engine.player.ai.StockAlphaBeta;
 import com.chess.pgn.FenUtilities;
 import com.chess.pgn.MySqlGamePersistence;
@@ -44,6 +49,7 @@ public class Table extends Observable {
     private final BoardPanel boardPanel;
     private final MoveLog moveLog;
     private final GameSetup gameSetup;
+    private final GameClockPanel gameClockPanel;
     private Board chessBoard;
 
     private boolean highlightLegalMoves = true;
@@ -54,6 +60,8 @@ public class Table extends Observable {
     private BoardDirection boardDirection;
 
     private Move computerMove;
+    // Plays timed games, where the search needs the clock
+    private IterativeDeepeningSearch timedEngine;
 
     // Sets up screen dimension
     private final static Dimension OUTER_FRAME_DIMENSION = new Dimension(800, 650);
@@ -65,9 +73,12 @@ public class Table extends Observable {
     // Sets up board tile dimension
     private final static Dimension TILE_PANEL_DIMENSION = new Dimension(TILE_SIZE, TILE_SIZE);
     private final static String defaultPieceImagePath = "art/pieces/";
+    private static final int TIMED_ENGINE_HASH_MEGABYTES = 16;
 
     private static final Table INSTANCE = new Table();
     private boolean useBook;
+    private volatile PolyglotBook openingBook;
+    private final Random bookRandom = new Random();
 
     /**
      * Constructor for the GUI
@@ -111,6 +122,12 @@ public class Table extends Observable {
 
         this.gameSetup = new GameSetup(this.gameFrame, true);
 
+        this.gameClockPanel = new GameClockPanel();
+        this.gameClockPanel.setFlagListener(loser -> JOptionPane.showMessageDialog(this.boardPanel,
+                "Game Over: " + loser + " loses on time!", "Game Over",
+                JOptionPane.INFORMATION_MESSAGE));
+        this.gameFrame.add(this.gameClockPanel, BorderLayout.NORTH);
+
         this.gameFrame.add(this.boardPanel, BorderLayout.CENTER);
     }
 
@@ -129,6 +146,22 @@ public class Table extends Observable {
         return this.gameSetup;
     }
 
+    private GameClockPanel getGameClockPanel() {
+        return this.gameClockPanel;
+    }
+
+    private synchronized IterativeDeepeningSearch getTimedEngine() {
+        if (this.timedEngine == null) {
+            this.timedEngine = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), TIMED_ENGINE_HASH_MEGABYTES, 1);
+        }
+        return this.timedEngine;
+    }
+
+    private void resetClock() {
+        this.gameClockPanel.reset(this.gameSetup.getBaseMillis(), this.gameSetup.getIncrementMillis(),
+                this.chessBoard.getCurrentPlayer().getAlliance());
+    }
+
     private Board getGameBoard() {
         return this.chessBoard;
     }
@@ -198,6 +231,21 @@ public class Table extends Observable {
         }
     }
 
+    private void loadOpeningBook(final File bookFile) {
+        try {
+            this.openingBook = PolyglotBook.open(bookFile);
+            System.out.println("Loaded " + this.openingBook.size() + " book entries from " + bookFile);
+        }
+        catch (final IOException e) {
+            JOptionPane.showMessageDialog(this.gameFrame, e.getMessage(), "Opening Book", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private Move getOpeningBookMove(final Board board) {
+        final PolyglotBook book = this.openingBook;
+        return book == null ? Move.MoveFactory.getNullMove() : book.getWeightedMove(board, this.bookRandom);
+    }
+
     private JFrame getGameFrame() {
         return this.gameFrame;
     }
@@ -257,6 +305,15 @@ public class Table extends Observable {
 
         optionsMenu.add(setupGameMenuItem);
 
+        final JMenuItem openBookMenuItem = new JMenuItem("Load Opening Book");
+        openBookMenuItem.addActionListener(e -> {
+            final JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(Table.get().getGameFrame()) == JFileChooser.APPROVE_OPTION) {
+                loadOpeningBook(chooser.getSelectedFile());
+            }
+        });
+        optionsMenu.add(openBookMenuItem);
+
         return optionsMenu;
     }
 
@@ -270,6 +327,7 @@ public class Table extends Observable {
         Table.get().getGameHistoryPanel().redo(chessBoard, Table.get().getMoveLog());
         Table.get().getTakenPiecesPanel().redo(Table.get().getMoveLog());
         Table.get().getBoardPanel().drawBoard(chessBoard);
+        resetClock();
     }
 
     /**
@@ -283,9 +341,11 @@ public class Table extends Observable {
         Table.get().getGameHistoryPanel().redo(chessBoard, Table.get().getMoveLog());
         Table.get().getTakenPiecesPanel().redo(Table.get().getMoveLog());
         Table.get().getBoardPanel().drawBoard(chessBoard);
+        this.gameClockPanel.setSideToMove(chessBoard.getCurrentPlayer().getAlliance());
     }
 
     private void setupUpdate(final GameSetup gameSetup) {
+        resetClock();
         setChanged();
         notifyObservers(gameSetup);
     }
@@ -295,6 +355,7 @@ public class Table extends Observable {
         @Override
         public void update(Observable o, Object arg) {
             if (Table.get().getGameSetup().isAIPlayer(Table.get().getGameBoard().getCurrentPlayer()) &&
+                    !Table.get().getGameClockPanel().isFlagged() &&
                     !Table.get().getGameBoard().getCurrentPlayer().isInCheckMate() &&
                     !Table.get().getGameBoard().getCurrentPlayer().isInStalemate()) {
                 System.out.println(Table.get().getGameBoard().getCurrentPlayer() + " is set to AI, thinking....");
@@ -366,6 +427,11 @@ public class Table extends Observable {
             //    Table.get().getGameBoard().getCurrentPlayer().setLegal(bestBookMoveList);
             //}
 
+            final Move openingBookMove = Table.get().getOpeningBookMove(Table.get().getGameBoard());
+            if (openingBookMove != Move.MoveFactory.getNullMove()) {
+                return openingBookMove;
+            }
+
             final Move bestMove;
             final Move bookMove = Table.get().getUseBook()
                     ? MySqlGamePersistence.get().getNextBestMove(Table.get().getGameBoard(),
@@ -375,6 +441,10 @@ public class Table extends Observable {
             if (Table.get().getUseBook() && bookMove != Move.MoveFactory.getNullMove()) {
                 bestMove = bookMove;
             }
+            else if (Table.get().getGameClockPanel().isTimed()) {
+                bestMove = Table.get().getTimedEngine().search(Table.get().getGameBoard(), createClockLimits(), null).getBestMove();
+                System.out.println(bestMove.toString());
+            }
             else {
                 final StockAlphaBeta strategy = new StockAlphaBeta(Table.get().getGameSetup().getSearchDepth());
 
@@ -385,17 +455,37 @@ public class Table extends Observable {
             return bestMove;
         }
 
+        /**
+         * @return limits with both sides' remaining time, and the search depth as a cap
+         */
+        private static SearchLimits createClockLimits() {
+            final GameClockPanel clock = Table.get().getGameClockPanel();
+            return new SearchLimits.Builder()
+                    .setDepth(Table.get().getGameSetup().getSearchDepth())
+                    .setWhiteTime(Math.max(1, clock.getRemainingMillis(Alliance.WHITE)))
+                    .setBlackTime(Math.max(1, clock.getRemainingMillis(Alliance.BLACK)))
+                    .setWhiteIncrement(clock.getIncrementMillis())
+                    .setBlackIncrement(clock.getIncrementMillis())
+                    .build();
+        }
+
         @Override
         public void done() {
             try {
                 final Move bestMove = get();
+                if (Table.get().getGameClockPanel().isFlagged()) {
+                    return;
+                }
+                final Alliance mover = Table.get().getGameBoard().getCurrentPlayer().getAlliance();
 
                 Table.get().updateComputerMove(bestMove);
-                Table.get().updateGameBoard(Table.get().getGameBoard().getCurrentPlayer().makeMove(bestMove).getTransitionBoard());
-                Table.get().getMoveLog().addMove(bestMove);
+                final MoveTransition transition = Table.get().getGameBoard().getCurrentPlayer().makeMove(bestMove);
+                Table.get().updateGameBoard(transition.getTransitionBoard());
+                Table.get().getMoveLog().addMove(transition);
                 Table.get().getGameHistoryPanel().redo(Table.get().getGameBoard(), Table.get().getMoveLog());
                 Table.get().getTakenPiecesPanel().redo(Table.get().getMoveLog());
                 Table.get().getBoardPanel().drawBoard(Table.get().getGameBoard());
+                Table.get().getGameClockPanel().moveMade(mover);
                 Table.get().moveMadeUpdate(PlayerType.COMPUTER);
 
 
@@ -485,7 +575,13 @@ public class Table extends Observable {
             return this.moves;
         }
 
-        public void addMove(final Move move) {
+        /**
+         * Adds a move played, working out its SAN from the board it led to so the move list
+         * and saved games show it without playing the move again
+         */
+        public void addMove(final MoveTransition transition) {
+            final Move move = transition.getMove();
+            move.getSan(transition.getToBoard());
             this.moves.add(move);
             BoardUtils.playAudio();
         }
@@ -557,9 +653,10 @@ public class Table extends Observable {
                             //   OpeningsDatabase.SqlInsert(chessBoard.toString(), move.toString());
                             //}
                             //System.out.println((chessBoard.toString() + " " + move.toString()));
-                            if (transition.getMoveStatus().isDone()) {
+                            if (transition.getMoveStatus().isDone() && !gameClockPanel.isFlagged()) {
                                 chessBoard = transition.getToBoard();
-                                moveLog.addMove(move);
+                                moveLog.addMove(transition);
+                                gameClockPanel.moveMade(transition.getFromBoard().getCurrentPlayer().getAlliance());
                             }
                             sourceTile = null;
                             destinationTile = null;
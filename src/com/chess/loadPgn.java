@@ -2,6 +2,7 @@ package com.chess;
 
 import com.chess.engine.board.Board;
 import com.chess.gui.Table;
+import com.chess.pgn.ParallelPgnReader;
 import tests.com.chess.tests.BoardTest;
 
 import java.io.File;
@@ -13,13 +14,10 @@ public class loadPgn {
 
     public static void main(String[] args) {
 
-        String[] pathnames;
-        File f = new File("C:\\Users\\Patron\\Desktop\\Java\\ChessOpenings\\openings and players");
-        pathnames = f.list();
+        File f = new File(args.length > 0 ? args[0] : "C:\\Users\\Patron\\Desktop\\Java\\ChessOpenings\\openings and players");
 
-        assert pathnames != null;
-        for (String pathname : pathnames) {
-            loadPGNFile(new File("C:\\Users\\Patron\\Desktop\\Java\\ChessOpenings\\openings and players\\" + pathname));
+        for (File pgnFile : ParallelPgnReader.listPgnFiles(f)) {
+            loadPGNFile(pgnFile);
         }
     }
 
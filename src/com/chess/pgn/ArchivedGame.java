@@ -0,0 +1,122 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game read from a game archive. Its moves are kept as their indices in the legal moves generated
+ * for the positions they were played in, starting from the standard position, and turned back into
+ * moves by replaying them.
+ */
+public final class ArchivedGame {
+
+    private final int id;
+    private final Map<String, String> tags;
+    private final String result;
+    private final int[] moveIndices;
+
+    ArchivedGame(final int id,
+                 final Map<String, String> tags,
+                 final String result,
+                 final int[] moveIndices) {
+        this.id = id;
+        this.tags = tags;
+        this.result = result;
+        this.moveIndices = moveIndices;
+    }
+
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * @return the tag pairs, empty when the archive was read without them
+     */
+    public Map<String, String> getTags() {
+        return this.tags;
+    }
+
+    /**
+     * @return "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    public String getResult() {
+        return this.result;
+    }
+
+    public int getPlyCount() {
+        return this.moveIndices.length;
+    }
+
+    public int getMoveIndex(final int ply) {
+        return this.moveIndices[ply];
+    }
+
+    /**
+     * Replays the game from the standard position
+     * @return the moves played, each from the board it was played on
+     */
+    public List<Move> getMoves() {
+        final List<Move> moves = new ArrayList<>(this.moveIndices.length);
+        Board board = Board.createStandardBoard();
+        for (final int moveIndex : this.moveIndices) {
+            final Move move = moveAt(board, moveIndex);
+            moves.add(move);
+            board = move.execute();
+        }
+        return moves;
+    }
+
+    /**
+     * @return the game with its moves in SAN, as read from a PGN file
+     */
+    public Game toGame() {
+        final List<String> sanMoves = new ArrayList<>(this.moveIndices.length);
+        Board board = Board.createStandardBoard();
+        for (final int moveIndex : this.moveIndices) {
+            final Move move = moveAt(board, moveIndex);
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            sanMoves.add(move.getSan(transition.getToBoard()));
+            board = transition.getToBoard();
+        }
+        final PGNGameTags.TagsBuilder tagsBuilder = new PGNGameTags.TagsBuilder();
+        for (final Map.Entry<String, String> tag : this.tags.entrySet()) {
+            tagsBuilder.addTag(tag.getKey(), tag.getValue());
+        }
+        return new ValidGame(tagsBuilder.build(), Collections.unmodifiableList(sanMoves), this.result);
+    }
+
+    /**
+     * @return the index of the move in the legal moves of the side to move, or -1 if it is not one of them
+     */
+    public static int indexOf(final Board board,
+                              final Move move) {
+        int index = 0;
+        for (final Move legalMove : board.getCurrentPlayer().getLegalMoves()) {
+            if (legalMove == move) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the move at the index in the legal moves of the side to move
+     * @throws IllegalArgumentException if the side to move has fewer moves
+     */
+    public static Move moveAt(final Board board,
+                              final int index) {
+        final Collection<Move> legalMoves = board.getCurrentPlayer().getLegalMoves();
+        if (index >= legalMoves.size()) {
+            throw new IllegalArgumentException("No move " + index + " among " + legalMoves.size() + " legal moves");
+        }
+        return legalMoves instanceof List ? ((List<Move>) legalMoves).get(index) : new ArrayList<>(legalMoves).get(index);
+    }
+}
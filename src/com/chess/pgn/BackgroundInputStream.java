@@ -0,0 +1,167 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a stream on a thread of its own, a large buffer at a time, so a slow source such as a
+ * decompressor runs at the same time as the reader of this stream. The buffers are reused, so no more
+ * than their number are ever filled ahead of the reader.
+ */
+public final class BackgroundInputStream extends InputStream {
+
+    public static final int DEFAULT_BUFFER_BYTES = 4 << 20;
+    public static final int DEFAULT_BUFFERS = 4;
+
+    /**
+     * A filled buffer, or the end of the source with the failure that ended it if any
+     */
+    private static final class Filled {
+
+        private final byte[] bytes;
+        private final int length;
+        private final IOException failure;
+
+        Filled(final byte[] bytes,
+               final int length,
+               final IOException failure) {
+            this.bytes = bytes;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> empty;
+    private final BlockingQueue<Filled> filled;
+    private final Thread filler;
+    private Filled current;
+    private int position;
+    private boolean ended;
+    private IOException failure;
+
+    public BackgroundInputStream(final InputStream source,
+                                 final String name) {
+        this(source, name, DEFAULT_BUFFER_BYTES, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * @param source is read on the new thread and closed with this stream
+     * @param name names the thread
+     */
+    public BackgroundInputStream(final InputStream source,
+                                 final String name,
+                                 final int bufferBytes,
+                                 final int buffers) {
+        this.source = source;
+        this.empty = new ArrayBlockingQueue<>(Math.max(2, buffers));
+        this.filled = new ArrayBlockingQueue<>(Math.max(2, buffers) + 1);
+        for (int i = 0; i < Math.max(2, buffers); i++) {
+            this.empty.add(new byte[Math.max(1, bufferBytes)]);
+        }
+        this.filler = new Thread(this::fill, name);
+        this.filler.setDaemon(true);
+        this.filler.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBuffer()) {
+            return -1;
+        }
+        return this.current.bytes[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes,
+                    final int offset,
+                    final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+        final int count = Math.min(length, this.current.length - this.position);
+        System.arraycopy(this.current.bytes, this.position, bytes, offset, count);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.filler.interrupt();
+        try {
+            this.filler.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.source.close();
+        }
+    }
+
+    /**
+     * Hands the buffer read to the end back and takes the next one
+     * @return false at the end of the source
+     */
+    private boolean nextBuffer() throws IOException {
+        while (this.current == null || this.position == this.current.length) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            if (this.ended) {
+                return false;
+            }
+            if (this.current != null) {
+                this.empty.add(this.current.bytes);
+            }
+            try {
+                this.current = this.filled.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input");
+            }
+            this.position = 0;
+            if (this.current.bytes == null) {
+                this.ended = true;
+                this.failure = this.current.failure;
+                this.current = null;
+            }
+        }
+        return true;
+    }
+
+    private void fill() {
+        try {
+            while (true) {
+                final byte[] bytes = this.empty.take();
+                int length = 0;
+                int read = 0;
+                while (length < bytes.length && (read = this.source.read(bytes, length, bytes.length - length)) >= 0) {
+                    length += read;
+                }
+                if (length > 0) {
+                    this.filled.put(new Filled(bytes, length, null));
+                }
+                if (read < 0) {
+                    this.filled.put(new Filled(null, 0, null));
+                    return;
+                }
+            }
+        } catch (final InterruptedException e) {
+            // The reader has closed the stream
+        } catch (final Throwable t) {
+            // Any failure of the source ends the stream, so the reader never waits for a buffer that will not come
+            final IOException failure = t instanceof IOException ? (IOException) t :
+                    new IOException("Reading " + Thread.currentThread().getName() + " failed", t);
+            try {
+                this.filled.put(new Filled(null, 0, failure));
+            } catch (final InterruptedException interrupted) {
+                // The reader has closed the stream
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.chess.pgn;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports PGN files into the Game and position_moves tables in bulk.
+ *
+ * A reader thread parses games, a chunk of the file per pool thread, into a bounded queue in file order
+ * and the calling thread writes them in batches:
+ * one JDBC batch of Game inserts and one of position_moves upserts per transaction, with ids taken
+ * a block at a time from the game_id_seq sequence. Every transaction also records how many games
+ * of the file are done in import_progress, so an interrupted import resumes after the last batch
+ * written. A progress line is printed every few seconds. Files named .gz or .bz2 are decompressed
+ * as they are read, in a stage of their own ahead of the parser.
+ *
+ * Usage: BulkGameImporter [-batch N] [-restart] games.pgn[.gz|.bz2]...
+ */
+public class BulkGameImporter {
+
+    private static final int DEFAULT_BATCH_GAMES = 500;
+    private static final int QUEUED_BATCHES = 4;
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final String GAME_INSERT = "INSERT INTO Game(id, outcome, moves) VALUES(?, ?, ?);";
+    private static final String PROGRESS_QUERY = "SELECT file_size, games_done FROM import_progress WHERE file_name = ?;";
+    private static final String PROGRESS_UPSERT =
+            "INSERT INTO import_progress(file_name, file_size, games_done) VALUES(?, ?, ?) " +
+                    "ON CONFLICT (file_name) DO UPDATE SET file_size = EXCLUDED.file_size, games_done = EXCLUDED.games_done;";
+    // Put on the queue by the reader after the last game
+    private static final Game END_OF_FILE = new InvalidGame(new PGNGameTags.TagsBuilder().build(), "", "*");
+
+    private final Connection connection;
+    private final GameIds gameIds;
+    private final int batchGames;
+
+    /**
+     * @param connection is used by this importer alone, it is left outside autocommit
+     * @param batchGames is the number of games written per transaction
+     */
+    public BulkGameImporter(final Connection connection,
+                            final int batchGames) throws SQLException {
+        this.connection = connection;
+        this.gameIds = new GameIds();
+        this.batchGames = Math.max(1, batchGames);
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute(MySqlGamePersistence.GAME_TABLE_DDL);
+            statement.execute(MySqlGamePersistence.POSITION_MOVES_TABLE_DDL);
+            statement.execute("CREATE TABLE IF NOT EXISTS import_progress(file_name varchar(1024) primary key, " +
+                    "file_size bigint, games_done bigint);");
+        }
+        GameIds.createSequence(connection);
+        connection.setAutoCommit(false);
+    }
+
+    public static void main(final String[] args) throws IOException, SQLException, InterruptedException {
+        int batchGames = DEFAULT_BATCH_GAMES;
+        boolean restart = false;
+        final List<File> pgnFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-batch") && i + 1 < args.length) {
+                batchGames = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-restart")) {
+                restart = true;
+            } else {
+                pgnFiles.add(new File(args[i]));
+            }
+        }
+        if (pgnFiles.isEmpty()) {
+            System.out.println("Usage: BulkGameImporter [-batch N] [-restart] games.pgn[.gz|.bz2]...");
+            return;
+        }
+        try (final Connection connection = MySqlGamePersistence.createDBConnection()) {
+            final BulkGameImporter importer = new BulkGameImporter(connection, batchGames);
+            for (final File pgnFile : pgnFiles) {
+                if (restart) {
+                    importer.forgetProgress(pgnFile);
+                }
+                importer.importFile(pgnFile);
+            }
+        }
+    }
+
+    /**
+     * Imports the games of a file not imported yet
+     * @return the number of games read from the file in this run, valid or not
+     * @throws IOException if the file cannot be read, the games read before the failure stay written
+     * @throws SQLException if a batch cannot be written, the batches before it stay written
+     */
+    public long importFile(final File pgnFile) throws IOException, SQLException, InterruptedException {
+        final long skipped = readProgress(pgnFile);
+        if (skipped > 0) {
+            System.out.println("Resuming " + pgnFile + " after " + skipped + " games");
+        }
+        final BlockingQueue<Game> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES * this.batchGames);
+        final AtomicReference<Throwable> readFailure = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            final long[] read = { 0 };
+            boolean cancelled = false;
+            try {
+                new ParallelPgnReader(Runtime.getRuntime().availableProcessors(),
+                        ParallelPgnReader.DEFAULT_CHUNK_BYTES, false).read(Collections.singletonList(pgnFile), game -> {
+                    if (read[0]++ >= skipped) {
+                        put(queue, game);
+                    }
+                }, true);
+            } catch (final CancellationException | InterruptedException e) {
+                cancelled = true;
+            } catch (final Throwable t) {
+                readFailure.set(t);
+            } finally {
+                // The writer waits for the end of the file however the reading ended, unless it has given up
+                if (!cancelled) {
+                    try {
+                        queue.put(END_OF_FILE);
+                    } catch (final InterruptedException e) {
+                        // The writer has given up
+                    }
+                }
+            }
+        }, "pgn-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long done = skipped;
+        long imported = 0;
+        final long start = System.nanoTime();
+        long nextReport = start + REPORT_NANOS;
+        final PositionMoveBatch positionMoves = new PositionMoveBatch();
+        try (final PreparedStatement gameInsert = this.connection.prepareStatement(GAME_INSERT)) {
+            int batched = 0;
+            Game game;
+            while ((game = queue.take()) != END_OF_FILE) {
+                done++;
+                if (game.isValid()) {
+                    gameInsert.setInt(1, this.gameIds.next(this.connection));
+                    gameInsert.setString(2, game.getWinner());
+                    gameInsert.setString(3, game.getMoves().toString().replaceAll("\\[", "").replaceAll("\\]", ""));
+                    gameInsert.addBatch();
+                    positionMoves.addGame(game.getWinner(), game.getMoves());
+                    imported++;
+                }
+                if (++batched == this.batchGames) {
+                    commitBatch(gameInsert, positionMoves, pgnFile, done);
+                    batched = 0;
+                }
+                if (System.nanoTime() > nextReport) {
+                    report(pgnFile, done, imported, start);
+                    nextReport += REPORT_NANOS;
+                }
+            }
+            commitBatch(gameInsert, positionMoves, pgnFile, done);
+        } catch (final SQLException e) {
+            this.connection.rollback();
+            reader.interrupt();
+            throw e;
+        }
+        reader.join();
+        final Throwable failure = readFailure.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IOException("Cannot read " + pgnFile, failure);
+        }
+        report(pgnFile, done, imported, start);
+        return done - skipped;
+    }
+
+    /**
+     * Makes the next import of the file start from its first game
+     */
+    public void forgetProgress(final File pgnFile) throws SQLException {
+        try (final PreparedStatement statement = this.connection.prepareStatement(
+                "DELETE FROM import_progress WHERE file_name = ?;")) {
+            statement.setString(1, progressName(pgnFile));
+            statement.executeUpdate();
+        }
+        this.connection.commit();
+    }
+
+    /**
+     * @return the number of games of the file already imported, 0 if the file changed since
+     */
+    private long readProgress(final File pgnFile) throws SQLException {
+        try (final PreparedStatement statement = this.connection.prepareStatement(PROGRESS_QUERY)) {
+            statement.setString(1, progressName(pgnFile));
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next() && resultSet.getLong(1) == pgnFile.length()) {
+                    return resultSet.getLong(2);
+                }
+                return 0;
+            }
+        } finally {
+            this.connection.commit();
+        }
+    }
+
+    private void commitBatch(final PreparedStatement gameInsert,
+                             final PositionMoveBatch positionMoves,
+                             final File pgnFile,
+                             final long done) throws SQLException {
+        gameInsert.executeBatch();
+        positionMoves.flush(this.connection);
+        try (final PreparedStatement progress = this.connection.prepareStatement(PROGRESS_UPSERT)) {
+            progress.setString(1, progressName(pgnFile));
+            progress.setLong(2, pgnFile.length());
+            progress.setLong(3, done);
+            progress.executeUpdate();
+        }
+        this.connection.commit();
+    }
+
+    private static String progressName(final File pgnFile) {
+        return pgnFile.getAbsolutePath();
+    }
+
+    private static void report(final File pgnFile,
+                               final long done,
+                               final long imported,
+                               final long start) {
+        final double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.out.printf("%s: %d games done, %d imported in %.0f s, %.0f games/s%n",
+                pgnFile.getName(), done, imported, seconds, imported / seconds);
+    }
+
+    /**
+     * Puts a game on the queue, ending the reader when the writer has given up
+     */
+    private static void put(final BlockingQueue<Game> queue, final Game game) {
+        try {
+            queue.put(game);
+        } catch (final InterruptedException e) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.chess.pgn;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses bzip2 data. Streams written one after another, as parallel compressors write them,
+ * are read as one. Every block is checked against its CRC and every stream against its combined CRC.
+ * Randomized blocks, which bzip2 has not written since version 0.9.5, are not supported.
+ *
+ * A block is decoded in three steps: the Huffman coded symbols are read into move-to-front indices
+ * and runs, which give the block after the Burrows-Wheeler transform; the transform is inverted into
+ * a linked list through the block; and the list is followed one byte at a time as bytes are read,
+ * expanding the runs of four or more equal bytes the compressor shortened first.
+ */
+public final class Bzip2InputStream extends InputStream {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_MAGIC = 0x177245385090L;
+    private static final int GROUP_SIZE = 50;
+    private static final int MAX_GROUPS = 6;
+    private static final int MAX_CODE_LENGTH = 20;
+    private static final int MAX_SELECTORS = 32767;
+    private static final int RUN_A = 0;
+    private static final int RUN_B = 1;
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 24;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    private final InputStream in;
+    private long bitBuffer;
+    private int bitCount;
+    private int blockSize;
+    private boolean streamEnded;
+    private int combinedCrc;
+
+    // The block being read: the linked list of the inverted transform and the position in it
+    private int[] tt;
+    private boolean blockRead;
+    private int position;
+    private int remaining;
+    private int blockCrc;
+    private int crc;
+    // The last byte read, how many times in a row it came, and the copies of it still to come
+    private int lastByte;
+    private int runLength;
+    private int copies;
+
+    /**
+     * @param in is the compressed data, best buffered, it is closed with this stream
+     */
+    public Bzip2InputStream(final InputStream in) throws IOException {
+        this.in = in;
+        this.streamEnded = true;
+        if (!startStream()) {
+            throw new EOFException("No bzip2 stream");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (this.copies > 0) {
+                this.copies--;
+                return output(this.lastByte);
+            }
+            if (this.remaining == 0) {
+                if (!nextBlock()) {
+                    return -1;
+                }
+                continue;
+            }
+            this.position = this.tt[this.position];
+            final int b = this.position & 0xFF;
+            this.position >>>= 8;
+            this.remaining--;
+            if (this.runLength == 4) {
+                // The byte after four equal bytes is the number of further copies
+                this.copies = b;
+                this.runLength = 0;
+                continue;
+            }
+            if (b == this.lastByte) {
+                this.runLength++;
+            } else {
+                this.lastByte = b;
+                this.runLength = 1;
+            }
+            return output(b);
+        }
+    }
+
+    @Override
+    public int read(final byte[] bytes,
+                    final int offset,
+                    final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            final int b = read();
+            if (b < 0) {
+                return count == 0 ? -1 : count;
+            }
+            bytes[offset + count++] = (byte) b;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private int output(final int b) {
+        this.crc = (this.crc << 8) ^ CRC_TABLE[((this.crc >>> 24) ^ b) & 0xFF];
+        return b;
+    }
+
+    /**
+     * Checks the block just read and decodes the next one, going on to the next stream if there is one
+     * @return false at the end of the data
+     */
+    private boolean nextBlock() throws IOException {
+        if (this.blockRead && ~this.crc != this.blockCrc) {
+            throw new IOException("bzip2 block CRC does not match");
+        }
+        this.blockRead = false;
+        while (true) {
+            if (this.streamEnded && !startStream()) {
+                return false;
+            }
+            final long magic = ((long) readBits(24) << 24) | readBits(24);
+            if (magic == BLOCK_MAGIC) {
+                this.blockCrc = readInt();
+                this.combinedCrc = ((this.combinedCrc << 1) | (this.combinedCrc >>> 31)) ^ this.blockCrc;
+                readBlock();
+                this.blockRead = true;
+                return true;
+            }
+            if (magic != END_MAGIC) {
+                throw new IOException("Damaged bzip2 data");
+            }
+            if (readInt() != this.combinedCrc) {
+                throw new IOException("bzip2 stream CRC does not match");
+            }
+            // A stream ends on a byte boundary
+            this.bitCount -= this.bitCount % 8;
+            this.streamEnded = true;
+        }
+    }
+
+    /**
+     * Reads a stream header
+     * @return false at the end of the data
+     */
+    private boolean startStream() throws IOException {
+        final int first = readByte();
+        if (first < 0) {
+            return false;
+        }
+        if (first != 'B' || readByte() != 'Z' || readByte() != 'h') {
+            throw new IOException("Not bzip2 data");
+        }
+        final int level = readByte() - '0';
+        if (level < 1 || level > 9) {
+            throw new IOException("Bad bzip2 block size");
+        }
+        this.blockSize = level * 100000;
+        this.streamEnded = false;
+        this.combinedCrc = 0;
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        if (readBits(1) != 0) {
+            throw new IOException("Randomized bzip2 blocks are not supported");
+        }
+        final int origin = readBits(24);
+
+        // The bytes used in the block
+        final int[] used = new int[256];
+        int usedCount = 0;
+        final int ranges = readBits(16);
+        for (int range = 0; range < 16; range++) {
+            if ((ranges & (0x8000 >>> range)) != 0) {
+                final int bits = readBits(16);
+                for (int i = 0; i < 16; i++) {
+                    if ((bits & (0x8000 >>> i)) != 0) {
+                        used[usedCount++] = range * 16 + i;
+                    }
+                }
+            }
+        }
+        if (usedCount == 0) {
+            throw new IOException("Damaged bzip2 block");
+        }
+        final int alphaSize = usedCount + 2;
+        final int endOfBlock = usedCount + 1;
+
+        // The Huffman table used for every group of 50 symbols, move-to-front coded
+        final int groups = readBits(3);
+        final int selectorCount = readBits(15);
+        if (groups < 2 || groups > MAX_GROUPS || selectorCount < 1 || selectorCount > MAX_SELECTORS) {
+            throw new IOException("Damaged bzip2 block");
+        }
+        final byte[] selectors = new byte[selectorCount];
+        final byte[] tableOrder = { 0, 1, 2, 3, 4, 5 };
+        for (int i = 0; i < selectorCount; i++) {
+            int index = 0;
+            while (readBits(1) != 0) {
+                if (++index >= groups) {
+                    throw new IOException("Damaged bzip2 block");
+                }
+            }
+            final byte table = tableOrder[index];
+            System.arraycopy(tableOrder, 0, tableOrder, 1, index);
+            tableOrder[0] = table;
+            selectors[i] = table;
+        }
+
+        // The code lengths of every table, each coded as a change from the one before
+        final int[][] counts = new int[groups][MAX_CODE_LENGTH + 1];
+        final int[][] symbols = new int[groups][alphaSize];
+        final int[] lengths = new int[alphaSize];
+        for (int table = 0; table < groups; table++) {
+            int length = readBits(5);
+            for (int symbol = 0; symbol < alphaSize; symbol++) {
+                while (true) {
+                    if (length < 1 || length > MAX_CODE_LENGTH) {
+                        throw new IOException("Damaged bzip2 block");
+                    }
+                    if (readBits(1) == 0) {
+                        break;
+                    }
+                    length += readBits(1) == 0 ? 1 : -1;
+                }
+                lengths[symbol] = length;
+                counts[table][length]++;
+            }
+            // Codes are canonical, shorter codes first and symbols of the same length in order
+            final int[] offsets = new int[MAX_CODE_LENGTH + 2];
+            for (int i = 1; i <= MAX_CODE_LENGTH; i++) {
+                offsets[i + 1] = offsets[i] + counts[table][i];
+            }
+            for (int symbol = 0; symbol < alphaSize; symbol++) {
+                symbols[table][offsets[lengths[symbol]]++] = symbol;
+            }
+        }
+
+        // The symbols: runs of the front byte and move-to-front indices
+        final int[] moveToFront = new int[256];
+        for (int i = 0; i < 256; i++) {
+            moveToFront[i] = i;
+        }
+        final int[] byteCounts = new int[256];
+        if (this.tt == null || this.tt.length < this.blockSize) {
+            this.tt = new int[this.blockSize];
+        }
+        final int[] block = this.tt;
+        int length = 0;
+        int run = 0;
+        int runBit = 1;
+        int selector = 0;
+        int groupLeft = 0;
+        int table = 0;
+        while (true) {
+            if (groupLeft == 0) {
+                if (selector == selectorCount) {
+                    throw new IOException("Damaged bzip2 block");
+                }
+                table = selectors[selector++];
+                groupLeft = GROUP_SIZE;
+            }
+            groupLeft--;
+            final int symbol = decodeSymbol(counts[table], symbols[table]);
+            if (symbol == RUN_A || symbol == RUN_B) {
+                run += runBit << symbol;
+                runBit <<= 1;
+                if (run > this.blockSize || runBit > this.blockSize) {
+                    throw new IOException("Damaged bzip2 block");
+                }
+                continue;
+            }
+            if (run > 0) {
+                if (length + run > this.blockSize) {
+                    throw new IOException("Damaged bzip2 block");
+                }
+                final int b = used[moveToFront[0]];
+                byteCounts[b] += run;
+                while (run-- > 0) {
+                    block[length++] = b;
+                }
+                run = 0;
+                runBit = 1;
+            }
+            if (symbol == endOfBlock) {
+                break;
+            }
+            if (length >= this.blockSize) {
+                throw new IOException("Damaged bzip2 block");
+            }
+            final int index = symbol - 1;
+            final int front = moveToFront[index];
+            System.arraycopy(moveToFront, 0, moveToFront, 1, index);
+            moveToFront[0] = front;
+            final int b = used[front];
+            byteCounts[b]++;
+            block[length++] = b;
+        }
+        if (origin >= length) {
+            throw new IOException("Damaged bzip2 block");
+        }
+
+        // Inverts the transform, every entry keeps its byte below the index of the next entry
+        final int[] starts = new int[256];
+        for (int i = 1; i < 256; i++) {
+            starts[i] = starts[i - 1] + byteCounts[i - 1];
+        }
+        for (int i = 0; i < length; i++) {
+            block[starts[block[i] & 0xFF]++] |= i << 8;
+        }
+        this.position = block[origin] >>> 8;
+        this.remaining = length;
+        this.crc = 0xFFFFFFFF;
+        this.lastByte = -1;
+        this.runLength = 0;
+        this.copies = 0;
+    }
+
+    private int decodeSymbol(final int[] counts,
+                             final int[] symbols) throws IOException {
+        int code = 0;
+        int first = 0;
+        int index = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            code |= readBits(1);
+            final int count = counts[length];
+            if (code - first < count) {
+                return symbols[index + code - first];
+            }
+            index += count;
+            first = (first + count) << 1;
+            code <<= 1;
+        }
+        throw new IOException("Damaged bzip2 block");
+    }
+
+    private int readInt() throws IOException {
+        return (readBits(16) << 16) | readBits(16);
+    }
+
+    /**
+     * @param count is at most 24
+     */
+    private int readBits(final int count) throws IOException {
+        while (this.bitCount < count) {
+            final int b = this.in.read();
+            if (b < 0) {
+                throw new EOFException("bzip2 data ends early");
+            }
+            this.bitBuffer = (this.bitBuffer << 8) | b;
+            this.bitCount += 8;
+        }
+        this.bitCount -= count;
+        return (int) (this.bitBuffer >>> this.bitCount) & ((1 << count) - 1);
+    }
+
+    /**
+     * @return the next whole byte, or -1 at the end of the data
+     */
+    private int readByte() throws IOException {
+        if (this.bitCount >= 8) {
+            return readBits(8);
+        }
+        return this.in.read();
+    }
+}
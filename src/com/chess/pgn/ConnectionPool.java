@@ -0,0 +1,544 @@
+package com.chess.pgn;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps up to a fixed number of database connections open and lends them out, so a lookup does not
+ * pay for a new connection. A connection borrowed with getConnection goes back to the pool when it is
+ * closed, rolled back if it was left in a transaction, and the statements and result sets left open
+ * in the loan are closed. Statements prepared with prepareStatement(String) are kept with their
+ * connection when they are closed and handed out again for the same SQL, unless a setting such as
+ * the fetch size or query timeout was changed on them. Statements, result sets and
+ * metadata reached from a borrowed connection give the borrowed connection from getConnection.
+ *
+ * A connection that failed with a connection error, SQL state class 08, is closed instead of going
+ * back, and so is one unwrapped to a driver interface, as the driver object can outlive the loan.
+ * A connection idle for a while is checked before it is lent out again.
+ *
+ * The pool of get() reads its settings from the system properties chess.db.url, chess.db.user,
+ * chess.db.password and chess.db.pool.size, or the environment variables CHESS_DB_URL, CHESS_DB_USER,
+ * CHESS_DB_PASSWORD and CHESS_DB_POOL_SIZE when a property is not set.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    public static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/chess";
+    public static final String DEFAULT_USER = "postgres";
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    public static final int DEFAULT_STATEMENTS_PER_CONNECTION = 32;
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30000;
+    public static final long DEFAULT_VALIDATE_AFTER_IDLE_MILLIS = 30000;
+
+    private static final int VALIDATE_TIMEOUT_SECONDS = 5;
+    private static final String CONNECTION_ERROR_CLASS = "08";
+    // Statement settings that would carry over to the next loan, a statement changed by one is not kept
+    private static final Set<String> STATEMENT_SETTINGS = new HashSet<>(Arrays.asList("setMaxRows",
+            "setLargeMaxRows", "setMaxFieldSize", "setFetchSize", "setFetchDirection", "setQueryTimeout",
+            "setEscapeProcessing", "setPoolable", "setCursorName", "closeOnCompletion"));
+    // Objects reached from a borrowed connection that lead back to it
+    private static final Set<Class<?>> WRAPPED_TYPES = new HashSet<>(Arrays.asList(Statement.class,
+            PreparedStatement.class, CallableStatement.class, DatabaseMetaData.class, ResultSet.class));
+
+    private static ConnectionPool DEFAULT_POOL;
+
+    /**
+     * A connection of the pool with the statements kept for it
+     */
+    private static final class Pooled {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+        private long idleSince;
+        private volatile boolean broken;
+
+        Pooled(final Connection connection,
+               final int maxStatements) {
+            this.connection = connection;
+            // The statements not in use, the one returned longest ago first
+            this.statements = new LinkedHashMap<String, PreparedStatement>() {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > maxStatements) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxStatements;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final Semaphore permits;
+    private final Deque<Pooled> idle;
+    private final AtomicInteger open;
+    private volatile boolean closed;
+
+    /**
+     * @param maxConnections is the most connections open at once, borrowers wait for one beyond it
+     * @param statementsPerConnection is the most prepared statements kept for every connection
+     * @param borrowTimeoutMillis is how long getConnection waits for a connection before failing
+     */
+    public ConnectionPool(final String url,
+                          final String user,
+                          final String password,
+                          final int maxConnections,
+                          final int statementsPerConnection,
+                          final long borrowTimeoutMillis) {
+        this(url, user, password, maxConnections, statementsPerConnection, borrowTimeoutMillis,
+                DEFAULT_VALIDATE_AFTER_IDLE_MILLIS);
+    }
+
+    /**
+     * @param validateAfterIdleMillis is how long a connection is idle before it is checked when lent out
+     */
+    public ConnectionPool(final String url,
+                          final String user,
+                          final String password,
+                          final int maxConnections,
+                          final int statementsPerConnection,
+                          final long borrowTimeoutMillis,
+                          final long validateAfterIdleMillis) {
+        if (maxConnections < 1 || statementsPerConnection < 0 || borrowTimeoutMillis < 0 || validateAfterIdleMillis < 0) {
+            throw new IllegalArgumentException("Invalid pool size " + maxConnections + ", " +
+                    statementsPerConnection + " statements, timeout " + borrowTimeoutMillis +
+                    " or idle time " + validateAfterIdleMillis);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxStatements = statementsPerConnection;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.permits = new Semaphore(maxConnections, true);
+        this.idle = new ArrayDeque<>();
+        this.open = new AtomicInteger();
+        this.closed = false;
+    }
+
+    /**
+     * @return the pool of the chess database, created from the settings on first use
+     */
+    public static synchronized ConnectionPool get() {
+        if (DEFAULT_POOL == null) {
+            DEFAULT_POOL = new ConnectionPool(setting("chess.db.url", DEFAULT_URL),
+                    setting("chess.db.user", DEFAULT_USER),
+                    setting("chess.db.password", ""),
+                    Integer.parseInt(setting("chess.db.pool.size", Integer.toString(DEFAULT_MAX_CONNECTIONS))),
+                    DEFAULT_STATEMENTS_PER_CONNECTION,
+                    DEFAULT_BORROW_TIMEOUT_MILLIS);
+        }
+        return DEFAULT_POOL;
+    }
+
+    /**
+     * @return a connection to close when done with it, which hands it back to the pool
+     * @throws SQLTimeoutException if no connection comes free in the borrow timeout
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!this.permits.tryAcquire(this.borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No connection free after " + this.borrowTimeoutMillis + " ms");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            Pooled pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new Pooled(DriverManager.getConnection(this.url, this.user, this.password), this.maxStatements);
+                this.open.incrementAndGet();
+            }
+            final Lease lease = new Lease(pooled);
+            lease.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, lease);
+            return lease.proxy;
+        } catch (final SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of connections open, lent out or idle
+     */
+    public int getOpenCount() {
+        return this.open.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (this.idle) {
+            return this.idle.size();
+        }
+    }
+
+    /**
+     * Closes the idle connections, the ones lent out are closed when they come back
+     */
+    @Override
+    public void close() {
+        synchronized (this.idle) {
+            this.closed = true;
+        }
+        while (true) {
+            final Pooled pooled;
+            synchronized (this.idle) {
+                pooled = this.idle.pollFirst();
+            }
+            if (pooled == null) {
+                return;
+            }
+            discard(pooled);
+        }
+    }
+
+    /**
+     * @return the connection idle the shortest time that still works, or null when there is none
+     */
+    private Pooled takeIdle() {
+        while (true) {
+            final Pooled pooled;
+            synchronized (this.idle) {
+                pooled = this.idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - pooled.idleSince < this.validateAfterIdleMillis || isValid(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    private static boolean isValid(final Pooled pooled) {
+        try {
+            return pooled.connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (final SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(final Pooled pooled) {
+        try {
+            if (!pooled.broken && !pooled.connection.isClosed() && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (final SQLException e) {
+            pooled.broken = true;
+        }
+        try {
+            boolean kept = false;
+            if (!pooled.broken && !pooled.connection.isClosed()) {
+                pooled.idleSince = System.currentTimeMillis();
+                // Checked under the lock close takes, so a closed pool keeps no connection
+                synchronized (this.idle) {
+                    if (!this.closed) {
+                        this.idle.addFirst(pooled);
+                        kept = true;
+                    }
+                }
+            }
+            if (!kept) {
+                discard(pooled);
+            }
+        } catch (final SQLException e) {
+            discard(pooled);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    private void discard(final Pooled pooled) {
+        for (final PreparedStatement statement : pooled.statements.values()) {
+            closeQuietly(statement);
+        }
+        pooled.statements.clear();
+        closeQuietly(pooled.connection);
+        this.open.decrementAndGet();
+    }
+
+    private static void closeQuietly(final AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (final Exception e) {
+            // Nothing more can be done with it
+        }
+    }
+
+    /**
+     * Calls the method on the connection or one of its statements, marking the connection broken when
+     * it fails with a connection error
+     */
+    private static Object call(final Pooled pooled,
+                               final Object target,
+                               final Method method,
+                               final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                final String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith(CONNECTION_ERROR_CLASS)) {
+                    pooled.broken = true;
+                }
+            }
+            throw cause;
+        }
+    }
+
+    private static String setting(final String property,
+                                  final String fallback) {
+        final String value = System.getProperty(property);
+        if (value != null) {
+            return value;
+        }
+        final String environment = System.getenv(property.toUpperCase().replace('.', '_'));
+        return environment != null ? environment : fallback;
+    }
+
+    /**
+     * One loan of a connection, it can no longer be used once closed
+     */
+    private final class Lease implements InvocationHandler {
+
+        private final Pooled pooled;
+        // The cached statements handed out in this loan and not closed yet
+        private final List<CachedStatement> statements;
+        // The other statements and the result sets opened in this loan and not closed yet
+        private final Set<AutoCloseable> opened;
+        private Connection proxy;
+        private volatile boolean returned;
+
+        Lease(final Pooled pooled) {
+            this.pooled = pooled;
+            this.statements = new ArrayList<>();
+            this.opened = Collections.newSetFromMap(new IdentityHashMap<>());
+            this.returned = false;
+        }
+
+        @Override
+        public synchronized Object invoke(final Object proxy,
+                                          final Method method,
+                                          final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!this.returned) {
+                        this.returned = true;
+                        synchronized (this.opened) {
+                            for (final AutoCloseable closeable : this.opened) {
+                                closeQuietly(closeable);
+                            }
+                            this.opened.clear();
+                        }
+                        for (final CachedStatement statement : new ArrayList<>(this.statements)) {
+                            returnStatement(statement);
+                        }
+                        release(this.pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return this.returned || this.pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + this.pooled.connection;
+                default:
+                    break;
+            }
+            if (this.returned) {
+                throw new SQLException("Connection already returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return prepare(method, (String) args[0]);
+            }
+            return forward(proxy, this.pooled.connection, method, args, null);
+        }
+
+        /**
+         * Calls a method of the connection or of an object reached from it, handing out this loan's
+         * connection and wrapping the statements, result sets and metadata returned
+         * @param statement is the proxy of the statement a result set came from, or null
+         */
+        private Object forward(final Object proxy,
+                               final Object target,
+                               final Method method,
+                               final Object[] args,
+                               final Object statement) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    if (this.returned) {
+                        throw new SQLException("Connection already returned to the pool");
+                    }
+                    return this.proxy;
+                case "getStatement":
+                    if (statement != null) {
+                        return statement;
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    this.pooled.broken = true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + target;
+                default:
+                    break;
+            }
+            if (this.returned && !method.getName().equals("close")) {
+                throw new SQLException("Connection already returned to the pool");
+            }
+            final Object result = call(this.pooled, target, method, args);
+            if (method.getName().equals("close")) {
+                synchronized (this.opened) {
+                    this.opened.remove(target);
+                }
+            }
+            final Class<?> type = method.getReturnType();
+            if (result == null || !WRAPPED_TYPES.contains(type)) {
+                return result;
+            }
+            if (result instanceof Statement || result instanceof ResultSet) {
+                synchronized (this.opened) {
+                    this.opened.add((AutoCloseable) result);
+                }
+            }
+            final Object owner = target instanceof Statement ? proxy : statement;
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                    (wrapper, wrapperMethod, wrapperArgs) -> forward(wrapper, result, wrapperMethod, wrapperArgs, owner));
+        }
+
+        private PreparedStatement prepare(final Method method,
+                                          final String sql) throws Throwable {
+            PreparedStatement statement = this.pooled.statements.remove(sql);
+            if (statement == null) {
+                statement = (PreparedStatement) call(this.pooled, this.pooled.connection, method, new Object[] { sql });
+            }
+            final CachedStatement cached = new CachedStatement(this, sql, statement);
+            this.statements.add(cached);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, cached);
+        }
+
+        /**
+         * Keeps the statement for the next loan, cleared of its parameters and batch
+         */
+        private synchronized void returnStatement(final CachedStatement cached) {
+            if (cached.closed) {
+                return;
+            }
+            cached.closed = true;
+            this.statements.remove(cached);
+            if (this.pooled.broken || cached.changed) {
+                closeQuietly(cached.statement);
+                return;
+            }
+            try {
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+            } catch (final SQLException e) {
+                closeQuietly(cached.statement);
+                return;
+            }
+            final PreparedStatement previous = this.pooled.statements.put(cached.sql, cached.statement);
+            if (previous != null) {
+                closeQuietly(previous);
+            }
+        }
+    }
+
+    /**
+     * A prepared statement handed out by a loan, closing it keeps it with its connection
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final Lease lease;
+        private final String sql;
+        private final PreparedStatement statement;
+        private volatile boolean closed;
+        private volatile boolean changed;
+
+        CachedStatement(final Lease lease,
+                        final String sql,
+                        final PreparedStatement statement) {
+            this.lease = lease;
+            this.sql = sql;
+            this.statement = statement;
+            this.closed = false;
+            this.changed = false;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    this.lease.returnStatement(this);
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + this.statement;
+                default:
+                    break;
+            }
+            if (this.closed) {
+                throw new SQLException("Statement already closed");
+            }
+            if (STATEMENT_SETTINGS.contains(method.getName())) {
+                this.changed = true;
+            }
+            return this.lease.forward(proxy, this.statement, method, args, null);
+        }
+    }
+}
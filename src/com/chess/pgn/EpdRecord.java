@@ -0,0 +1,104 @@
+package com.chess.pgn;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class holds one line of a FEN or EPD file: the position as a full FEN string, plus the
+ * EPD operations such as {@code id "name";} that follow it. EPD positions carry no move counters,
+ * so "0 1" is added to them.
+ */
+public final class EpdRecord {
+
+    private final String fen;
+    private final Map<String, String> operations;
+
+    private EpdRecord(final String fen,
+                      final Map<String, String> operations) {
+        this.fen = fen;
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * @param line is a FEN string, or an EPD line
+     * @return the record
+     * @throws IllegalArgumentException if the line has fewer than the four position fields
+     */
+    public static EpdRecord parse(final String line) {
+        final String[] fields = line.trim().split("\\s+", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN/EPD " + line);
+        }
+        final String position = fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+        final String rest = fields.length == 5 ? fields[4].trim() : "";
+        final String[] counters = rest.split("\\s+", 3);
+        if (counters.length >= 2 && isNumber(counters[0]) && isNumber(counters[1])) {
+            return new EpdRecord(position + " " + counters[0] + " " + counters[1],
+                    parseOperations(counters.length == 3 ? counters[2] : ""));
+        }
+        return new EpdRecord(position + " 0 1", parseOperations(rest));
+    }
+
+    /**
+     * @return the position as a FEN string with move counters
+     */
+    public String getFen() {
+        return this.fen;
+    }
+
+    /**
+     * @param opcode is an EPD opcode such as "id" or "bm"
+     * @return the operand of the operation without quotes, or null if the line has no such operation
+     */
+    public String getOperation(final String opcode) {
+        return this.operations.get(opcode);
+    }
+
+    /**
+     * @return the operand of the "id" operation, or null
+     */
+    public String getId() {
+        return getOperation("id");
+    }
+
+    private static Map<String, String> parseOperations(final String text) {
+        final Map<String, String> operations = new LinkedHashMap<>();
+        int i = 0;
+        while (i < text.length()) {
+            // Semicolons inside a quoted operand do not end the operation
+            int end = i;
+            boolean quoted = false;
+            while (end < text.length() && (quoted || text.charAt(end) != ';')) {
+                if (text.charAt(end) == '"') {
+                    quoted = !quoted;
+                }
+                end++;
+            }
+            final String operation = text.substring(i, end).trim();
+            if (!operation.isEmpty()) {
+                final int space = operation.indexOf(' ');
+                final String opcode = space < 0 ? operation : operation.substring(0, space);
+                String operand = space < 0 ? "" : operation.substring(space + 1).trim();
+                if (operand.length() >= 2 && operand.startsWith("\"") && operand.endsWith("\"")) {
+                    operand = operand.substring(1, operand.length() - 1);
+                }
+                operations.put(opcode, operand);
+            }
+            i = end + 1;
+        }
+        return operations;
+    }
+
+    private static boolean isNumber(final String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
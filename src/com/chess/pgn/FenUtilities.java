@@ -187,7 +187,7 @@ public class FenUtilities {
     }
 
     private static String calculateCurrentPlayerText(final Board board) {
-        return board.getCurrentPlayer().toString().substring(0, 1).toLowerCase();
+        return board.getCurrentPlayer().getAlliance().isWhite() ? "w" : "b";
     }
 
 }
\ No newline at end of file
@@ -21,6 +21,10 @@ public abstract class Game implements Playable {
         return this.tags.toString();
     }
 
+    public PGNGameTags getTags() {
+        return this.tags;
+    }
+
     public List<String> getMoves() {
         return this.moves;
     }
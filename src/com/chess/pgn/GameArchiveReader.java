@@ -0,0 +1,206 @@
+package com.chess.pgn;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a game archive written by {@link GameArchiveWriter}. A game is found by its id through the
+ * block index, and whole blocks can be read from several threads at once, with or without their tags.
+ */
+public final class GameArchiveReader implements Closeable {
+
+    private static final int BLOCK_HEADER_BYTES = 16;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int blockGames;
+    private final int gameCount;
+    private final long[] blockOffsets;
+    // The last block read by readGame, games are often read one after another
+    private List<ArchivedGame> cachedBlock;
+    private int cachedBlockIndex;
+
+    public GameArchiveReader(final File archiveFile) throws IOException {
+        this.file = new RandomAccessFile(archiveFile, "r");
+        this.channel = this.file.getChannel();
+        try {
+            final ByteBuffer header = read(0, 8);
+            if (header.getInt() != GameArchiveWriter.MAGIC) {
+                throw new IOException(archiveFile + " is not a game archive");
+            }
+            this.blockGames = header.getInt();
+            final long indexOffset = read(this.channel.size() - 8, 8).getLong();
+            final ByteBuffer counts = read(indexOffset, 8);
+            this.gameCount = counts.getInt();
+            this.blockOffsets = new long[counts.getInt()];
+            final ByteBuffer offsets = read(indexOffset + 8, this.blockOffsets.length * 8);
+            for (int i = 0; i < this.blockOffsets.length; i++) {
+                this.blockOffsets[i] = offsets.getLong();
+            }
+        } catch (final IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+        this.cachedBlockIndex = -1;
+    }
+
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    public int getBlockCount() {
+        return this.blockOffsets.length;
+    }
+
+    /**
+     * @param id is the game's id, from 0 to the game count
+     * @return the game with its tags
+     */
+    public synchronized ArchivedGame readGame(final int id) throws IOException {
+        if (id < 0 || id >= this.gameCount) {
+            throw new IndexOutOfBoundsException("No game " + id + " among " + this.gameCount);
+        }
+        final int block = id / this.blockGames;
+        if (block != this.cachedBlockIndex) {
+            this.cachedBlock = readBlock(block, true);
+            this.cachedBlockIndex = block;
+        }
+        return this.cachedBlock.get(id - block * this.blockGames);
+    }
+
+    /**
+     * Reads every game in id order, a block at a time
+     * @param withTags reads the tags too, without them the games have empty tags
+     */
+    public void forEach(final boolean withTags,
+                        final Consumer<ArchivedGame> gameHandler) throws IOException {
+        for (int block = 0; block < this.blockOffsets.length; block++) {
+            readBlock(block, withTags).forEach(gameHandler);
+        }
+    }
+
+    /**
+     * Reads the games of a block, which may be done from several threads at once
+     * @param withTags reads the tags too, without them the games have empty tags
+     */
+    public List<ArchivedGame> readBlock(final int block,
+                                        final boolean withTags) throws IOException {
+        final ByteBuffer header = read(this.blockOffsets[block], BLOCK_HEADER_BYTES);
+        final int movesLength = header.getInt();
+        final int movesRawLength = header.getInt();
+        final int tagsLength = header.getInt();
+        final int tagsRawLength = header.getInt();
+        final long movesOffset = this.blockOffsets[block] + BLOCK_HEADER_BYTES;
+        final byte[] moves = inflate(read(movesOffset, movesLength), movesRawLength);
+        final DataInputStream tags = withTags ?
+                new DataInputStream(new ByteArrayInputStream(inflate(read(movesOffset + movesLength, tagsLength), tagsRawLength))) :
+                null;
+        final int firstId = block * this.blockGames;
+        final int games = Math.min(this.blockGames, this.gameCount - firstId);
+        final List<ArchivedGame> archivedGames = new ArrayList<>(games);
+        final int[] position = { 0 };
+        for (int i = 0; i < games; i++) {
+            final int[] moveIndices = new int[readVarint(moves, position)];
+            final String result = GameArchiveWriter.RESULTS[moves[position[0]++]];
+            for (int ply = 0; ply < moveIndices.length; ply++) {
+                int index = moves[position[0]++] & 0xFF;
+                if (index == GameArchiveWriter.ESCAPE_INDEX) {
+                    index += moves[position[0]++] & 0xFF;
+                }
+                moveIndices[ply] = index;
+            }
+            archivedGames.add(new ArchivedGame(firstId + i, withTags ? readTags(tags) : Collections.emptyMap(),
+                    result, moveIndices));
+        }
+        return archivedGames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    private static Map<String, String> readTags(final DataInputStream tags) throws IOException {
+        int count = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = tags.readUnsignedByte();
+            count |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        final Map<String, String> gameTags = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            gameTags.put(tags.readUTF(), tags.readUTF());
+        }
+        return Collections.unmodifiableMap(gameTags);
+    }
+
+    private static int readVarint(final byte[] bytes,
+                                  final int[] position) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = bytes[position[0]++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static byte[] inflate(final ByteBuffer deflated,
+                                  final int rawLength) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated.array(), deflated.position(), deflated.remaining());
+            final byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                final int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Damaged game archive block");
+            }
+            return raw;
+        } catch (final DataFormatException e) {
+            throw new IOException("Damaged game archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads bytes at an offset without moving the file pointer, so threads can read at once
+     */
+    private ByteBuffer read(final long offset,
+                            final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Game archive ends before offset " + (offset + length));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
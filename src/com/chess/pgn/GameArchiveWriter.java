@@ -0,0 +1,251 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes games to a game archive, a compact binary file of games numbered from 0 in the order written.
+ *
+ * Every move is stored as its index in the legal moves generated for the position it is played in,
+ * one byte per ply, so the archive is tied to the move generator's order. Games are grouped in blocks
+ * that are deflated on their own: the moves of the block first and its tag pairs after them, so a
+ * reader that only needs the moves does not inflate the tags. An index of the block offsets at the
+ * end of the file lets a reader seek to any game.
+ *
+ * Layout: magic, games per block, the blocks, then the game count, block count and block offsets,
+ * and finally the offset of that index. A block is four ints, the deflated and inflated lengths of
+ * its moves and of its tags, followed by the deflated bytes. The moves hold a varint ply count,
+ * a result byte and the move indices of every game, the tags a varint tag count and the names and
+ * values of every game.
+ *
+ * Usage: GameArchiveWriter -output games.cga games.pgn|directory...
+ */
+public final class GameArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x43474131;
+    static final int DEFAULT_BLOCK_GAMES = 1024;
+    static final String[] RESULTS = { PgnTokenizer.UNKNOWN_RESULT, PgnTokenizer.WHITE_WINS,
+            PgnTokenizer.BLACK_WINS, PgnTokenizer.DRAW };
+    // A move index of this or more takes a second byte
+    static final int ESCAPE_INDEX = 255;
+
+    private final DataOutputStream output;
+    private final int blockGames;
+    private final ByteArrayOutputStream moves;
+    private final DataOutputStream tags;
+    private final ByteArrayOutputStream tagBytes;
+    private final Deflater deflater;
+    private final List<Long> blockOffsets;
+    private long position;
+    private int gameCount;
+    private int gamesInBlock;
+
+    public GameArchiveWriter(final File archiveFile) throws IOException {
+        this(archiveFile, DEFAULT_BLOCK_GAMES);
+    }
+
+    /**
+     * @param blockGames is the number of games deflated together, more compress better and seek slower
+     */
+    public GameArchiveWriter(final File archiveFile,
+                             final int blockGames) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile), 1 << 16));
+        this.blockGames = Math.max(1, blockGames);
+        this.moves = new ByteArrayOutputStream();
+        this.tagBytes = new ByteArrayOutputStream();
+        this.tags = new DataOutputStream(this.tagBytes);
+        this.deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        this.blockOffsets = new ArrayList<>();
+        this.output.writeInt(MAGIC);
+        this.output.writeInt(this.blockGames);
+        this.position = 8;
+        this.gameCount = 0;
+        this.gamesInBlock = 0;
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        File archiveFile = null;
+        final List<File> pgnFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-output") && i + 1 < args.length) {
+                archiveFile = new File(args[++i]);
+            } else {
+                final File file = new File(args[i]);
+                pgnFiles.addAll(file.isDirectory() ? ParallelPgnReader.listPgnFiles(file) : Arrays.asList(file));
+            }
+        }
+        if (archiveFile == null || pgnFiles.isEmpty()) {
+            System.out.println("Usage: GameArchiveWriter -output games.cga games.pgn|directory...");
+            return;
+        }
+        final long start = System.nanoTime();
+        final int[] skipped = { 0 };
+        try (final GameArchiveWriter writer = new GameArchiveWriter(archiveFile)) {
+            new ParallelPgnReader(Runtime.getRuntime().availableProcessors(), ParallelPgnReader.DEFAULT_CHUNK_BYTES, false)
+                    .read(pgnFiles, game -> {
+                        if (writer.addGame(game) < 0) {
+                            skipped[0]++;
+                        }
+                    }, true);
+            final double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+            System.out.printf("Archived %d games (%d skipped) in %.1f s%n", writer.getGameCount(), skipped[0], seconds);
+        }
+    }
+
+    /**
+     * Adds a game read from PGN, replaying its moves from the standard position
+     * @return the game's id, or -1 if the game is invalid or has a move that is not legal
+     * @throws UncheckedIOException if a full block cannot be written
+     */
+    public int addGame(final Game game) {
+        if (!game.isValid()) {
+            return -1;
+        }
+        final List<Move> moves = new ArrayList<>(game.getMoves().size());
+        Board board = Board.createStandardBoard();
+        for (final String san : game.getMoves()) {
+            final Move move = PGNUtilities.createMove(board, san);
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                return -1;
+            }
+            moves.add(move);
+            board = transition.getToBoard();
+        }
+        try {
+            return addGame(game.getTags().getTags(), toResult(game.getWinner()), moves);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds a game played from the standard position
+     * @param tags are the game's tag pairs
+     * @param result is "1-0", "0-1", "1/2-1/2" or "*"
+     * @param moves are the moves in the order played, each from the board it was played on
+     * @return the game's id
+     */
+    public int addGame(final Map<String, String> tags,
+                       final String result,
+                       final List<Move> moves) throws IOException {
+        final int[] indices = new int[moves.size()];
+        for (int ply = 0; ply < indices.length; ply++) {
+            final Move move = moves.get(ply);
+            indices[ply] = ArchivedGame.indexOf(move.getBoard(), move);
+            if (indices[ply] < 0) {
+                throw new IllegalArgumentException(move + " is not a legal move of its board");
+            }
+        }
+        writeVarint(this.moves, indices.length);
+        this.moves.write(Math.max(0, Arrays.asList(RESULTS).indexOf(result)));
+        for (final int index : indices) {
+            if (index >= ESCAPE_INDEX) {
+                this.moves.write(ESCAPE_INDEX);
+                this.moves.write(index - ESCAPE_INDEX);
+            } else {
+                this.moves.write(index);
+            }
+        }
+        writeVarint(this.tagBytes, tags.size());
+        for (final Map.Entry<String, String> tag : tags.entrySet()) {
+            this.tags.writeUTF(tag.getKey());
+            this.tags.writeUTF(tag.getValue());
+        }
+        if (++this.gamesInBlock == this.blockGames) {
+            writeBlock();
+        }
+        return this.gameCount++;
+    }
+
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    /**
+     * Writes the last block and the index
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.gamesInBlock > 0) {
+                writeBlock();
+            }
+            final long indexOffset = this.position;
+            this.output.writeInt(this.gameCount);
+            this.output.writeInt(this.blockOffsets.size());
+            for (final long blockOffset : this.blockOffsets) {
+                this.output.writeLong(blockOffset);
+            }
+            this.output.writeLong(indexOffset);
+        } finally {
+            this.deflater.end();
+            this.output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        this.blockOffsets.add(this.position);
+        final byte[] deflatedMoves = deflate(this.moves.toByteArray());
+        final byte[] deflatedTags = deflate(this.tagBytes.toByteArray());
+        this.output.writeInt(deflatedMoves.length);
+        this.output.writeInt(this.moves.size());
+        this.output.writeInt(deflatedTags.length);
+        this.output.writeInt(this.tagBytes.size());
+        this.output.write(deflatedMoves);
+        this.output.write(deflatedTags);
+        this.position += 16 + deflatedMoves.length + deflatedTags.length;
+        this.moves.reset();
+        this.tagBytes.reset();
+        this.gamesInBlock = 0;
+    }
+
+    private byte[] deflate(final byte[] bytes) {
+        this.deflater.reset();
+        this.deflater.setInput(bytes);
+        this.deflater.finish();
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        final byte[] buffer = new byte[1 << 16];
+        while (!this.deflater.finished()) {
+            deflated.write(buffer, 0, this.deflater.deflate(buffer));
+        }
+        return deflated.toByteArray();
+    }
+
+    private static String toResult(final String winner) {
+        switch (winner) {
+            case "White":
+                return PgnTokenizer.WHITE_WINS;
+            case "Black":
+                return PgnTokenizer.BLACK_WINS;
+            case "Tie":
+                return PgnTokenizer.DRAW;
+            default:
+                return PgnTokenizer.UNKNOWN_RESULT;
+        }
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out,
+                                    int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,53 @@
+package com.chess.pgn;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hands out Game ids in blocks taken from the game_id_seq sequence, one round trip per block instead
+ * of a SELECT MAX(ID) per game. Writers on other connections take other blocks, so ids never clash.
+ * The unused part of a block is lost when the program ends, which leaves gaps in the ids.
+ */
+final class GameIds {
+
+    // The sequence's increment, every nextval reserves this many ids
+    static final int BLOCK_SIZE = 1000;
+
+    private long next;
+    private long end;
+
+    GameIds() {
+        this.next = 0;
+        this.end = 0;
+    }
+
+    /**
+     * Creates the sequence, starting past the largest id of the Game table when it is new
+     */
+    static void createSequence(final Connection connection) throws SQLException {
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS game_id_seq INCREMENT BY " + BLOCK_SIZE + ";");
+            // A sequence never used has is_called false, games stored before it existed keep their ids
+            statement.execute("SELECT setval('game_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM Game), false) " +
+                    "FROM game_id_seq WHERE NOT is_called;");
+        }
+    }
+
+    /**
+     * @param connection takes a new block when the current one is used up
+     * @return the next id
+     */
+    synchronized int next(final Connection connection) throws SQLException {
+        if (this.next == this.end) {
+            try (final Statement statement = connection.createStatement();
+                 final ResultSet resultSet = statement.executeQuery("SELECT nextval('game_id_seq');")) {
+                resultSet.next();
+                this.next = resultSet.getLong(1);
+                this.end = this.next + BLOCK_SIZE;
+            }
+        }
+        return Math.toIntExact(this.next++);
+    }
+}
@@ -2,44 +2,54 @@ package com.chess.pgn;
 
 import java.sql.*;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
 import com.chess.engine.player.Player;
+import com.chess.uci.UciNotation;
 
 public class MySqlGamePersistence implements PGNPersistence {
 
-    private final Connection dbConnection;
+    private final GameIds gameIds;
 
     private static MySqlGamePersistence INSTANCE = new MySqlGamePersistence();
 
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/chess";
-    private static final String USER = "postgres";
-    private static final String PASS = "andersen23";
     //private static final String NEXT_BEST_MOVE_QUERY =
     //        "SELECT SUBSTR(g1.moves, LENGTH('%s') + %d, SUBSTRING(STRPOS(g1.moves, LENGTH('%s') + %d, LENGTH(g1.moves)), ',') - 1), " +
     //                "COUNT(*) FROM game g1 WHERE g1.moves LIKE '%s%%' AND (outcome = '%s') GROUP BY substr(g1.moves, LENGTH('%s') + %d, " +
     //                "INSTR(substr(g1.moves, LENGTH('%s') + %d, LENGTH(g1.moves)), ',') - 1) ORDER BY 2 DESC";
-    private static final String NEXT_BEST_MOVE_QUERY =
-            "SELECT (regexp_split_to_array(moves, ',\\s*'))[?] as first_moves, count(*)\n" +
-                    "    FROM game\n" +
-                    "    WHERE (regexp_split_to_array(moves, ',\\s*'))[:?] = cast(? as text[]) AND ((outcome = ?) OR (outcome = 'Tie'))\n" +
-                    "    GROUP by first_moves ORDER BY count DESC;";
-
+    static final String GAME_TABLE_DDL =
+            "CREATE TABLE IF NOT EXISTS Game(id int primary key, outcome varchar(10), moves varchar(3072));";
+    static final String POSITION_MOVES_TABLE_DDL =
+            "CREATE TABLE IF NOT EXISTS position_moves(position_key bigint, move varchar(5), " +
+                    "games int, white_wins int, draws int, black_wins int, PRIMARY KEY(position_key, move));";
+    private static final int REBUILD_BATCH_GAMES = 1000;
+    private static final String INSERT_GAME = "INSERT INTO Game(id, outcome, moves) VALUES(?, ?, ?);";
+    // Games won by the side to move or drawn, as the move picked by the old move prefix query
+    private static final String NEXT_BEST_WHITE_MOVE_QUERY =
+            "SELECT move, white_wins + draws FROM position_moves WHERE position_key = ? ORDER BY 2 DESC, games DESC LIMIT 1;";
+    private static final String NEXT_BEST_BLACK_MOVE_QUERY =
+            "SELECT move, black_wins + draws FROM position_moves WHERE position_key = ? ORDER BY 2 DESC, games DESC LIMIT 1;";
 
     private MySqlGamePersistence() {
-        this.dbConnection = createDBConnection();
+        this.gameIds = new GameIds();
         createGameTable();
+        createPositionMovesTable();
         //createIndex("outcome", "OutcomeIndex");
         //createIndex("moves", "MoveIndex");
 //        createOutcomeIndex();
 //        createMovesIndex();
     }
 
-    private static Connection createDBConnection() {
+    /**
+     * @return a connection of the shared pool, closing it hands it back
+     * @see ConnectionPool#get()
+     */
+    static Connection createDBConnection() {
         try {
-            return DriverManager.getConnection(DB_URL, USER, PASS);
+            return ConnectionPool.get().getConnection();
         }
         catch (Exception e) {
             throw new RuntimeException(e);
@@ -62,36 +72,26 @@ public class MySqlGamePersistence implements PGNPersistence {
         return queryBestMove(board, player, gameText);
     }
 
+    /**
+     * Looks the position up by its key, so the move is found whichever move order reached the position.
+     * The game text is not needed any more.
+     */
     private Move queryBestMove(final Board board,
                                final Player player,
                                final String gameText) {
 
-        String bestMove = "";
+        String bestMove = null;
         String count = "0";
-        try {
-
-            List<String> items = Arrays.asList(gameText.split("\\s*,\\s*"));
-            final PreparedStatement gameStatement = dbConnection.prepareStatement(NEXT_BEST_MOVE_QUERY);
-            gameStatement.setInt(1, items.size() + 1);
-            gameStatement.setInt(2, items.size());
-
-            Array array = dbConnection.createArrayOf("VARCHAR", items.toArray());
-            gameStatement.setArray(3, array);
-
-
-            String plyr = player.getAlliance().name().toLowerCase();
-            plyr = plyr.substring(0,1).toUpperCase() + plyr.substring(1).toLowerCase();
-
-            gameStatement.setString(4, plyr);
-
-            System.out.println(gameStatement);
-            final ResultSet rs2 = gameStatement.executeQuery();
-            // TODO change the move picking algorithm
-            if(rs2.next()) {
-                bestMove = rs2.getString(1);
-                count = rs2.getString(2);
+        final String query = player.getAlliance().isWhite() ? NEXT_BEST_WHITE_MOVE_QUERY : NEXT_BEST_BLACK_MOVE_QUERY;
+        try (final Connection connection = createDBConnection();
+             final PreparedStatement gameStatement = connection.prepareStatement(query)) {
+            gameStatement.setLong(1, board.getZobristHash());
+            try (final ResultSet rs2 = gameStatement.executeQuery()) {
+                if (rs2.next()) {
+                    bestMove = rs2.getString(1);
+                    count = rs2.getString(2);
+                }
             }
-            gameStatement.close();
         }
         catch (final SQLException e) {
             e.printStackTrace();
@@ -102,34 +102,84 @@ public class MySqlGamePersistence implements PGNPersistence {
             return Move.NULL_MOVE;
         }
 
-        return PGNUtilities.createMove(board, bestMove);
+        return UciNotation.fromUci(board, bestMove);
     }
 
     private void createGameTable() {
-        try {
-            final Statement statement = this.dbConnection.createStatement();
-            statement.execute("CREATE TABLE IF NOT EXISTS Game(id int primary key, outcome varchar(10), moves varchar(3072));");
-            statement.close();
+        try (final Connection connection = createDBConnection();
+             final Statement statement = connection.createStatement()) {
+            statement.execute(GAME_TABLE_DDL);
+            GameIds.createSequence(connection);
+        }
+        catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Holds the results of every move played from every position of the first plies of the games,
+     * keyed by the position's Zobrist key. The keys depend on the key table, see Zobrist, so the
+     * table has to be rebuilt when the key table changes.
+     */
+    private void createPositionMovesTable() {
+        try (final Connection connection = createDBConnection();
+             final Statement statement = connection.createStatement()) {
+            statement.execute(POSITION_MOVES_TABLE_DDL);
+        }
+        catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Counts the games already in the Game table into position_moves, for tables created before it existed
+     */
+    public void rebuildPositionMoves() {
+        int count = 0;
+        final PositionMoveBatch batch = new PositionMoveBatch();
+        try (final Connection connection = createDBConnection()) {
+            try (final Statement clear = connection.createStatement()) {
+                clear.execute("TRUNCATE position_moves;");
+            }
+            // A cursor is only used outside autocommit, without one the driver reads every row at once.
+            // The pool restores autocommit when the connection goes back.
+            connection.setAutoCommit(false);
+            try (final Statement gameStatement = connection.createStatement()) {
+                gameStatement.setFetchSize(1000);
+                try (final ResultSet rs = gameStatement.executeQuery("SELECT outcome, moves FROM Game;")) {
+                    while (rs.next()) {
+                        final String moves = rs.getString(2);
+                        batch.addGame(rs.getString(1), moves == null || moves.isEmpty() ?
+                                Collections.emptyList() : Arrays.asList(moves.split("\\s*,\\s*")));
+                        if (++count % REBUILD_BATCH_GAMES == 0) {
+                            batch.flush(connection);
+                        }
+                    }
+                }
+            }
+            batch.flush(connection);
+            connection.commit();
         }
         catch (final SQLException e) {
             e.printStackTrace();
+            return;
         }
+        System.out.println("Rebuilt position_moves from " + count + " games");
     }
 
     private void createIndex(final String columnName,
                              final String indexName) {
-        try {
-            final String sqlString = "SELECT * FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_CATALOG = 'def' AND " +
-                    "                 TABLE_SCHEMA = DATABASE() AND TABLE_NAME = \"game\" AND INDEX_NAME = \"" +indexName+"\"";
-            final Statement gameStatement = this.dbConnection.createStatement();
+        final String sqlString = "SELECT * FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_CATALOG = 'def' AND " +
+                "                 TABLE_SCHEMA = DATABASE() AND TABLE_NAME = \"game\" AND INDEX_NAME = \"" +indexName+"\"";
+        try (final Connection connection = createDBConnection();
+             final Statement gameStatement = connection.createStatement()) {
             gameStatement.execute(sqlString);
             final ResultSet resultSet = gameStatement.getResultSet();
             if(!resultSet.isBeforeFirst() ) {
-                final Statement indexStatement = this.dbConnection.createStatement();
-                indexStatement.execute("CREATE INDEX " +indexName+ " on Game(" +columnName+ ");\n");
-                indexStatement.close();
+                try (final Statement indexStatement = connection.createStatement()) {
+                    indexStatement.execute("CREATE INDEX " +indexName+ " on Game(" +columnName+ ");\n");
+                }
             }
-            gameStatement.close();
         }
         catch (final SQLException e) {
             System.out.println("CREATE INDEX " +indexName+ " on Game(" +columnName+ ");\n");
@@ -140,15 +190,12 @@ public class MySqlGamePersistence implements PGNPersistence {
 
     public int getMaxGameRow() {
         int maxId = 0;
-        try {
-            final String sqlString = "SELECT MAX(ID) FROM Game";
-            final Statement gameStatement = this.dbConnection.createStatement();
-            gameStatement.execute(sqlString);
-            final ResultSet rs2 = gameStatement.getResultSet();
+        try (final Connection connection = createDBConnection();
+             final Statement gameStatement = connection.createStatement();
+             final ResultSet rs2 = gameStatement.executeQuery("SELECT MAX(ID) FROM Game")) {
             if(rs2.next()) {
                 maxId = rs2.getInt(1);
             }
-            gameStatement.close();
         }
         catch (final SQLException e) {
             e.printStackTrace();
@@ -157,14 +204,15 @@ public class MySqlGamePersistence implements PGNPersistence {
     }
 
     private void executePersist(final Game game) {
-        try {
-            final String gameSqlString = "INSERT INTO Game(id, outcome, moves) VALUES(?, ?, ?);";
-            final PreparedStatement gameStatement = this.dbConnection.prepareStatement(gameSqlString);
-            gameStatement.setInt(1, getMaxGameRow() + 1);
+        try (final Connection connection = createDBConnection();
+             final PreparedStatement gameStatement = connection.prepareStatement(INSERT_GAME)) {
+            gameStatement.setInt(1, this.gameIds.next(connection));
             gameStatement.setString(2, game.getWinner());
             gameStatement.setString(3, game.getMoves().toString().replaceAll("\\[", "").replaceAll("\\]", ""));
             gameStatement.executeUpdate();
-            gameStatement.close();
+            final PositionMoveBatch batch = new PositionMoveBatch();
+            batch.addGame(game.getWinner(), game.getMoves());
+            batch.flush(connection);
         }
         catch (final SQLException e) {
             e.printStackTrace();
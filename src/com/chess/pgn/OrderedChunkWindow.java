@@ -0,0 +1,60 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the work of PGN chunks on a pool and hands the results on, on the submitting thread, in the
+ * order the chunks were submitted. At most the window of chunks is queued, running or waiting to be
+ * handed on, so a slow output holds back the reading instead of filling memory.
+ */
+final class OrderedChunkWindow<T> {
+
+    /**
+     * Takes the results in submission order
+     */
+    interface Output<T> {
+
+        void accept(T result) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final int window;
+    private final Output<T> output;
+    private final ArrayDeque<Future<T>> pending;
+
+    OrderedChunkWindow(final ExecutorService pool,
+                       final int window,
+                       final Output<T> output) {
+        this.pool = pool;
+        this.window = Math.max(1, window);
+        this.output = output;
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Queues the work of a chunk, then hands on what is finished at the head, waiting for the head
+     * once the window is full
+     * @throws ExecutionException if the work of a chunk handed on failed
+     */
+    void submit(final Callable<T> work) throws IOException, InterruptedException, ExecutionException {
+        this.pending.add(this.pool.submit(work));
+        while (!this.pending.isEmpty() && (this.pending.peek().isDone() || this.pending.size() >= this.window)) {
+            this.output.accept(this.pending.poll().get());
+        }
+    }
+
+    /**
+     * Waits for and hands on the results of every chunk still pending
+     * @throws ExecutionException if the work of a chunk failed
+     */
+    void finish() throws IOException, InterruptedException, ExecutionException {
+        while (!this.pending.isEmpty()) {
+            this.output.accept(this.pending.poll().get());
+        }
+    }
+}
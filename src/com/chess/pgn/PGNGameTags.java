@@ -1,6 +1,6 @@
 package com.chess.pgn;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableMap;
@@ -13,6 +13,17 @@ public class PGNGameTags {
         this.gameTags = ImmutableMap.copyOf(builder.gameTags);
     }
 
+    public Map<String, String> getTags() {
+        return this.gameTags;
+    }
+
+    /**
+     * @return the tag's value, or null if the game does not have the tag
+     */
+    public String getTag(final String name) {
+        return this.gameTags.get(name);
+    }
+
     @Override
     public String toString() {
         return this.gameTags.toString();
@@ -23,7 +34,7 @@ public class PGNGameTags {
         final Map<String,String> gameTags;
 
         public TagsBuilder() {
-            this.gameTags = new HashMap<>();
+            this.gameTags = new LinkedHashMap<>();
         }
 
         public TagsBuilder addTag(final String tagKey,
@@ -1,75 +1,100 @@
 package com.chess.pgn;
 
 import com.chess.engine.board.Board;
-import com.chess.engine.board.BoardUtils;
 import com.chess.engine.board.Move;
 import com.chess.gui.Table.MoveLog;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 
 import java.io.*;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
-
-import static com.chess.engine.board.Move.MoveFactory;
+import java.util.zip.GZIPInputStream;
 
 public class PGNUtilities {
 
-    private static final Pattern PGN_PATTERN = Pattern.compile("\\[(\\w+)\\s+\"(.*?)\"\\]$");
-    private static final Pattern KING_SIDE_CASTLE = Pattern.compile("O-O#?\\+?");
-    private static final Pattern QUEEN_SIDE_CASTLE = Pattern.compile("O-O-O#?\\+?");
-    private static final Pattern PLAIN_PAWN_MOVE = Pattern.compile("^([a-h][0-8])(\\+)?(#)?$");
-    private static final Pattern PAWN_ATTACK_MOVE = Pattern.compile("(^[a-h])(x)([a-h][0-8])(\\+)?(#)?$");
-    private static final Pattern PLAIN_MAJOR_MOVE = Pattern.compile("^(B|N|R|Q|K)([a-h]|[1-8])?([a-h][0-8])(\\+)?(#)?$");
-    private static final Pattern MAJOR_ATTACK_MOVE = Pattern.compile("^(B|N|R|Q|K)([a-h]|[1-8])?(x)([a-h][0-8])(\\+)?(#)?$");
-    private static final Pattern PLAIN_PAWN_PROMOTION_MOVE = Pattern.compile("(.*?)=(.*?)");
-    private static final Pattern ATTACK_PAWN_PROMOTION_MOVE = Pattern.compile("(.*?)x(.*?)=(.*?)");
+    private static final int PERSIST_BATCH_GAMES = 500;
+    private static final int COMPRESSED_BUFFER_BYTES = 1 << 20;
 
     private PGNUtilities() {
         throw new RuntimeException("Not Instantiable!");
     }
 
+    /**
+     * Imports the games of a PGN file in batches, resuming after the games imported by an earlier call
+     * @see BulkGameImporter
+     */
     public static void persistPGNFile(final File pgnFile) throws IOException {
+        try (final Connection connection = MySqlGamePersistence.createDBConnection()) {
+            final long count = new BulkGameImporter(connection, PERSIST_BATCH_GAMES).importFile(pgnFile);
+            System.out.println("Finished building book from pgn file: " + pgnFile + " Parsed " + count + " games");
+        } catch (final SQLException e) {
+            throw new IOException("Cannot import " + pgnFile, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import of " + pgnFile + " interrupted");
+        }
+    }
 
-        int count = 0;
-        int validCount = 0;
-
-        try (final BufferedReader br = new BufferedReader(new FileReader(pgnFile))) {
-            String line;
-            PGNGameTags.TagsBuilder tagsBuilder = new PGNGameTags.TagsBuilder();
-            StringBuilder gameTextBuilder = new StringBuilder();
-            while ((line = br.readLine()) != null) {
-                if (!line.isEmpty()) {
-                    if (isTag(line)) {
-                        final Matcher matcher = PGN_PATTERN.matcher(line);
-                        if (matcher.find()) {
-                            tagsBuilder.addTag(matcher.group(1), matcher.group(2));
-                        }
-                    } else if (isEndOfGame(line)) {
-                        final String[] ending = line.split(" ");
-                        final String outcome = ending[ending.length - 1];
-                        gameTextBuilder.append(line.replace(outcome, "")).append(" ");
-                        final String gameText = gameTextBuilder.toString().trim();
-                        if (!gameText.isEmpty() && gameText.length() > 80) {
-                            final Game game = GameFactory.createGame(tagsBuilder.build(), gameText, outcome);
-                            System.out.println("(" + (++count) + ") Finished parsing " + game + " count = " + (++count));
-                            if(game.isValid()) {
-                                MySqlGamePersistence.get().persistGame(game);
-                                validCount++;
-                            }
-                        }
-                        gameTextBuilder = new StringBuilder();
-                        tagsBuilder = new PGNGameTags.TagsBuilder();
-                    } else {
-                        gameTextBuilder.append(line).append(" ");
-                    }
-                }
+    /**
+     * Reads the games of a PGN file one at a time, so only one game is held in memory
+     * @param pgnFile is the PGN file
+     * @param gameHandler is called with every game read that has moves
+     * @return the number of games read
+     * @throws IOException if the file cannot be read
+     * @see PgnTokenizer
+     */
+    public static int readPGNFile(final File pgnFile,
+                                  final Consumer<Game> gameHandler) throws IOException {
+        final PgnGameCollector collector = new PgnGameCollector(gameHandler);
+        PgnTokenizer.tokenize(pgnFile, collector);
+        return collector.getGameCount();
+    }
+
+    /**
+     * Reads the games of a PGN stream, such as a decompressed archive, one at a time
+     * @return the number of games read
+     */
+    public static int readPGNStream(final InputStream in,
+                                    final Consumer<Game> gameHandler) throws IOException {
+        final PgnGameCollector collector = new PgnGameCollector(gameHandler);
+        PgnTokenizer.tokenize(in, collector);
+        return collector.getGameCount();
+    }
+
+    /**
+     * Opens a PGN file for streaming. Files named .gz or .bz2 are decompressed on a thread of their own
+     * into large buffers, so decoding runs alongside parsing and nothing is written to disk. Gzip files
+     * of several members and bzip2 files of several streams are read whole.
+     */
+    public static InputStream openPGNStream(final File pgnFile) throws IOException {
+        final InputStream in = new FileInputStream(pgnFile);
+        try {
+            final String name = pgnFile.getName().toLowerCase();
+            if (name.endsWith(".gz")) {
+                return new BackgroundInputStream(new GZIPInputStream(in, COMPRESSED_BUFFER_BYTES), "gzip " + pgnFile.getName());
             }
-            br.readLine();
+            if (name.endsWith(".bz2")) {
+                return new BackgroundInputStream(new Bzip2InputStream(new BufferedInputStream(in, COMPRESSED_BUFFER_BYTES)),
+                        "bzip2 " + pgnFile.getName());
+            }
+            return new BufferedInputStream(in, COMPRESSED_BUFFER_BYTES);
+        } catch (final IOException | RuntimeException e) {
+            in.close();
+            throw e;
         }
-        System.out.println("Finished building book from pgn file: " + pgnFile + " Parsed " + count + " games, valid = " + validCount);
+    }
+
+    /**
+     * @return true if the file is read through a decompressor, and so cannot be mapped
+     */
+    public static boolean isCompressed(final File pgnFile) {
+        final String name = pgnFile.getName().toLowerCase();
+        return name.endsWith(".gz") || name.endsWith(".bz2");
     }
 
     public static void writeGameToPGNFile(final File pgnFile,
@@ -86,6 +111,45 @@ public class PGNUtilities {
         }
     }
 
+    /**
+     * Appends a complete game to a PGN file. Games written from several threads do not interleave.
+     * @param pgnFile is the file to append to
+     * @param tags are the tag pairs in the order they are written, without the Result tag
+     * @param startBoard is the board the moves start from
+     * @param moves are the moves of the game
+     * @param result is the PGN result text, such as "1-0"
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized void writeGameToPGNFile(final File pgnFile,
+                                                       final Map<String, String> tags,
+                                                       final Board startBoard,
+                                                       final List<Move> moves,
+                                                       final String result) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<String, String> tag : tags.entrySet()) {
+            builder.append("[").append(tag.getKey()).append(" \"").append(tag.getValue()).append("\"]\n");
+        }
+        builder.append("[Result \"").append(result).append("\"]\n\n");
+        int moveNumber = 1;
+        boolean whiteToMove = startBoard.getCurrentPlayer().getAlliance().isWhite();
+        if (!whiteToMove && !moves.isEmpty()) {
+            builder.append(moveNumber).append("... ");
+        }
+        for (final Move move : moves) {
+            if (whiteToMove) {
+                builder.append(moveNumber).append(". ");
+            } else {
+                moveNumber++;
+            }
+            builder.append(move.toString()).append(" ");
+            whiteToMove = !whiteToMove;
+        }
+        builder.append(result).append("\n\n");
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pgnFile, true)))) {
+            writer.write(builder.toString());
+        }
+    }
+
     private static String calculateEventString() {
         return "[Event \"" +"Black Widow Game"+ "\"]";
     }
@@ -142,15 +206,6 @@ public class PGNUtilities {
         return row.trim().replaceAll("\\s+", " ");
     }
 
-    private static boolean isTag(final String gameText) {
-        return gameText.startsWith("[") && gameText.endsWith("]");
-    }
-
-    private static boolean isEndOfGame(final String gameText) {
-        return gameText.endsWith("1-0") || gameText.endsWith("0-1") ||
-                gameText.endsWith("1/2-1/2") || gameText.endsWith("*");
-    }
-
     private static String removeParenthesis(final String gameText) {
         int parenthesisCounter=0;
         final StringBuilder builder = new StringBuilder();
@@ -168,128 +223,15 @@ public class PGNUtilities {
         return builder.toString();
     }
 
+    /**
+     * @param board is the position the move is played in
+     * @param pgnText is the move in standard algebraic notation
+     * @return the move, or the null move if the text is not a legal move on the board
+     * @see SanParser
+     */
     public static Move createMove(final Board board,
                                   final String pgnText) {
-
-        final Matcher kingSideCastleMatcher = KING_SIDE_CASTLE.matcher(pgnText);
-        final Matcher queenSideCastleMatcher = QUEEN_SIDE_CASTLE.matcher(pgnText);
-        final Matcher plainPawnMatcher = PLAIN_PAWN_MOVE.matcher(pgnText);
-        final Matcher attackPawnMatcher = PAWN_ATTACK_MOVE.matcher(pgnText);
-        final Matcher pawnPromotionMatcher = PLAIN_PAWN_PROMOTION_MOVE.matcher(pgnText);
-        final Matcher attackPawnPromotionMatcher = ATTACK_PAWN_PROMOTION_MOVE.matcher(pgnText);
-        final Matcher plainMajorMatcher = PLAIN_MAJOR_MOVE.matcher(pgnText);
-        final Matcher attackMajorMatcher = MAJOR_ATTACK_MOVE.matcher(pgnText);
-
-        int currentCoordinate;
-        int destinationCoordinate;
-
-        if(kingSideCastleMatcher.matches()) {
-            return extractCastleMove(board, "O-O");
-        } else if (queenSideCastleMatcher.matches()) {
-            return extractCastleMove(board, "O-O-O");
-        } else if(plainPawnMatcher.matches()) {
-            final String destinationSquare = plainPawnMatcher.group(1);
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            currentCoordinate = deriveCurrentCoordinate(board, "P", destinationSquare, "");
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        } else if(attackPawnMatcher.matches()) {
-            final String destinationSquare = attackPawnMatcher.group(3);
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            final String disambiguationFile = attackPawnMatcher.group(1) != null ? attackPawnMatcher.group(1) : "";
-            currentCoordinate = deriveCurrentCoordinate(board, "P", destinationSquare, disambiguationFile);
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        } else if (attackPawnPromotionMatcher.matches()) {
-            final String destinationSquare = attackPawnPromotionMatcher.group(2);
-            final String disambiguationFile = attackPawnPromotionMatcher.group(1) != null ? attackPawnPromotionMatcher.group(1) : "";
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            currentCoordinate = deriveCurrentCoordinate(board, "P", destinationSquare, disambiguationFile);
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        } else if(pawnPromotionMatcher.find()) {
-            final String destinationSquare = pawnPromotionMatcher.group(1);
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            currentCoordinate = deriveCurrentCoordinate(board, "P", destinationSquare, "");
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        } else if (plainMajorMatcher.find()) {
-            final String destinationSquare = plainMajorMatcher.group(3);
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            final String disambiguationFile = plainMajorMatcher.group(2) != null ? plainMajorMatcher.group(2) : "";
-            currentCoordinate = deriveCurrentCoordinate(board, plainMajorMatcher.group(1), destinationSquare, disambiguationFile);
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        } else if(attackMajorMatcher.find()) {
-            final String destinationSquare = attackMajorMatcher.group(4);
-            destinationCoordinate = BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-            final String disambiguationFile = attackMajorMatcher.group(2) != null ? attackMajorMatcher.group(2) : "";
-            currentCoordinate = deriveCurrentCoordinate(board, attackMajorMatcher.group(1), destinationSquare, disambiguationFile);
-            return MoveFactory.createMove(board, currentCoordinate, destinationCoordinate);
-        }
-
-        return MoveFactory.getNullMove();
-
-    }
-
-    private static Move extractCastleMove(final Board board,
-                                          final String castleMove) {
-        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
-            if (move.isCastlingMove() && move.toString().equals(castleMove)) {
-                return move;
-            }
-        }
-        return MoveFactory.getNullMove();
-    }
-
-    private static int deriveCurrentCoordinate(final Board board,
-                                               final String movedPiece,
-                                               final String destinationSquare,
-                                               final String disambiguationFile) throws RuntimeException {
-        final List<Move> currentCandidates = new ArrayList<>();
-        final int destinationCoordinate =  BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
-            if (move.getDestinationCoordinate() == destinationCoordinate && move.getMovedPiece().toString().equals(movedPiece)) {
-                currentCandidates.add(move);
-            }
-        }
-
-        if(currentCandidates.size() == 0) {
-            return -1;
-        }
-
-        return currentCandidates.size() == 1
-                ? currentCandidates.iterator().next().getCurrentCoordinate()
-                : extractFurther(currentCandidates, movedPiece, disambiguationFile);
-
-    }
-
-    private static int extractFurther(final List<Move> candidateMoves,
-                                      final String movedPiece,
-                                      final String disambiguationFile) {
-
-        final List<Move> currentCandidates = new ArrayList<>();
-
-        for(final Move move : candidateMoves) {
-            if(move.getMovedPiece().getPieceType().toString().equals(movedPiece)) {
-                currentCandidates.add(move);
-            }
-        }
-
-        if(currentCandidates.size() == 1) {
-            return currentCandidates.iterator().next().getCurrentCoordinate();
-        }
-
-        final List<Move> candidatesRefined = new ArrayList<>();
-
-        for (final Move move : currentCandidates) {
-            final String pos = BoardUtils.INSTANCE.getPositionAtCoordinate(move.getCurrentCoordinate());
-            if (pos.contains(disambiguationFile)) {
-                candidatesRefined.add(move);
-            }
-        }
-
-        if(candidatesRefined.size() == 1) {
-            return candidatesRefined.iterator().next().getCurrentCoordinate();
-        }
-
-        return -1;
-
+        return SanParser.resolve(board, pgnText);
     }
 
 }
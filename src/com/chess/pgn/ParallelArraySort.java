@@ -0,0 +1,47 @@
+package com.chess.pgn;
+
+/**
+ * Sorts entries kept in parallel arrays in place, so spilling a table of primitives to a sorted
+ * file needs neither boxing nor a second copy of the arrays.
+ */
+public final class ParallelArraySort {
+
+    private ParallelArraySort() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    /**
+     * Entries addressed by their index in the arrays
+     */
+    public interface Entries {
+
+        int compare(int i, int j);
+
+        void swap(int i, int j);
+    }
+
+    /**
+     * Quicksort of the entries from low to high, both included, recursing into the smaller part only
+     */
+    public static void sort(final Entries entries,
+                            int low,
+                            int high) {
+        while (low < high) {
+            entries.swap((low + high) >>> 1, high);
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (entries.compare(i, high) < 0) {
+                    entries.swap(i, store++);
+                }
+            }
+            entries.swap(store, high);
+            if (store - low < high - store) {
+                sort(entries, low, store - 1);
+                low = store + 1;
+            } else {
+                sort(entries, store + 1, high);
+                high = store - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.chess.pgn;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Reads PGN files on a work-stealing pool. Every file is cut into chunks of about the chunk size at
+ * game boundaries, a blank line followed by an [Event tag, and the chunks of all files are parsed,
+ * and validated when asked, in parallel. Games reach the sink in file order, or from the pool's threads
+ * as soon as their chunk is parsed when unordered. A file without [Event tags is read as one chunk.
+ * Boundaries are found without parsing, so a blank line and an [Event tag inside a comment would be
+ * taken for one, which exported PGN does not contain. Plain files are mapped a chunk at a time,
+ * compressed ones are decompressed on a thread of their own and cut into chunks as they stream in.
+ *
+ * Usage: ParallelPgnReader [-threads N] [-chunk MB] [-validate] games.pgn[.gz|.bz2]|directory...
+ */
+public class ParallelPgnReader {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    // Chunks queued per thread, parsed chunks wait here while the sink catches up
+    private static final int CHUNKS_PER_THREAD = 2;
+    private static final int PROBE_BYTES = 1 << 16;
+    // Probes overlap by this much, so a boundary across two probes is seen whole in the second
+    private static final int PROBE_OVERLAP = 64;
+    static final byte[] EVENT_TAG = { '[', 'E', 'v', 'e', 'n', 't' };
+
+    private final int threads;
+    private final int chunkBytes;
+    private final boolean validate;
+
+    /**
+     * @param threads is the number of chunks parsed at the same time
+     * @param chunkBytes is the size files are cut at, the chunks end at the next game
+     * @param validate replays every game and hands on the illegal ones as invalid games
+     */
+    public ParallelPgnReader(final int threads,
+                             final int chunkBytes,
+                             final boolean validate) {
+        this.threads = Math.max(1, threads);
+        this.chunkBytes = Math.max(1, chunkBytes);
+        this.validate = validate;
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkBytes = DEFAULT_CHUNK_BYTES;
+        boolean validate = false;
+        final List<File> pgnFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-chunk") && i + 1 < args.length) {
+                chunkBytes = Integer.parseInt(args[++i]) << 20;
+            } else if (args[i].equals("-validate")) {
+                validate = true;
+            } else {
+                final File file = new File(args[i]);
+                pgnFiles.addAll(file.isDirectory() ? listPgnFiles(file) : Arrays.asList(file));
+            }
+        }
+        if (pgnFiles.isEmpty()) {
+            System.out.println("Usage: ParallelPgnReader [-threads N] [-chunk MB] [-validate] games.pgn[.gz|.bz2]|directory...");
+            return;
+        }
+        final AtomicLong invalid = new AtomicLong();
+        final long start = System.nanoTime();
+        final long games = new ParallelPgnReader(threads, chunkBytes, validate).read(pgnFiles, game -> {
+            if (!game.isValid()) {
+                invalid.incrementAndGet();
+            }
+        }, false);
+        final double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.out.printf("Read %d games (%d invalid) from %d files in %.1f s: %.0f games/s%n",
+                games, invalid.get(), pgnFiles.size(), seconds, games / seconds);
+    }
+
+    /**
+     * @return the .pgn, .pgn.gz and .pgn.bz2 files of a directory, sorted by name
+     */
+    public static List<File> listPgnFiles(final File directory) {
+        final File[] files = directory.listFiles((dir, name) -> {
+            final String lowerName = name.toLowerCase();
+            return lowerName.endsWith(".pgn") || lowerName.endsWith(".pgn.gz") || lowerName.endsWith(".pgn.bz2");
+        });
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Reads the PGN files of a directory, sorted by name
+     */
+    public long readDirectory(final File directory,
+                              final Consumer<Game> sink,
+                              final boolean ordered) throws IOException, InterruptedException {
+        return read(listPgnFiles(directory), sink, ordered);
+    }
+
+    /**
+     * Reads the games of the files
+     * @param sink receives every game, it must be thread-safe when unordered
+     * @param ordered hands the games to the sink on the calling thread in the order of the files
+     * @return the number of games read
+     * @throws IOException if a file cannot be read, no games are handed on after it
+     */
+    public long read(final List<File> pgnFiles,
+                     final Consumer<Game> sink,
+                     final boolean ordered) throws IOException, InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool(this.threads);
+        final int window = CHUNKS_PER_THREAD * this.threads;
+        final AtomicLong games = new AtomicLong();
+        final OrderedChunkWindow<List<Game>> inOrder = new OrderedChunkWindow<>(pool, window,
+                chunk -> handOn(chunk, sink, games));
+        // Unordered chunks are handed on by the tasks, which keep the first failure here
+        final Semaphore queued = new Semaphore(window);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            for (final File pgnFile : pgnFiles) {
+                try (final ChunkSource chunks = PGNUtilities.isCompressed(pgnFile) ?
+                        new StreamChunks(pgnFile) : new MappedChunks(pgnFile)) {
+                    Chunk next;
+                    while (failure.get() == null && (next = chunks.next()) != null) {
+                        final Chunk chunk = next;
+                        if (ordered) {
+                            inOrder.submit(chunk::parse);
+                        } else {
+                            queued.acquire();
+                            pool.execute(() -> {
+                                try {
+                                    handOn(chunk.parse(), sink, games);
+                                } catch (final Throwable t) {
+                                    failure.compareAndSet(null, t);
+                                } finally {
+                                    queued.release();
+                                }
+                            });
+                        }
+                    }
+                }
+            }
+            inOrder.finish();
+            // Every permit is back once the last task is done
+            queued.acquire(window);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Reading PGN failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() instanceof IOException) {
+            throw (IOException) failure.get();
+        }
+        if (failure.get() != null) {
+            throw new IOException("Reading PGN failed", failure.get());
+        }
+        return games.get();
+    }
+
+    private List<Game> parseChunk(final File pgnFile,
+                                  final long start,
+                                  final long end) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(pgnFile, "r");
+             final FileChannel channel = file.getChannel()) {
+            return parseChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+        }
+    }
+
+    private List<Game> parseChunk(final ByteBuffer text) throws IOException {
+        final List<Game> games = new ArrayList<>();
+        PgnTokenizer.tokenize(text, new PgnGameCollector(games::add, this.validate));
+        return games;
+    }
+
+    /**
+     * A part of a file holding whole games, parsed on the pool
+     */
+    private interface Chunk {
+
+        List<Game> parse() throws IOException;
+    }
+
+    /**
+     * Cuts a file into chunks on the reading thread
+     */
+    private interface ChunkSource extends Closeable {
+
+        /**
+         * @return the next chunk, or null at the end of the file
+         */
+        Chunk next() throws IOException;
+    }
+
+    /**
+     * Finds the chunks of a plain file by probing for game starts, each chunk is mapped when parsed
+     */
+    private final class MappedChunks implements ChunkSource {
+
+        private final File pgnFile;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long size;
+        private long start;
+
+        MappedChunks(final File pgnFile) throws IOException {
+            this.pgnFile = pgnFile;
+            this.file = new RandomAccessFile(pgnFile, "r");
+            this.channel = this.file.getChannel();
+            this.size = this.channel.size();
+            this.start = 0;
+        }
+
+        @Override
+        public Chunk next() throws IOException {
+            if (this.start >= this.size) {
+                return null;
+            }
+            final long chunkStart = this.start;
+            final long end = chunkStart + chunkBytes >= this.size ? this.size :
+                    nextGameStart(this.channel, this.size, chunkStart + chunkBytes);
+            if (end - chunkStart > Integer.MAX_VALUE) {
+                throw new IOException("No game boundary in 2 GB of " + this.pgnFile);
+            }
+            this.start = end;
+            return () -> parseChunk(this.pgnFile, chunkStart, end);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.file.close();
+        }
+    }
+
+    /**
+     * Reads the chunks of a compressed file from its decompressed stream
+     */
+    private final class StreamChunks implements ChunkSource {
+
+        private final InputStream in;
+        private final PgnChunker chunker;
+
+        StreamChunks(final File pgnFile) throws IOException {
+            this.in = PGNUtilities.openPGNStream(pgnFile);
+            this.chunker = new PgnChunker(this.in, chunkBytes);
+        }
+
+        @Override
+        public Chunk next() throws IOException {
+            final byte[] text = this.chunker.next();
+            return text == null ? null : () -> parseChunk(ByteBuffer.wrap(text));
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    private static void handOn(final List<Game> chunk,
+                               final Consumer<Game> sink,
+                               final AtomicLong games) {
+        for (final Game game : chunk) {
+            sink.accept(game);
+        }
+        games.addAndGet(chunk.size());
+    }
+
+    /**
+     * @return the offset of the first game starting at or after the offset, or the file size when there is none
+     */
+    static long nextGameStart(final FileChannel channel,
+                              final long size,
+                              final long offset) throws IOException {
+        final ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        long position = Math.max(0, offset - PROBE_OVERLAP);
+        while (position < size) {
+            probe.clear();
+            while (probe.hasRemaining() && channel.read(probe, position + probe.position()) > 0) {
+                // Reads until the probe is full or the file ends
+            }
+            probe.flip();
+            final int limit = probe.limit();
+            for (int i = (int) Math.max(0, offset - position); i + EVENT_TAG.length <= limit; i++) {
+                if (probe.get(i) == '[' && isGameStart(probe, i)) {
+                    return position + i;
+                }
+            }
+            if (position + limit >= size) {
+                break;
+            }
+            position += limit - PROBE_OVERLAP;
+        }
+        return size;
+    }
+
+    /**
+     * @return true if an [Event tag starts at the index after a blank line
+     */
+    static boolean isGameStart(final ByteBuffer probe,
+                               final int index) {
+        for (int i = 1; i < EVENT_TAG.length; i++) {
+            if (probe.get(index + i) != EVENT_TAG[i]) {
+                return false;
+            }
+        }
+        int i = index - 1;
+        if (i < 0 || probe.get(i) != '\n') {
+            return false;
+        }
+        i--;
+        while (i >= 0 && (probe.get(i) == '\r' || probe.get(i) == ' ' || probe.get(i) == '\t')) {
+            i--;
+        }
+        return i >= 0 && probe.get(i) == '\n';
+    }
+}
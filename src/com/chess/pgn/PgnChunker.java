@@ -0,0 +1,75 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Cuts a PGN stream into chunks of whole games, for streams that cannot be mapped such as
+ * decompressed archives. A chunk ends before the last game start, a blank line followed by an [Event
+ * tag, in about the chunk size, and grows past it only for a game longer than the chunk.
+ */
+final class PgnChunker {
+
+    private static final int READ_BYTES = 1 << 16;
+
+    private final InputStream in;
+    private byte[] data;
+    private int fill;
+    private boolean ended;
+
+    PgnChunker(final InputStream in,
+               final int chunkBytes) {
+        this.in = in;
+        this.data = new byte[Math.max(READ_BYTES, chunkBytes)];
+        this.fill = 0;
+        this.ended = false;
+    }
+
+    /**
+     * @return the next chunk, or null at the end of the stream
+     */
+    byte[] next() throws IOException {
+        while (!this.ended) {
+            final int read = this.in.read(this.data, this.fill, Math.min(READ_BYTES, this.data.length - this.fill));
+            if (read < 0) {
+                this.ended = true;
+                break;
+            }
+            this.fill += read;
+            if (this.fill == this.data.length) {
+                final int cut = lastGameStart(this.data, this.fill);
+                if (cut == 0) {
+                    // A single game longer than the chunk
+                    this.data = Arrays.copyOf(this.data, this.data.length * 2);
+                } else {
+                    final byte[] chunk = Arrays.copyOf(this.data, cut);
+                    System.arraycopy(this.data, cut, this.data, 0, this.fill - cut);
+                    this.fill -= cut;
+                    return chunk;
+                }
+            }
+        }
+        if (this.fill == 0) {
+            return null;
+        }
+        final byte[] chunk = Arrays.copyOf(this.data, this.fill);
+        this.fill = 0;
+        return chunk;
+    }
+
+    /**
+     * @return the offset of the last game starting after the first byte, or 0 when there is none
+     */
+    private static int lastGameStart(final byte[] data,
+                                     final int length) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        for (int i = length - ParallelPgnReader.EVENT_TAG.length; i > 0; i--) {
+            if (data[i] == '[' && ParallelPgnReader.isGameStart(buffer, i)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.pgn.PGNGameTags.TagsBuilder;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Builds games from the events of the PGN tokenizer. Games set up from a FEN position keep no moves,
+ * as callers replay the moves from the standard start. Games without moves are left out.
+ * When asked to validate, games whose moves are not all legal are passed on as invalid games.
+ */
+final class PgnGameCollector implements PgnTokenizer.Listener {
+
+    private final Consumer<Game> gameHandler;
+    private final boolean validate;
+    private TagsBuilder tagsBuilder;
+    private ImmutableList.Builder<String> moves;
+    private int moveCount;
+    private boolean setUp;
+    private int gameCount;
+
+    PgnGameCollector(final Consumer<Game> gameHandler) {
+        this(gameHandler, false);
+    }
+
+    PgnGameCollector(final Consumer<Game> gameHandler,
+                     final boolean validate) {
+        this.gameHandler = gameHandler;
+        this.validate = validate;
+        reset();
+    }
+
+    @Override
+    public void tag(final String name, final String value) {
+        this.tagsBuilder.addTag(name, value);
+        if (name.equals("FEN")) {
+            this.setUp = true;
+        }
+    }
+
+    @Override
+    public void move(final String san) {
+        this.moves.add(san);
+        this.moveCount++;
+    }
+
+    @Override
+    public void gameEnd(final String result) {
+        if (this.moveCount > 0) {
+            final List<String> gameMoves = this.setUp ? Collections.<String>emptyList() : this.moves.build();
+            if (this.validate && !isLegal(gameMoves)) {
+                this.gameHandler.accept(new InvalidGame(this.tagsBuilder.build(), String.join(" ", gameMoves), result));
+            } else {
+                this.gameHandler.accept(new ValidGame(this.tagsBuilder.build(), gameMoves, result));
+            }
+            this.gameCount++;
+        }
+        reset();
+    }
+
+    private static boolean isLegal(final List<String> moves) {
+        Board board = Board.createStandardBoard();
+        for (final String san : moves) {
+            final MoveTransition transition;
+            try {
+                final Move move = PGNUtilities.createMove(board, san);
+                transition = board.getCurrentPlayer().makeMove(move);
+            } catch (final RuntimeException e) {
+                // Malformed squares are not found on the board
+                return false;
+            }
+            if (!transition.getMoveStatus().isDone()) {
+                return false;
+            }
+            board = transition.getToBoard();
+        }
+        return true;
+    }
+
+    int getGameCount() {
+        return this.gameCount;
+    }
+
+    private void reset() {
+        this.tagsBuilder = new TagsBuilder();
+        this.moves = ImmutableList.builder();
+        this.moveCount = 0;
+        this.setUp = false;
+    }
+}
@@ -0,0 +1,384 @@
+package com.chess.pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Finds the games of a PGN file without parsing the file, through a sidecar index of the byte offset
+ * and length of every game with its White, Black, Result, Date and ECO tags. The index is written by
+ * one pass of the tokenizer and read back by mapping it, so game N is read by seeking to it and a
+ * filter on a tag tests each distinct value once and then compares numbers.
+ *
+ * Games are numbered from 0 as the PGN readers hand them on, games without moves are not indexed.
+ * The index is kept next to the file, as games.pgn.idx, and is written again when the file's length
+ * or modification time changes.
+ *
+ * Layout: magic, the PGN file's length and modification time, a record per game, then the tag values
+ * and finally the game count and the offset of the tag values. A record is the game's offset and
+ * length and the number of each of its tag values, or -1 when the game does not have the tag.
+ *
+ * Usage: PgnOffsetIndex games.pgn [N | -Tag value]
+ */
+public final class PgnOffsetIndex implements Closeable {
+
+    public static final String[] TAGS = { "White", "Black", "Result", "Date", "ECO" };
+    static final String SIDECAR_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x50474931;
+    private static final int RESULT_TAG = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final int RECORD_BYTES = 12 + 4 * TAGS.length;
+    private static final int TRAILER_BYTES = 12;
+
+    private final File pgnFile;
+    private final RandomAccessFile pgn;
+    private final ByteBuffer records;
+    private final int gameCount;
+    private final String[] values;
+
+    private PgnOffsetIndex(final File pgnFile,
+                           final File indexFile) throws IOException {
+        final MappedByteBuffer index;
+        try (final RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+             final FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(indexFile + " is too large to map");
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (index.limit() < HEADER_BYTES + TRAILER_BYTES || index.getInt(0) != MAGIC) {
+            throw new IOException(indexFile + " is not a PGN index");
+        }
+        this.gameCount = index.getInt(index.limit() - TRAILER_BYTES);
+        final int valuesOffset = (int) index.getLong(index.limit() - 8);
+        index.position(HEADER_BYTES).limit(HEADER_BYTES + this.gameCount * RECORD_BYTES);
+        this.records = index.slice();
+        final byte[] valueBytes = new byte[index.capacity() - TRAILER_BYTES - valuesOffset];
+        index.limit(index.capacity()).position(valuesOffset);
+        index.get(valueBytes);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(valueBytes));
+        this.values = new String[in.readInt()];
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = in.readUTF();
+        }
+        this.pgnFile = pgnFile;
+        this.pgn = new RandomAccessFile(pgnFile, "r");
+    }
+
+    /**
+     * Opens the file's index, writing it first if it is missing or older than the file
+     */
+    public static PgnOffsetIndex open(final File pgnFile) throws IOException {
+        final File indexFile = sidecarFile(pgnFile);
+        if (!isCurrent(pgnFile, indexFile)) {
+            build(pgnFile, indexFile);
+        }
+        return new PgnOffsetIndex(pgnFile, indexFile);
+    }
+
+    /**
+     * @return the index kept next to the PGN file
+     */
+    public static File sidecarFile(final File pgnFile) {
+        return new File(pgnFile.getPath() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Indexes every game of the file in one pass. The index is written to a temporary file first,
+     * so an index that is not complete is never taken for the file's.
+     * @return the number of games indexed
+     */
+    public static int build(final File pgnFile,
+                            final File indexFile) throws IOException {
+        final long length = pgnFile.length();
+        final long modified = pgnFile.lastModified();
+        final File partFile = new File(indexFile.getPath() + ".part");
+        final RecordWriter writer;
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(length);
+            out.writeLong(modified);
+            writer = new RecordWriter(out);
+            PgnTokenizer.tokenize(pgnFile, writer);
+            writer.finish();
+        } catch (final UncheckedIOException e) {
+            partFile.delete();
+            throw e.getCause();
+        } catch (final IOException | RuntimeException e) {
+            partFile.delete();
+            throw e;
+        }
+        Files.move(partFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return writer.gameCount;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2 && !(args.length == 3 && args[1].startsWith("-"))) {
+            System.out.println("Usage: PgnOffsetIndex games.pgn [N | -Tag value]");
+            return;
+        }
+        final long start = System.nanoTime();
+        try (final PgnOffsetIndex index = PgnOffsetIndex.open(new File(args[0]))) {
+            System.out.printf("%d games indexed, opened in %.1f ms%n", index.getGameCount(),
+                    (System.nanoTime() - start) / 1e6);
+            if (args.length == 2) {
+                System.out.println(index.readText(Integer.parseInt(args[1])));
+            } else if (args.length == 3) {
+                final int[] games = index.find(args[1].substring(1), args[2]);
+                for (final int game : games) {
+                    System.out.println(game + " " + index.getTags(game));
+                }
+                System.out.println(games.length + " games found");
+            }
+        }
+    }
+
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    /**
+     * @return the offset of the game's first tag in the PGN file
+     */
+    public long getOffset(final int game) {
+        return this.records.getLong(recordOffset(game));
+    }
+
+    /**
+     * @return the number of bytes from the game's first tag to its result
+     */
+    public int getLength(final int game) {
+        return this.records.getInt(recordOffset(game) + 8);
+    }
+
+    /**
+     * @param tag is one of the indexed tags
+     * @return the game's value of the tag, or null if the game does not have it
+     */
+    public String getTag(final int game,
+                         final String tag) {
+        final int value = this.records.getInt(recordOffset(game) + 12 + 4 * tagIndex(tag));
+        return value < 0 ? null : this.values[value];
+    }
+
+    /**
+     * @return the indexed tags the game has
+     */
+    public Map<String, String> getTags(final int game) {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        for (final String tag : TAGS) {
+            final String value = getTag(game, tag);
+            if (value != null) {
+                tags.put(tag, value);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * @return the numbers of the games whose value of the tag is the value, in ascending order
+     */
+    public int[] find(final String tag,
+                      final String value) {
+        return find(tag, value::equals);
+    }
+
+    /**
+     * Tests every distinct value of the tag once, then the games by the number of their value
+     * @return the numbers of the games whose value of the tag passes the test, in ascending order
+     */
+    public int[] find(final String tag,
+                      final Predicate<String> test) {
+        final int field = 12 + 4 * tagIndex(tag);
+        final boolean[] passes = new boolean[this.values.length];
+        for (int i = 0; i < this.values.length; i++) {
+            passes[i] = test.test(this.values[i]);
+        }
+        int[] games = new int[16];
+        int count = 0;
+        for (int game = 0; game < this.gameCount; game++) {
+            final int value = this.records.getInt(game * RECORD_BYTES + field);
+            if (value >= 0 && passes[value]) {
+                if (count == games.length) {
+                    games = Arrays.copyOf(games, count * 2);
+                }
+                games[count++] = game;
+            }
+        }
+        return Arrays.copyOf(games, count);
+    }
+
+    /**
+     * @return the game's PGN text
+     */
+    public String readText(final int game) throws IOException {
+        return new String(readBytes(game).array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses only the game's own bytes
+     */
+    public Game readGame(final int game) throws IOException {
+        final List<Game> games = new ArrayList<>(1);
+        PgnTokenizer.tokenize(readBytes(game), new PgnGameCollector(games::add));
+        if (games.isEmpty()) {
+            throw new IOException("Game " + game + " is not at its offset in " + this.pgnFile + ", index it again");
+        }
+        return games.get(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.pgn.close();
+    }
+
+    /**
+     * Reads at the game's offset without moving the file pointer, so threads can read at once
+     */
+    private ByteBuffer readBytes(final int game) throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate(getLength(game));
+        final FileChannel channel = this.pgn.getChannel();
+        final long offset = getOffset(game);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, offset + bytes.position()) < 0) {
+                throw new EOFException(this.pgnFile + " ends before game " + game);
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    private int recordOffset(final int game) {
+        if (game < 0 || game >= this.gameCount) {
+            throw new IndexOutOfBoundsException("No game " + game + " among " + this.gameCount);
+        }
+        return game * RECORD_BYTES;
+    }
+
+    private static int tagIndex(final String tag) {
+        final int index = Arrays.asList(TAGS).indexOf(tag);
+        if (index < 0) {
+            throw new IllegalArgumentException(tag + " is not an indexed tag");
+        }
+        return index;
+    }
+
+    private static boolean isCurrent(final File pgnFile,
+                                     final File indexFile) throws IOException {
+        if (!indexFile.isFile() || indexFile.length() < HEADER_BYTES + TRAILER_BYTES) {
+            return false;
+        }
+        try (final DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            return in.readInt() == MAGIC && in.readLong() == pgnFile.length() && in.readLong() == pgnFile.lastModified();
+        }
+    }
+
+    /**
+     * Writes a record for every game with moves as the tokenizer reads it, and numbers the tag values
+     */
+    private static final class RecordWriter implements PgnTokenizer.Listener {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> valueNumbers;
+        private final int[] tagValues;
+        private long position;
+        private long start;
+        private long end;
+        private int moveCount;
+        private int gameCount;
+
+        RecordWriter(final DataOutputStream out) {
+            this.out = out;
+            this.valueNumbers = new HashMap<>();
+            this.tagValues = new int[TAGS.length];
+            this.position = HEADER_BYTES;
+            Arrays.fill(this.tagValues, -1);
+        }
+
+        @Override
+        public void tag(final String name, final String value) {
+            for (int i = 0; i < TAGS.length; i++) {
+                if (TAGS[i].equals(name)) {
+                    this.tagValues[i] = number(value);
+                }
+            }
+        }
+
+        @Override
+        public void move(final String san) {
+            this.moveCount++;
+        }
+
+        @Override
+        public void gameRange(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void gameEnd(final String result) {
+            try {
+                if (this.moveCount > 0) {
+                    if (this.end - this.start > Integer.MAX_VALUE) {
+                        throw new IOException("Game " + this.gameCount + " is longer than 2 GB");
+                    }
+                    // A game without a Result tag has the result its move text ends with
+                    if (this.tagValues[RESULT_TAG] < 0) {
+                        this.tagValues[RESULT_TAG] = number(result);
+                    }
+                    this.out.writeLong(this.start);
+                    this.out.writeInt((int) (this.end - this.start));
+                    for (final int tagValue : this.tagValues) {
+                        this.out.writeInt(tagValue);
+                    }
+                    this.position += RECORD_BYTES;
+                    this.gameCount++;
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.moveCount = 0;
+            Arrays.fill(this.tagValues, -1);
+        }
+
+        void finish() throws IOException {
+            final String[] values = new String[this.valueNumbers.size()];
+            for (final Map.Entry<String, Integer> value : this.valueNumbers.entrySet()) {
+                values[value.getValue()] = value.getKey();
+            }
+            this.out.writeInt(values.length);
+            for (final String value : values) {
+                this.out.writeUTF(value);
+            }
+            this.out.writeInt(this.gameCount);
+            this.out.writeLong(this.position);
+        }
+
+        private int number(final String value) {
+            return this.valueNumbers.computeIfAbsent(value, v -> this.valueNumbers.size());
+        }
+    }
+}
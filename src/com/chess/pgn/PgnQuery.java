@@ -0,0 +1,371 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.piece.Piece;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Streams PGN text, plain or compressed, and writes out the games that pass every filter as they were
+ * written, comments and all.
+ *
+ * The input is cut into chunks at game boundaries, a blank line followed by an [Event tag, and the
+ * chunks are parsed and filtered in parallel. Tag filters see the game's tags only. Position filters
+ * need the game replayed, which is done only for games that pass the tag filters, and a game passes a
+ * position filter if any position after one of its moves does. Matches are written in input order,
+ * and only a few chunks per thread are held at once, so memory does not grow with the input.
+ *
+ * Usage: PgnQuery [-player name] [-white name] [-black name] [-minelo N] [-maxelo N] [-eco A00-B99]
+ *        [-result 1-0] [-fen "fen"] [-material KRPkr] [-threads N] [-output matches.pgn]
+ *        games.pgn[.gz|.bz2]...
+ */
+public class PgnQuery {
+
+    public static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+
+    private static final int CHUNKS_PER_THREAD = 2;
+    private static final byte[] GAME_SEPARATOR = { '\n', '\n' };
+
+    private final List<Predicate<Game>> gameFilters;
+    private final List<Predicate<Board>> positionFilters;
+    private final int threads;
+    private final int chunkBytes;
+    private final AtomicLong gamesRead;
+    private final AtomicLong gamesMatched;
+
+    /**
+     * @param gameFilters test the tags and result of every game
+     * @param positionFilters test the positions of the games that pass the game filters
+     * @param threads is the number of chunks filtered at the same time
+     * @param chunkBytes is the size the input is cut at, the chunks end at the next game
+     */
+    public PgnQuery(final List<Predicate<Game>> gameFilters,
+                    final List<Predicate<Board>> positionFilters,
+                    final int threads,
+                    final int chunkBytes) {
+        this.gameFilters = new ArrayList<>(gameFilters);
+        this.positionFilters = new ArrayList<>(positionFilters);
+        this.threads = Math.max(1, threads);
+        this.chunkBytes = chunkBytes;
+        this.gamesRead = new AtomicLong();
+        this.gamesMatched = new AtomicLong();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final List<Predicate<Game>> gameFilters = new ArrayList<>();
+        final List<Predicate<Board>> positionFilters = new ArrayList<>();
+        final List<File> pgnFiles = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        int minElo = 0;
+        int maxElo = Integer.MAX_VALUE;
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                pgnFiles.add(new File(args[i]));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("No value for " + args[i]);
+            }
+            final String option = args[i];
+            final String value = args[++i];
+            switch (option) {
+                case "-player":
+                    gameFilters.add(player(value));
+                    break;
+                case "-white":
+                    gameFilters.add(tagEquals("White", value));
+                    break;
+                case "-black":
+                    gameFilters.add(tagEquals("Black", value));
+                    break;
+                case "-minelo":
+                    minElo = Integer.parseInt(value);
+                    break;
+                case "-maxelo":
+                    maxElo = Integer.parseInt(value);
+                    break;
+                case "-eco":
+                    final String[] range = value.split("-");
+                    gameFilters.add(eco(range[0], range.length > 1 ? range[1] : range[0]));
+                    break;
+                case "-result":
+                    gameFilters.add(result(value));
+                    break;
+                case "-fen":
+                    positionFilters.add(position(FenUtilities.createGameFromFEN(value)));
+                    break;
+                case "-material":
+                    positionFilters.add(material(value));
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "-output":
+                    output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument " + option);
+            }
+        }
+        if (pgnFiles.isEmpty()) {
+            System.out.println("Usage: PgnQuery [-player name] [-white name] [-black name] [-minelo N] [-maxelo N] " +
+                    "[-eco A00-B99] [-result 1-0] [-fen \"fen\"] [-material KRPkr] [-threads N] [-output matches.pgn] " +
+                    "games.pgn[.gz|.bz2]...");
+            return;
+        }
+        if (minElo > 0 || maxElo < Integer.MAX_VALUE) {
+            gameFilters.add(elo(minElo, maxElo));
+        }
+        final PgnQuery query = new PgnQuery(gameFilters, positionFilters, threads, DEFAULT_CHUNK_BYTES);
+        final long start = System.nanoTime();
+        try (final OutputStream out = new BufferedOutputStream(output != null ? new FileOutputStream(output) : System.out, 1 << 16)) {
+            for (final File pgnFile : pgnFiles) {
+                try (final InputStream in = PGNUtilities.openPGNStream(pgnFile)) {
+                    query.run(in, out);
+                }
+            }
+        }
+        final double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.err.printf("Matched %d of %d games in %.1f s%n", query.getGamesMatched(), query.getGamesRead(), seconds);
+    }
+
+    /**
+     * @return a filter on a player of either color, ignoring case
+     */
+    public static Predicate<Game> player(final String name) {
+        return game -> name.equalsIgnoreCase(game.getTags().getTag("White")) ||
+                name.equalsIgnoreCase(game.getTags().getTag("Black"));
+    }
+
+    /**
+     * @return a filter on the value of a tag, ignoring case
+     */
+    public static Predicate<Game> tagEquals(final String tag,
+                                           final String value) {
+        return game -> value.equalsIgnoreCase(game.getTags().getTag(tag));
+    }
+
+    /**
+     * @return a filter on the ratings of both players, games without both ratings do not pass
+     */
+    public static Predicate<Game> elo(final int minElo,
+                                      final int maxElo) {
+        return game -> {
+            final int whiteElo = rating(game.getTags().getTag("WhiteElo"));
+            final int blackElo = rating(game.getTags().getTag("BlackElo"));
+            return whiteElo >= minElo && whiteElo <= maxElo && blackElo >= minElo && blackElo <= maxElo;
+        };
+    }
+
+    /**
+     * @return a filter on the ECO code, from the first code to the last one
+     */
+    public static Predicate<Game> eco(final String first,
+                                      final String last) {
+        return game -> {
+            final String eco = game.getTags().getTag("ECO");
+            return eco != null && eco.compareToIgnoreCase(first) >= 0 && eco.compareToIgnoreCase(last) <= 0;
+        };
+    }
+
+    /**
+     * @param result is "1-0", "0-1", "1/2-1/2" or "*"
+     * @return a filter on the result the game's move text ends with
+     */
+    public static Predicate<Game> result(final String result) {
+        final String winner;
+        switch (result) {
+            case PgnTokenizer.WHITE_WINS:
+                winner = "White";
+                break;
+            case PgnTokenizer.BLACK_WINS:
+                winner = "Black";
+                break;
+            case PgnTokenizer.DRAW:
+                winner = "Tie";
+                break;
+            default:
+                winner = "None";
+        }
+        return game -> game.getWinner().equals(winner);
+    }
+
+    /**
+     * @return a filter on reaching the board's position, with the same side to move, castling rights
+     * and en passant square
+     */
+    public static Predicate<Board> position(final Board board) {
+        final long key = board.getZobristHash();
+        return position -> position.getZobristHash() == key;
+    }
+
+    /**
+     * @param pattern is the pieces of a position, white in capitals and black in small letters, such as KRPkr
+     * @return a filter on reaching a position with exactly those pieces
+     */
+    public static Predicate<Board> material(final String pattern) {
+        final int[] wanted = new int[2 * Piece.PieceType.values().length];
+        for (final char c : pattern.toCharArray()) {
+            final int type = pieceType(Character.toUpperCase(c));
+            if (type < 0) {
+                throw new IllegalArgumentException("Unknown piece " + c + " in " + pattern);
+            }
+            wanted[(Character.isUpperCase(c) ? 0 : Piece.PieceType.values().length) + type]++;
+        }
+        return board -> {
+            if (board.getAllPieces().size() != pattern.length()) {
+                return false;
+            }
+            final int[] counts = new int[wanted.length];
+            for (final Piece piece : board.getAllPieces()) {
+                counts[(piece.getPieceAlliance().isWhite() ? 0 : Piece.PieceType.values().length) +
+                        piece.getPieceType().ordinal()]++;
+            }
+            return Arrays.equals(counts, wanted);
+        };
+    }
+
+    /**
+     * Filters the games of the stream and writes the matches to the output, which is not closed
+     * @return the number of games written
+     */
+    public long run(final InputStream in,
+                    final OutputStream out) throws IOException, InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool(this.threads);
+        final OrderedChunkWindow<byte[]> window =
+                new OrderedChunkWindow<>(pool, CHUNKS_PER_THREAD * this.threads, out::write);
+        final long matchedBefore = this.gamesMatched.get();
+        try {
+            final PgnChunker chunker = new PgnChunker(in, this.chunkBytes);
+            byte[] chunk;
+            while ((chunk = chunker.next()) != null) {
+                final byte[] games = chunk;
+                window.submit(() -> filterChunk(games));
+            }
+            window.finish();
+        } catch (final ExecutionException e) {
+            throw new IOException("Filtering PGN failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        return this.gamesMatched.get() - matchedBefore;
+    }
+
+    public long getGamesRead() {
+        return this.gamesRead.get();
+    }
+
+    public long getGamesMatched() {
+        return this.gamesMatched.get();
+    }
+
+    /**
+     * @return the text of the chunk's games that pass the filters, a blank line after each
+     */
+    private byte[] filterChunk(final byte[] chunk) throws IOException {
+        final ByteArrayOutputStream matches = new ByteArrayOutputStream();
+        final long[] range = new long[2];
+        final PgnGameCollector collector = new PgnGameCollector(game -> {
+            this.gamesRead.incrementAndGet();
+            if (matches(game)) {
+                this.gamesMatched.incrementAndGet();
+                matches.write(chunk, (int) range[0], (int) (range[1] - range[0]));
+                matches.write(GAME_SEPARATOR, 0, GAME_SEPARATOR.length);
+            }
+        });
+        PgnTokenizer.tokenize(ByteBuffer.wrap(chunk), new PgnTokenizer.Listener() {
+            @Override
+            public void tag(final String name, final String value) {
+                collector.tag(name, value);
+            }
+
+            @Override
+            public void move(final String san) {
+                collector.move(san);
+            }
+
+            @Override
+            public void gameRange(final long start, final long end) {
+                range[0] = start;
+                range[1] = end;
+            }
+
+            @Override
+            public void gameEnd(final String result) {
+                collector.gameEnd(result);
+            }
+        });
+        return matches.toByteArray();
+    }
+
+    private boolean matches(final Game game) {
+        for (final Predicate<Game> filter : this.gameFilters) {
+            if (!filter.test(game)) {
+                return false;
+            }
+        }
+        if (this.positionFilters.isEmpty()) {
+            return true;
+        }
+        final boolean[] reached = new boolean[this.positionFilters.size()];
+        int unreached = reached.length;
+        Board board = Board.createStandardBoard();
+        for (final String san : game.getMoves()) {
+            final MoveTransition transition;
+            try {
+                final Move move = PGNUtilities.createMove(board, san);
+                transition = board.getCurrentPlayer().makeMove(move);
+            } catch (final RuntimeException e) {
+                return false;
+            }
+            if (!transition.getMoveStatus().isDone()) {
+                return false;
+            }
+            board = transition.getToBoard();
+            for (int i = 0; i < reached.length; i++) {
+                if (!reached[i] && this.positionFilters.get(i).test(board)) {
+                    reached[i] = true;
+                    if (--unreached == 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int rating(final String elo) {
+        try {
+            return elo == null ? -1 : Integer.parseInt(elo.trim());
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int pieceType(final char letter) {
+        for (final Piece.PieceType type : Piece.PieceType.values()) {
+            if (type.toString().charAt(0) == letter) {
+                return type.ordinal();
+            }
+        }
+        return -1;
+    }
+}
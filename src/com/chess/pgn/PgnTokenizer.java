@@ -0,0 +1,380 @@
+package com.chess.pgn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class reads PGN text in a single pass over its bytes, without regular expressions or
+ * intermediate strings. It reports tag pairs, SAN moves and the end of every game to a listener.
+ * Comments, variations, numeric annotation glyphs, move numbers and move suffixes such as "!?"
+ * are skipped. A game without a result before the next game's tags ends with "*". The byte range
+ * of every game, from its first tag or move text up to its result, is reported with its end.
+ *
+ * Files are memory mapped a window at a time, so files of any size are read without copying
+ * them to the heap first, and streams such as decompressed archives are read through one buffer.
+ */
+public final class PgnTokenizer {
+
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN_RESULT = "*";
+
+    // Mapped per window, a single mapping cannot be larger than 2 GB
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * Receives the contents of the games in file order
+     */
+    public interface Listener {
+
+        void tag(String name, String value);
+
+        void move(String san);
+
+        /**
+         * @param result is "1-0", "0-1", "1/2-1/2" or "*"
+         */
+        void gameEnd(String result);
+
+        /**
+         * Receives the bytes the game that is ending was read from, before its end is reported
+         * @param start is the offset of the game's first tag or move text in the input
+         * @param end is the offset after the game's result, or the start of the next game's tags
+         */
+        default void gameRange(final long start, final long end) {
+        }
+    }
+
+    /**
+     * Gives the input one buffer at a time
+     */
+    private interface Source {
+
+        /**
+         * @return the next bytes, or null at the end of the input
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    private final Source source;
+    private final Listener listener;
+    private ByteBuffer buffer;
+    private int pushback;
+    private byte[] token;
+    private boolean inGame;
+    private boolean inMoveText;
+    // The offset in the input of the start of the buffer, and of the last byte read
+    private long bufferOffset;
+    private long offset;
+    // -1 until the first tag or move text of a game
+    private long gameStart;
+
+    private PgnTokenizer(final Source source,
+                         final Listener listener) {
+        this.source = source;
+        this.listener = listener;
+        this.buffer = EMPTY;
+        this.pushback = -1;
+        this.token = new byte[64];
+        this.inGame = false;
+        this.inMoveText = false;
+        this.bufferOffset = 0;
+        this.offset = -1;
+        this.gameStart = -1;
+    }
+
+    /**
+     * Reads a whole PGN file
+     */
+    public static void tokenize(final File pgnFile,
+                                final Listener listener) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(pgnFile, "r");
+             final FileChannel channel = file.getChannel()) {
+            final long size = channel.size();
+            final long[] position = { 0 };
+            new PgnTokenizer(() -> {
+                if (position[0] >= size) {
+                    return null;
+                }
+                final long length = Math.min(WINDOW_BYTES, size - position[0]);
+                final ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position[0], length);
+                position[0] += length;
+                return window;
+            }, listener).run();
+        }
+    }
+
+    /**
+     * Reads the PGN text between the buffer's position and limit
+     */
+    public static void tokenize(final ByteBuffer text,
+                                final Listener listener) throws IOException {
+        final ByteBuffer[] remaining = { text.slice() };
+        new PgnTokenizer(() -> {
+            final ByteBuffer next = remaining[0];
+            remaining[0] = null;
+            return next;
+        }, listener).run();
+    }
+
+    /**
+     * Reads PGN text from a stream, which is not closed
+     */
+    public static void tokenize(final InputStream in,
+                                final Listener listener) throws IOException {
+        final byte[] bytes = new byte[STREAM_BUFFER_BYTES];
+        new PgnTokenizer(() -> {
+            final int read = in.read(bytes);
+            return read < 0 ? null : ByteBuffer.wrap(bytes, 0, read);
+        }, listener).run();
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            switch (c) {
+                case '[':
+                    readTag(this.offset);
+                    break;
+                case '{':
+                    skipComment();
+                    break;
+                case ';':
+                case '%':
+                    skipLine();
+                    break;
+                case '(':
+                    skipVariation();
+                    break;
+                case '$':
+                    readToken(read());
+                    break;
+                case ']':
+                case '}':
+                case ')':
+                    // A closing bracket without its opening one is skipped
+                    break;
+                default:
+                    if (!isWhitespace(c)) {
+                        final long tokenStart = this.offset;
+                        moveText(readToken(c), tokenStart);
+                    }
+            }
+        }
+        if (this.inGame) {
+            endGame(UNKNOWN_RESULT, this.offset);
+        }
+    }
+
+    /**
+     * Handles one token of move text, which is a result, a move number or a move
+     * @param length is the token's length in the token buffer
+     * @param tokenStart is the token's offset in the input
+     */
+    private void moveText(final int length,
+                          final long tokenStart) {
+        if (this.gameStart < 0) {
+            this.gameStart = tokenStart;
+        }
+        final String result = result(length);
+        if (result != null) {
+            // The token was ended by the byte read last, or by the end of the input
+            endGame(result, this.offset);
+            return;
+        }
+        int start = 0;
+        // A move number, "12." or "12...", may be written against its move
+        while (start < length && isDigit(this.token[start])) {
+            start++;
+        }
+        while (start < length && this.token[start] == '.') {
+            start++;
+        }
+        int end = length;
+        while (end > start && (this.token[end - 1] == '!' || this.token[end - 1] == '?')) {
+            end--;
+        }
+        if (end > start) {
+            this.inGame = true;
+            this.inMoveText = true;
+            this.listener.move(new String(this.token, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private String result(final int length) {
+        if (length == 1 && this.token[0] == '*') {
+            return UNKNOWN_RESULT;
+        }
+        if (length == 3 && this.token[1] == '-') {
+            if (this.token[0] == '1' && this.token[2] == '0') {
+                return WHITE_WINS;
+            }
+            if (this.token[0] == '0' && this.token[2] == '1') {
+                return BLACK_WINS;
+            }
+        }
+        if (length == 7 && this.token[0] == '1' && this.token[1] == '/' && this.token[2] == '2' && this.token[3] == '-' &&
+                this.token[4] == '1' && this.token[5] == '/' && this.token[6] == '2') {
+            return DRAW;
+        }
+        return null;
+    }
+
+    private void endGame(final String result,
+                         final long end) {
+        this.listener.gameRange(this.gameStart, end);
+        this.inGame = false;
+        this.inMoveText = false;
+        this.gameStart = -1;
+        this.listener.gameEnd(result);
+    }
+
+    /**
+     * Reads [Name "value"], with \" and \\ escapes in the value
+     * @param tagStart is the offset of the opening bracket
+     */
+    private void readTag(final long tagStart) throws IOException {
+        if (this.inMoveText) {
+            // Tags after move text start a new game, the last one had no result
+            endGame(UNKNOWN_RESULT, tagStart);
+        }
+        if (this.gameStart < 0) {
+            this.gameStart = tagStart;
+        }
+        this.inGame = true;
+        int c = read();
+        while (c >= 0 && isWhitespace(c)) {
+            c = read();
+        }
+        int length = 0;
+        while (c >= 0 && !isWhitespace(c) && c != '"' && c != ']') {
+            length = append(length, c);
+            c = read();
+        }
+        final String name = new String(this.token, 0, length, StandardCharsets.ISO_8859_1);
+        while (c >= 0 && c != '"' && c != ']') {
+            c = read();
+        }
+        length = 0;
+        if (c == '"') {
+            c = read();
+            while (c >= 0 && c != '"') {
+                if (c == '\\') {
+                    c = read();
+                    if (c < 0) {
+                        break;
+                    }
+                }
+                length = append(length, c);
+                c = read();
+            }
+            while (c >= 0 && c != ']') {
+                c = read();
+            }
+        }
+        this.listener.tag(name, new String(this.token, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a token up to the next white space or delimiter, which is read again
+     * @return the token's length in the token buffer
+     */
+    private int readToken(int c) throws IOException {
+        int length = 0;
+        while (c >= 0 && !isWhitespace(c) && !isDelimiter(c)) {
+            length = append(length, c);
+            c = read();
+        }
+        if (c >= 0) {
+            this.pushback = c;
+        }
+        return length;
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != '}');
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != '\n');
+    }
+
+    /**
+     * Skips a variation with the variations and comments inside it
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == ';') {
+                skipLine();
+            }
+        }
+    }
+
+    private int append(final int length, final int c) {
+        if (length == this.token.length) {
+            final byte[] grown = new byte[this.token.length * 2];
+            System.arraycopy(this.token, 0, grown, 0, length);
+            this.token = grown;
+        }
+        this.token[length] = (byte) c;
+        return length + 1;
+    }
+
+    /**
+     * Reads the next byte and keeps its offset, a byte pushed back keeps the offset it was read at
+     * @return the byte, or -1 with the offset at the end of the input
+     */
+    private int read() throws IOException {
+        if (this.pushback >= 0) {
+            final int c = this.pushback;
+            this.pushback = -1;
+            return c;
+        }
+        while (!this.buffer.hasRemaining()) {
+            final ByteBuffer next = this.source.next();
+            this.bufferOffset += this.buffer.limit();
+            if (next == null) {
+                this.buffer = EMPTY;
+                this.offset = this.bufferOffset;
+                return -1;
+            }
+            this.buffer = next;
+        }
+        this.offset = this.bufferOffset + this.buffer.position();
+        return this.buffer.get() & 0xFF;
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isDelimiter(final int c) {
+        return c == '[' || c == ']' || c == '{' || c == '}' || c == '(' || c == ')' || c == ';' || c == '$';
+    }
+
+    private static boolean isDigit(final int c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,251 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the games of a game archive that reached a position, from an index of the positions after
+ * every move built by {@link PositionIndexBuilder}. The index is a directory of segments, each a
+ * memory mapped file of postings sorted by position key. A query binary searches the block index of
+ * every segment and decodes one block of keys, so it costs a few page reads however many games
+ * are indexed.
+ *
+ * Usage: PositionIndex index-directory "fen" [-limit N]
+ */
+public final class PositionIndex implements Closeable {
+
+    static final int MAGIC = 0x50495831;
+    static final int KEYS_PER_BLOCK = 64;
+    static final String SEGMENT_SUFFIX = ".pix";
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final List<Segment> segments;
+
+    private PositionIndex(final List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Maps the segments of an index directory
+     */
+    public static PositionIndex open(final File indexDirectory) throws IOException {
+        final File[] segmentFiles = indexDirectory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (segmentFiles == null) {
+            throw new IOException(indexDirectory + " is not a directory");
+        }
+        Arrays.sort(segmentFiles);
+        final List<Segment> segments = new ArrayList<>();
+        for (final File segmentFile : segmentFiles) {
+            segments.add(new Segment(segmentFile));
+        }
+        return new PositionIndex(segments);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: PositionIndex index-directory \"fen\" [-limit N]");
+            return;
+        }
+        final int limit = args.length > 3 && args[2].equals("-limit") ? Integer.parseInt(args[3]) : DEFAULT_LIMIT;
+        try (final PositionIndex index = PositionIndex.open(new File(args[0]))) {
+            final long start = System.nanoTime();
+            final List<Occurrence> occurrences = index.find(FenUtilities.createGameFromFEN(args[1]));
+            final double millis = (System.nanoTime() - start) / 1e6;
+            for (final Occurrence occurrence : occurrences.subList(0, Math.min(limit, occurrences.size()))) {
+                System.out.println(occurrence);
+            }
+            System.out.printf("%d occurrences in %d games, %.2f ms%n", occurrences.size(),
+                    countGames(occurrences), millis);
+        }
+    }
+
+    /**
+     * @return every time a game reached the board's position, by game id and ply
+     */
+    public List<Occurrence> find(final Board board) {
+        return find(board.getZobristHash());
+    }
+
+    /**
+     * @param positionKey is the position's Zobrist key
+     * @return every time a game reached the position, by game id and ply
+     */
+    public List<Occurrence> find(final long positionKey) {
+        final List<Occurrence> occurrences = new ArrayList<>();
+        for (final Segment segment : this.segments) {
+            segment.find(positionKey, occurrences);
+        }
+        if (this.segments.size() > 1) {
+            Collections.sort(occurrences);
+        }
+        return occurrences;
+    }
+
+    /**
+     * @return the ids of the games that reached the board's position, in ascending order
+     */
+    public int[] findGames(final Board board) {
+        final List<Occurrence> occurrences = find(board);
+        final int[] gameIds = new int[countGames(occurrences)];
+        int count = 0;
+        for (final Occurrence occurrence : occurrences) {
+            if (count == 0 || gameIds[count - 1] != occurrence.gameId) {
+                gameIds[count++] = occurrence.gameId;
+            }
+        }
+        return gameIds;
+    }
+
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    @Override
+    public void close() {
+        // Mapped segments are unmapped when collected
+        this.segments.clear();
+    }
+
+    private static int countGames(final List<Occurrence> occurrences) {
+        int games = 0;
+        for (int i = 0; i < occurrences.size(); i++) {
+            if (i == 0 || occurrences.get(i - 1).gameId != occurrences.get(i).gameId) {
+                games++;
+            }
+        }
+        return games;
+    }
+
+    /**
+     * A position reached in a game, after the given number of plies
+     */
+    public static final class Occurrence implements Comparable<Occurrence> {
+
+        private final int gameId;
+        private final int ply;
+
+        Occurrence(final int gameId,
+                   final int ply) {
+            this.gameId = gameId;
+            this.ply = ply;
+        }
+
+        public int getGameId() {
+            return this.gameId;
+        }
+
+        public int getPly() {
+            return this.ply;
+        }
+
+        @Override
+        public int compareTo(final Occurrence other) {
+            final int byGame = Integer.compare(this.gameId, other.gameId);
+            return byGame != 0 ? byGame : Integer.compare(this.ply, other.ply);
+        }
+
+        @Override
+        public String toString() {
+            return "game " + this.gameId + " ply " + this.ply;
+        }
+    }
+
+    /**
+     * One mapped segment file
+     */
+    private static final class Segment {
+
+        private final MappedByteBuffer data;
+        private final long[] firstKeys;
+        private final int[] blockOffsets;
+        private final int indexOffset;
+
+        Segment(final File segmentFile) throws IOException {
+            try (final RandomAccessFile file = new RandomAccessFile(segmentFile, "r");
+                 final FileChannel channel = file.getChannel()) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(segmentFile + " is too large to map");
+                }
+                this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (this.data.limit() < 16 || this.data.getInt(0) != MAGIC) {
+                throw new IOException(segmentFile + " is not a position index segment");
+            }
+            this.indexOffset = (int) this.data.getLong(this.data.limit() - 12);
+            final int blocks = this.data.getInt(this.data.limit() - 4);
+            this.firstKeys = new long[blocks];
+            this.blockOffsets = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                this.firstKeys[i] = this.data.getLong(this.indexOffset + i * 16);
+                this.blockOffsets[i] = (int) this.data.getLong(this.indexOffset + i * 16 + 8);
+            }
+        }
+
+        void find(final long key,
+                  final List<Occurrence> occurrences) {
+            // The last block whose first key is not above the key
+            int low = 0;
+            int high = this.firstKeys.length - 1;
+            int block = -1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                if (Long.compareUnsigned(this.firstKeys[middle], key) <= 0) {
+                    block = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (block < 0) {
+                return;
+            }
+            final ByteBuffer buffer = this.data.duplicate();
+            buffer.position(this.blockOffsets[block]);
+            final int end = block + 1 < this.blockOffsets.length ? this.blockOffsets[block + 1] : this.indexOffset;
+            long currentKey = this.firstKeys[block];
+            while (buffer.position() < end) {
+                currentKey += readVarlong(buffer);
+                final int count = (int) readVarlong(buffer);
+                final int comparison = Long.compareUnsigned(currentKey, key);
+                if (comparison > 0) {
+                    return;
+                }
+                long game = 0;
+                for (int i = 0; i < count; i++) {
+                    game += readVarlong(buffer);
+                    final int ply = (int) readVarlong(buffer);
+                    if (comparison == 0) {
+                        occurrences.add(new Occurrence((int) game, ply));
+                    }
+                }
+                if (comparison == 0) {
+                    return;
+                }
+            }
+        }
+
+        private static long readVarlong(final ByteBuffer buffer) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds a {@link PositionIndex} of a game archive.
+ *
+ * The archive's blocks are replayed on a thread pool. Every thread adds the position after each move
+ * of its games to its own posting buffer, which is sorted and written as a segment of the index
+ * whenever it fills up. Segments are not merged: a query searches each of them, which is a binary
+ * search in memory, so the memory used depends on the buffer size and not on the number of games.
+ *
+ * Usage: PositionIndexBuilder -archive games.cga -output index-directory [-plies N] [-threads N]
+ *        [-spill postings]
+ */
+public class PositionIndexBuilder {
+
+    private static final int DEFAULT_SPILL_POSTINGS = 1 << 22;
+    private static final int QUEUED_BLOCKS_PER_THREAD = 2;
+
+    private final int plies;
+    private final int spillPostings;
+    private final List<PostingBuffer> buffers;
+    private final AtomicInteger segmentCount;
+    private final AtomicLong postingCount;
+    private final AtomicReference<IOException> spillFailure;
+    private File indexDirectory;
+
+    /**
+     * @param plies is the number of plies of every game indexed, 0 for all of them
+     * @param spillPostings is the number of postings a thread keeps in memory before writing a segment
+     */
+    public PositionIndexBuilder(final int plies,
+                                final int spillPostings) {
+        this.plies = plies <= 0 ? Integer.MAX_VALUE : plies;
+        this.spillPostings = spillPostings;
+        this.buffers = Collections.synchronizedList(new ArrayList<>());
+        this.segmentCount = new AtomicInteger();
+        this.postingCount = new AtomicLong();
+        this.spillFailure = new AtomicReference<>();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].startsWith("-")) {
+                options.put(args[i].substring(1), args[++i]);
+            }
+        }
+        if (!options.containsKey("archive") || !options.containsKey("output")) {
+            System.out.println("Usage: PositionIndexBuilder -archive games.cga -output index-directory " +
+                    "[-plies N] [-threads N] [-spill postings]");
+            return;
+        }
+        final PositionIndexBuilder builder = new PositionIndexBuilder(
+                Integer.parseInt(options.getOrDefault("plies", "0")),
+                Integer.parseInt(options.getOrDefault("spill", Integer.toString(DEFAULT_SPILL_POSTINGS))));
+        final long start = System.currentTimeMillis();
+        final int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        final long postings = builder.build(new File(options.get("archive")), new File(options.get("output")),
+                Math.max(1, threads));
+        System.out.printf("Indexed %d positions in %d segments in %.1f s%n", postings,
+                builder.segmentCount.get(), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    /**
+     * Writes the index, replacing the segments of any index already in the directory
+     * @param archiveFile holds the games
+     * @param indexDirectory receives the segments
+     * @param threads is the number of threads replaying games
+     * @return the number of positions indexed
+     * @throws IOException if a file cannot be read or written
+     */
+    public long build(final File archiveFile,
+                      final File indexDirectory,
+                      final int threads) throws IOException, InterruptedException {
+        if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + indexDirectory);
+        }
+        final File[] oldSegments = indexDirectory.listFiles((dir, name) -> name.endsWith(PositionIndex.SEGMENT_SUFFIX));
+        for (final File oldSegment : oldSegments) {
+            if (!oldSegment.delete()) {
+                throw new IOException("Cannot delete " + oldSegment);
+            }
+        }
+        this.indexDirectory = indexDirectory;
+        this.segmentCount.set(0);
+        this.postingCount.set(0);
+        this.spillFailure.set(null);
+        // A new one every build, as the building thread may index blocks too and outlives the build
+        final ThreadLocal<PostingBuffer> threadBuffers = ThreadLocal.withInitial(() -> {
+            final PostingBuffer buffer = new PostingBuffer(this.spillPostings);
+            this.buffers.add(buffer);
+            return buffer;
+        });
+        try (final GameArchiveReader reader = new GameArchiveReader(archiveFile)) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * QUEUED_BLOCKS_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+            try {
+                for (int block = 0; block < reader.getBlockCount() && this.spillFailure.get() == null; block++) {
+                    final int archiveBlock = block;
+                    executor.execute(() -> indexBlock(reader, archiveBlock, threadBuffers.get()));
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            }
+        }
+        if (this.spillFailure.get() != null) {
+            throw this.spillFailure.get();
+        }
+        // The pool has ended, so every buffer can be spilled from this thread
+        for (final PostingBuffer buffer : this.buffers) {
+            if (!buffer.isEmpty()) {
+                spill(buffer);
+            }
+        }
+        this.buffers.clear();
+        return this.postingCount.get();
+    }
+
+    public int getSegmentCount() {
+        return this.segmentCount.get();
+    }
+
+    private void indexBlock(final GameArchiveReader reader,
+                            final int block,
+                            final PostingBuffer buffer) {
+        try {
+            for (final ArchivedGame game : reader.readBlock(block, false)) {
+                Board board = Board.createStandardBoard();
+                for (int ply = 0; ply < Math.min(this.plies, game.getPlyCount()); ply++) {
+                    board = ArchivedGame.moveAt(board, game.getMoveIndex(ply)).execute();
+                    buffer.add(board.getZobristHash(), game.getId(), ply + 1);
+                    if (buffer.isFull()) {
+                        spill(buffer);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            this.spillFailure.compareAndSet(null, e);
+        }
+    }
+
+    private void spill(final PostingBuffer buffer) throws IOException {
+        final File segmentFile = new File(this.indexDirectory,
+                String.format("segment-%05d%s", this.segmentCount.getAndIncrement(), PositionIndex.SEGMENT_SUFFIX));
+        this.postingCount.addAndGet(buffer.size());
+        buffer.spill(segmentFile);
+    }
+}
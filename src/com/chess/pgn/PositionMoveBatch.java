@@ -0,0 +1,114 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.uci.UciNotation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds up the position_moves counts of a number of games, so a position and move met in many games
+ * of the batch is written once
+ */
+final class PositionMoveBatch {
+
+    // Plies of every game counted in position_moves, later positions are rarely met twice
+    static final int POSITION_PLIES = 30;
+
+    private static final String POSITION_MOVE_UPSERT =
+            "INSERT INTO position_moves(position_key, move, games, white_wins, draws, black_wins) VALUES(?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (position_key, move) DO UPDATE SET games = position_moves.games + EXCLUDED.games, " +
+                    "white_wins = position_moves.white_wins + EXCLUDED.white_wins, " +
+                    "draws = position_moves.draws + EXCLUDED.draws, " +
+                    "black_wins = position_moves.black_wins + EXCLUDED.black_wins;";
+
+    // Games, white wins, draws and black wins by position and move
+    private final Map<PositionMove, int[]> counts;
+
+    PositionMoveBatch() {
+        this.counts = new HashMap<>();
+    }
+
+    /**
+     * Replays the first plies of a game and counts its result for every position and move.
+     * Unfinished games are not counted.
+     */
+    void addGame(final String winner,
+                 final List<String> moves) {
+        final int result = winner.equals("White") ? 1 : winner.equals("Tie") ? 2 : winner.equals("Black") ? 3 : 0;
+        if (result == 0) {
+            return;
+        }
+        Board board = Board.createStandardBoard();
+        for (int ply = 0; ply < Math.min(POSITION_PLIES, moves.size()); ply++) {
+            final Move move = PGNUtilities.createMove(board, moves.get(ply));
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            final int[] moveCounts = this.counts.computeIfAbsent(
+                    new PositionMove(board.getZobristHash(), UciNotation.toUci(move)), key -> new int[4]);
+            moveCounts[0]++;
+            moveCounts[result]++;
+            board = transition.getToBoard();
+        }
+    }
+
+    boolean isEmpty() {
+        return this.counts.isEmpty();
+    }
+
+    /**
+     * Writes the counts as one JDBC batch and empties the batch. The caller commits.
+     */
+    void flush(final Connection connection) throws SQLException {
+        if (this.counts.isEmpty()) {
+            return;
+        }
+        try (final PreparedStatement statement = connection.prepareStatement(POSITION_MOVE_UPSERT)) {
+            for (final Map.Entry<PositionMove, int[]> entry : this.counts.entrySet()) {
+                final int[] moveCounts = entry.getValue();
+                statement.setLong(1, entry.getKey().positionKey);
+                statement.setString(2, entry.getKey().move);
+                statement.setInt(3, moveCounts[0]);
+                statement.setInt(4, moveCounts[1]);
+                statement.setInt(5, moveCounts[2]);
+                statement.setInt(6, moveCounts[3]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        this.counts.clear();
+    }
+
+    private static final class PositionMove {
+
+        private final long positionKey;
+        private final String move;
+
+        PositionMove(final long positionKey, final String move) {
+            this.positionKey = positionKey;
+            this.move = move;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof PositionMove)) {
+                return false;
+            }
+            final PositionMove that = (PositionMove) other;
+            return this.positionKey == that.positionKey && this.move.equals(that.move);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.positionKey) * 31 + this.move.hashCode();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.chess.pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the postings of one index builder thread, a position key with the game and ply it was
+ * reached at, in parallel arrays. When full the postings are sorted and written as a segment of a
+ * position index, and the buffer is emptied.
+ */
+final class PostingBuffer implements ParallelArraySort.Entries {
+
+    private final long[] keys;
+    // The game id in the high bits and the ply in the low 16
+    private final long[] postings;
+    private int size;
+
+    PostingBuffer(final int capacity) {
+        this.keys = new long[Math.max(16, capacity)];
+        this.postings = new long[this.keys.length];
+        this.size = 0;
+    }
+
+    void add(final long key,
+             final int gameId,
+             final int ply) {
+        this.keys[this.size] = key;
+        this.postings[this.size] = ((long) gameId << 16) | (ply & 0xFFFF);
+        this.size++;
+    }
+
+    boolean isFull() {
+        return this.size == this.keys.length;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Writes the postings sorted by unsigned key, game and ply as a segment, then empties the buffer.
+     * The keys are written in blocks, each key as its distance from the one before with the count of its
+     * postings, and every posting as its distance in games from the one before and its ply. The index
+     * after the blocks holds the first key and offset of every block.
+     * @param segmentFile is the segment to write
+     */
+    void spill(final File segmentFile) throws IOException {
+        ParallelArraySort.sort(this, 0, this.size - 1);
+        final List<long[]> blockIndex = new ArrayList<>();
+        try (final CountingOutput counter = new CountingOutput(new BufferedOutputStream(new FileOutputStream(segmentFile), 1 << 16));
+             final DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(PositionIndex.MAGIC);
+            int keysInBlock = PositionIndex.KEYS_PER_BLOCK;
+            long previousKey = 0;
+            int i = 0;
+            while (i < this.size) {
+                final long key = this.keys[i];
+                int end = i + 1;
+                while (end < this.size && this.keys[end] == key) {
+                    end++;
+                }
+                if (keysInBlock == PositionIndex.KEYS_PER_BLOCK) {
+                    blockIndex.add(new long[] { key, counter.count });
+                    keysInBlock = 0;
+                    previousKey = key;
+                }
+                writeVarlong(out, key - previousKey);
+                writeVarlong(out, end - i);
+                long previousGame = 0;
+                for (int j = i; j < end; j++) {
+                    final long game = this.postings[j] >>> 16;
+                    writeVarlong(out, game - previousGame);
+                    writeVarlong(out, this.postings[j] & 0xFFFF);
+                    previousGame = game;
+                }
+                keysInBlock++;
+                previousKey = key;
+                i = end;
+            }
+            final long indexOffset = counter.count;
+            for (final long[] block : blockIndex) {
+                out.writeLong(block[0]);
+                out.writeLong(block[1]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(blockIndex.size());
+        }
+        this.size = 0;
+    }
+
+    private static void writeVarlong(final DataOutputStream out,
+                                     long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    @Override
+    public int compare(final int i, final int j) {
+        final int byKey = Long.compareUnsigned(this.keys[i], this.keys[j]);
+        return byKey != 0 ? byKey : Long.compare(this.postings[i], this.postings[j]);
+    }
+
+    @Override
+    public void swap(final int i, final int j) {
+        final long key = this.keys[i];
+        this.keys[i] = this.keys[j];
+        this.keys[j] = key;
+        final long posting = this.postings[i];
+        this.postings[i] = this.postings[j];
+        this.postings[j] = posting;
+    }
+
+    /**
+     * Counts the bytes written, which are the offsets of the blocks. The data stream over it
+     * does not buffer, so the count is always up to date.
+     */
+    private static final class CountingOutput extends OutputStream {
+
+        private final OutputStream out;
+        private long count;
+
+        CountingOutput(final OutputStream out) {
+            this.out = out;
+            this.count = 0;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            this.out.write(bytes, offset, length);
+            this.count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.piece.Piece.PieceType;
+
+import java.util.List;
+
+/**
+ * Resolves moves written in standard algebraic notation, such as "Nbd7", "exd6", "e8=Q+" or "O-O-O".
+ * The text is decoded in one pass, from the piece letter through the disambiguation and destination
+ * square to the promotion and check signs, and the move is looked up among the legal moves to its
+ * destination square. The board only promotes to queens, so every promotion resolves to that move.
+ */
+final class SanParser {
+
+    private SanParser() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    /**
+     * @return the move, or the null move if the text is not a legal move on the board
+     */
+    static Move resolve(final Board board,
+                        final String san) {
+        int end = san.length();
+        // Check and mate signs and annotations such as "!?"
+        while (end > 0 && isSuffix(san.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            return Move.NULL_MOVE;
+        }
+        if (san.charAt(0) == 'O' || san.charAt(0) == '0') {
+            return resolveCastle(board, san, end);
+        }
+        if (end > 2 && isPromotionPiece(san.charAt(end - 1))) {
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end < 2) {
+            return Move.NULL_MOVE;
+        }
+        final int file = san.charAt(end - 2) - 'a';
+        final int rank = san.charAt(end - 1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return Move.NULL_MOVE;
+        }
+        int start = 0;
+        PieceType pieceType = pieceType(san.charAt(0));
+        if (pieceType == null) {
+            pieceType = PieceType.PAWN;
+        } else {
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            final char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-') {
+                return Move.NULL_MOVE;
+            }
+        }
+        return resolveCandidates(board, board.getCurrentPlayer().getLegalMovesTo((7 - rank) * 8 + file),
+                pieceType, fromFile, fromRank);
+    }
+
+    /**
+     * Picks the move of the piece type from the given squares. When more than one is left, SAN
+     * leaves out the squares of pinned pieces, so the one move that does not leave the king in check is taken.
+     */
+    private static Move resolveCandidates(final Board board,
+                                          final List<Move> candidates,
+                                          final PieceType pieceType,
+                                          final int fromFile,
+                                          final int fromRank) {
+        Move found = Move.NULL_MOVE;
+        boolean ambiguous = false;
+        for (final Move move : candidates) {
+            if (!matches(move, pieceType, fromFile, fromRank)) {
+                continue;
+            }
+            if (found == Move.NULL_MOVE) {
+                found = move;
+            } else {
+                ambiguous = true;
+            }
+        }
+        if (!ambiguous) {
+            return found;
+        }
+        found = Move.NULL_MOVE;
+        for (final Move move : candidates) {
+            if (!matches(move, pieceType, fromFile, fromRank) ||
+                    !board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                continue;
+            }
+            if (found != Move.NULL_MOVE) {
+                return Move.NULL_MOVE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * @param fromFile is the file the move starts from, -1 for any
+     * @param fromRank is the rank the move starts from, -1 for any
+     */
+    private static boolean matches(final Move move,
+                                   final PieceType pieceType,
+                                   final int fromFile,
+                                   final int fromRank) {
+        final int from = move.getCurrentCoordinate();
+        return move.getMovedPiece().getPieceType() == pieceType &&
+                (fromFile < 0 || from % 8 == fromFile) &&
+                (fromRank < 0 || 7 - from / 8 == fromRank);
+    }
+
+    /**
+     * Reads "O-O" or "O-O-O", also written with zeros
+     */
+    private static Move resolveCastle(final Board board,
+                                      final String san,
+                                      final int end) {
+        int letters = 0;
+        for (int i = 0; i < end; i++) {
+            final char c = san.charAt(i);
+            if (c == 'O' || c == '0') {
+                letters++;
+            } else if (c != '-') {
+                return Move.NULL_MOVE;
+            }
+        }
+        if (letters != 2 && letters != 3) {
+            return Move.NULL_MOVE;
+        }
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            if (letters == 2 ? move instanceof Move.KingSideCastleMove : move instanceof Move.QueenSideCastleMove) {
+                return move;
+            }
+        }
+        return Move.NULL_MOVE;
+    }
+
+    private static PieceType pieceType(final char letter) {
+        switch (letter) {
+            case 'N':
+                return PieceType.KNIGHT;
+            case 'B':
+                return PieceType.BISHOP;
+            case 'R':
+                return PieceType.ROOK;
+            case 'Q':
+                return PieceType.QUEEN;
+            case 'K':
+                return PieceType.KING;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isPromotionPiece(final char letter) {
+        return letter == 'Q' || letter == 'R' || letter == 'B' || letter == 'N';
+    }
+
+    private static boolean isSuffix(final char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+}
@@ -0,0 +1,333 @@
+package com.chess.server;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+import com.chess.uci.UciNotation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hosts many games at once without a GUI. Moves are checked with Player.makeMove, every game keeps
+ * its own clocks, and engine replies run on a shared pool where every thread keeps its own engine,
+ * so the number of games is not bounded by the number of engines.
+ *
+ * Games idle for longer than the idle time are compacted to a few bytes per move and replayed when
+ * they are used again. When more games are active than allowed, the least recently used ones are
+ * compacted first. A game is never compacted while an engine is thinking on it.
+ *
+ * Running the class plays a number of engine games at once, as in a simultaneous exhibition.
+ * Usage: GameServer [games] [base seconds] [increment seconds] [engine threads]
+ */
+public class GameServer {
+
+    private static final long SWEEP_MILLIS = 1000;
+    private static final int DEFAULT_HASH_MEGABYTES = 4;
+
+    private final Map<Long, GameSession> activeGames;
+    private final Map<Long, byte[]> compactedGames;
+    private final AtomicLong nextGameId;
+    private final ExecutorService enginePool;
+    private final ThreadLocal<IterativeDeepeningSearch> engines;
+    private final ScheduledExecutorService sweeper;
+    private final long idleNanos;
+    private final int maxActiveGames;
+    private final Map<Long, List<Runnable>> gameOverListeners;
+
+    /**
+     * @param engineThreads is the number of engine replies computed at once
+     * @param hashMegabytes is the hash table size of each engine
+     * @param idleMillis is the time after which an untouched game is compacted
+     * @param maxActiveGames is the number of games kept uncompacted
+     */
+    public GameServer(final int engineThreads,
+                      final int hashMegabytes,
+                      final long idleMillis,
+                      final int maxActiveGames) {
+        this.activeGames = new ConcurrentHashMap<>();
+        this.compactedGames = new ConcurrentHashMap<>();
+        this.nextGameId = new AtomicLong(1);
+        this.enginePool = Executors.newFixedThreadPool(engineThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "game-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.engines = ThreadLocal.withInitial(() ->
+                new IterativeDeepeningSearch(StandardBoardEvaluator.get(), hashMegabytes, 1));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "game-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxActiveGames = maxActiveGames;
+        this.gameOverListeners = new ConcurrentHashMap<>();
+        this.sweeper.scheduleWithFixedDelay(this::evictIdleGames, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final long baseMillis = Math.round((args.length > 1 ? Double.parseDouble(args[1]) : 30) * 1000);
+        final long incrementMillis = Math.round((args.length > 2 ? Double.parseDouble(args[2]) : 0.2) * 1000);
+        final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        final GameServer server = new GameServer(threads, DEFAULT_HASH_MEGABYTES, 10000, games);
+        final CountDownLatch finished = new CountDownLatch(games);
+        final long start = System.currentTimeMillis();
+        final List<Long> gameIds = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            final long gameId = server.createGame(null, baseMillis, incrementMillis, true, true, 0);
+            server.onGameOver(gameId, finished::countDown);
+            gameIds.add(gameId);
+        }
+        finished.await();
+        for (final long gameId : gameIds) {
+            System.out.println(server.getState(gameId));
+        }
+        System.out.printf("Played %d games in %.1f s on %d engine threads%n", games,
+                (System.currentTimeMillis() - start) / 1000.0, threads);
+        server.shutdown();
+    }
+
+    /**
+     * Starts a game, and the engine's first reply if the engine is to move
+     * @param fen is the start position, null for the standard start
+     * @param baseMillis is each side's starting time, 0 for an untimed game
+     * @param incrementMillis is the time added after every move
+     * @param engineWhite is true if the engine plays white
+     * @param engineBlack is true if the engine plays black
+     * @param engineDepth caps the engine's search depth, 0 for no cap in a timed game
+     * @return the id of the new game
+     * @throws IllegalArgumentException if the FEN cannot be read, or an engine of an untimed game has no depth
+     */
+    public long createGame(final String fen,
+                           final long baseMillis,
+                           final long incrementMillis,
+                           final boolean engineWhite,
+                           final boolean engineBlack,
+                           final int engineDepth) {
+        if (baseMillis <= 0 && engineDepth <= 0 && (engineWhite || engineBlack)) {
+            throw new IllegalArgumentException("An engine in an untimed game needs a search depth");
+        }
+        final String startFen;
+        try {
+            startFen = fen == null ? FenUtilities.createFENFromGame(Board.createStandardBoard()) :
+                    FenUtilities.createFENFromGame(FenUtilities.createGameFromFEN(fen));
+        } catch (final RuntimeException e) {
+            throw new IllegalArgumentException("Invalid FEN " + fen, e);
+        }
+        final long gameId = this.nextGameId.getAndIncrement();
+        final GameSession session = GameSession.create(gameId, startFen, Math.max(0, baseMillis),
+                Math.max(0, incrementMillis), engineWhite, engineBlack, engineDepth);
+        synchronized (session) {
+            this.activeGames.put(gameId, session);
+            scheduleEngineReply(session);
+        }
+        return gameId;
+    }
+
+    /**
+     * @return the current state of the game, after ending it if the side to move has run out of time
+     * @throws IllegalArgumentException if there is no such game
+     */
+    public GameState getState(final long gameId) {
+        return withSession(gameId, session -> {
+            final long now = System.nanoTime();
+            if (session.checkFlag(now)) {
+                gameOver(gameId);
+            }
+            return session.snapshot(now);
+        });
+    }
+
+    /**
+     * Plays a move for the side to move
+     * @param gameId is the game
+     * @param uciMove is the move in UCI notation
+     * @return the state after the move, with the engine's reply scheduled if the engine is to move
+     * @throws IllegalArgumentException if there is no such game or the move is not legal
+     * @throws IllegalStateException if the game is over or the engine is to move
+     */
+    public GameState playMove(final long gameId, final String uciMove) {
+        return withSession(gameId, session -> {
+            if (session.isEngineToMove()) {
+                throw new IllegalStateException("The engine is to move in game " + gameId);
+            }
+            final long now = System.nanoTime();
+            try {
+                session.play(uciMove, now);
+            } finally {
+                if (session.isOver()) {
+                    gameOver(gameId);
+                }
+            }
+            scheduleEngineReply(session);
+            return session.snapshot(now);
+        });
+    }
+
+    /**
+     * @param white is true if white resigns
+     */
+    public GameState resign(final long gameId, final boolean white) {
+        return withSession(gameId, session -> {
+            if (!session.isOver()) {
+                session.resign(white);
+                gameOver(gameId);
+            }
+            return session.snapshot(System.nanoTime());
+        });
+    }
+
+    /**
+     * @param listener runs once the game is over, at once if it is over already
+     */
+    public void onGameOver(final long gameId, final Runnable listener) {
+        final boolean over = withSession(gameId, session -> {
+            if (!session.isOver()) {
+                this.gameOverListeners.computeIfAbsent(gameId, id -> new ArrayList<>()).add(listener);
+            }
+            return session.isOver();
+        });
+        if (over) {
+            listener.run();
+        }
+    }
+
+    public int getActiveGameCount() {
+        return this.activeGames.size();
+    }
+
+    public int getCompactedGameCount() {
+        return this.compactedGames.size();
+    }
+
+    public void shutdown() {
+        this.sweeper.shutdownNow();
+        this.enginePool.shutdownNow();
+    }
+
+    /**
+     * Runs an action on a game with the game's lock held, bringing a compacted game back first.
+     * A game compacted between the lookup and the lock is looked up again.
+     */
+    private <T> T withSession(final long gameId, final Function<GameSession, T> action) {
+        while (true) {
+            final GameSession session = lookup(gameId);
+            if (session == null) {
+                throw new IllegalArgumentException("No game " + gameId);
+            }
+            synchronized (session) {
+                if (!session.isEvicted()) {
+                    session.touch(System.nanoTime());
+                    return action.apply(session);
+                }
+            }
+        }
+    }
+
+    private GameSession lookup(final long gameId) {
+        final GameSession session = this.activeGames.get(gameId);
+        if (session != null) {
+            return session;
+        }
+        return this.activeGames.computeIfAbsent(gameId, id -> {
+            final byte[] compacted = this.compactedGames.remove(id);
+            return compacted == null ? null : GameSession.restore(id, compacted);
+        });
+    }
+
+    // Called with the session's lock held
+    private void scheduleEngineReply(final GameSession session) {
+        if (!session.isEngineToMove() || session.isEngineThinking()) {
+            return;
+        }
+        session.setEngineThinking(true);
+        final long gameId = session.getId();
+        final Board board = session.getBoard();
+        this.enginePool.execute(() -> {
+            Move move = Move.MoveFactory.getNullMove();
+            try {
+                // The clocks are read when the search starts, a reply waiting for a free thread uses up clock time
+                final SearchLimits limits = withSession(gameId, waiting -> waiting.createEngineLimits(System.nanoTime()));
+                move = this.engines.get().search(board, limits, null).getBestMove();
+            } finally {
+                final String uciMove = UciNotation.toUci(move);
+                withSession(gameId, thinking -> {
+                    thinking.setEngineThinking(false);
+                    final long now = System.nanoTime();
+                    if (thinking.isOver() || thinking.getBoard() != board) {
+                        // The game ended on time or by resignation while the engine was thinking
+                        return null;
+                    }
+                    try {
+                        thinking.play(uciMove, now);
+                    } catch (final IllegalArgumentException e) {
+                        thinking.resign(thinking.getBoard().getCurrentPlayer().getAlliance().isWhite());
+                    } catch (final IllegalStateException e) {
+                        // Flagged before the reply
+                    }
+                    if (thinking.isOver()) {
+                        gameOver(gameId);
+                    } else {
+                        scheduleEngineReply(thinking);
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    private void gameOver(final long gameId) {
+        final List<Runnable> listeners = this.gameOverListeners.remove(gameId);
+        if (listeners != null) {
+            for (final Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Compacts games idle past the idle time, then the least recently used games beyond the active limit
+     */
+    private void evictIdleGames() {
+        final long now = System.nanoTime();
+        final List<GameSession> candidates = new ArrayList<>(this.activeGames.values());
+        candidates.sort(Comparator.comparingLong(GameSession::getLastAccessNanos));
+        int excess = candidates.size() - this.maxActiveGames;
+        for (final GameSession candidate : candidates) {
+            final boolean idle = now - candidate.getLastAccessNanos() > this.idleNanos;
+            if (!idle && excess <= 0) {
+                break;
+            }
+            final boolean[] compacted = { false };
+            this.activeGames.computeIfPresent(candidate.getId(), (id, session) -> {
+                synchronized (session) {
+                    if (session.isEngineThinking() || session.isEvicted()) {
+                        return session;
+                    }
+                    // Flag falls are found when the game is used again, the clocks keep running while compacted
+                    this.compactedGames.put(id, session.evict());
+                    compacted[0] = true;
+                    return null;
+                }
+            });
+            if (compacted[0]) {
+                excess--;
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.chess.server;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.piece.Piece;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.pgn.FenUtilities;
+import com.chess.uci.UciNotation;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of one hosted game. All methods are called with the session's lock held.
+ *
+ * Memory per game is bounded: the current board is kept without its chain of earlier boards, moves are
+ * kept as two bytes each and position keys as eight, and a game ends in a draw at the ply limit.
+ * An idle game is compacted to its start position, moves and clocks, and replayed when used again.
+ */
+final class GameSession {
+
+    static final int MAX_PLIES = 1000;
+    private static final int FORMAT_VERSION = 1;
+    // Moves are kept as the from square, the to square shifted by 6 and this flag for a queen promotion
+    private static final int PROMOTION_FLAG = 1 << 12;
+
+    private final long id;
+    private final String startFen;
+    private final boolean timed;
+    private final long incrementMillis;
+    private final boolean engineWhite;
+    private final boolean engineBlack;
+    private final int engineDepth;
+    private Board board;
+    private short[] moves;
+    private long[] positionKeys;
+    private int plies;
+    private long whiteMillis;
+    private long blackMillis;
+    private long turnStartNanos;
+    private long lastAccessNanos;
+    private String result;
+    private String termination;
+    private boolean engineThinking;
+    private boolean evicted;
+
+    private GameSession(final long id,
+                        final String startFen,
+                        final boolean timed,
+                        final long baseMillis,
+                        final long incrementMillis,
+                        final boolean engineWhite,
+                        final boolean engineBlack,
+                        final int engineDepth) {
+        this.id = id;
+        this.startFen = startFen;
+        this.timed = timed;
+        this.incrementMillis = incrementMillis;
+        this.engineWhite = engineWhite;
+        this.engineBlack = engineBlack;
+        this.engineDepth = engineDepth;
+        this.board = FenUtilities.createGameFromFEN(startFen);
+        this.moves = new short[16];
+        this.positionKeys = new long[17];
+        this.positionKeys[0] = this.board.getZobristHash();
+        this.plies = 0;
+        this.whiteMillis = baseMillis;
+        this.blackMillis = baseMillis;
+        this.turnStartNanos = System.nanoTime();
+        this.lastAccessNanos = this.turnStartNanos;
+        this.result = "*";
+        this.termination = "";
+        this.engineThinking = false;
+        this.evicted = false;
+    }
+
+    static GameSession create(final long id,
+                              final String startFen,
+                              final long baseMillis,
+                              final long incrementMillis,
+                              final boolean engineWhite,
+                              final boolean engineBlack,
+                              final int engineDepth) {
+        final GameSession session = new GameSession(id, startFen, baseMillis > 0, baseMillis, incrementMillis,
+                engineWhite, engineBlack, engineDepth);
+        session.checkGameEnd();
+        return session;
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    Board getBoard() {
+        return this.board;
+    }
+
+    boolean isOver() {
+        return !this.result.equals("*");
+    }
+
+    boolean isTimed() {
+        return this.timed;
+    }
+
+    boolean isEngineToMove() {
+        return !isOver() && (this.board.getCurrentPlayer().getAlliance().isWhite() ? this.engineWhite : this.engineBlack);
+    }
+
+    boolean isEngineThinking() {
+        return this.engineThinking;
+    }
+
+    void setEngineThinking(final boolean engineThinking) {
+        this.engineThinking = engineThinking;
+    }
+
+    boolean isEvicted() {
+        return this.evicted;
+    }
+
+    long getLastAccessNanos() {
+        return this.lastAccessNanos;
+    }
+
+    void touch(final long now) {
+        this.lastAccessNanos = now;
+    }
+
+    /**
+     * Plays a move for the side to move, charging the time since the last move to its clock
+     * @throws IllegalStateException if the game is over, or ends on time before the move
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    void play(final String uciMove, final long now) {
+        if (isOver() || checkFlag(now)) {
+            throw new IllegalStateException("Game " + this.id + " is over: " + this.result);
+        }
+        final Move move = UciNotation.fromUci(this.board, uciMove);
+        final MoveTransition transition = this.board.getCurrentPlayer().makeMove(move);
+        if (!transition.getMoveStatus().isDone()) {
+            throw new IllegalArgumentException("Illegal move " + uciMove + " in game " + this.id);
+        }
+        if (isTimed()) {
+            final long elapsed = (now - this.turnStartNanos) / 1000000L;
+            if (this.board.getCurrentPlayer().getAlliance().isWhite()) {
+                this.whiteMillis += this.incrementMillis - elapsed;
+            } else {
+                this.blackMillis += this.incrementMillis - elapsed;
+            }
+        }
+        this.turnStartNanos = now;
+        append(move, transition.getToBoard());
+        checkGameEnd();
+    }
+
+    void resign(final boolean white) {
+        if (!isOver()) {
+            end(white ? "0-1" : "1-0", "resignation");
+        }
+    }
+
+    /**
+     * Ends the game if the side to move has run out of time
+     * @return true if the game ended on time
+     */
+    boolean checkFlag(final long now) {
+        if (isOver() || !isTimed()) {
+            return false;
+        }
+        final boolean whiteToMove = this.board.getCurrentPlayer().getAlliance().isWhite();
+        if (remainingMillis(whiteToMove, now) >= 0) {
+            return false;
+        }
+        // A side without mating material cannot win on time
+        if (hasMatingMaterial(whiteToMove ? this.board.getBlackPieces() : this.board.getWhitePieces())) {
+            end(whiteToMove ? "0-1" : "1-0", "time forfeit");
+        } else {
+            end("1/2-1/2", "time forfeit against insufficient material");
+        }
+        return true;
+    }
+
+    /**
+     * @return the limits an engine searches with in the current position
+     */
+    SearchLimits createEngineLimits(final long now) {
+        final SearchLimits.Builder builder = new SearchLimits.Builder().setDepth(this.engineDepth);
+        if (isTimed()) {
+            builder.setWhiteTime(Math.max(1, remainingMillis(true, now)))
+                    .setBlackTime(Math.max(1, remainingMillis(false, now)))
+                    .setWhiteIncrement(this.incrementMillis)
+                    .setBlackIncrement(this.incrementMillis);
+        }
+        return builder.build();
+    }
+
+    GameState snapshot(final long now) {
+        final List<String> moveTexts = new ArrayList<>(this.plies);
+        for (int i = 0; i < this.plies; i++) {
+            moveTexts.add(BoardUtils.getPositionAtCoordinate(this.moves[i] & 63) +
+                    BoardUtils.getPositionAtCoordinate((this.moves[i] >>> 6) & 63) +
+                    ((this.moves[i] & PROMOTION_FLAG) != 0 ? "q" : ""));
+        }
+        final boolean whiteToMove = this.board.getCurrentPlayer().getAlliance().isWhite();
+        return new GameState(this.id, FenUtilities.createFENFromGame(this.board), moveTexts, whiteToMove,
+                isTimed() ? Math.max(0, remainingMillis(true, now)) : 0,
+                isTimed() ? Math.max(0, remainingMillis(false, now)) : 0,
+                this.result, this.termination);
+    }
+
+    /**
+     * Compacts the game to bytes and marks this session as evicted, so callers holding it look it up again
+     */
+    byte[] evict() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * this.plies);
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeUTF(this.startFen);
+            output.writeBoolean(this.timed);
+            output.writeLong(this.whiteMillis);
+            output.writeLong(this.blackMillis);
+            output.writeLong(this.incrementMillis);
+            // Evicted games live in the same process, so the clock of the side to move keeps running
+            output.writeLong(this.turnStartNanos);
+            output.writeBoolean(this.engineWhite);
+            output.writeBoolean(this.engineBlack);
+            output.writeInt(this.engineDepth);
+            output.writeUTF(this.result);
+            output.writeUTF(this.termination);
+            output.writeShort(this.plies);
+            for (int i = 0; i < this.plies; i++) {
+                output.writeShort(this.moves[i]);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.evicted = true;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replays a compacted game
+     */
+    static GameSession restore(final long id, final byte[] compacted) {
+        try (final DataInputStream input = new DataInputStream(new ByteArrayInputStream(compacted))) {
+            if (input.readUnsignedByte() != FORMAT_VERSION) {
+                throw new IOException("Unknown game format");
+            }
+            final String startFen = input.readUTF();
+            final boolean timed = input.readBoolean();
+            final long whiteMillis = input.readLong();
+            final long blackMillis = input.readLong();
+            final long incrementMillis = input.readLong();
+            final long turnStartNanos = input.readLong();
+            final GameSession session = new GameSession(id, startFen, timed, 0, incrementMillis,
+                    input.readBoolean(), input.readBoolean(), input.readInt());
+            final String result = input.readUTF();
+            final String termination = input.readUTF();
+            final int plies = input.readUnsignedShort();
+            for (int i = 0; i < plies; i++) {
+                final short encoded = input.readShort();
+                final Move move = Move.MoveFactory.createMove(session.board, encoded & 63, (encoded >>> 6) & 63);
+                session.append(move, session.board.getCurrentPlayer().makeMove(move).getToBoard());
+            }
+            session.whiteMillis = whiteMillis;
+            session.blackMillis = blackMillis;
+            session.turnStartNanos = turnStartNanos;
+            session.result = result;
+            session.termination = termination;
+            return session;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(final Move move, final Board toBoard) {
+        if (this.plies == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, Math.min(MAX_PLIES, 2 * this.plies));
+            this.positionKeys = Arrays.copyOf(this.positionKeys, this.moves.length + 1);
+        }
+        this.moves[this.plies] = (short) (move.getCurrentCoordinate() | move.getDestinationCoordinate() << 6 |
+                (move instanceof Move.PawnPromotion ? PROMOTION_FLAG : 0));
+        this.plies++;
+        this.board = detach(toBoard);
+        this.positionKeys[this.plies] = this.board.getZobristHash();
+    }
+
+    private void checkGameEnd() {
+        if (this.board.getCurrentPlayer().isInCheckMate()) {
+            end(this.board.getCurrentPlayer().getAlliance().isWhite() ? "0-1" : "1-0", "checkmate");
+        } else if (this.board.getCurrentPlayer().isInStalemate()) {
+            end("1/2-1/2", "stalemate");
+        } else if (BoardUtils.isInsufficientMaterial(this.board)) {
+            end("1/2-1/2", "insufficient material");
+        } else if (isThreefoldRepetition()) {
+            end("1/2-1/2", "threefold repetition");
+        } else if (this.plies >= MAX_PLIES) {
+            end("1/2-1/2", "move limit");
+        }
+    }
+
+    private boolean isThreefoldRepetition() {
+        final long key = this.positionKeys[this.plies];
+        int count = 0;
+        // Only positions with the same side to move can repeat
+        for (int i = this.plies; i >= 0; i -= 2) {
+            if (this.positionKeys[i] == key && ++count >= 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void end(final String result, final String termination) {
+        this.result = result;
+        this.termination = termination;
+    }
+
+    private long remainingMillis(final boolean white, final long now) {
+        final long remaining = white ? this.whiteMillis : this.blackMillis;
+        final boolean toMove = this.board.getCurrentPlayer().getAlliance().isWhite() == white;
+        return toMove && !isOver() ? remaining - (now - this.turnStartNanos) / 1000000L : remaining;
+    }
+
+    private static boolean hasMatingMaterial(final Iterable<Piece> pieces) {
+        int minorPieces = 0;
+        for (final Piece piece : pieces) {
+            if (piece.getPieceType() == Piece.PieceType.KNIGHT || piece.getPieceType() == Piece.PieceType.BISHOP) {
+                minorPieces++;
+            } else if (piece.getPieceType() != Piece.PieceType.KING) {
+                return true;
+            }
+        }
+        return minorPieces >= 2;
+    }
+
+    /**
+     * @return the same position without the chain of earlier boards a move transition keeps alive
+     */
+    private static Board detach(final Board board) {
+        final Board.Builder builder = new Board.Builder();
+        for (final Piece piece : board.getWhitePieces()) {
+            builder.setPiece(piece);
+        }
+        for (final Piece piece : board.getBlackPieces()) {
+            builder.setPiece(piece);
+        }
+        builder.setMoveMaker(board.getCurrentPlayer().getAlliance());
+        builder.setEnPassantPawn(board.getEnPassantPawn());
+        return builder.build();
+    }
+}
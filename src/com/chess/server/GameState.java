@@ -0,0 +1,95 @@
+package com.chess.server;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * An immutable snapshot of one hosted game, as handed to clients
+ */
+public final class GameState {
+
+    private final long gameId;
+    private final String fen;
+    private final List<String> moves;
+    private final boolean whiteToMove;
+    private final long whiteMillis;
+    private final long blackMillis;
+    private final String result;
+    private final String termination;
+
+    GameState(final long gameId,
+              final String fen,
+              final List<String> moves,
+              final boolean whiteToMove,
+              final long whiteMillis,
+              final long blackMillis,
+              final String result,
+              final String termination) {
+        this.gameId = gameId;
+        this.fen = fen;
+        this.moves = ImmutableList.copyOf(moves);
+        this.whiteToMove = whiteToMove;
+        this.whiteMillis = whiteMillis;
+        this.blackMillis = blackMillis;
+        this.result = result;
+        this.termination = termination;
+    }
+
+    public long getGameId() {
+        return this.gameId;
+    }
+
+    public String getFen() {
+        return this.fen;
+    }
+
+    /**
+     * @return the moves played so far in UCI notation
+     */
+    public List<String> getMoves() {
+        return this.moves;
+    }
+
+    public boolean isWhiteToMove() {
+        return this.whiteToMove;
+    }
+
+    /**
+     * @return white's remaining time when the snapshot was taken, 0 for an untimed game
+     */
+    public long getWhiteMillis() {
+        return this.whiteMillis;
+    }
+
+    /**
+     * @return black's remaining time when the snapshot was taken, 0 for an untimed game
+     */
+    public long getBlackMillis() {
+        return this.blackMillis;
+    }
+
+    /**
+     * @return the PGN result text, "*" while the game is running
+     */
+    public String getResult() {
+        return this.result;
+    }
+
+    public boolean isOver() {
+        return !this.result.equals("*");
+    }
+
+    /**
+     * @return why the game ended, empty while it is running
+     */
+    public String getTermination() {
+        return this.termination;
+    }
+
+    @Override
+    public String toString() {
+        return "Game " + this.gameId + " " + this.result + (this.termination.isEmpty() ? "" : " {" + this.termination + "}") +
+                " after " + this.moves.size() + " plies: " + this.fen;
+    }
+}
@@ -0,0 +1,186 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.piece.Piece;
+import com.chess.tuning.SelfPlayGame.Outcome;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the moves of one headless game and decides when and how it ends, so every game
+ * runner scores games the same way. Games end on checkmate, stalemate, threefold repetition,
+ * insufficient material and illegal moves. When the movers report scores, games are also adjudicated
+ * when both sides agree on a decisive score for several moves, or on a near zero score for several
+ * moves late in the game. Games that reach the ply limit are adjudicated on material.
+ */
+final class GameReferee {
+
+    // Score, in centipawns, both engines must agree on for a win to be adjudicated
+    private static final int RESIGN_SCORE = 1000;
+    private static final int RESIGN_MOVES = 3;
+    // Near zero score both engines must report, after the given ply, for a draw to be adjudicated
+    private static final int DRAW_SCORE = 10;
+    private static final int DRAW_MOVES = 8;
+    private static final int DRAW_START_PLY = 80;
+    // Material lead, in centipawns, that wins a game stopped at the ply limit
+    private static final int ADJUDICATION_MARGIN = 300;
+
+    /**
+     * How a game ended
+     */
+    static final class Ending {
+
+        private final Outcome outcome;
+        private final String termination;
+
+        Ending(final Outcome outcome,
+               final String termination) {
+            this.outcome = outcome;
+            this.termination = termination;
+        }
+
+        Outcome getOutcome() {
+            return this.outcome;
+        }
+
+        /**
+         * @return why the game ended, as written to the PGN Termination tag
+         */
+        String getTermination() {
+            return this.termination;
+        }
+    }
+
+    private final int maxPlies;
+    private final List<Move> moves;
+    private final Map<Long, Integer> repetitions;
+    private Board board;
+    private int decisivePlies;
+    private int drawnPlies;
+    private int lastWhiteScore;
+
+    /**
+     * @param maxPlies is the number of plies after which the game is adjudicated on material
+     */
+    GameReferee(final Board startBoard,
+                final int maxPlies) {
+        this.maxPlies = maxPlies;
+        this.moves = new ArrayList<>();
+        this.repetitions = new HashMap<>();
+        this.board = startBoard;
+        this.decisivePlies = 0;
+        this.drawnPlies = 0;
+        this.lastWhiteScore = 0;
+    }
+
+    Board getBoard() {
+        return this.board;
+    }
+
+    List<Move> getMoves() {
+        return this.moves;
+    }
+
+    boolean isWhiteToMove() {
+        return this.board.getCurrentPlayer().getAlliance().isWhite();
+    }
+
+    /**
+     * Called once before every move
+     * @return how the game ended in the current position, or null if the side to move is to move
+     */
+    Ending checkEnd() {
+        if (this.board.getCurrentPlayer().isInCheckMate()) {
+            return forfeit("checkmate");
+        }
+        if (this.board.getCurrentPlayer().isInStalemate()) {
+            return new Ending(Outcome.DRAW, "stalemate");
+        }
+        if (this.repetitions.merge(this.board.getZobristHash(), 1, Integer::sum) >= 3) {
+            return new Ending(Outcome.DRAW, "threefold repetition");
+        }
+        if (BoardUtils.isInsufficientMaterial(this.board)) {
+            return new Ending(Outcome.DRAW, "insufficient material");
+        }
+        if (this.moves.size() >= this.maxPlies) {
+            return new Ending(adjudicateMaterial(), "move limit");
+        }
+        return null;
+    }
+
+    /**
+     * @param termination is why the side to move loses, such as a time forfeit
+     * @return the ending in which the side to move loses
+     */
+    Ending forfeit(final String termination) {
+        return new Ending(isWhiteToMove() ? Outcome.BLACK_WINS : Outcome.WHITE_WINS, termination);
+    }
+
+    /**
+     * Plays a move of a mover that reports no score
+     * @return the ending if the move is illegal, otherwise null
+     */
+    Ending play(final Move move) {
+        return makeMove(move) ? null : forfeit("illegal move");
+    }
+
+    /**
+     * Plays a move and counts the mover's score towards score adjudication
+     * @param moverScore is the mover's score of the position, in centipawns from its own side
+     * @return the ending if the move is illegal or the game is adjudicated, otherwise null
+     */
+    Ending play(final Move move,
+                final int moverScore) {
+        final boolean whiteMoved = isWhiteToMove();
+        if (!makeMove(move)) {
+            return forfeit("illegal move");
+        }
+        final int whiteScore = whiteMoved ? moverScore : -moverScore;
+        if (Math.abs(whiteScore) >= RESIGN_SCORE &&
+                (this.decisivePlies == 0 || Integer.signum(whiteScore) == Integer.signum(this.lastWhiteScore))) {
+            this.decisivePlies++;
+        } else {
+            this.decisivePlies = Math.abs(whiteScore) >= RESIGN_SCORE ? 1 : 0;
+        }
+        this.lastWhiteScore = whiteScore;
+        if (this.decisivePlies >= 2 * RESIGN_MOVES) {
+            return new Ending(whiteScore > 0 ? Outcome.WHITE_WINS : Outcome.BLACK_WINS, "adjudication");
+        }
+        this.drawnPlies = this.moves.size() >= DRAW_START_PLY && Math.abs(whiteScore) <= DRAW_SCORE ?
+                this.drawnPlies + 1 : 0;
+        if (this.drawnPlies >= 2 * DRAW_MOVES) {
+            return new Ending(Outcome.DRAW, "adjudication");
+        }
+        return null;
+    }
+
+    private boolean makeMove(final Move move) {
+        final MoveTransition transition = this.board.getCurrentPlayer().makeMove(move);
+        if (!transition.getMoveStatus().isDone()) {
+            return false;
+        }
+        this.moves.add(move);
+        this.board = transition.getToBoard();
+        return true;
+    }
+
+    private Outcome adjudicateMaterial() {
+        int materialBalance = 0;
+        for (final Piece piece : this.board.getWhitePieces()) {
+            materialBalance += piece.getPieceType().getPieceValue();
+        }
+        for (final Piece piece : this.board.getBlackPieces()) {
+            materialBalance -= piece.getPieceType().getPieceValue();
+        }
+        if (materialBalance >= ADJUDICATION_MARGIN) {
+            return Outcome.WHITE_WINS;
+        }
+        return materialBalance <= -ADJUDICATION_MARGIN ? Outcome.BLACK_WINS : Outcome.DRAW;
+    }
+}
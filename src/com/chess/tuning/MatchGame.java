@@ -0,0 +1,189 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.tuning.SelfPlayGame.Outcome;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This class plays one headless game between two engines on a chess clock.
+ * Besides time forfeits, games end and are adjudicated by the rules of GameReferee, including
+ * the engines agreeing on a decisive or a near zero score for several moves.
+ */
+public final class MatchGame {
+
+    private final Board startBoard;
+    private final List<Move> moves;
+    private final Outcome outcome;
+    private final String termination;
+
+    private MatchGame(final Board startBoard,
+                      final List<Move> moves,
+                      final GameReferee.Ending ending) {
+        this.startBoard = startBoard;
+        this.moves = ImmutableList.copyOf(moves);
+        this.outcome = ending.getOutcome();
+        this.termination = ending.getTermination();
+    }
+
+    /**
+     * @param startBoard is the board the game starts from
+     * @param white plays the white pieces
+     * @param black plays the black pieces
+     * @param timeControl limits the searches of both engines
+     * @param maxPlies is the number of plies after which the game is adjudicated on material
+     * @param cancelled is asked before every move whether the game should be abandoned
+     * @return the finished game, or null if the game was abandoned
+     */
+    public static MatchGame play(final Board startBoard,
+                                 final IterativeDeepeningSearch white,
+                                 final IterativeDeepeningSearch black,
+                                 final TimeControl timeControl,
+                                 final int maxPlies,
+                                 final BooleanSupplier cancelled) {
+        final GameReferee referee = new GameReferee(startBoard, maxPlies);
+        long whiteTime = timeControl.getBaseMillis();
+        long blackTime = timeControl.getBaseMillis();
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            GameReferee.Ending ending = referee.checkEnd();
+            if (ending != null) {
+                return new MatchGame(startBoard, referee.getMoves(), ending);
+            }
+
+            final boolean whiteToMove = referee.isWhiteToMove();
+            final IterativeDeepeningSearch engine = whiteToMove ? white : black;
+            final long start = System.nanoTime();
+            final SearchResult result = engine.search(referee.getBoard(), timeControl.createLimits(whiteTime, blackTime), null);
+            final long elapsed = (System.nanoTime() - start) / 1000000L;
+            if (timeControl.isClocked()) {
+                final long remaining = (whiteToMove ? whiteTime : blackTime) - elapsed;
+                if (remaining < 0) {
+                    return new MatchGame(startBoard, referee.getMoves(), referee.forfeit("time forfeit"));
+                }
+                if (whiteToMove) {
+                    whiteTime = remaining + timeControl.getIncrementMillis();
+                } else {
+                    blackTime = remaining + timeControl.getIncrementMillis();
+                }
+            }
+            ending = referee.play(result.getBestMove(), result.getScore());
+            if (ending != null) {
+                return new MatchGame(startBoard, referee.getMoves(), ending);
+            }
+        }
+    }
+
+    public Board getStartBoard() {
+        return this.startBoard;
+    }
+
+    public List<Move> getMoves() {
+        return this.moves;
+    }
+
+    public Outcome getOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * @return why the game ended, as written to the PGN Termination tag
+     */
+    public String getTermination() {
+        return this.termination;
+    }
+
+    /**
+     * The limits each engine searches with. Either a clock of base time plus increment,
+     * or a fixed depth or node count per move.
+     */
+    public static final class TimeControl {
+
+        private final long baseMillis;
+        private final long incrementMillis;
+        private final int depth;
+        private final long nodes;
+
+        private TimeControl(final long baseMillis,
+                            final long incrementMillis,
+                            final int depth,
+                            final long nodes) {
+            this.baseMillis = baseMillis;
+            this.incrementMillis = incrementMillis;
+            this.depth = depth;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @param text is "base+increment" in seconds such as "10+0.1", "depth=N" or "nodes=N"
+         * @return the time control
+         * @throws IllegalArgumentException if the text is no time control
+         */
+        public static TimeControl parse(final String text) {
+            try {
+                if (text.startsWith("depth=")) {
+                    return new TimeControl(0, 0, Integer.parseInt(text.substring(6)), 0);
+                }
+                if (text.startsWith("nodes=")) {
+                    return new TimeControl(0, 0, 0, Long.parseLong(text.substring(6)));
+                }
+                final int plus = text.indexOf('+');
+                final double base = Double.parseDouble(plus < 0 ? text : text.substring(0, plus));
+                final double increment = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+                if (base <= 0 || increment < 0) {
+                    throw new IllegalArgumentException("Invalid time control " + text);
+                }
+                return new TimeControl(Math.round(base * 1000), Math.round(increment * 1000), 0, 0);
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid time control " + text, e);
+            }
+        }
+
+        public boolean isClocked() {
+            return this.baseMillis > 0;
+        }
+
+        public long getBaseMillis() {
+            return this.baseMillis;
+        }
+
+        public long getIncrementMillis() {
+            return this.incrementMillis;
+        }
+
+        SearchLimits createLimits(final long whiteTime, final long blackTime) {
+            return new SearchLimits.Builder()
+                    .setDepth(this.depth)
+                    .setNodes(this.nodes)
+                    .setWhiteTime(isClocked() ? whiteTime : 0)
+                    .setBlackTime(isClocked() ? blackTime : 0)
+                    .setWhiteIncrement(this.incrementMillis)
+                    .setBlackIncrement(this.incrementMillis)
+                    .build();
+        }
+
+        /**
+         * @return the time control in PGN TimeControl tag notation, "-" for an unclocked control
+         */
+        @Override
+        public String toString() {
+            if (!isClocked()) {
+                return "-";
+            }
+            return this.incrementMillis == 0 ? formatSeconds(this.baseMillis) :
+                    formatSeconds(this.baseMillis) + "+" + formatSeconds(this.incrementMillis);
+        }
+
+        private static String formatSeconds(final long millis) {
+            return millis % 1000 == 0 ? Long.toString(millis / 1000) : Double.toString(millis / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.chess.tuning;
+
+/**
+ * This class counts the results of a match from the first engine's point of view and estimates
+ * the Elo difference between the engines, with a sequential probability ratio test (SPRT)
+ * that decides whether the difference is elo0 or elo1.
+ * The SPRT uses the normal approximation of the log likelihood ratio for a trinomial result,
+ * with logistic Elo as used by most engine testing tools.
+ */
+public final class MatchStatistics {
+
+    // Two sided 95% quantile of the normal distribution
+    private static final double Z_95 = 1.959964;
+
+    private int wins;
+    private int draws;
+    private int losses;
+
+    /**
+     * @param halfPoints are the first engine's half points in one game: 2 for a win, 1 for a draw, 0 for a loss
+     */
+    public synchronized void record(final int halfPoints) {
+        if (halfPoints == 2) {
+            this.wins++;
+        } else if (halfPoints == 1) {
+            this.draws++;
+        } else {
+            this.losses++;
+        }
+    }
+
+    public synchronized int getWins() {
+        return this.wins;
+    }
+
+    public synchronized int getDraws() {
+        return this.draws;
+    }
+
+    public synchronized int getLosses() {
+        return this.losses;
+    }
+
+    public synchronized int getGames() {
+        return this.wins + this.draws + this.losses;
+    }
+
+    /**
+     * @return the first engine's mean score per game, between 0 and 1
+     */
+    public synchronized double getScore() {
+        final int games = getGames();
+        return games == 0 ? 0.5 : (this.wins + 0.5 * this.draws) / games;
+    }
+
+    /**
+     * @return the estimated Elo difference of the first engine over the second
+     */
+    public synchronized double getEloDifference() {
+        return toElo(getScore());
+    }
+
+    /**
+     * @return half the width of the 95% confidence interval of the Elo difference,
+     * infinite while the games so far give no spread
+     */
+    public synchronized double getEloErrorMargin() {
+        final int games = getGames();
+        final double variance = getVariance();
+        if (games == 0 || variance == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double deviation = Math.sqrt(variance / games);
+        final double score = getScore();
+        return (toElo(score + Z_95 * deviation) - toElo(score - Z_95 * deviation)) / 2;
+    }
+
+    /**
+     * @param elo0 is the Elo difference of the null hypothesis
+     * @param elo1 is the Elo difference of the alternative hypothesis
+     * @return the log likelihood ratio of elo1 against elo0, 0 while the games so far give no spread
+     */
+    public synchronized double getLogLikelihoodRatio(final double elo0, final double elo1) {
+        final int games = getGames();
+        final double variance = getVariance();
+        if (games == 0 || variance == 0) {
+            return 0;
+        }
+        final double score0 = toScore(elo0);
+        final double score1 = toScore(elo1);
+        return games * (score1 - score0) * (2 * getScore() - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * @param alpha is the false positive rate
+     * @param beta is the false negative rate
+     * @return the log likelihood ratio at or below which elo0 is accepted
+     */
+    public static double getLowerBound(final double alpha, final double beta) {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    /**
+     * @param alpha is the false positive rate
+     * @param beta is the false negative rate
+     * @return the log likelihood ratio at or above which elo1 is accepted
+     */
+    public static double getUpperBound(final double alpha, final double beta) {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * @param score is a mean score per game
+     * @return the logistic Elo difference that gives the score, infinite for 0 and 1
+     */
+    public static double toElo(final double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * @param elo is a logistic Elo difference
+     * @return the mean score per game the difference gives
+     */
+    public static double toScore(final double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private double getVariance() {
+        final int games = getGames();
+        if (games == 0) {
+            return 0;
+        }
+        final double score = getScore();
+        return (this.wins * (1 - score) * (1 - score) +
+                this.draws * (0.5 - score) * (0.5 - score) +
+                this.losses * score * score) / games;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("W %d D %d L %d, score %.1f%%, Elo %+.1f +/- %.1f",
+                this.wins, this.draws, this.losses, 100 * getScore(), getEloDifference(), getEloErrorMargin());
+    }
+}
@@ -0,0 +1,116 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class plays one headless game between two move strategies.
+ * Games end and are scored by the same rules as match games, see GameReferee.
+ */
+public final class SelfPlayGame {
+
+    public enum Outcome {
+        WHITE_WINS("1-0", 2),
+        BLACK_WINS("0-1", 0),
+        DRAW("1/2-1/2", 1);
+
+        private final String result;
+        private final int whiteHalfPoints;
+
+        Outcome(final String result, final int whiteHalfPoints) {
+            this.result = result;
+            this.whiteHalfPoints = whiteHalfPoints;
+        }
+
+        /**
+         * @return the PGN result text
+         */
+        public String getResult() {
+            return this.result;
+        }
+
+        /**
+         * @return 2 for a white win, 1 for a draw and 0 for a black win
+         */
+        public int getWhiteHalfPoints() {
+            return this.whiteHalfPoints;
+        }
+    }
+
+    private final Board startBoard;
+    private final List<Move> moves;
+    private final Outcome outcome;
+
+    private SelfPlayGame(final Board startBoard,
+                         final List<Move> moves,
+                         final Outcome outcome) {
+        this.startBoard = startBoard;
+        this.moves = ImmutableList.copyOf(moves);
+        this.outcome = outcome;
+    }
+
+    /**
+     * @param startBoard is the board the game starts from
+     * @param white plays the white pieces
+     * @param black plays the black pieces
+     * @param maxPlies is the number of plies after which the game is adjudicated on material
+     * @return the finished game
+     */
+    public static SelfPlayGame play(final Board startBoard,
+                                    final MoveStrategy white,
+                                    final MoveStrategy black,
+                                    final int maxPlies) {
+        final GameReferee referee = new GameReferee(startBoard, maxPlies);
+        while (true) {
+            GameReferee.Ending ending = referee.checkEnd();
+            if (ending == null) {
+                // A strategy that cannot produce a legal move forfeits
+                final MoveStrategy strategy = referee.isWhiteToMove() ? white : black;
+                ending = referee.play(strategy.execute(referee.getBoard()));
+            }
+            if (ending != null) {
+                return new SelfPlayGame(startBoard, referee.getMoves(), ending.getOutcome());
+            }
+        }
+    }
+
+    /**
+     * Plays random legal moves from the standard board, so that games between deterministic
+     * strategies do not all repeat the same moves
+     * @param plies is the number of random moves
+     * @param random is the source of the moves
+     * @return the board after the moves, or after fewer if a game ended early
+     */
+    public static Board randomOpening(final int plies, final Random random) {
+        Board board = Board.createStandardBoard();
+        for (int ply = 0; ply < plies && !BoardUtils.isEndGame(board); ply++) {
+            final List<Move> legalMoves = new ArrayList<>();
+            for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+                if (board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                    legalMoves.add(move);
+                }
+            }
+            board = board.getCurrentPlayer().makeMove(legalMoves.get(random.nextInt(legalMoves.size()))).getToBoard();
+        }
+        return board;
+    }
+
+    public Board getStartBoard() {
+        return this.startBoard;
+    }
+
+    public List<Move> getMoves() {
+        return this.moves;
+    }
+
+    public Outcome getOutcome() {
+        return this.outcome;
+    }
+}
@@ -0,0 +1,246 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.SearchParameters;
+import com.chess.engine.player.ai.SearchParameters.Setting;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.StockAlphaBeta;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the StockAlphaBeta search settings with SPSA (simultaneous perturbation stochastic approximation).
+ * Every iteration perturbs all settings at once in a random direction, plays the plus and minus
+ * versions against each other in short self-play games on a thread pool, and moves the settings
+ * towards the version that scored better. Each game builds its own engines, so games share nothing.
+ * Progress is checkpointed after every iteration and a restarted run resumes from the checkpoint.
+ *
+ * Usage: SpsaTuner output.properties checkpoint.properties [iterations] [games per iteration] [depth]
+ */
+public class SpsaTuner {
+
+    private static final int DEFAULT_ITERATIONS = 1000;
+    private static final int DEFAULT_SEARCH_DEPTH = 2;
+    private static final int MAX_PLIES = 160;
+    private static final int RANDOM_OPENING_PLIES = 4;
+    private static final long SEED = 0x5EED;
+
+    // Gain sequences a_k = 1 / (k + A)^alpha and c_k = 1 / k^gamma, as recommended by Spall
+    private static final double ALPHA = 0.602;
+    private static final double GAMMA = 0.101;
+    private static final double STABILITY = 50;
+    // Size of the first perturbation of each setting as a fraction of its range
+    private static final double PERTURBATION = 0.05;
+
+    private final File checkpointFile;
+    private final int gamesPerIteration;
+    private final int searchDepth;
+    private final BoardEvaluator evaluator;
+    private final double[] theta;
+    private int iteration;
+
+    private SpsaTuner(final File checkpointFile,
+                      final int gamesPerIteration,
+                      final int searchDepth) throws IOException {
+        this.checkpointFile = checkpointFile;
+        this.gamesPerIteration = Math.max(2, gamesPerIteration - gamesPerIteration % 2);
+        this.searchDepth = searchDepth;
+        this.evaluator = StandardBoardEvaluator.get();
+        this.theta = new double[SearchParameters.NUM_SETTINGS];
+        final int[] defaults = SearchParameters.DEFAULT.getValues();
+        for (int i = 0; i < this.theta.length; i++) {
+            this.theta[i] = defaults[i];
+        }
+        this.iteration = 0;
+        if (checkpointFile.exists()) {
+            this.iteration = loadCheckpoint(checkpointFile, this.theta);
+            System.out.println("Resuming at iteration " + this.iteration + " from " + checkpointFile);
+        }
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 2) {
+            System.out.println("Usage: SpsaTuner output.properties checkpoint.properties [iterations] [games per iteration] [depth]");
+            return;
+        }
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+        final int gamesPerIteration = args.length > 3 ? Integer.parseInt(args[3]) : 2 * threads;
+        final int searchDepth = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_SEARCH_DEPTH;
+        final SpsaTuner tuner = new SpsaTuner(new File(args[1]), gamesPerIteration, searchDepth);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (tuner.iteration < iterations) {
+                tuner.step(executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final SearchParameters tuned = tuner.current();
+        tuned.save(new File(args[0]), "SPSA tuned over " + tuner.iteration + " iterations");
+        System.out.println("Wrote " + tuned + " to " + args[0]);
+    }
+
+    private SearchParameters current() {
+        return perturb(this.theta, new int[this.theta.length], new int[this.theta.length], 0);
+    }
+
+    /**
+     * @param c is the perturbation gain of the iteration
+     * @return the perturbation of every setting, rounded but never below 1, so the plus and minus
+     * versions of a setting with a small range still differ once c has decayed
+     */
+    public static int[] steps(final double c) {
+        final int[] steps = new int[SearchParameters.NUM_SETTINGS];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = (int) Math.max(1, Math.round(c * perturbation(i)));
+        }
+        return steps;
+    }
+
+    /**
+     * @param sign is 1 for the plus version, -1 for the minus version and 0 for the settings themselves
+     * @return the rounded settings moved by their steps in the direction of delta
+     */
+    public static SearchParameters perturb(final double[] theta,
+                                           final int[] delta,
+                                           final int[] steps,
+                                           final int sign) {
+        final int[] values = new int[theta.length];
+        for (int i = 0; i < theta.length; i++) {
+            values[i] = (int) Math.round(theta[i]) + sign * steps[i] * delta[i];
+        }
+        return new SearchParameters(values);
+    }
+
+    /**
+     * Moves the settings along the gradient estimated from one iteration, a_k * g_k with
+     * g_k = score / (step * delta), each scaled by its setting's perturbation, and clamps them to
+     * their ranges
+     * @param score is the score of the plus version in [-1, 1]
+     * @param a is the step gain of the iteration
+     */
+    public static void update(final double[] theta,
+                              final int[] delta,
+                              final int[] steps,
+                              final double score,
+                              final double a) {
+        for (int i = 0; i < theta.length; i++) {
+            final Setting setting = Setting.values()[i];
+            final double perturbation = perturbation(i);
+            theta[i] += a * perturbation * perturbation * score * delta[i] / steps[i];
+            theta[i] = Math.max(setting.getMinimum(), Math.min(setting.getMaximum(), theta[i]));
+        }
+    }
+
+    private static double perturbation(final int setting) {
+        final Setting s = Setting.values()[setting];
+        return Math.max(1.0, PERTURBATION * (s.getMaximum() - s.getMinimum()));
+    }
+
+    private void step(final ExecutorService executor) throws InterruptedException, ExecutionException, IOException {
+        final int k = this.iteration + 1;
+        final double a = 1.0 / Math.pow(k + STABILITY, ALPHA);
+        final double c = 1.0 / Math.pow(k, GAMMA);
+        // Seeded by the iteration so a resumed run plays the same games
+        final Random random = new Random(SEED * 31 + k);
+        final int[] delta = new int[this.theta.length];
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = random.nextBoolean() ? 1 : -1;
+        }
+        final int[] steps = steps(c);
+        final SearchParameters plus = perturb(this.theta, delta, steps, 1);
+        final SearchParameters minus = perturb(this.theta, delta, steps, -1);
+
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (int pair = 0; pair < this.gamesPerIteration / 2; pair++) {
+            final Board opening = SelfPlayGame.randomOpening(RANDOM_OPENING_PLIES, random);
+            results.add(executor.submit(() -> playPair(opening, plus, minus)));
+        }
+        int plusHalfPoints = 0;
+        for (final Future<Integer> result : results) {
+            plusHalfPoints += result.get();
+        }
+        // Score of the plus version in [-1, 1], 0 when both versions did equally well
+        final double score = (plusHalfPoints - this.gamesPerIteration) / (double) this.gamesPerIteration;
+        update(this.theta, delta, steps, score, a);
+        this.iteration = k;
+        saveCheckpoint(this.checkpointFile, this.iteration, this.theta);
+        System.out.printf("Iteration %d: plus scored %d/%d, now %s%n", k, plusHalfPoints,
+                2 * this.gamesPerIteration, current());
+    }
+
+    /**
+     * Plays the opening once with each color
+     * @return the half points the plus version scored over both games
+     */
+    private int playPair(final Board opening,
+                         final SearchParameters plus,
+                         final SearchParameters minus) {
+        final int plusAsWhite = SelfPlayGame.play(opening, engine(plus), engine(minus), MAX_PLIES)
+                .getOutcome().getWhiteHalfPoints();
+        final int plusAsBlack = 2 - SelfPlayGame.play(opening, engine(minus), engine(plus), MAX_PLIES)
+                .getOutcome().getWhiteHalfPoints();
+        return plusAsWhite + plusAsBlack;
+    }
+
+    private StockAlphaBeta engine(final SearchParameters parameters) {
+        final StockAlphaBeta engine = new StockAlphaBeta(this.searchDepth, this.evaluator, parameters);
+        engine.setVerbose(false);
+        return engine;
+    }
+
+    /**
+     * Reads the settings of a checkpoint into theta, settings missing from it keep their value
+     * @return the number of iterations done
+     */
+    public static int loadCheckpoint(final File checkpointFile,
+                                     final double[] theta) throws IOException {
+        final Properties properties = new Properties();
+        try (final Reader reader = new BufferedReader(new FileReader(checkpointFile))) {
+            properties.load(reader);
+        }
+        try {
+            for (final Setting setting : Setting.values()) {
+                final String value = properties.getProperty(setting.name());
+                if (value != null) {
+                    theta[setting.ordinal()] = Double.parseDouble(value);
+                }
+            }
+            return Integer.parseInt(properties.getProperty("iteration", "0"));
+        } catch (final NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint " + checkpointFile, e);
+        }
+    }
+
+    /**
+     * Writes the checkpoint next to the old one and renames it over, so a crash never leaves half a file
+     */
+    public static void saveCheckpoint(final File checkpointFile,
+                                      final int iteration,
+                                      final double[] theta) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("iteration", Integer.toString(iteration));
+        for (final Setting setting : Setting.values()) {
+            properties.setProperty(setting.name(), Double.toString(theta[setting.ordinal()]));
+        }
+        final File absoluteFile = checkpointFile.getAbsoluteFile();
+        final File temporaryFile = new File(absoluteFile.getParentFile(), absoluteFile.getName() + ".tmp");
+        try (final Writer writer = new BufferedWriter(new FileWriter(temporaryFile))) {
+            properties.store(writer, "SPSA checkpoint");
+        }
+        Files.move(temporaryFile.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,220 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.Game;
+import com.chess.pgn.PGNUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.chess.engine.board.BoardUtils.mvvlva;
+
+/**
+ * Tunes the weights of the standard evaluator on positions from PGN games (Texel's method).
+ * Every position is first resolved with a capture-only search, then the weights are moved one
+ * step at a time for as long as the error between the game results and the sigmoid of the
+ * evaluation keeps dropping.
+ *
+ * Usage: TexelTuner output.properties [-start start.properties] games.pgn...
+ */
+public class TexelTuner {
+
+    // Opening positions come from books rather than from the players, so they are skipped
+    private static final int OPENING_PLIES = 8;
+    private static final int MAX_QUIESCENCE_PLIES = 6;
+    private static final int MAX_PASSES = 500;
+    private static final int QUEUED_GAMES_PER_THREAD = 16;
+
+    private final EvaluationParameters start;
+    private final TrainingSet trainingSet;
+
+    private TexelTuner(final EvaluationParameters start) {
+        this.start = start;
+        this.trainingSet = new TrainingSet();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: TexelTuner output.properties [-start start.properties] games.pgn...");
+            return;
+        }
+        final File outputFile = new File(args[0]);
+        int first = 1;
+        EvaluationParameters start = EvaluationParameters.DEFAULT;
+        if (args[1].equals("-start") && args.length > 3) {
+            start = EvaluationParameters.load(new File(args[2]));
+            first = 3;
+        }
+        final TexelTuner tuner = new TexelTuner(start);
+        final List<File> pgnFiles = new ArrayList<>();
+        for (int i = first; i < args.length; i++) {
+            pgnFiles.add(new File(args[i]));
+        }
+        tuner.loadPositions(pgnFiles);
+        final EvaluationParameters tuned = tuner.tune();
+        tuned.save(outputFile, "Texel tuned over " + tuner.trainingSet.size() + " positions");
+        System.out.println("Wrote " + tuned + " to " + outputFile);
+    }
+
+    /**
+     * Replays the games on a thread pool. The pool's queue is bounded and the reading thread
+     * runs games itself when the queue is full, so only a few games are in memory at once.
+     */
+    private void loadPositions(final List<File> pgnFiles) throws IOException, InterruptedException {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_GAMES_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        final StandardBoardEvaluator evaluator = new StandardBoardEvaluator(this.start);
+        try {
+            for (final File pgnFile : pgnFiles) {
+                final int games = PGNUtilities.readPGNFile(pgnFile, game -> {
+                    if (game.isValid() && result(game) >= 0) {
+                        executor.execute(() -> addPositions(game, evaluator));
+                    }
+                });
+                System.out.println("Read " + games + " games from " + pgnFile);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        System.out.println("Loaded " + this.trainingSet.size() + " positions");
+    }
+
+    /**
+     * @return the result in half points for white, or -1 for an unfinished game
+     */
+    private static int result(final Game game) {
+        switch (game.getWinner()) {
+            case "White":
+                return 2;
+            case "Black":
+                return 0;
+            case "Tie":
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    private void addPositions(final Game game, final StandardBoardEvaluator evaluator) {
+        final List<String> moves = game.getMoves();
+        final int[] fixedScores = new int[moves.size()];
+        final int[] terms = new int[moves.size() * EvaluationParameters.NUM_TERMS];
+        final int[] positionTerms = new int[EvaluationParameters.NUM_TERMS];
+        final Board[] leaves = new Board[MAX_QUIESCENCE_PLIES + 1];
+        int count = 0;
+        Board board = Board.createStandardBoard();
+        for (int ply = 0; ply < moves.size(); ply++) {
+            final Move move = PGNUtilities.createMove(board, moves.get(ply));
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            board = transition.getToBoard();
+            if (ply < OPENING_PLIES || board.getCurrentPlayer().isInCheck()) {
+                continue;
+            }
+            quiescence(evaluator, board, -Integer.MAX_VALUE, Integer.MAX_VALUE, 0, leaves);
+            fixedScores[count] = StandardBoardEvaluator.calculateTerms(leaves[0], 0, positionTerms);
+            System.arraycopy(positionTerms, 0, terms, count * EvaluationParameters.NUM_TERMS, positionTerms.length);
+            count++;
+        }
+        this.trainingSet.add(count, fixedScores, terms, result(game));
+    }
+
+    /**
+     * A capture-only negamax search. leaves[ply] receives the quiet board the search expects to reach.
+     * @return the score for the side to move
+     */
+    private static int quiescence(final StandardBoardEvaluator evaluator,
+                                  final Board board,
+                                  final int alpha,
+                                  final int beta,
+                                  final int ply,
+                                  final Board[] leaves) {
+        final int sign = board.getCurrentPlayer().getAlliance().isWhite() ? 1 : -1;
+        final int standPat = sign * evaluator.evaluate(board, 0);
+        leaves[ply] = board;
+        if (standPat >= beta || ply == MAX_QUIESCENCE_PLIES) {
+            return standPat;
+        }
+        int best = Math.max(alpha, standPat);
+        final List<Move> captures = new ArrayList<>();
+        for (final Move move : board.getCurrentPlayer().getLegalMoves()) {
+            if (move.isAttack()) {
+                captures.add(move);
+            }
+        }
+        captures.sort((move1, move2) -> Integer.compare(mvvlva(move2), mvvlva(move1)));
+        for (final Move move : captures) {
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                final int score = -quiescence(evaluator, transition.getToBoard(), -beta, -best, ply + 1, leaves);
+                if (score > best) {
+                    best = score;
+                    leaves[ply] = leaves[ply + 1];
+                    if (best >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private EvaluationParameters tune() {
+        final double scale = fitScale(this.start.getWeights());
+        System.out.printf("Sigmoid scale K = %.4f%n", scale);
+        final int[] weights = this.start.getWeights();
+        double bestError = this.trainingSet.meanSquaredError(weights, scale);
+        System.out.printf("Start error %.6f with %s%n", bestError, this.start);
+        boolean improved = true;
+        for (int pass = 1; improved && pass <= MAX_PASSES; pass++) {
+            improved = false;
+            for (int t = 0; t < weights.length; t++) {
+                for (final int step : new int[] { 1, -1 }) {
+                    weights[t] += step;
+                    final double error = this.trainingSet.meanSquaredError(weights, scale);
+                    if (error < bestError) {
+                        bestError = error;
+                        improved = true;
+                        break;
+                    }
+                    weights[t] -= step;
+                }
+            }
+            System.out.printf("Pass %d error %.6f with %s%n", pass, bestError, new EvaluationParameters(weights));
+        }
+        return new EvaluationParameters(weights);
+    }
+
+    /**
+     * Finds the sigmoid scale that best fits the starting weights with a golden section search,
+     * so the tuning moves the weights rather than the scale.
+     */
+    private double fitScale(final int[] weights) {
+        final double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = 0.05;
+        double high = 4.0;
+        while (high - low > 1e-3) {
+            final double left = high - ratio * (high - low);
+            final double right = low + ratio * (high - low);
+            if (this.trainingSet.meanSquaredError(weights, left) < this.trainingSet.meanSquaredError(weights, right)) {
+                high = right;
+            } else {
+                low = left;
+            }
+        }
+        return (low + high) / 2;
+    }
+}
@@ -0,0 +1,296 @@
+package com.chess.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.NeuralBoardEvaluator;
+import com.chess.engine.player.ai.PieceSquareEvaluator;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.EpdRecord;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNUtilities;
+import com.chess.tuning.MatchGame.TimeControl;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a headless match between two engines, several games at a time on a thread pool.
+ * Every opening is played once with each color. Each game builds its own engines, so games share nothing
+ * but the evaluators. Results are counted as they come in, with an Elo estimate and an optional SPRT
+ * that ends the match early once it accepts either hypothesis. Games are appended to a PGN file and a
+ * summary report is printed, and written to a file if asked.
+ *
+ * Engines are given as "standard", "standard:weights.properties", "piecesquare" or "neural:weights.nnue".
+ * Openings are read from a FEN or EPD file, one position per line; without one, every pair of games
+ * starts from a few random moves.
+ *
+ * Usage: Tournament -engine1 spec -engine2 spec [-games N] [-concurrency N] [-tc 10+0.1 | depth=N | nodes=N]
+ *        [-openings file] [-pgn file] [-report file] [-hash MB] [-maxplies N] [-sprt elo0,elo1[,alpha,beta]]
+ */
+public class Tournament {
+
+    private static final int DEFAULT_GAMES = 100;
+    private static final String DEFAULT_TIME_CONTROL = "10+0.1";
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    private static final int DEFAULT_MAX_PLIES = 400;
+    private static final int RANDOM_OPENING_PLIES = 6;
+    private static final double DEFAULT_SPRT_ERROR = 0.05;
+    private static final long SEED = 0x5EED;
+
+    private final String name1;
+    private final String name2;
+    private final BoardEvaluator evaluator1;
+    private final BoardEvaluator evaluator2;
+    private final TimeControl timeControl;
+    private final List<Board> openings;
+    private final int hashMegabytes;
+    private final int maxPlies;
+    private final MatchStatistics statistics;
+    private volatile boolean cancelled;
+
+    private Tournament(final String name1,
+                       final String name2,
+                       final BoardEvaluator evaluator1,
+                       final BoardEvaluator evaluator2,
+                       final TimeControl timeControl,
+                       final List<Board> openings,
+                       final int hashMegabytes,
+                       final int maxPlies) {
+        this.name1 = name1;
+        this.name2 = name2;
+        this.evaluator1 = evaluator1;
+        this.evaluator2 = evaluator2;
+        this.timeControl = timeControl;
+        this.openings = openings;
+        this.hashMegabytes = hashMegabytes;
+        this.maxPlies = maxPlies;
+        this.statistics = new MatchStatistics();
+        this.cancelled = false;
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final Map<String, String> options = parseOptions(args);
+        if (!options.containsKey("engine1") || !options.containsKey("engine2")) {
+            System.out.println("Usage: Tournament -engine1 spec -engine2 spec [-games N] [-concurrency N] " +
+                    "[-tc 10+0.1 | depth=N | nodes=N] [-openings file] [-pgn file] [-report file] [-hash MB] " +
+                    "[-maxplies N] [-sprt elo0,elo1[,alpha,beta]]");
+            return;
+        }
+        final String name1 = options.get("engine1");
+        final String name2 = options.get("engine2");
+        final int games = Integer.parseInt(options.getOrDefault("games", Integer.toString(DEFAULT_GAMES)));
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        final List<Board> openings = options.containsKey("openings") ?
+                readOpenings(new File(options.get("openings"))) : Collections.emptyList();
+        final Tournament tournament = new Tournament(name1, name2, createEvaluator(name1), createEvaluator(name2),
+                TimeControl.parse(options.getOrDefault("tc", DEFAULT_TIME_CONTROL)), openings,
+                Integer.parseInt(options.getOrDefault("hash", Integer.toString(DEFAULT_HASH_MEGABYTES))),
+                Integer.parseInt(options.getOrDefault("maxplies", Integer.toString(DEFAULT_MAX_PLIES))));
+        final double[] sprt = options.containsKey("sprt") ? parseSprt(options.get("sprt")) : null;
+        final File pgnFile = options.containsKey("pgn") ? new File(options.get("pgn")) : null;
+
+        final long start = System.currentTimeMillis();
+        final String verdict = tournament.run(games, Math.max(1, concurrency), pgnFile, sprt);
+        final String report = tournament.report(verdict, sprt, System.currentTimeMillis() - start);
+        System.out.print(report);
+        if (options.containsKey("report")) {
+            try (final Writer writer = new BufferedWriter(new FileWriter(options.get("report")))) {
+                writer.write(report);
+            }
+        }
+    }
+
+    /**
+     * Plays the games and counts the results as they finish
+     * @return the SPRT verdict, or null if the SPRT did not end the match
+     */
+    private String run(final int games,
+                       final int concurrency,
+                       final File pgnFile,
+                       final double[] sprt) throws InterruptedException, IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final CompletionService<MatchGame> completion = new ExecutorCompletionService<>(executor);
+        final Random random = new Random(SEED);
+        final Board[] startBoards = new Board[(games + 1) / 2];
+        for (int pair = 0; pair < startBoards.length; pair++) {
+            startBoards[pair] = this.openings.isEmpty() ? SelfPlayGame.randomOpening(RANDOM_OPENING_PLIES, random) :
+                    this.openings.get(pair % this.openings.size());
+        }
+        final Map<Future<MatchGame>, Integer> rounds = new HashMap<>();
+        for (int round = 0; round < games; round++) {
+            final Board startBoard = startBoards[round / 2];
+            final boolean engine1White = round % 2 == 0;
+            rounds.put(completion.submit(() -> MatchGame.play(startBoard,
+                    engine1White ? createEngine(this.evaluator1) : createEngine(this.evaluator2),
+                    engine1White ? createEngine(this.evaluator2) : createEngine(this.evaluator1),
+                    this.timeControl, this.maxPlies, () -> this.cancelled)), round);
+        }
+        String verdict = null;
+        try {
+            for (int finished = 0; finished < games; finished++) {
+                final Future<MatchGame> future = completion.take();
+                final MatchGame game = future.get();
+                if (game == null) {
+                    continue;
+                }
+                final int round = rounds.get(future);
+                final boolean engine1White = round % 2 == 0;
+                final int whiteHalfPoints = game.getOutcome().getWhiteHalfPoints();
+                this.statistics.record(engine1White ? whiteHalfPoints : 2 - whiteHalfPoints);
+                if (pgnFile != null) {
+                    writeGame(pgnFile, game, round + 1, engine1White);
+                }
+                final String sprtText;
+                if (sprt != null) {
+                    final double llr = this.statistics.getLogLikelihoodRatio(sprt[0], sprt[1]);
+                    sprtText = String.format(", LLR %.2f", llr);
+                    if (verdict == null && llr >= MatchStatistics.getUpperBound(sprt[2], sprt[3])) {
+                        verdict = "H1 accepted";
+                    } else if (verdict == null && llr <= MatchStatistics.getLowerBound(sprt[2], sprt[3])) {
+                        verdict = "H0 accepted";
+                    }
+                    // Games still running are abandoned, they end after their current move
+                    this.cancelled = verdict != null;
+                } else {
+                    sprtText = "";
+                }
+                System.out.printf("Game %d (%s vs %s): %s {%s}  %s%s%n", round + 1,
+                        engine1White ? this.name1 : this.name2, engine1White ? this.name2 : this.name1,
+                        game.getOutcome().getResult(), game.getTermination(), this.statistics, sprtText);
+            }
+        } catch (final ExecutionException e) {
+            this.cancelled = true;
+            throw new IOException("Game failed", e.getCause());
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return verdict;
+    }
+
+    private void writeGame(final File pgnFile,
+                           final MatchGame game,
+                           final int round,
+                           final boolean engine1White) throws IOException {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Tournament " + this.name1 + " vs " + this.name2);
+        tags.put("Site", "local");
+        tags.put("Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date()));
+        tags.put("Round", Integer.toString(round));
+        tags.put("White", engine1White ? this.name1 : this.name2);
+        tags.put("Black", engine1White ? this.name2 : this.name1);
+        tags.put("TimeControl", this.timeControl.toString());
+        tags.put("SetUp", "1");
+        tags.put("FEN", FenUtilities.createFENFromGame(game.getStartBoard()));
+        tags.put("PlyCount", Integer.toString(game.getMoves().size()));
+        tags.put("Termination", game.getTermination());
+        PGNUtilities.writeGameToPGNFile(pgnFile, tags, game.getStartBoard(), game.getMoves(),
+                game.getOutcome().getResult());
+    }
+
+    private String report(final String verdict,
+                          final double[] sprt,
+                          final long elapsedMillis) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Match ").append(this.name1).append(" vs ").append(this.name2)
+                .append(", time control ").append(this.timeControl).append('\n');
+        builder.append("Games played: ").append(this.statistics.getGames())
+                .append(" in ").append(elapsedMillis / 1000).append(" s\n");
+        builder.append(String.format("Wins %d, draws %d, losses %d for %s%n", this.statistics.getWins(),
+                this.statistics.getDraws(), this.statistics.getLosses(), this.name1));
+        builder.append(String.format("Score %.1f%%, Elo difference %+.1f +/- %.1f (95%%)%n",
+                100 * this.statistics.getScore(), this.statistics.getEloDifference(),
+                this.statistics.getEloErrorMargin()));
+        if (sprt != null) {
+            builder.append(String.format("SPRT elo0 %.1f elo1 %.1f alpha %.3f beta %.3f: LLR %.2f [%.2f, %.2f], %s%n",
+                    sprt[0], sprt[1], sprt[2], sprt[3], this.statistics.getLogLikelihoodRatio(sprt[0], sprt[1]),
+                    MatchStatistics.getLowerBound(sprt[2], sprt[3]), MatchStatistics.getUpperBound(sprt[2], sprt[3]),
+                    verdict != null ? verdict : "inconclusive"));
+        }
+        return builder.toString();
+    }
+
+    private IterativeDeepeningSearch createEngine(final BoardEvaluator evaluator) {
+        return new IterativeDeepeningSearch(evaluator, this.hashMegabytes, 1);
+    }
+
+    private static BoardEvaluator createEvaluator(final String spec) throws IOException {
+        final int colon = spec.indexOf(':');
+        final String kind = colon < 0 ? spec : spec.substring(0, colon);
+        final String file = colon < 0 ? null : spec.substring(colon + 1);
+        switch (kind) {
+            case "standard":
+                return file == null ? StandardBoardEvaluator.get() :
+                        new StandardBoardEvaluator(EvaluationParameters.load(new File(file)));
+            case "piecesquare":
+                return PieceSquareEvaluator.get();
+            case "neural":
+                if (file == null) {
+                    throw new IllegalArgumentException("The neural engine needs a weights file: neural:file");
+                }
+                return NeuralBoardEvaluator.load(new File(file));
+            default:
+                throw new IllegalArgumentException("Unknown engine " + spec);
+        }
+    }
+
+    /**
+     * Reads one FEN or EPD position per line
+     */
+    private static List<Board> readOpenings(final File openingsFile) throws IOException {
+        final List<Board> openings = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(new FileReader(openingsFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    openings.add(FenUtilities.createGameFromFEN(EpdRecord.parse(line).getFen()));
+                } catch (final RuntimeException e) {
+                    throw new IOException("Invalid opening " + line, e);
+                }
+            }
+        }
+        if (openings.isEmpty()) {
+            throw new IOException("No openings in " + openingsFile);
+        }
+        return openings;
+    }
+
+    private static double[] parseSprt(final String text) {
+        final String[] values = text.split(",");
+        if (values.length != 2 && values.length != 4) {
+            throw new IllegalArgumentException("Invalid SPRT bounds " + text);
+        }
+        return new double[] {
+                Double.parseDouble(values[0]),
+                Double.parseDouble(values[1]),
+                values.length == 4 ? Double.parseDouble(values[2]) : DEFAULT_SPRT_ERROR,
+                values.length == 4 ? Double.parseDouble(values[3]) : DEFAULT_SPRT_ERROR
+        };
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("-")) {
+                throw new IllegalArgumentException("Expected an option, found " + args[i]);
+            }
+            options.put(args[i].substring(1), args[i + 1]);
+        }
+        return options;
+    }
+}
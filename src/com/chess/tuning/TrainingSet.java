@@ -0,0 +1,96 @@
+package com.chess.tuning;
+
+import com.chess.engine.player.ai.EvaluationParameters;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class stores labeled positions for tuning in flat primitive arrays.
+ * A position is kept as its fixed evaluation, its unweighted term values and the game result,
+ * so scoring it under new weights is a dot product and needs no board.
+ */
+final class TrainingSet {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private int size;
+    private int[] fixedScores;
+    private int[] terms;
+    private byte[] results;
+
+    TrainingSet() {
+        this.fixedScores = new int[INITIAL_CAPACITY];
+        this.terms = new int[INITIAL_CAPACITY * EvaluationParameters.NUM_TERMS];
+        this.results = new byte[INITIAL_CAPACITY];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Appends the positions of one game
+     * @param count is the number of positions
+     * @param fixedScores is the fixed evaluation of each position
+     * @param terms is the term values of each position, one after another
+     * @param result is the game result in half points for white, 0, 1 or 2
+     */
+    synchronized void add(final int count,
+                          final int[] fixedScores,
+                          final int[] terms,
+                          final int result) {
+        if (this.size + count > this.results.length) {
+            final int capacity = Math.max(this.results.length * 2, this.size + count);
+            this.fixedScores = Arrays.copyOf(this.fixedScores, capacity);
+            this.terms = Arrays.copyOf(this.terms, capacity * EvaluationParameters.NUM_TERMS);
+            this.results = Arrays.copyOf(this.results, capacity);
+        }
+        System.arraycopy(fixedScores, 0, this.fixedScores, this.size, count);
+        System.arraycopy(terms, 0, this.terms, this.size * EvaluationParameters.NUM_TERMS,
+                count * EvaluationParameters.NUM_TERMS);
+        Arrays.fill(this.results, this.size, this.size + count, (byte) result);
+        this.size += count;
+    }
+
+    /**
+     * @param weights is one weight per term
+     * @param scale is the sigmoid scale K
+     * @return the mean squared difference between the results and the predicted results
+     */
+    double meanSquaredError(final int[] weights, final double scale) {
+        final int chunks = (this.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final double sum = IntStream.range(0, chunks)
+                .parallel()
+                .mapToDouble(chunk -> squaredError(chunk * CHUNK_SIZE,
+                        Math.min(this.size, (chunk + 1) * CHUNK_SIZE), weights, scale))
+                .sum();
+        return this.size == 0 ? 0 : sum / this.size;
+    }
+
+    private double squaredError(final int from,
+                                final int to,
+                                final int[] weights,
+                                final double scale) {
+        final int numTerms = weights.length;
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            int score = this.fixedScores[i];
+            final int offset = i * numTerms;
+            for (int t = 0; t < numTerms; t++) {
+                score += weights[t] * this.terms[offset + t];
+            }
+            final double error = this.results[i] * 0.5 - sigmoid(score, scale);
+            sum += error * error;
+        }
+        return sum;
+    }
+
+    /**
+     * @return the expected score for white of a position evaluated at the given centipawns
+     */
+    static double sigmoid(final int score, final double scale) {
+        return 1.0 / (1.0 + Math.pow(10.0, -scale * score / 400.0));
+    }
+}
@@ -0,0 +1,271 @@
+package com.chess.uci;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Headless entry point speaking the UCI protocol over standard input and output.
+ * The main thread reads commands and stays responsive, searches run on a dedicated search thread.
+ */
+public class UciEngine {
+
+    private static final String NAME = "Black Widow";
+    private static final String AUTHOR = "ChessEngine";
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    private static final int MAX_HASH_MEGABYTES = 4096;
+    private static final int MAX_THREADS = 64;
+
+    private final BufferedReader input;
+    private final PrintStream output;
+    private final IterativeDeepeningSearch search;
+    private final ExecutorService searchThread;
+    private Future<?> currentSearch;
+    private Board board;
+
+    public UciEngine(final InputStream input, final PrintStream output) {
+        this.input = new BufferedReader(new InputStreamReader(input));
+        this.output = output;
+        this.search = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), DEFAULT_HASH_MEGABYTES, 1);
+        this.searchThread = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "uci-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.board = Board.createStandardBoard();
+    }
+
+    public static void main(final String[] args) throws IOException {
+        new UciEngine(System.in, System.out).run();
+    }
+
+    /**
+     * Reads and handles commands until "quit" or the end of the input
+     */
+    public void run() throws IOException {
+        String line;
+        while ((line = this.input.readLine()) != null) {
+            final String command = line.trim();
+            if (command.equals("quit")) {
+                break;
+            }
+            handle(command);
+        }
+        stopSearch();
+        this.searchThread.shutdown();
+    }
+
+    private void handle(final String command) {
+        final String[] tokens = command.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + DEFAULT_HASH_MEGABYTES + " min 1 max " + MAX_HASH_MEGABYTES);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(tokens);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                this.search.clearHash();
+                this.board = Board.createStandardBoard();
+                break;
+            case "position":
+                stopSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                this.search.stop();
+                break;
+            case "ponderhit":
+                this.search.ponderhit();
+                break;
+            default:
+                // Unknown commands are ignored, as the protocol asks
+                break;
+        }
+    }
+
+    /**
+     * setoption name <name> value <value>
+     */
+    private void setOption(final String[] tokens) {
+        final int nameIndex = indexOf(tokens, "name");
+        final int valueIndex = indexOf(tokens, "value");
+        if (nameIndex < 0 || valueIndex < 0 || valueIndex + 1 >= tokens.length) {
+            return;
+        }
+        final String name = join(tokens, nameIndex + 1, valueIndex);
+        try {
+            final int value = Integer.parseInt(tokens[valueIndex + 1]);
+            if (name.equalsIgnoreCase("Hash")) {
+                this.search.setHashSize(Math.max(1, Math.min(MAX_HASH_MEGABYTES, value)));
+            } else if (name.equalsIgnoreCase("Threads")) {
+                this.search.setThreads(Math.max(1, Math.min(MAX_THREADS, value)));
+            }
+        } catch (final NumberFormatException e) {
+            send("info string bad value for option " + name);
+        }
+    }
+
+    /**
+     * position [startpos | fen <fen>] [moves <move>...]
+     */
+    private void setPosition(final String[] tokens) {
+        final int movesIndex = indexOf(tokens, "moves");
+        final int end = movesIndex < 0 ? tokens.length : movesIndex;
+        Board position;
+        if (tokens.length > 1 && tokens[1].equals("fen")) {
+            try {
+                position = FenUtilities.createGameFromFEN(join(tokens, 2, end));
+            } catch (final RuntimeException e) {
+                send("info string bad fen " + join(tokens, 2, end));
+                return;
+            }
+        } else {
+            position = Board.createStandardBoard();
+        }
+        for (int i = movesIndex + 1; movesIndex >= 0 && i < tokens.length; i++) {
+            final Move move = UciNotation.fromUci(position, tokens[i]);
+            final MoveTransition transition = position.getCurrentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                send("info string illegal move " + tokens[i]);
+                break;
+            }
+            position = transition.getToBoard();
+        }
+        this.board = position;
+    }
+
+    private void go(final String[] tokens) {
+        final SearchLimits.Builder builder = new SearchLimits.Builder();
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "depth":
+                        builder.setDepth(Integer.parseInt(tokens[++i]));
+                        break;
+                    case "nodes":
+                        builder.setNodes(Long.parseLong(tokens[++i]));
+                        break;
+                    case "movetime":
+                        builder.setMoveTime(Long.parseLong(tokens[++i]));
+                        break;
+                    case "wtime":
+                        builder.setWhiteTime(Long.parseLong(tokens[++i]));
+                        break;
+                    case "btime":
+                        builder.setBlackTime(Long.parseLong(tokens[++i]));
+                        break;
+                    case "winc":
+                        builder.setWhiteIncrement(Long.parseLong(tokens[++i]));
+                        break;
+                    case "binc":
+                        builder.setBlackIncrement(Long.parseLong(tokens[++i]));
+                        break;
+                    case "movestogo":
+                        builder.setMovesToGo(Integer.parseInt(tokens[++i]));
+                        break;
+                    case "infinite":
+                        builder.setInfinite(true);
+                        break;
+                    case "ponder":
+                        builder.setPonder(true);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            send("info string bad go command");
+            return;
+        }
+        final SearchLimits limits = builder.build();
+        final Board position = this.board;
+        // Readied here, so a stop read before the search thread starts is not lost
+        this.search.prepare(limits);
+        this.currentSearch = this.searchThread.submit(() -> {
+            final SearchResult result = this.search.search(position, limits, this::sendInfo);
+            final Move ponderMove = result.getPonderMove();
+            send("bestmove " + UciNotation.toUci(result.getBestMove()) +
+                    (ponderMove == Move.MoveFactory.getNullMove() ? "" : " ponder " + UciNotation.toUci(ponderMove)));
+        });
+    }
+
+    private void sendInfo(final SearchResult result) {
+        final StringBuilder pv = new StringBuilder();
+        for (final Move move : result.getPrincipalVariation()) {
+            pv.append(' ').append(UciNotation.toUci(move));
+        }
+        final String score = result.isMateScore() ? "mate " + result.getMateInMoves() : "cp " + result.getScore();
+        send("info depth " + result.getDepth() + " score " + score + " nodes " + result.getNodes() +
+                " nps " + result.getNodesPerSecond() + " time " + result.getElapsedMillis() +
+                " hashfull " + result.getHashfull() + " pv" + pv);
+    }
+
+    /**
+     * Stops the running search, if any, and blocks until it has sent its best move.
+     * The GUI should have sent stop already, this keeps a command sent early from blocking the input.
+     */
+    private void stopSearch() {
+        if (this.currentSearch == null) {
+            return;
+        }
+        this.search.stop();
+        try {
+            this.currentSearch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            send("info string search failed " + e.getCause());
+        }
+        this.currentSearch = null;
+    }
+
+    private void send(final String message) {
+        synchronized (this.output) {
+            this.output.println(message);
+            this.output.flush();
+        }
+    }
+
+    private static int indexOf(final String[] tokens, final String token) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equals(token)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String join(final String[] tokens, final int from, final int to) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.append(i == from ? "" : " ").append(tokens[i]);
+        }
+        return builder.toString();
+    }
+}
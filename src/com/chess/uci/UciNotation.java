@@ -0,0 +1,47 @@
+package com.chess.uci;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+
+/**
+ * This class converts moves to and from UCI long algebraic notation, such as "e2e4" or "e7e8q"
+ */
+public final class UciNotation {
+
+    private UciNotation() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    /**
+     * @param move is a move
+     * @return the move in UCI notation, "0000" for the null move
+     */
+    public static String toUci(final Move move) {
+        if (move == null || move == Move.MoveFactory.getNullMove()) {
+            return "0000";
+        }
+        final String text = BoardUtils.getPositionAtCoordinate(move.getCurrentCoordinate()) +
+                BoardUtils.getPositionAtCoordinate(move.getDestinationCoordinate());
+        // Pawns always promote to a queen in this engine
+        return move instanceof Move.PawnPromotion ? text + "q" : text;
+    }
+
+    /**
+     * @param board is the board the move is played on
+     * @param text is a move in UCI notation
+     * @return the legal move, or the null move if the text is no legal move on the board.
+     * Under-promotions are read as queen promotions, the only kind this engine plays.
+     */
+    public static Move fromUci(final Board board, final String text) {
+        if (text.length() < 4 || text.length() > 5) {
+            return Move.MoveFactory.getNullMove();
+        }
+        final Integer from = BoardUtils.POSITION_TO_COORDINATE.get(text.substring(0, 2));
+        final Integer to = BoardUtils.POSITION_TO_COORDINATE.get(text.substring(2, 4));
+        if (from == null || to == null) {
+            return Move.MoveFactory.getNullMove();
+        }
+        return Move.MoveFactory.createMove(board, from, to);
+    }
+}
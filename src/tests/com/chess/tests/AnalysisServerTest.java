@@ -0,0 +1,104 @@
+package tests.com.chess.tests;
+
+import com.chess.analysis.AnalysisServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisServerTest {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static HttpURLConnection open(final AnalysisServer server,
+                                          final String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    /**
+     * @return the status of the analysis of the start position with the given limits
+     */
+    private static int analyze(final AnalysisServer server,
+                               final String limits) throws IOException {
+        final HttpURLConnection connection = open(server, "/analyze");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (final OutputStream out = connection.getOutputStream()) {
+            out.write(("{\"fen\":\"" + START_FEN + "\"," + limits + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        read(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        return status;
+    }
+
+    private static String metrics(final AnalysisServer server) throws IOException {
+        return read(open(server, "/metrics").getInputStream());
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (final InputStream in = input) {
+            final byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                body.write(buffer, 0, count);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void overloadSaturationAndDeadlinesAreAnsweredAndMeasured() throws Exception {
+        final AnalysisServer server = new AnalysisServer(0, 1, 1, 1);
+        server.start();
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            // Holds the only engine for a second and a half
+            final Future<Integer> held = clients.submit(() -> analyze(server, "\"movetime\":1500,\"deadline\":5000"));
+            final long waitUntil = System.currentTimeMillis() + 5000;
+            while (!metrics(server).contains("analysis_engines_idle 0") && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            // Takes the only queue place and gives up when its deadline passes before the engine is free
+            final Future<Integer> queued = clients.submit(() -> analyze(server, "\"deadline\":1000"));
+            Thread.sleep(300);
+            assertEquals(429, analyze(server, "\"depth\":1"));
+            assertEquals(503, (int) queued.get(10, TimeUnit.SECONDS));
+            assertEquals(200, (int) held.get(10, TimeUnit.SECONDS));
+
+            // A search that cannot finish by its deadline is stopped there with its best move so far
+            final long start = System.currentTimeMillis();
+            assertEquals(200, analyze(server, "\"depth\":60,\"deadline\":300"));
+            assertTrue(System.currentTimeMillis() - start < 3000);
+
+            final String metrics = metrics(server);
+            assertTrue(metrics.contains("analysis_responses_total{status=\"429\"} 1"), metrics);
+            assertTrue(metrics.contains("analysis_responses_total{status=\"503\"} 1"), metrics);
+            assertTrue(metrics.contains("analysis_latency_samples{status=\"200\"} 2"), metrics);
+            assertTrue(metrics.contains("analysis_latency_samples{status=\"429\"} 1"), metrics);
+            assertTrue(metrics.contains("analysis_latency_samples{status=\"503\"} 1"), metrics);
+            assertTrue(metrics.contains("analysis_searches_stopped_at_deadline_total 1"), metrics);
+
+            // Scrapes and health checks are not analysis responses
+            assertEquals("ok\n", read(open(server, "/health").getInputStream()));
+            metrics(server);
+            final String scraped = metrics(server);
+            assertTrue(scraped.contains("analysis_responses_total{status=\"200\"} 2\n"), scraped);
+        } finally {
+            clients.shutdownNow();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BitBoards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.piece.Piece;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitBoardsTest {
+
+    private static void assertMasksMatchMoves(final Board board) {
+        for (final Piece piece : board.getAllPieces()) {
+            if (piece.getPieceType() == Piece.PieceType.PAWN) {
+                continue;
+            }
+            long destinations = 0L;
+            for (final Move move : piece.calculateLegalMoves(board)) {
+                destinations |= BitBoards.bit(move.getDestinationCoordinate());
+            }
+            final long attacks = BitBoards.attacks(piece, board.getOccupancy()) & ~board.getOccupancy(piece.getPieceAlliance());
+            assertEquals(destinations, attacks);
+        }
+    }
+
+    @Test
+    public void slidingAndLeapingPieces() {
+        assertMasksMatchMoves(Board.createStandardBoard());
+        assertMasksMatchMoves(FenUtilities.createGameFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        assertMasksMatchMoves(FenUtilities.createGameFromFEN("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"));
+    }
+
+    @Test
+    public void pawnAttacks() {
+        final int e4 = BoardUtils.getCoordinateAtPosition("e4");
+        final long whiteAttacks = BitBoards.bit(BoardUtils.getCoordinateAtPosition("d5")) | BitBoards.bit(BoardUtils.getCoordinateAtPosition("f5"));
+        final long blackAttacks = BitBoards.bit(BoardUtils.getCoordinateAtPosition("d3")) | BitBoards.bit(BoardUtils.getCoordinateAtPosition("f3"));
+        assertEquals(whiteAttacks, BitBoards.attacks(Piece.PieceType.PAWN, Alliance.WHITE, e4, 0L));
+        assertEquals(blackAttacks, BitBoards.attacks(Piece.PieceType.PAWN, Alliance.BLACK, e4, 0L));
+        assertEquals(BitBoards.bit(BoardUtils.getCoordinateAtPosition("b6")),
+                BitBoards.attacks(Piece.PieceType.PAWN, Alliance.WHITE, BoardUtils.getCoordinateAtPosition("a5"), 0L));
+    }
+}
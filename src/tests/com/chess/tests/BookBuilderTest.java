@@ -0,0 +1,88 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.openings.BookBuilder;
+import com.chess.engine.openings.PolyglotBook;
+import com.chess.pgn.PGNUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookBuilderTest {
+
+    private static final String RUY_LOPEZ = "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O";
+    private static final String QUEENS_GAMBIT = "1. d4 d5 2. c4 e6 3. Nc3 Nf6 4. Bg5 Be7 5. e3 O-O 6. Nf3 Nbd7 7. Rc1 c6 8. Bd3 dxc4";
+
+    @Test
+    public void mergesSpilledRunsIntoSortedBook() throws IOException, InterruptedException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        final List<String> lines = Arrays.asList(
+                "[Event \"A\"]", "", RUY_LOPEZ + " 1-0", "",
+                "[Event \"B\"]", "", RUY_LOPEZ + " 1/2-1/2", "",
+                "[Event \"C\"]", "", QUEENS_GAMBIT + " 0-1", "");
+        Files.write(pgnFile.toPath(), lines, StandardCharsets.US_ASCII);
+        final File bookFile = File.createTempFile("book", ".bin");
+        bookFile.deleteOnExit();
+        // A tiny spill limit writes many runs, which the merge has to add up
+        final BookBuilder builder = new BookBuilder(12, 1, 4, null, null);
+        final long entries = builder.build(Collections.singletonList(pgnFile), bookFile, 2);
+        assertEquals(3, builder.getGamesUsed());
+        assertEquals(entries * PolyglotBook.ENTRY_BYTES, bookFile.length());
+
+        final PolyglotBook book = PolyglotBook.open(bookFile);
+        final Board start = Board.createStandardBoard();
+        // 1. e4 scored a win and a draw, 1. d4 only a loss and has no weight
+        final List<PolyglotBook.BookMove> moves = book.getMoves(start);
+        assertEquals(1, moves.size());
+        assertEquals(3, moves.get(0).getWeight());
+        assertEquals(36, moves.get(0).getMove().getDestinationCoordinate());
+
+        final Move d4 = Move.MoveFactory.createMove(start, 51, 35);
+        final Board afterD4 = start.getCurrentPlayer().makeMove(d4).getToBoard();
+        assertEquals(2, book.getMoves(afterD4).get(0).getWeight());
+
+        Board board = start;
+        for (final String san : new String[] { "e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6" }) {
+            board = board.getCurrentPlayer().makeMove(PGNUtilities.createMove(board, san)).getToBoard();
+        }
+        assertTrue(book.getMoves(board).get(0).getMove().isCastlingMove());
+    }
+
+    @Test
+    public void aBuilderCanBuildAgain() throws IOException, InterruptedException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        final List<String> lines = new ArrayList<>();
+        // More games than one thread's queue holds, so the reading thread replays some itself
+        for (int game = 0; game < 60; game++) {
+            lines.addAll(Arrays.asList("[Event \"" + game + "\"]", "",
+                    (game % 3 == 0 ? QUEENS_GAMBIT : RUY_LOPEZ) + (game % 2 == 0 ? " 1-0" : " 1/2-1/2"), ""));
+        }
+        Files.write(pgnFile.toPath(), lines, StandardCharsets.US_ASCII);
+        final BookBuilder builder = new BookBuilder(12, 1, 1 << 10, null, null);
+        byte[] firstBook = null;
+        for (int build = 0; build < 3; build++) {
+            final File bookFile = File.createTempFile("book", ".bin");
+            bookFile.deleteOnExit();
+            builder.build(Collections.singletonList(pgnFile), bookFile, 1);
+            assertEquals(60, builder.getGamesUsed());
+            final byte[] book = Files.readAllBytes(bookFile.toPath());
+            if (firstBook == null) {
+                firstBook = book;
+            }
+            assertArrayEquals(firstBook, book);
+        }
+    }
+}
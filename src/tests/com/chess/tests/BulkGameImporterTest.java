@@ -0,0 +1,175 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.pgn.BulkGameImporter;
+import com.chess.uci.UciNotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkGameImporterTest {
+
+    private static final String GAMES =
+            "[Event \"A\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 1-0\n\n" +
+            "[Event \"B\"]\n[Result \"1/2-1/2\"]\n\n1. e4 e5 2. Bc4 1/2-1/2\n\n" +
+            "[Event \"C\"]\n[Result \"0-1\"]\n\n1. d4 d5 0-1\n\n";
+
+    /**
+     * A connection that keeps the rows written with every SQL text and answers the progress query
+     * with the given file size and games done
+     */
+    private static final class RecordingDatabase {
+
+        private final Map<String, List<Object[]>> rows = new HashMap<>();
+        private final long[] progress;
+
+        RecordingDatabase(final long... progress) {
+            this.progress = progress;
+        }
+
+        List<Object[]> rows(final String sqlStart) {
+            final List<Object[]> found = new ArrayList<>();
+            for (final Map.Entry<String, List<Object[]>> entry : this.rows.entrySet()) {
+                if (entry.getKey().startsWith(sqlStart)) {
+                    found.addAll(entry.getValue());
+                }
+            }
+            return found;
+        }
+
+        Connection connect() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "createStatement":
+                                return statement(Statement.class, null);
+                            case "prepareStatement":
+                                return statement(PreparedStatement.class, (String) args[0]);
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private Object statement(final Class<?> type, final String sql) {
+            final Object[] row = new Object[8];
+            final List<Object[]> written = sql == null ? null : this.rows.computeIfAbsent(sql, s -> new ArrayList<>());
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                final String name = method.getName();
+                if (name.startsWith("set") && args.length == 2 && args[0] instanceof Integer) {
+                    row[(Integer) args[0]] = args[1];
+                    return null;
+                }
+                switch (name) {
+                    case "addBatch":
+                    case "executeUpdate":
+                        written.add(row.clone());
+                        return name.equals("executeUpdate") ? 1 : null;
+                    case "executeBatch":
+                        return new int[0];
+                    case "execute":
+                        return false;
+                    case "executeQuery":
+                        final String query = sql != null ? sql : (String) args[0];
+                        if (query.contains("nextval")) {
+                            return resultSet(new long[] { 1 });
+                        }
+                        return this.progress.length == 0 ? resultSet() : resultSet(this.progress);
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private static ResultSet resultSet(final long[]... resultRows) {
+            final int[] next = { 0 };
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                return next[0]++ < resultRows.length;
+                            case "getLong":
+                                return resultRows[next[0] - 1][(Integer) args[0] - 1];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    private static File writeGames() throws IOException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), GAMES.getBytes(StandardCharsets.UTF_8));
+        return pgnFile;
+    }
+
+    /**
+     * @return games, white wins, draws and black wins written for the position and move, over all batches
+     */
+    private static int[] counts(final RecordingDatabase database,
+                                final Board board,
+                                final String move) {
+        final int[] counts = new int[4];
+        for (final Object[] row : database.rows("INSERT INTO position_moves")) {
+            if ((Long) row[1] == board.getZobristHash() && row[2].equals(move)) {
+                for (int i = 0; i < 4; i++) {
+                    counts[i] += (Integer) row[3 + i];
+                }
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void positionMovesAddUpResultsByPositionAndMove() throws Exception {
+        final RecordingDatabase database = new RecordingDatabase();
+        final File pgnFile = writeGames();
+        // Two games per batch, so e2e4 is written by two batches
+        assertEquals(3, new BulkGameImporter(database.connect(), 2).importFile(pgnFile));
+
+        final Board start = Board.createStandardBoard();
+        final Board afterE4 = start.getCurrentPlayer().makeMove(UciNotation.fromUci(start, "e2e4")).getToBoard();
+        assertArrayEquals(new int[] { 2, 1, 1, 0 }, counts(database, start, "e2e4"));
+        assertArrayEquals(new int[] { 1, 0, 0, 1 }, counts(database, start, "d2d4"));
+        assertArrayEquals(new int[] { 2, 1, 1, 0 }, counts(database, afterE4, "e7e5"));
+        assertArrayEquals(new int[] { 0, 0, 0, 0 }, counts(database, afterE4, "d7d5"));
+
+        assertEquals(3, database.rows("INSERT INTO Game").size());
+        final List<Object[]> progress = database.rows("INSERT INTO import_progress");
+        assertEquals(2, progress.size());
+        assertEquals(3L, progress.get(1)[3]);
+        assertEquals(pgnFile.length(), progress.get(1)[2]);
+    }
+
+    @Test
+    public void importResumesAfterTheGamesDone() throws Exception {
+        final File pgnFile = writeGames();
+        final RecordingDatabase resumed = new RecordingDatabase(pgnFile.length(), 2);
+        assertEquals(1, new BulkGameImporter(resumed.connect(), 10).importFile(pgnFile));
+        final List<Object[]> games = resumed.rows("INSERT INTO Game");
+        assertEquals(1, games.size());
+        assertEquals("Black", games.get(0)[2]);
+        assertEquals(3L, resumed.rows("INSERT INTO import_progress").get(0)[3]);
+
+        // A file of another size than recorded is imported from its first game
+        final RecordingDatabase changed = new RecordingDatabase(pgnFile.length() + 1, 2);
+        assertEquals(3, new BulkGameImporter(changed.connect(), 10).importFile(pgnFile));
+        assertEquals(3, changed.rows("INSERT INTO Game").size());
+    }
+}
@@ -0,0 +1,149 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.BackgroundInputStream;
+import com.chess.pgn.Bzip2InputStream;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParallelPgnReader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedPgnTest {
+
+    // Two bzip2 streams, of games 0 to 119 at block size 9 and of games 120 to 149 at block size 1
+    private static final String BZIP2_GAMES =
+            "QlpoOTFBWSZTWbOGmMIACKJ//+7du3b9w//uHrlw6+uHDx44cOHDhw4cOHDhw4cOGDBoQAI8yduuGRUo/VA9T96qgAAAAAAA" +
+            "AAAAA9Qeofqho9R6T1NPU9NNNTxNNTQQqZQ/9U8VIaAAAABoAAAAAAAAAAAAAABE9VTTQz9Ug0aaGTTQ00AaZNMI0AMIYQ00" +
+            "0DBGmgDQxMg0MQCKUBPKUAAGgABk0ANAAaBo0ZAANADQAAAAa9d8ArpwFZgCtIBhAK4JegKwq4gCsKia4BXVgCt6ArfAK3DS" +
+            "gGZ0sJBgw1Oj+oAgAIAgCAIAgCAIAgCAIAgCAIAgCAIAgCAIAgCAIAgCAIAgCAILZW22WV11SqlVKqVUqpSrsupaArFgCtAC" +
+            "tBfgKyuVWXLabsrt3IViROdM5zpnOc5gK5UBWLAIQQCEEAAAAAAAAZpDM0hmZpyQRERPiIkGb5meZmdZmZSMoBERmbjjM8zM" +
+            "6zMhGUS/IiMzflARABQAiRAg2SEIgggCgIgAoARIgQS5imNOGMYrM8RkquKoVVdVXiMlVxVCqrqq8RkxEZGf8WUb4hghghgh" +
+            "ghUKIVWBRYhRSIBAwQFb8BWhrAFYHLgK0gK0O7AV34CvKAVsAFeaArXUArDhAKxmwFYMMBWDgAKxaArB+MlveTy8OWJzuj1O" +
+            "v2uP3ISiq30xGbd50uxOw7/A+h4+fop7w1oi7GKy0248/BK4eXqS7Twszp60z6J1EuRWGtEX+01eI+8xFZjNR24v4469Ifkw" +
+            "fspf+Zabcefv3HY70h+TB9Zfz+/6lVf+LuSKcKEhZw0xhEJaaDExQVkmU1no4WBBAAJAf8GRMkSJUiN/4wKFCBorQ4UKBAgA" +
+            "BAgYMAEahCPVU0Mn+qmgBoMgANMJo9CGGhpoAaAA0AAMhoG9UplEZNBoBoAAaGjQHM74N+DHILR7waIPOD5g0QckgI2AkYCJ" +
+            "gIY5IH38O/hxSSSSSSSSSSyigyQVB1QZct8VrWzQZ4Kgve9oNiJpgxYsV4meC973iXgve+mC1rYYYZLWthhhaIn9rqqqqqqq" +
+            "SMElUkPWCu2Cs0gqbcFoPKC3pBqgxyDXBaC+pgMzAPVMBOwD0DAOrst7+ZZqKYZp6KdvyaWqL7+dJXZydbpZj+LuSKcKEh0c" +
+            "LAgg";
+
+    private static String games(final int first, final int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            final char[] run = new char[i * 7 % 300];
+            Arrays.fill(run, '=');
+            builder.append("[Event \"Game ").append(i).append("\"]\n\n1. e4 e5 {").append(run)
+                    .append("} 2. Nf3 Nc6 1-0\n\n");
+        }
+        return builder.toString();
+    }
+
+    private static String readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static File writeFile(final String suffix, final byte[] bytes) throws IOException {
+        final File file = File.createTempFile("games", suffix);
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    @Test
+    public void bzip2StreamsAreDecodedOneAfterAnother() throws IOException {
+        final byte[] compressed = Base64.getDecoder().decode(BZIP2_GAMES);
+        try (final InputStream in = new Bzip2InputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(games(0, 150), readAll(in));
+        }
+        // A damaged byte in the middle of the first block fails its CRC or its decoding
+        compressed[200] ^= 0x10;
+        assertThrows(IOException.class, () -> readAll(new Bzip2InputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void compressedFilesAreReadLikePlainOnes() throws IOException, InterruptedException {
+        final File plainFile = writeFile(".pgn", games(0, 150).getBytes(StandardCharsets.UTF_8));
+        final File bzip2File = writeFile(".pgn.bz2", Base64.getDecoder().decode(BZIP2_GAMES));
+        final File gzipFile = File.createTempFile("games", ".pgn.gz");
+        gzipFile.deleteOnExit();
+        // A gzip file of two members, as written by appending
+        try (final OutputStream out = new FileOutputStream(gzipFile)) {
+            final GZIPOutputStream first = new GZIPOutputStream(out);
+            first.write(games(0, 100).getBytes(StandardCharsets.UTF_8));
+            first.finish();
+            final GZIPOutputStream second = new GZIPOutputStream(out);
+            second.write(games(100, 50).getBytes(StandardCharsets.UTF_8));
+            second.finish();
+        }
+        final List<String> expected = new ArrayList<>();
+        PGNUtilities.readPGNFile(plainFile, game -> expected.add(game.toString()));
+        assertEquals(150, expected.size());
+        for (final File file : new File[] { gzipFile, bzip2File }) {
+            try (final InputStream in = PGNUtilities.openPGNStream(file)) {
+                assertEquals(games(0, 150), readAll(in));
+            }
+            final List<String> actual = new ArrayList<>();
+            assertEquals(150, new ParallelPgnReader(3, 1000, true)
+                    .read(Collections.singletonList(file), game -> actual.add(game.toString()), true));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void sourceFailuresReachTheReader() throws Exception {
+        // A source that fails with an unchecked exception after its first bytes, such as a decoder bug
+        final InputStream failing = new InputStream() {
+            private int left = 10;
+
+            @Override
+            public int read() {
+                if (this.left-- == 0) {
+                    throw new IllegalStateException("corrupt block");
+                }
+                return 'x';
+            }
+        };
+        final ExecutorService reader = Executors.newSingleThreadExecutor();
+        try (final InputStream in = new BackgroundInputStream(failing, "failing", 4, 2)) {
+            final Future<Integer> bytesRead = reader.submit(() -> {
+                int count = 0;
+                while (in.read() >= 0) {
+                    count++;
+                }
+                return count;
+            });
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> bytesRead.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.ConnectionPool;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    /**
+     * A database that only counts what is done to its connections and statements
+     */
+    private static final class FakeDatabase implements Driver {
+
+        private final String url;
+        private final AtomicInteger connects = new AtomicInteger();
+        private final AtomicInteger connectionCloses = new AtomicInteger();
+        private final AtomicInteger prepares = new AtomicInteger();
+        private final AtomicInteger statementCloses = new AtomicInteger();
+        private final AtomicInteger resultSetCloses = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+        private final AtomicInteger updates = new AtomicInteger();
+        private volatile boolean unreachable;
+        private volatile boolean invalid;
+
+        FakeDatabase(final String name) throws SQLException {
+            this.url = "jdbc:fake:" + name;
+            DriverManager.registerDriver(this);
+        }
+
+        ConnectionPool pool(final int maxConnections,
+                            final long borrowTimeoutMillis) {
+            return new ConnectionPool(this.url, "user", "secret", maxConnections, 4, borrowTimeoutMillis);
+        }
+
+        ConnectionPool pool(final long validateAfterIdleMillis) {
+            return new ConnectionPool(this.url, "user", "secret", 1, 4, 1000, validateAfterIdleMillis);
+        }
+
+        void deregister() throws SQLException {
+            DriverManager.deregisterDriver(this);
+        }
+
+        @Override
+        public Connection connect(final String url,
+                                  final Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            this.connects.incrementAndGet();
+            final boolean[] state = { true, false };
+            final Connection[] connection = new Connection[1];
+            connection[0] = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return state[0];
+                            case "setAutoCommit":
+                                state[0] = (Boolean) args[0];
+                                return null;
+                            case "rollback":
+                                this.rollbacks.incrementAndGet();
+                                return null;
+                            case "close":
+                                if (!state[1]) {
+                                    state[1] = true;
+                                    this.connectionCloses.incrementAndGet();
+                                }
+                                return null;
+                            case "isClosed":
+                                return state[1];
+                            case "isValid":
+                                return !state[1] && !this.invalid;
+                            case "prepareStatement":
+                                this.prepares.incrementAndGet();
+                                return statement(PreparedStatement.class, connection[0]);
+                            case "createStatement":
+                                return statement(Statement.class, connection[0]);
+                            case "getMetaData":
+                                return statement(DatabaseMetaData.class, connection[0]);
+                            case "unwrap":
+                                return proxy;
+                            default:
+                                return null;
+                        }
+                    });
+            return connection[0];
+        }
+
+        private <T> T statement(final Class<T> type,
+                                final Connection connection) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                    new Class<?>[] { type }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return connection;
+                            case "executeQuery":
+                                return resultSet();
+                            case "executeUpdate":
+                                if (this.unreachable) {
+                                    throw new SQLException("Connection reset", "08006");
+                                }
+                                this.updates.incrementAndGet();
+                                return 1;
+                            case "close":
+                                this.statementCloses.incrementAndGet();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    }));
+        }
+
+        private ResultSet resultSet() {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("close")) {
+                            this.resultSetCloses.incrementAndGet();
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(final String url) {
+            return this.url.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(final String url,
+                                                    final Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    @Test
+    public void connectionsAndStatementsAreReused() throws SQLException {
+        final FakeDatabase database = new FakeDatabase("reuse");
+        try (final ConnectionPool pool = database.pool(2, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                try (final Connection connection = pool.getConnection();
+                     final PreparedStatement statement = connection.prepareStatement("UPDATE t SET x = ?")) {
+                    statement.setInt(1, i);
+                    statement.executeUpdate();
+                }
+            }
+            assertEquals(1, database.connects.get());
+            assertEquals(1, database.prepares.get());
+            assertEquals(0, database.statementCloses.get());
+            assertEquals(10, database.updates.get());
+            assertEquals(1, pool.getIdleCount());
+
+            // A statement still open is not handed out twice
+            try (final Connection connection = pool.getConnection();
+                 final PreparedStatement first = connection.prepareStatement("UPDATE t SET x = ?");
+                 final PreparedStatement second = connection.prepareStatement("UPDATE t SET x = ?")) {
+                first.executeUpdate();
+                second.executeUpdate();
+            }
+            assertEquals(2, database.prepares.get());
+            assertEquals(1, database.statementCloses.get());
+        } finally {
+            database.deregister();
+        }
+        assertEquals(1, database.connectionCloses.get());
+        assertEquals(2, database.statementCloses.get());
+    }
+
+    @Test
+    public void borrowingIsBounded() throws Exception {
+        final FakeDatabase database = new FakeDatabase("bounded");
+        try (final ConnectionPool pool = database.pool(2, 100)) {
+            final Connection first = pool.getConnection();
+            final Connection second = pool.getConnection();
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+            first.close();
+            pool.getConnection().close();
+            second.close();
+            assertEquals(2, database.connects.get());
+        }
+
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger mostInUse = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (final ConnectionPool pool = database.pool(3, 10000)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 8; task++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        try (final Connection connection = pool.getConnection();
+                             final PreparedStatement statement = connection.prepareStatement("UPDATE t SET x = 1")) {
+                            mostInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                            statement.executeUpdate();
+                            inUse.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(mostInUse.get() <= 3);
+            assertTrue(pool.getOpenCount() <= 3);
+            assertEquals(1600, database.updates.get());
+        } finally {
+            executor.shutdown();
+            database.deregister();
+        }
+    }
+
+    @Test
+    public void returnedConnectionsAreResetOrDropped() throws SQLException {
+        final FakeDatabase database = new FakeDatabase("reset");
+        try (final ConnectionPool pool = database.pool(1, 1000)) {
+            final Connection connection = pool.getConnection();
+            connection.setAutoCommit(false);
+            final PreparedStatement statement = connection.prepareStatement("UPDATE t SET x = 1");
+            statement.executeUpdate();
+            connection.close();
+            assertEquals(1, database.rollbacks.get());
+            assertTrue(connection.isClosed());
+            assertThrows(SQLException.class, () -> connection.prepareStatement("UPDATE t SET x = 1"));
+            assertThrows(SQLException.class, statement::executeUpdate);
+
+            try (final Connection again = pool.getConnection()) {
+                assertTrue(again.getAutoCommit());
+                database.unreachable = true;
+                try (final PreparedStatement failing = again.prepareStatement("UPDATE t SET x = 1")) {
+                    assertThrows(SQLException.class, failing::executeUpdate);
+                }
+            }
+            // The connection that failed is closed instead of going back
+            assertEquals(1, database.connectionCloses.get());
+            assertEquals(0, pool.getOpenCount());
+            database.unreachable = false;
+            try (final Connection fresh = pool.getConnection();
+                 final PreparedStatement update = fresh.prepareStatement("UPDATE t SET x = 1")) {
+                update.executeUpdate();
+            }
+            assertEquals(2, database.connects.get());
+        } finally {
+            database.deregister();
+        }
+    }
+
+    @Test
+    public void changedStatementsAreNotKept() throws SQLException {
+        final FakeDatabase database = new FakeDatabase("settings");
+        try (final ConnectionPool pool = database.pool(1, 1000)) {
+            try (final Connection connection = pool.getConnection();
+                 final PreparedStatement statement = connection.prepareStatement("SELECT x FROM t")) {
+                statement.setMaxRows(5);
+                statement.setQueryTimeout(1);
+            }
+            assertEquals(1, database.statementCloses.get());
+            try (final Connection connection = pool.getConnection();
+                 final PreparedStatement statement = connection.prepareStatement("SELECT x FROM t")) {
+                statement.setInt(1, 1);
+            }
+            try (final Connection connection = pool.getConnection();
+                 final PreparedStatement statement = connection.prepareStatement("SELECT x FROM t")) {
+                statement.executeUpdate();
+            }
+            assertEquals(2, database.prepares.get());
+            assertEquals(1, database.statementCloses.get());
+        } finally {
+            database.deregister();
+        }
+    }
+
+    @Test
+    public void theConnectionReachedFromALoanIsTheLoan() throws SQLException {
+        final FakeDatabase database = new FakeDatabase("reach");
+        try (final ConnectionPool pool = database.pool(1, 1000)) {
+            final Connection connection = pool.getConnection();
+            try (final Statement statement = connection.createStatement()) {
+                assertSame(connection, statement.getConnection());
+                assertSame(connection, connection.getMetaData().getConnection());
+                assertSame(connection, connection.unwrap(Connection.class));
+                try (final PreparedStatement prepared = connection.prepareStatement("UPDATE t SET x = 1")) {
+                    assertSame(connection, prepared.getConnection());
+                    assertSame(prepared, prepared.executeQuery().getStatement());
+                }
+                connection.close();
+                assertThrows(SQLException.class, statement::getConnection);
+            }
+            assertEquals(1, pool.getIdleCount());
+
+            // What the caller leaves open is closed when the loan ends
+            final int statementsClosed = database.statementCloses.get();
+            final int resultSetsClosed = database.resultSetCloses.get();
+            try (final Connection leaking = pool.getConnection()) {
+                leaking.createStatement().executeQuery("SELECT x FROM t");
+                leaking.prepareStatement("UPDATE t SET x = ?", Statement.RETURN_GENERATED_KEYS);
+                try (final Statement closed = leaking.createStatement()) {
+                    assertSame(leaking, closed.getConnection());
+                }
+                assertEquals(statementsClosed + 1, database.statementCloses.get());
+            }
+            assertEquals(statementsClosed + 3, database.statementCloses.get());
+            assertEquals(resultSetsClosed + 1, database.resultSetCloses.get());
+            assertEquals(1, pool.getIdleCount());
+
+            // A driver object can outlive the loan, so its connection is not lent out again
+            try (final Connection unwrapped = pool.getConnection()) {
+                assertNotNull(unwrapped.unwrap(AutoCloseable.class));
+                assertNotNull(unwrapped.unwrap(Driver.class));
+            }
+            assertEquals(0, pool.getIdleCount());
+            assertEquals(1, database.connectionCloses.get());
+        } finally {
+            database.deregister();
+        }
+    }
+
+    @Test
+    public void idleConnectionsAreValidated() throws Exception {
+        final FakeDatabase database = new FakeDatabase("idle");
+        try {
+            try (final ConnectionPool pool = database.pool(ConnectionPool.DEFAULT_VALIDATE_AFTER_IDLE_MILLIS)) {
+                pool.getConnection().close();
+                database.invalid = true;
+                // Not idle long enough to be checked
+                pool.getConnection().close();
+                assertEquals(1, database.connects.get());
+            }
+            database.invalid = false;
+            try (final ConnectionPool pool = database.pool(10)) {
+                pool.getConnection().close();
+                Thread.sleep(20);
+                pool.getConnection().close();
+                assertEquals(2, database.connects.get());
+                database.invalid = true;
+                Thread.sleep(20);
+                try (final Connection connection = pool.getConnection()) {
+                    assertFalse(connection.isClosed());
+                }
+                // The connection that failed the check was closed and replaced
+                assertEquals(3, database.connects.get());
+                assertEquals(2, database.connectionCloses.get());
+                assertEquals(1, pool.getOpenCount());
+            }
+        } finally {
+            database.deregister();
+        }
+    }
+}
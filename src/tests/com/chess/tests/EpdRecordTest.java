@@ -0,0 +1,26 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.EpdRecord;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpdRecordTest {
+
+    @Test
+    public void epdGetsMoveCountersAndOperations() {
+        final EpdRecord record = EpdRecord.parse("7k/5Q2/6K1/8/8/8/8/8 w - - bm Qf8#; id \"mate; in one\";");
+        assertEquals("7k/5Q2/6K1/8/8/8/8/8 w - - 0 1", record.getFen());
+        assertEquals("Qf8#", record.getOperation("bm"));
+        assertEquals("mate; in one", record.getId());
+    }
+
+    @Test
+    public void fenKeepsMoveCounters() {
+        final EpdRecord record = EpdRecord.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        assertEquals("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3", record.getFen());
+        assertNull(record.getId());
+        assertThrows(IllegalArgumentException.class, () -> EpdRecord.parse("8/8/8 w"));
+    }
+}
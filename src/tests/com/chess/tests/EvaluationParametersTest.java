@@ -0,0 +1,45 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluationParametersTest {
+
+    private static void assertTermsAddUp(final Board board, final EvaluationParameters parameters) {
+        final int[] terms = new int[EvaluationParameters.NUM_TERMS];
+        int score = StandardBoardEvaluator.calculateTerms(board, 0, terms);
+        final int[] weights = parameters.getWeights();
+        for (int t = 0; t < terms.length; t++) {
+            score += weights[t] * terms[t];
+        }
+        assertEquals(new StandardBoardEvaluator(parameters).evaluate(board, 0), score);
+    }
+
+    @Test
+    public void termsAddUpToEvaluation() {
+        final EvaluationParameters parameters = EvaluationParameters.DEFAULT
+                .with(EvaluationParameters.Term.MOBILITY_MULTIPLIER, 7)
+                .with(EvaluationParameters.Term.ISOLATED_PAWN_PENALTY, -13);
+        assertTermsAddUp(Board.createStandardBoard(), EvaluationParameters.DEFAULT);
+        assertTermsAddUp(FenUtilities.createGameFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"), parameters);
+        assertTermsAddUp(FenUtilities.createGameFromFEN("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"), parameters);
+    }
+
+    @Test
+    public void savedParametersLoadBack() throws IOException {
+        final File parameterFile = File.createTempFile("parameters", ".properties");
+        parameterFile.deleteOnExit();
+        final EvaluationParameters parameters = EvaluationParameters.DEFAULT.with(EvaluationParameters.Term.CASTLE_BONUS, 42);
+        parameters.save(parameterFile, "test");
+        assertEquals(parameters, EvaluationParameters.load(parameterFile));
+    }
+}
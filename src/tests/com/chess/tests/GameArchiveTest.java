@@ -0,0 +1,94 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.ArchivedGame;
+import com.chess.pgn.Game;
+import com.chess.pgn.GameArchiveReader;
+import com.chess.pgn.GameArchiveWriter;
+import com.chess.pgn.PGNUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameArchiveTest {
+
+    private static final String GAMES =
+            "[Event \"Castles\"]\n[White \"A\"]\n[Black \"B\"]\n\n" +
+            "1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 5. d3 O-O 1/2-1/2\n\n" +
+            "[Event \"Promotion\"]\n\n" +
+            "1. e4 d5 2. e5 f5 3. exf6 Nc6 4. fxg7 Bf5 5. gxh8=Q 1-0\n\n" +
+            "[Event \"Illegal\"]\n\n1. e4 e4 0-1\n\n" +
+            "[Event \"Mate\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n";
+
+    private static List<Game> readGames() throws IOException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), GAMES.getBytes(StandardCharsets.UTF_8));
+        final List<Game> games = new ArrayList<>();
+        PGNUtilities.readPGNFile(pgnFile, games::add);
+        return games;
+    }
+
+    @Test
+    public void gamesRoundTripThroughArchive() throws IOException {
+        final List<Game> games = readGames();
+        final File archiveFile = File.createTempFile("games", ".cga");
+        archiveFile.deleteOnExit();
+        try (final GameArchiveWriter writer = new GameArchiveWriter(archiveFile)) {
+            assertEquals(0, writer.addGame(games.get(0)));
+            assertEquals(1, writer.addGame(games.get(1)));
+            assertEquals(-1, writer.addGame(games.get(2)));
+            assertEquals(2, writer.addGame(games.get(3)));
+        }
+        try (final GameArchiveReader reader = new GameArchiveReader(archiveFile)) {
+            assertEquals(3, reader.getGameCount());
+            final ArchivedGame castles = reader.readGame(0);
+            assertEquals("A", castles.getTags().get("White"));
+            assertEquals(Arrays.asList("Event", "White", "Black"), new ArrayList<>(castles.getTags().keySet()));
+            assertEquals(Arrays.asList("Event", "White", "Black"),
+                    new ArrayList<>(castles.toGame().getTags().getTags().keySet()));
+            assertEquals("1/2-1/2", castles.getResult());
+            assertEquals(games.get(0).getMoves(), castles.toGame().getMoves());
+            assertEquals("Tie", castles.toGame().getWinner());
+            assertEquals(games.get(1).getMoves(), reader.readGame(1).toGame().getMoves());
+            assertEquals("Qh4#", reader.readGame(2).toGame().getMoves().get(3));
+            assertEquals(9, reader.readGame(1).getMoves().size());
+        }
+    }
+
+    @Test
+    public void gamesAreFoundByIdAcrossBlocks() throws IOException {
+        final List<Game> games = readGames();
+        final File archiveFile = File.createTempFile("games", ".cga");
+        archiveFile.deleteOnExit();
+        try (final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, 4)) {
+            for (int i = 0; i < 30; i++) {
+                writer.addGame(games.get(i % 2 == 0 ? 0 : 3));
+            }
+        }
+        try (final GameArchiveReader reader = new GameArchiveReader(archiveFile)) {
+            assertEquals(30, reader.getGameCount());
+            assertEquals(8, reader.getBlockCount());
+            assertEquals(4, reader.readGame(29).getPlyCount());
+            assertEquals(10, reader.readGame(14).getPlyCount());
+            assertEquals(14, reader.readGame(14).getId());
+            final List<Integer> ids = new ArrayList<>();
+            reader.forEach(false, game -> {
+                ids.add(game.getId());
+                assertTrue(game.getTags().isEmpty());
+            });
+            assertEquals(30, ids.size());
+            assertEquals(Integer.valueOf(29), ids.get(29));
+        }
+        // One byte per ply, with the tags of every game, fits in a fraction of the PGN text
+        assertTrue(archiveFile.length() < 15L * GAMES.length());
+    }
+}
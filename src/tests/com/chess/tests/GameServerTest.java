@@ -0,0 +1,77 @@
+package tests.com.chess.tests;
+
+import com.chess.server.GameServer;
+import com.chess.server.GameState;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameServerTest {
+
+    @Test
+    public void validatesMovesAndEndsOnMate() {
+        final GameServer server = new GameServer(1, 1, 60000, 100);
+        try {
+            final long gameId = server.createGame(null, 0, 0, false, false, 0);
+            server.playMove(gameId, "f2f3");
+            assertThrows(IllegalArgumentException.class, () -> server.playMove(gameId, "e7e2"));
+            server.playMove(gameId, "e7e5");
+            server.playMove(gameId, "g2g4");
+            final GameState state = server.playMove(gameId, "d8h4");
+            assertEquals("0-1", state.getResult());
+            assertEquals("checkmate", state.getTermination());
+            assertEquals(4, state.getMoves().size());
+            assertThrows(IllegalStateException.class, () -> server.playMove(gameId, "a2a3"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void idleGamesAreCompactedAndRestored() throws InterruptedException {
+        final GameServer server = new GameServer(1, 1, 0, 100);
+        try {
+            final long gameId = server.createGame(null, 60000, 0, false, false, 0);
+            server.playMove(gameId, "e2e4");
+            server.playMove(gameId, "e7e5");
+            final GameState before = server.getState(gameId);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (server.getCompactedGameCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, server.getCompactedGameCount());
+            // The restored game replays to the position it was compacted in
+            final GameState restored = server.getState(gameId);
+            assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR", before.getFen().split(" ")[0]);
+            assertEquals(before.getFen(), restored.getFen());
+            assertEquals(before.getMoves(), restored.getMoves());
+            final GameState after = server.playMove(gameId, "g1f3");
+            assertEquals(3, after.getMoves().size());
+            assertEquals("e2e4", after.getMoves().get(0));
+            assertTrue(after.getWhiteMillis() <= 60000 && after.getWhiteMillis() > 50000);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void engineRepliesOnTheSharedPool() throws InterruptedException {
+        final GameServer server = new GameServer(2, 1, 60000, 100);
+        try {
+            final CountDownLatch finished = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                final long gameId = server.createGame("7k/5Q2/6K1/8/8/8/8/8 w - - 0 1", 0, 0, true, true, 3);
+                server.onGameOver(gameId, finished::countDown);
+            }
+            assertTrue(finished.await(30, TimeUnit.SECONDS));
+            assertEquals("1-0", server.getState(1).getResult());
+            assertEquals("checkmate", server.getState(2).getTermination());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.SearchResult;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+import com.chess.uci.UciNotation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IterativeDeepeningSearchTest {
+
+    private static Board play(final Board board, final String from, final String to) {
+        final Move move = Move.MoveFactory.createMove(board, BoardUtils.getCoordinateAtPosition(from),
+                BoardUtils.getCoordinateAtPosition(to));
+        final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+        assertTrue(transition.getMoveStatus().isDone());
+        return transition.getToBoard();
+    }
+
+    @Test
+    public void transpositionsShareKeys() {
+        Board first = Board.createStandardBoard();
+        first = play(first, "g1", "f3");
+        first = play(first, "g8", "f6");
+        first = play(first, "b1", "c3");
+        Board second = Board.createStandardBoard();
+        second = play(second, "b1", "c3");
+        second = play(second, "g8", "f6");
+        second = play(second, "g1", "f3");
+        assertEquals(first.getZobristHash(), second.getZobristHash());
+        assertNotEquals(first.getZobristHash(), Board.createStandardBoard().getZobristHash());
+    }
+
+    @Test
+    public void findsMateInOne() {
+        final IterativeDeepeningSearch search = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 1);
+        final Board board = FenUtilities.createGameFromFEN("7k/5Q2/6K1/8/8/8/8/8 w - - 0 1");
+        final SearchResult result = search.search(board, SearchLimits.depth(3), null);
+        assertEquals("f7f8", UciNotation.toUci(result.getBestMove()));
+        assertTrue(result.isMateScore());
+        assertEquals(1, result.getMateInMoves());
+    }
+
+    @Test
+    public void stopsAtNodeLimit() {
+        final IterativeDeepeningSearch search = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 1);
+        final SearchResult result = search.search(Board.createStandardBoard(),
+                new SearchLimits.Builder().setNodes(2000).build(), null);
+        assertNotEquals(Move.MoveFactory.getNullMove(), result.getBestMove());
+        assertTrue(search.getNumBoardsEvaluated() < 2000 + 1024);
+    }
+
+    @Test
+    public void infiniteSearchStopsOnRequest() throws InterruptedException {
+        final IterativeDeepeningSearch search = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 2);
+        final SearchResult[] result = new SearchResult[1];
+        final Thread searchThread = new Thread(() -> result[0] = search.search(Board.createStandardBoard(),
+                new SearchLimits.Builder().setInfinite(true).build(), null));
+        searchThread.start();
+        Thread.sleep(500);
+        search.stop();
+        searchThread.join(10000);
+        assertFalse(searchThread.isAlive());
+        assertNotEquals(Move.MoveFactory.getNullMove(), result[0].getBestMove());
+    }
+
+    @Test
+    public void stopBeforeSearchStartsIsKept() throws InterruptedException {
+        final IterativeDeepeningSearch search = new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 1);
+        final SearchLimits limits = new SearchLimits.Builder().setInfinite(true).setPonder(true).build();
+        search.prepare(limits);
+        search.stop();
+        final Thread searchThread = new Thread(() -> search.search(Board.createStandardBoard(), limits, null));
+        searchThread.start();
+        searchThread.join(10000);
+        final boolean hung = searchThread.isAlive();
+        search.stop();
+        assertFalse(hung);
+    }
+}
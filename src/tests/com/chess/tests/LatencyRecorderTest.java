@@ -0,0 +1,30 @@
+package tests.com.chess.tests;
+
+import com.chess.analysis.LatencyRecorder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void percentilesByNearestRank() {
+        final LatencyRecorder recorder = new LatencyRecorder(100);
+        assertArrayEquals(new long[] { 0, 0 }, recorder.getPercentiles(0.5, 0.99));
+        for (int i = 100; i >= 1; i--) {
+            recorder.record(i);
+        }
+        assertArrayEquals(new long[] { 50, 90, 99, 100 }, recorder.getPercentiles(0.5, 0.9, 0.99, 1.0));
+    }
+
+    @Test
+    public void keepsOnlyRecentLatencies() {
+        final LatencyRecorder recorder = new LatencyRecorder(4);
+        for (int i = 1; i <= 10; i++) {
+            recorder.record(i * 10);
+        }
+        assertEquals(10, recorder.getCount());
+        assertArrayEquals(new long[] { 70, 100 }, recorder.getPercentiles(0.0, 1.0));
+    }
+}
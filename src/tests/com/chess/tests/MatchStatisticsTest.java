@@ -0,0 +1,75 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.IterativeDeepeningSearch;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+import com.chess.tuning.MatchGame;
+import com.chess.tuning.MatchStatistics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchStatisticsTest {
+
+    private static MatchStatistics statistics(final int wins, final int draws, final int losses) {
+        final MatchStatistics statistics = new MatchStatistics();
+        for (int i = 0; i < wins; i++) {
+            statistics.record(2);
+        }
+        for (int i = 0; i < draws; i++) {
+            statistics.record(1);
+        }
+        for (int i = 0; i < losses; i++) {
+            statistics.record(0);
+        }
+        return statistics;
+    }
+
+    @Test
+    public void eloFollowsScore() {
+        final MatchStatistics even = statistics(30, 40, 30);
+        assertEquals(0.5, even.getScore(), 1e-9);
+        assertEquals(0, even.getEloDifference(), 1e-9);
+        final MatchStatistics ahead = statistics(60, 20, 20);
+        assertEquals(0.7, ahead.getScore(), 1e-9);
+        assertEquals(147.2, ahead.getEloDifference(), 0.1);
+        assertTrue(ahead.getEloErrorMargin() > 0 && ahead.getEloErrorMargin() < 147.2);
+        assertEquals(0.7, MatchStatistics.toScore(MatchStatistics.toElo(0.7)), 1e-9);
+    }
+
+    @Test
+    public void sprtAcceptsTheCloserHypothesis() {
+        final double upper = MatchStatistics.getUpperBound(0.05, 0.05);
+        final double lower = MatchStatistics.getLowerBound(0.05, 0.05);
+        assertEquals(Math.log(19), upper, 1e-9);
+        assertEquals(-Math.log(19), lower, 1e-9);
+        assertTrue(statistics(700, 1000, 300).getLogLikelihoodRatio(0, 10) >= upper);
+        assertTrue(statistics(300, 1000, 700).getLogLikelihoodRatio(0, 10) <= lower);
+        assertEquals(0, new MatchStatistics().getLogLikelihoodRatio(0, 10), 1e-9);
+    }
+
+    @Test
+    public void timeControlParses() {
+        final MatchGame.TimeControl clock = MatchGame.TimeControl.parse("10+0.1");
+        assertTrue(clock.isClocked());
+        assertEquals(10000, clock.getBaseMillis());
+        assertEquals(100, clock.getIncrementMillis());
+        assertEquals("10+0.1", clock.toString());
+        assertFalse(MatchGame.TimeControl.parse("depth=3").isClocked());
+        assertThrows(IllegalArgumentException.class, () -> MatchGame.TimeControl.parse("fast"));
+    }
+
+    @Test
+    public void playsToCheckmate() {
+        final Board board = FenUtilities.createGameFromFEN("7k/5Q2/6K1/8/8/8/8/8 w - - 0 1");
+        final MatchGame game = MatchGame.play(board,
+                new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 1),
+                new IterativeDeepeningSearch(StandardBoardEvaluator.get(), 1, 1),
+                MatchGame.TimeControl.parse("depth=3"), 100, () -> false);
+        assertEquals("1-0", game.getOutcome().getResult());
+        assertEquals("checkmate", game.getTermination());
+        assertEquals(1, game.getMoves().size());
+    }
+}
@@ -0,0 +1,40 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveSanTest {
+
+    @Test
+    public void sanOfPlayedMovesCarriesCheckAndMate() {
+        Board board = Board.createStandardBoard();
+        final String[] game = { "e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#" };
+        for (final String san : game) {
+            final Move move = PGNUtilities.createMove(board, san);
+            final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+            assertEquals(san, move.getSan(transition.getToBoard()));
+            assertEquals(san, move.toString());
+            board = transition.getToBoard();
+        }
+        final Board check = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        // Not played through a transition, so toString plays it once itself
+        assertEquals("Ra8+", PGNUtilities.createMove(check, "Ra8").toString());
+    }
+
+    @Test
+    public void disambiguatesByFileRankOrSquare() {
+        final Board rooks = FenUtilities.createGameFromFEN("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R1a3", PGNUtilities.createMove(rooks, "R1a3").toString());
+        final Board knights = FenUtilities.createGameFromFEN("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertEquals("Nbd2", PGNUtilities.createMove(knights, "Nbd2").toString());
+        final Board queens = FenUtilities.createGameFromFEN("4k3/8/8/8/8/Q1Q5/8/Q3K3 w - - 0 1");
+        assertEquals("Qa3b2", PGNUtilities.createMove(queens, "Qa3b2").toString());
+    }
+}
@@ -0,0 +1,72 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.NeuralBoardEvaluator;
+import com.chess.engine.player.ai.NeuralNetwork;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NeuralBoardEvaluatorTest {
+
+    private static final NeuralBoardEvaluator EVALUATOR = new NeuralBoardEvaluator(NeuralNetwork.createRandom(32, 7L));
+
+    private static Board play(final Board board, final String from, final String to) {
+        final Move move = Move.MoveFactory.createMove(board, BoardUtils.getCoordinateAtPosition(from),
+                BoardUtils.getCoordinateAtPosition(to));
+        final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+        assertTrue(transition.getMoveStatus().isDone());
+        return transition.getToBoard();
+    }
+
+    private static void assertIncrementalScore(final Board board) {
+        final Board rebuilt = FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board));
+        assertEquals(EVALUATOR.evaluate(rebuilt, 0), EVALUATOR.evaluate(board, 0));
+    }
+
+    @Test
+    public void capturesAndCastling() {
+        Board board = Board.createStandardBoard();
+        EVALUATOR.evaluate(board, 0);
+        board = play(board, "e2", "e4");
+        board = play(board, "d7", "d5");
+        board = play(board, "e4", "d5");
+        assertIncrementalScore(board);
+        board = play(board, "g8", "f6");
+        board = play(board, "g1", "f3");
+        board = play(board, "f6", "d5");
+        board = play(board, "f1", "c4");
+        board = play(board, "e7", "e6");
+        board = play(board, "e1", "g1");
+        assertIncrementalScore(board);
+    }
+
+    @Test
+    public void enPassantAndPromotion() {
+        Board board = FenUtilities.createGameFromFEN("4k3/1P6/8/8/5p2/8/4P3/4K3 w - - 0 1");
+        EVALUATOR.evaluate(board, 0);
+        board = play(board, "e2", "e4");
+        board = play(board, "f4", "e3");
+        assertIncrementalScore(board);
+        board = play(board, "b7", "b8");
+        assertIncrementalScore(board);
+    }
+
+    @Test
+    public void savedNetworkLoadsBack() throws IOException {
+        final File weightsFile = File.createTempFile("network", ".bin");
+        weightsFile.deleteOnExit();
+        EVALUATOR.getNetwork().save(weightsFile);
+        final NeuralBoardEvaluator loaded = NeuralBoardEvaluator.load(weightsFile);
+        final Board board = FenUtilities.createGameFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(EVALUATOR.evaluate(board, 0), loaded.evaluate(board, 0));
+    }
+}
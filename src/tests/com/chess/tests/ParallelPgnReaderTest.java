@@ -0,0 +1,104 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.Game;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParallelPgnReader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelPgnReaderTest {
+
+    private static final String[] OPENINGS = {
+            "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1-0",
+            "1. d4 d5 2. c4 e6 3. Nc3 Nf6 1/2-1/2",
+            "1. c4 c5 {a comment\nover two lines} 2. Nc3 Nc6 0-1",
+            "1. e4 c5 2. Nf3 d6 *"
+    };
+
+    private static File writeGames(final int count) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("[Event \"Game ").append(i).append("\"]\r\n")
+                    .append("[Round \"").append(i).append("\"]\r\n\r\n")
+                    .append(OPENINGS[i % OPENINGS.length]).append("\r\n\r\n");
+        }
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        return pgnFile;
+    }
+
+    private static List<String> describe(final List<Game> games) {
+        final List<String> descriptions = new ArrayList<>();
+        for (final Game game : games) {
+            descriptions.add(game + " " + game.getMoves() + " " + game.getWinner());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void orderedChunksMatchSequentialReading() throws IOException, InterruptedException {
+        final File pgnFile = writeGames(200);
+        final List<Game> sequential = new ArrayList<>();
+        PGNUtilities.readPGNFile(pgnFile, sequential::add);
+        final List<Game> parallel = new ArrayList<>();
+        // Chunks of a few games each, cut in many places
+        final long read = new ParallelPgnReader(3, 300, false)
+                .read(Collections.nCopies(2, pgnFile), parallel::add, true);
+        assertEquals(400, read);
+        final List<String> expected = describe(sequential);
+        expected.addAll(describe(sequential));
+        assertEquals(expected, describe(parallel));
+    }
+
+    @Test
+    public void unorderedReadingHandsOnEveryGame() throws IOException, InterruptedException {
+        final File pgnFile = writeGames(150);
+        final List<Game> sequential = new ArrayList<>();
+        PGNUtilities.readPGNFile(pgnFile, sequential::add);
+        final List<Game> parallel = Collections.synchronizedList(new ArrayList<>());
+        assertEquals(150, new ParallelPgnReader(4, 500, false)
+                .read(Collections.singletonList(pgnFile), parallel::add, false));
+        final List<String> expected = describe(sequential);
+        final List<String> actual = describe(parallel);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void validationMarksIllegalGames() throws IOException, InterruptedException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), ("[Event \"Legal\"]\n\n1. e4 e5 1-0\n\n" +
+                "[Event \"Illegal\"]\n\n1. e4 e4 0-1\n").getBytes(StandardCharsets.UTF_8));
+        final List<Game> games = new ArrayList<>();
+        assertEquals(2, new ParallelPgnReader(2, 1, true)
+                .read(Collections.singletonList(pgnFile), games::add, true));
+        assertTrue(games.get(0).isValid());
+        assertFalse(games.get(1).isValid());
+    }
+
+    @Test
+    public void unorderedReadingPassesOnErrors() throws IOException {
+        final File pgnFile = writeGames(150);
+        final Error failure = new Error("sink failed");
+        final IOException e = assertThrows(IOException.class, () -> new ParallelPgnReader(3, 300, false)
+                .read(Collections.singletonList(pgnFile), game -> {
+                    if ("77".equals(game.getTags().getTag("Round"))) {
+                        throw failure;
+                    }
+                }, false));
+        assertSame(failure, e.getCause());
+    }
+}
@@ -0,0 +1,78 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.Game;
+import com.chess.pgn.PgnOffsetIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnOffsetIndexTest {
+
+    private static final String GAMES =
+            "[Event \"One\"]\n[White \"Carlsen\"]\n[Black \"Nakamura\"]\n[Result \"1-0\"]\n[Date \"2019.05.01\"]\n[ECO \"C50\"]\n\n" +
+            "1. e4 e5 2. Nf3 {a comment} Nc6 3. Bc4 (3. Bb5 a6) Bc5 1-0\n\n" +
+            "[Event \"No moves\"]\n[White \"Nobody\"]\n\n*\n\n" +
+            "[Event \"Two\"]\n[White \"Nakamura\"]\n[Black \"Carlsen\"]\n[Date \"2020.01.02\"]\n[ECO \"B90\"]\n\n" +
+            "1. e4 c5 2. Nf3 d6 1/2-1/2\n\n" +
+            "1. f3 e5 2. g4 Qh4# 0-1\n";
+
+    private static File writeGames(final String text) throws IOException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        PgnOffsetIndex.sidecarFile(pgnFile).deleteOnExit();
+        Files.write(pgnFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return pgnFile;
+    }
+
+    @Test
+    public void gamesAreReadAtTheirOffsets() throws IOException {
+        final File pgnFile = writeGames(GAMES);
+        try (final PgnOffsetIndex index = PgnOffsetIndex.open(pgnFile)) {
+            assertEquals(3, index.getGameCount());
+            assertEquals(0, index.getOffset(0));
+            assertTrue(index.readText(0).endsWith("Bc5 1-0"));
+            assertTrue(index.readText(1).startsWith("[Event \"Two\"]"));
+            assertEquals("1. f3 e5 2. g4 Qh4# 0-1", index.readText(2));
+            final Game second = index.readGame(1);
+            assertEquals("Tie", second.getWinner());
+            assertEquals(4, second.getMoves().size());
+            assertEquals("Qh4#", index.readGame(2).getMoves().get(3));
+            assertEquals("Carlsen", index.getTag(0, "White"));
+            assertEquals("C50", index.getTag(0, "ECO"));
+            assertNull(index.getTag(2, "White"));
+            // The result of a game without a Result tag is taken from its move text
+            assertEquals("0-1", index.getTag(2, "Result"));
+        }
+    }
+
+    @Test
+    public void gamesAreFilteredByTag() throws IOException {
+        final File pgnFile = writeGames(GAMES);
+        try (final PgnOffsetIndex index = PgnOffsetIndex.open(pgnFile)) {
+            assertArrayEquals(new int[] { 0 }, index.find("White", "Carlsen"));
+            assertArrayEquals(new int[] { 1 }, index.find("Black", "Carlsen"));
+            assertArrayEquals(new int[] { 1 }, index.find("Date", date -> date.startsWith("2020")));
+            assertArrayEquals(new int[0], index.find("ECO", "A00"));
+            assertThrows(IllegalArgumentException.class, () -> index.find("Event", "One"));
+        }
+    }
+
+    @Test
+    public void changedFilesAreIndexedAgain() throws IOException {
+        final File pgnFile = writeGames(GAMES);
+        try (final PgnOffsetIndex index = PgnOffsetIndex.open(pgnFile)) {
+            assertEquals(3, index.getGameCount());
+        }
+        Files.write(pgnFile.toPath(), (GAMES + "\n1. d4 d5 *\n").getBytes(StandardCharsets.UTF_8));
+        try (final PgnOffsetIndex index = PgnOffsetIndex.open(pgnFile)) {
+            assertEquals(4, index.getGameCount());
+            assertEquals("1. d4 d5 *", index.readText(3));
+        }
+    }
+}
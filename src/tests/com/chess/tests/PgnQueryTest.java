@@ -0,0 +1,94 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.Game;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.PgnQuery;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnQueryTest {
+
+    private static final String ITALIAN =
+            "[Event \"Italian\"]\n[White \"Carlsen\"]\n[Black \"Caruana\"]\n[WhiteElo \"2860\"]\n[BlackElo \"2820\"]\n" +
+            "[ECO \"C50\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bc4 {the Italian} Bc5 1-0\n\n";
+    private static final String SICILIAN =
+            "[Event \"Sicilian\"]\n[White \"Caruana\"]\n[Black \"Nakamura\"]\n[WhiteElo \"2820\"]\n[BlackElo \"2750\"]\n" +
+            "[ECO \"B90\"]\n\n1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 1/2-1/2\n\n";
+    private static final String MATE =
+            "[Event \"Mate\"]\n[White \"Patzer\"]\n[Black \"Carlsen\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n";
+    private static final String GAMES = ITALIAN + SICILIAN + MATE;
+
+    private static String query(final String text,
+                                final List<Predicate<Game>> gameFilters,
+                                final List<Predicate<Board>> positionFilters) throws IOException, InterruptedException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PgnQuery(gameFilters, positionFilters, 2, PgnQuery.DEFAULT_CHUNK_BYTES)
+                .run(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void gamesAreFilteredByTags() throws IOException, InterruptedException {
+        final List<Predicate<Board>> none = Collections.emptyList();
+        assertEquals(ITALIAN + MATE, query(GAMES, Collections.singletonList(PgnQuery.player("carlsen")), none));
+        assertEquals(ITALIAN + SICILIAN, query(GAMES, Collections.singletonList(PgnQuery.elo(2700, 2900)), none));
+        assertEquals(ITALIAN, query(GAMES, Collections.singletonList(PgnQuery.elo(2800, 2900)), none));
+        assertEquals(SICILIAN, query(GAMES, Collections.singletonList(PgnQuery.eco("B00", "B99")), none));
+        assertEquals(MATE, query(GAMES, Arrays.asList(PgnQuery.player("Carlsen"), PgnQuery.result("0-1")), none));
+        assertEquals("", query(GAMES, Collections.singletonList(PgnQuery.tagEquals("White", "Nakamura")), none));
+    }
+
+    @Test
+    public void gamesAreFilteredByPositions() throws IOException, InterruptedException {
+        final List<Predicate<Game>> none = Collections.emptyList();
+        final Board openSicilian = FenUtilities.createGameFromFEN(
+                "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5");
+        assertEquals(SICILIAN, query(GAMES, none, Collections.singletonList(PgnQuery.position(openSicilian))));
+        // A pawn of each side is off the board from 4. Nxd4 on
+        assertEquals(SICILIAN, query(GAMES, none, Collections.singletonList(
+                PgnQuery.material("KQRRBBNNPPPPPPPkqrrbbnnppppppp"))));
+        assertEquals("", query(GAMES, Collections.singletonList(PgnQuery.player("Patzer")),
+                Collections.singletonList(PgnQuery.position(openSicilian))));
+    }
+
+    @Test
+    public void largeGzipInputIsFilteredInChunks() throws IOException, InterruptedException {
+        final StringBuilder text = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            text.append(GAMES);
+            expected.append(SICILIAN);
+        }
+        final File gzipFile = File.createTempFile("games", ".pgn.gz");
+        gzipFile.deleteOnExit();
+        try (final OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        final PgnQuery query = new PgnQuery(Collections.singletonList(PgnQuery.eco("B90", "B90")),
+                Collections.emptyList(), 4, 1 << 16);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final InputStream in = PGNUtilities.openPGNStream(gzipFile)) {
+            assertEquals(600, query.run(in, out));
+        }
+        assertEquals(1800, query.getGamesRead());
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+package tests.com.chess.tests;
+
+import com.chess.pgn.Game;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.PgnTokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnTokenizerTest {
+
+    private static final String GAMES =
+            "[Event \"Quoted \\\"name\\\"\"]\n" +
+            "[White \"M\u00fcller\"]\n" +
+            "\n" +
+            "1. e4 {best (by test)} e5 2.Nf3 (2. f4 exf4 (2... d5) {side} 3. Nf3) Nc6 $1 3. Bb5!? a6 ; rest of line 4. xx\n" +
+            "% escaped line\n" +
+            "4. Ba4 Nf6 1-0\n" +
+            "\n" +
+            "[Event \"No result\"]\n" +
+            "\n" +
+            "1. d4 d5) 2. c4 3... e6 }\n" +
+            "[Event \"Draw\"]\n" +
+            "1. c4 c5 1/2-1/2\n";
+
+    private static List<String> events(final InputStream in) throws IOException {
+        final List<String> events = new ArrayList<>();
+        PgnTokenizer.tokenize(in, new PgnTokenizer.Listener() {
+            @Override
+            public void tag(final String name, final String value) {
+                events.add(name + "=" + value);
+            }
+
+            @Override
+            public void move(final String san) {
+                events.add(san);
+            }
+
+            @Override
+            public void gameEnd(final String result) {
+                events.add("end " + result);
+            }
+        });
+        return events;
+    }
+
+    @Test
+    public void skipsCommentsVariationsAndAnnotations() throws IOException {
+        final List<String> events = events(new ByteArrayInputStream(GAMES.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList(
+                "Event=Quoted \"name\"", "White=M\u00fcller",
+                "e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "end 1-0",
+                "Event=No result", "d4", "d5", "c4", "e6", "end *",
+                "Event=Draw", "c4", "c5", "end 1/2-1/2"), events);
+    }
+
+    @Test
+    public void tokensMayCrossBufferBoundaries() throws IOException {
+        final byte[] bytes = GAMES.getBytes(StandardCharsets.UTF_8);
+        // Hands out one byte per read, so every token is split between buffers
+        final InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public int read(final byte[] buffer) {
+                return read(buffer, 0, 1);
+            }
+        };
+        assertEquals(events(new ByteArrayInputStream(bytes)), events(trickle));
+    }
+
+    @Test
+    public void readsGamesFromMappedFile() throws IOException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), GAMES.getBytes(StandardCharsets.UTF_8));
+        final List<Game> games = new ArrayList<>();
+        assertEquals(3, PGNUtilities.readPGNFile(pgnFile, games::add));
+        assertEquals("White", games.get(0).getWinner());
+        assertEquals(8, games.get(0).getMoves().size());
+        assertEquals("None", games.get(1).getWinner());
+        assertEquals("Tie", games.get(2).getWinner());
+    }
+}
@@ -0,0 +1,62 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.PieceSquareScore;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceSquareScoreTest {
+
+    private static Board play(final Board board, final String from, final String to) {
+        final Move move = Move.MoveFactory.createMove(board, BoardUtils.getCoordinateAtPosition(from),
+                BoardUtils.getCoordinateAtPosition(to));
+        final MoveTransition transition = board.getCurrentPlayer().makeMove(move);
+        assertTrue(transition.getMoveStatus().isDone());
+        return transition.getToBoard();
+    }
+
+    private static void assertIncrementalScore(final Board board) {
+        assertEquals(PieceSquareScore.calculate(board.getWhitePieces(), board.getBlackPieces()), board.getPieceSquareScore());
+    }
+
+    @Test
+    public void initialBoardIsBalanced() {
+        final Board board = Board.createStandardBoard();
+        assertEquals(0, board.getPieceSquareScore().getMiddlegameScore());
+        assertEquals(0, board.getPieceSquareScore().getEndgameScore());
+        assertEquals(24, board.getPieceSquareScore().getPhase());
+    }
+
+    @Test
+    public void capturesAndCastling() {
+        Board board = Board.createStandardBoard();
+        board = play(board, "e2", "e4");
+        board = play(board, "d7", "d5");
+        board = play(board, "e4", "d5");
+        assertIncrementalScore(board);
+        board = play(board, "g8", "f6");
+        board = play(board, "g1", "f3");
+        board = play(board, "f6", "d5");
+        board = play(board, "f1", "c4");
+        board = play(board, "e7", "e6");
+        board = play(board, "e1", "g1");
+        assertIncrementalScore(board);
+    }
+
+    @Test
+    public void enPassantAndPromotion() {
+        Board board = FenUtilities.createGameFromFEN("4k3/1P6/8/8/5p2/8/4P3/4K3 w - - 0 1");
+        board = play(board, "e2", "e4");
+        board = play(board, "f4", "e3");
+        assertIncrementalScore(board);
+        board = play(board, "b7", "b8");
+        assertIncrementalScore(board);
+        assertEquals(4, board.getPieceSquareScore().getPhase());
+    }
+}
@@ -0,0 +1,163 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.Zobrist;
+import com.chess.engine.openings.PolyglotBook;
+import com.chess.pgn.FenUtilities;
+import com.chess.uci.UciNotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolyglotBookTest {
+
+    // Polyglot squares count from a1 = 0 along the ranks
+    private static int polyglotMove(final String from, final String to) {
+        return square(from) << 6 | square(to);
+    }
+
+    private static int square(final String square) {
+        return (square.charAt(1) - '1') * 8 + square.charAt(0) - 'a';
+    }
+
+    private static Board play(final String moves) {
+        Board board = Board.createStandardBoard();
+        for (final String move : moves.split(" ")) {
+            board = board.getCurrentPlayer().makeMove(UciNotation.fromUci(board, move)).getToBoard();
+        }
+        return board;
+    }
+
+    private static File writeBook(final long[][] entries) throws IOException {
+        final File book = File.createTempFile("book", ".bin");
+        book.deleteOnExit();
+        try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(book))) {
+            for (final long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt(0);
+            }
+        }
+        return book;
+    }
+
+    @Test
+    public void findsWeightedMovesByKey() throws IOException {
+        final Board board = Board.createStandardBoard();
+        final long key = board.getZobristHash();
+        final long[][] entries = {
+                { key - 1, polyglotMove("a2", "a3"), 10 },
+                { key, polyglotMove("e2", "e4"), 3 },
+                { key, polyglotMove("d2", "d4"), 1 },
+                { key, polyglotMove("e2", "e5"), 50 },
+                { key + 1, polyglotMove("h2", "h3"), 10 },
+        };
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        final PolyglotBook book = PolyglotBook.open(writeBook(entries));
+        assertEquals(5, book.size());
+        final List<PolyglotBook.BookMove> moves = book.getMoves(board);
+        assertEquals(2, moves.size());
+        final Random random = new Random(7);
+        int kingPawn = 0;
+        for (int i = 0; i < 400; i++) {
+            final Move move = book.getWeightedMove(board, random);
+            assertTrue(move.getCurrentCoordinate() == 52 || move.getCurrentCoordinate() == 51);
+            if (move.getCurrentCoordinate() == 52) {
+                kingPawn++;
+            }
+        }
+        assertTrue(kingPawn > 250 && kingPawn < 350);
+        final Board afterE4 = board.getCurrentPlayer().makeMove(moves.get(0).getMove()).getToBoard();
+        assertEquals(Move.MoveFactory.getNullMove(), book.getWeightedMove(afterE4, random));
+    }
+
+    @Test
+    public void castlingIsWrittenAsKingTakesRook() throws IOException {
+        final Board board = FenUtilities.createGameFromFEN("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        final PolyglotBook book = PolyglotBook.open(writeBook(new long[][] {
+                { board.getZobristHash(), polyglotMove("e1", "h1"), 1 } }));
+        final Move move = book.getWeightedMove(board, new Random());
+        assertTrue(move.isCastlingMove());
+        assertEquals(62, move.getDestinationCoordinate());
+    }
+
+    @Test
+    public void readsKeyTablesFromSource() throws IOException {
+        final StringBuilder source = new StringBuilder("const U64 Random64[781] = {\n");
+        final Random random = new Random(1);
+        final long[] expected = new long[Zobrist.NUM_KEYS];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextLong();
+            source.append(String.format("   U64(0x%016X),%n", expected[i]));
+        }
+        final Path keyFile = Files.createTempFile("random64", ".c");
+        keyFile.toFile().deleteOnExit();
+        Files.write(keyFile, source.append("};\n").toString().getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(expected, Zobrist.readKeys(keyFile));
+        assertFalse(Zobrist.isBoardKeys(expected));
+        final Board board = Board.createStandardBoard();
+        final PolyglotBook book = PolyglotBook.open(writeBook(new long[][] {
+                { Zobrist.hash(board, expected), polyglotMove("g1", "f3"), 1 } }), expected);
+        assertEquals(45, book.getWeightedMove(board, random).getDestinationCoordinate());
+    }
+
+    @Test
+    public void castlingRightsFollowTheRooks() {
+        // The a1 rook has moved, so white may only castle king side
+        final Board rookMoved = play("a2a4 b7b5 h2h4 b5b4 c2c4 b4c3 a1a2");
+        assertEquals(FenUtilities.createGameFromFEN(
+                "rnbqkbnr/p1pppppp/8/8/P6P/2p5/RP1PPPP1/1NBQKBNR b Kkq - 0 4").getZobristHash(),
+                rookMoved.getZobristHash());
+        // Nor once the rook is back home
+        final Board rookReturned = play("a2a4 b7b5 a1a2 b5b4 a2a1");
+        assertEquals(FenUtilities.createGameFromFEN(
+                "rnbqkbnr/p1pppppp/8/8/Pp6/8/1PPPPPPP/RNBQKBNR b Kkq - 2 3").getZobristHash(),
+                rookReturned.getZobristHash());
+        assertNotEquals(FenUtilities.createGameFromFEN(
+                "rnbqkbnr/p1pppppp/8/8/Pp6/8/1PPPPPPP/RNBQKBNR b KQkq - 2 3").getZobristHash(),
+                rookReturned.getZobristHash());
+
+        // Rxa8 costs white the rook that moved and black the rook that was taken
+        final Board board = FenUtilities.createGameFromFEN("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        final Board rookTaken = board.getCurrentPlayer().makeMove(UciNotation.fromUci(board, "a1a8")).getToBoard();
+        assertEquals(FenUtilities.createGameFromFEN("R3k2r/8/8/8/8/8/8/4K2R b Kk - 0 1").getZobristHash(),
+                rookTaken.getZobristHash());
+    }
+
+    /**
+     * The keys published with the Polyglot book format, checked when chess.zobrist.keys names
+     * Polyglot's Random64 table
+     */
+    @Test
+    public void matchesPublishedPolyglotKeys() throws IOException {
+        final String keyFile = System.getProperty(Zobrist.KEYS_PROPERTY);
+        if (keyFile == null) {
+            return;
+        }
+        final long[] keys = Zobrist.readKeys(Paths.get(keyFile));
+        assertEquals(0x463b96181691fc9cL, Zobrist.hash(Board.createStandardBoard(), keys));
+        assertEquals(0x823c9b50fd114196L, Zobrist.hash(play("e2e4"), keys));
+        assertEquals(0x0756b94461c50fb0L, Zobrist.hash(play("e2e4 d7d5"), keys));
+        assertEquals(0x662fafb965db29d4L, Zobrist.hash(play("e2e4 d7d5 e4e5"), keys));
+        assertEquals(0x22a48b5a8e47ff78L, Zobrist.hash(play("e2e4 d7d5 e4e5 f7f5"), keys));
+        assertEquals(0x652a607ca3f242c1L, Zobrist.hash(play("e2e4 d7d5 e4e5 f7f5 e1e2"), keys));
+        assertEquals(0x00fdd303c946bdd9L, Zobrist.hash(play("e2e4 d7d5 e4e5 f7f5 e1e2 e8f7"), keys));
+        assertEquals(0x3c8123ea7b067637L, Zobrist.hash(play("a2a4 b7b5 h2h4 b5b4 c2c4"), keys));
+        assertEquals(0x5c3f9b829b279560L, Zobrist.hash(play("a2a4 b7b5 h2h4 b5b4 c2c4 b4c3 a1a2"), keys));
+    }
+}
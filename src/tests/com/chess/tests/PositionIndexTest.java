@@ -0,0 +1,112 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.Game;
+import com.chess.pgn.GameArchiveWriter;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.PositionIndex;
+import com.chess.pgn.PositionIndexBuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionIndexTest {
+
+    private static final String GAMES =
+            "[Event \"Italian\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 1/2-1/2\n\n" +
+            "[Event \"Sicilian\"]\n\n1. e4 c5 2. Nf3 d6 1-0\n\n" +
+            "[Event \"Mate\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n" +
+            "[Event \"Transposed\"]\n\n1. Nf3 Nc6 2. e4 e5 3. Bc4 Bc5 0-1\n";
+
+    private static File buildIndex(final int spillPostings) throws IOException, InterruptedException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), GAMES.getBytes(StandardCharsets.UTF_8));
+        final List<Game> games = new ArrayList<>();
+        PGNUtilities.readPGNFile(pgnFile, games::add);
+        final File archiveFile = File.createTempFile("games", ".cga");
+        archiveFile.deleteOnExit();
+        try (final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, 2)) {
+            for (final Game game : games) {
+                writer.addGame(game);
+            }
+        }
+        final File indexDirectory = Files.createTempDirectory("index").toFile();
+        indexDirectory.deleteOnExit();
+        final PositionIndexBuilder builder = new PositionIndexBuilder(0, spillPostings);
+        assertEquals(20, builder.build(archiveFile, indexDirectory, 2));
+        for (final File segment : indexDirectory.listFiles()) {
+            segment.deleteOnExit();
+        }
+        return indexDirectory;
+    }
+
+    @Test
+    public void positionsAreFoundWithTheirGamesAndPlies() throws IOException, InterruptedException {
+        try (final PositionIndex index = PositionIndex.open(buildIndex(1 << 16))) {
+            final Board openGame = FenUtilities.createGameFromFEN(
+                    "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2");
+            final List<PositionIndex.Occurrence> occurrences = index.find(openGame);
+            assertEquals(1, occurrences.size());
+            assertEquals(0, occurrences.get(0).getGameId());
+            assertEquals(2, occurrences.get(0).getPly());
+            final Board italian = FenUtilities.createGameFromFEN(
+                    "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+            assertArrayEquals(new int[] { 0, 3 }, index.findGames(italian));
+            assertEquals(6, index.find(italian).get(1).getPly());
+        }
+    }
+
+    @Test
+    public void segmentsAreSearchedTogether() throws IOException, InterruptedException {
+        try (final PositionIndex index = PositionIndex.open(buildIndex(16))) {
+            assertTrue(index.getSegmentCount() > 1);
+            final Board italian = FenUtilities.createGameFromFEN(
+                    "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+            assertArrayEquals(new int[] { 0, 3 }, index.findGames(italian));
+            final Board mate = FenUtilities.createGameFromFEN(
+                    "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+            assertArrayEquals(new int[] { 2 }, index.findGames(mate));
+            assertTrue(index.find(Board.createStandardBoard()).isEmpty());
+        }
+    }
+
+    @Test
+    public void aBuilderCanBuildAgain() throws IOException, InterruptedException {
+        final File pgnFile = File.createTempFile("games", ".pgn");
+        pgnFile.deleteOnExit();
+        Files.write(pgnFile.toPath(), GAMES.getBytes(StandardCharsets.UTF_8));
+        final File archiveFile = File.createTempFile("games", ".cga");
+        archiveFile.deleteOnExit();
+        // A block per game, more than one thread's queue holds, so the building thread indexes some itself
+        try (final GameArchiveWriter writer = new GameArchiveWriter(archiveFile, 1)) {
+            PGNUtilities.readPGNFile(pgnFile, writer::addGame);
+        }
+        final PositionIndexBuilder builder = new PositionIndexBuilder(0, 1 << 16);
+        for (int build = 0; build < 3; build++) {
+            final File indexDirectory = Files.createTempDirectory("index").toFile();
+            indexDirectory.deleteOnExit();
+            assertEquals(20, builder.build(archiveFile, indexDirectory, 1));
+            for (final File segment : indexDirectory.listFiles()) {
+                segment.deleteOnExit();
+            }
+            try (final PositionIndex index = PositionIndex.open(indexDirectory)) {
+                final Board mate = FenUtilities.createGameFromFEN(
+                        "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+                assertArrayEquals(new int[] { 2 }, index.findGames(mate));
+                final Board italian = FenUtilities.createGameFromFEN(
+                        "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+                assertArrayEquals(new int[] { 0, 3 }, index.findGames(italian));
+            }
+        }
+    }
+}
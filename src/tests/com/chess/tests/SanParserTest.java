@@ -0,0 +1,61 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SanParserTest {
+
+    private static void assertMove(final Board board,
+                                   final String san,
+                                   final String from,
+                                   final String to) {
+        final Move move = PGNUtilities.createMove(board, san);
+        assertNotEquals(Move.NULL_MOVE, move, san);
+        assertEquals(BoardUtils.getCoordinateAtPosition(from), move.getCurrentCoordinate(), san);
+        assertEquals(BoardUtils.getCoordinateAtPosition(to), move.getDestinationCoordinate(), san);
+    }
+
+    @Test
+    public void resolvesDisambiguationAndPins() {
+        final Board knights = FenUtilities.createGameFromFEN("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertMove(knights, "Nbd2", "b1", "d2");
+        assertMove(knights, "Nfxd2+", "f3", "d2");
+        assertEquals(Move.NULL_MOVE, PGNUtilities.createMove(knights, "Nd2"));
+        final Board rooks = FenUtilities.createGameFromFEN("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertMove(rooks, "R1a3", "a1", "a3");
+        assertMove(rooks, "R5a3", "a5", "a3");
+        // The f3 knight is pinned, so Nd2 needs no disambiguation
+        final Board pinned = FenUtilities.createGameFromFEN("4k3/8/8/3b4/8/5N2/8/1N5K w - - 0 1");
+        assertMove(pinned, "Nd2", "b1", "d2");
+    }
+
+    @Test
+    public void resolvesCastlingCapturesAndPromotions() {
+        final Board castles = FenUtilities.createGameFromFEN("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertMove(castles, "O-O", "e1", "g1");
+        assertMove(castles, "0-0-0", "e1", "c1");
+        Board board = Board.createStandardBoard();
+        for (final String san : new String[] { "e4", "d5", "e5", "f5", "exf6", "Nc6", "fxg7", "Bf5" }) {
+            final Move move = PGNUtilities.createMove(board, san);
+            assertTrue(board.getCurrentPlayer().makeMove(move).getMoveStatus().isDone(), san);
+            board = board.getCurrentPlayer().makeMove(move).getToBoard();
+        }
+        assertMove(board, "gxh8=Q", "g7", "h8");
+        assertTrue(PGNUtilities.createMove(board, "gxh8=Q") instanceof Move.PawnPromotion);
+    }
+
+    @Test
+    public void rejectsMalformedText() {
+        final Board board = Board.createStandardBoard();
+        for (final String san : new String[] { "", "+", "Zz9", "e9", "Nd9", "O-O-O-O", "Ke2", "x" }) {
+            assertEquals(Move.NULL_MOVE, PGNUtilities.createMove(board, san), san);
+        }
+    }
+}
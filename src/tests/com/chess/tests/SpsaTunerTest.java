@@ -0,0 +1,122 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.SearchParameters;
+import com.chess.engine.player.ai.SearchParameters.Setting;
+import com.chess.pgn.FenUtilities;
+import com.chess.tuning.SelfPlayGame;
+import com.chess.tuning.SelfPlayGame.Outcome;
+import com.chess.tuning.SpsaTuner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpsaTunerTest {
+
+    private static final MoveStrategy NULL_MOVER = new MoveStrategy() {
+        @Override
+        public long getNumBoardsEvaluated() {
+            return 0;
+        }
+
+        @Override
+        public Move execute(final Board board) {
+            return Move.NULL_MOVE;
+        }
+    };
+
+    private static double[] defaults() {
+        final int[] values = SearchParameters.DEFAULT.getValues();
+        final double[] theta = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            theta[i] = values[i];
+        }
+        return theta;
+    }
+
+    @Test
+    public void perturbationsNeverVanish() {
+        final int[] delta = { 1, -1, 1 };
+        for (final double c : new double[] { 1.0, 0.5, 0.01 }) {
+            final int[] steps = SpsaTuner.steps(c);
+            final SearchParameters plus = SpsaTuner.perturb(defaults(), delta, steps, 1);
+            final SearchParameters minus = SpsaTuner.perturb(defaults(), delta, steps, -1);
+            for (final Setting setting : Setting.values()) {
+                assertTrue(steps[setting.ordinal()] >= 1);
+                assertTrue(plus.get(setting) != minus.get(setting), setting + " at c = " + c);
+            }
+        }
+        assertEquals(SearchParameters.DEFAULT, SpsaTuner.perturb(defaults(), delta, SpsaTuner.steps(0.5), 0));
+
+        // A perturbation of 5000 for MAX_QUIESCENCE and 1 for the others, halved and rounded up to 1
+        final double[] theta = defaults();
+        final int[] steps = SpsaTuner.steps(0.5);
+        assertArrayEquals(new int[] { 2500, 1, 1 }, steps);
+        SpsaTuner.update(theta, delta, steps, 1.0, 0.1);
+        assertEquals(26000, theta[Setting.MAX_QUIESCENCE.ordinal()], 1e-6);
+        assertEquals(1.9, theta[Setting.QUIESCENCE_ACTIVITY.ordinal()], 1e-9);
+        assertEquals(2.1, theta[Setting.QUIESCENCE_DEPTH.ordinal()], 1e-9);
+        SpsaTuner.update(theta, delta, steps, 0.0, 0.1);
+        assertEquals(1.9, theta[Setting.QUIESCENCE_ACTIVITY.ordinal()], 1e-9);
+        SpsaTuner.update(theta, delta, steps, -1.0, 1000);
+        assertEquals(0, theta[Setting.MAX_QUIESCENCE.ordinal()], 1e-9);
+        assertEquals(3, theta[Setting.QUIESCENCE_ACTIVITY.ordinal()], 1e-9);
+        assertEquals(1, theta[Setting.QUIESCENCE_DEPTH.ordinal()], 1e-9);
+    }
+
+    @Test
+    public void checkpointsRoundTrip() throws IOException {
+        final File checkpoint = File.createTempFile("spsa", ".properties");
+        checkpoint.deleteOnExit();
+        final double[] theta = { 31234.5678, 1.25, 3.875 };
+        SpsaTuner.saveCheckpoint(checkpoint, 17, theta);
+        final double[] loaded = defaults();
+        assertEquals(17, SpsaTuner.loadCheckpoint(checkpoint, loaded));
+        assertArrayEquals(theta, loaded, 0.0);
+
+        try (final Writer writer = new FileWriter(checkpoint)) {
+            writer.write("iteration=3\nQUIESCENCE_DEPTH=3.5\n");
+        }
+        final double[] partial = defaults();
+        assertEquals(3, SpsaTuner.loadCheckpoint(checkpoint, partial));
+        assertArrayEquals(new double[] { Setting.MAX_QUIESCENCE.getDefaultValue(),
+                Setting.QUIESCENCE_ACTIVITY.getDefaultValue(), 3.5 }, partial, 0.0);
+
+        try (final Writer writer = new FileWriter(checkpoint)) {
+            writer.write("iteration=three\n");
+        }
+        assertThrows(IOException.class, () -> SpsaTuner.loadCheckpoint(checkpoint, defaults()));
+    }
+
+    @Test
+    public void selfPlayGamesAreAdjudicated() {
+        final Board backRankMate = FenUtilities.createGameFromFEN("7k/8/8/8/8/8/5PPP/r5K1 w - - 0 1");
+        final SelfPlayGame mated = SelfPlayGame.play(backRankMate, NULL_MOVER, NULL_MOVER, 10);
+        assertEquals(Outcome.BLACK_WINS, mated.getOutcome());
+        assertTrue(mated.getMoves().isEmpty());
+
+        final Board stalemate = FenUtilities.createGameFromFEN("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(Outcome.DRAW, SelfPlayGame.play(stalemate, NULL_MOVER, NULL_MOVER, 10).getOutcome());
+
+        // At the ply limit a rook ahead wins and equal material draws
+        final Board rookAhead = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals(Outcome.WHITE_WINS, SelfPlayGame.play(rookAhead, NULL_MOVER, NULL_MOVER, 0).getOutcome());
+        final Board rooks = FenUtilities.createGameFromFEN("r3k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals(Outcome.DRAW, SelfPlayGame.play(rooks, NULL_MOVER, NULL_MOVER, 0).getOutcome());
+
+        // A strategy that cannot move forfeits
+        assertEquals(Outcome.BLACK_WINS, SelfPlayGame.play(rooks, NULL_MOVER, NULL_MOVER, 10).getOutcome());
+
+        // Self-play games end by the same rules as match games, bare kings draw before anyone moves
+        final Board bareKings = FenUtilities.createGameFromFEN("8/8/8/4k3/8/8/8/4K3 w - - 0 1");
+        assertEquals(Outcome.DRAW, SelfPlayGame.play(bareKings, NULL_MOVER, NULL_MOVER, 10).getOutcome());
+    }
+}
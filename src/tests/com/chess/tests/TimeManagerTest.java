@@ -0,0 +1,60 @@
+package tests.com.chess.tests;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.SearchLimits;
+import com.chess.engine.player.ai.TimeManager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeManagerTest {
+
+    @Test
+    public void allocatesFromClockAndIncrement() {
+        final SearchLimits limits = new SearchLimits.Builder()
+                .setWhiteTime(60050)
+                .setWhiteIncrement(1000)
+                .setBlackTime(1000)
+                .build();
+        final TimeManager white = TimeManager.create(limits, Alliance.WHITE);
+        assertTrue(white.isTimed());
+        assertEquals(60000 / 30 + 750, white.getOptimumMillis());
+        assertEquals(5 * white.getOptimumMillis(), white.getMaximumMillis());
+        final TimeManager black = TimeManager.create(limits, Alliance.BLACK);
+        assertTrue(black.getMaximumMillis() < 1000);
+        assertFalse(TimeManager.create(SearchLimits.depth(4), Alliance.WHITE).isTimed());
+    }
+
+    @Test
+    public void lastMoveBeforeTimeControlMayUseTheClock() {
+        final SearchLimits limits = new SearchLimits.Builder()
+                .setWhiteTime(10050)
+                .setMovesToGo(1)
+                .build();
+        final TimeManager manager = TimeManager.create(limits, Alliance.WHITE);
+        assertEquals(10000, manager.getOptimumMillis());
+        assertEquals(10000, manager.getMaximumMillis());
+    }
+
+    @Test
+    public void extendsOnUnstableBestMoveAndStopsOnSingleReply() {
+        final SearchLimits limits = new SearchLimits.Builder().setWhiteTime(30050).build();
+        final Board board = Board.createStandardBoard();
+        final Move first = Move.MoveFactory.createMove(board, 52, 36);
+        final Move second = Move.MoveFactory.createMove(board, 51, 35);
+        final TimeManager stable = TimeManager.create(limits, Alliance.WHITE);
+        final TimeManager unstable = TimeManager.create(limits, Alliance.WHITE);
+        final long elapsed = stable.getOptimumMillis() / 2 - 1;
+        for (int i = 0; i < 4; i++) {
+            stable.iterationFinished(20, first);
+            unstable.iterationFinished(20, i % 2 == 0 ? first : second);
+        }
+        assertFalse(stable.shouldStartIteration(elapsed));
+        assertTrue(unstable.shouldStartIteration(elapsed));
+        stable.setSingleReply(true);
+        assertFalse(stable.shouldStartIteration(0));
+    }
+}